@@ -0,0 +1,38 @@
+package com.github.jcrochavera.jwt.authz.annotations;
+
+import jakarta.interceptor.InterceptorBinding;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ * <p>
+ * Enforces {@link RequiresPermissions} and the role annotations of the methods of a CDI bean, outside of the JAX-RS
+ * boundary, once the application declares an interceptor extending
+ * {@link com.github.jcrochavera.jwt.authz.boundary.PermissionsInterceptor}. Instances are bound from the parameters
+ * of the method by {@link jakarta.ws.rs.PathParam}, {@link jakarta.inject.Named} or their name when the class is
+ * compiled with <code>-parameters</code>:
+ * </p>
+ * <pre>
+ *     &#64;EnforcePermissions
+ *     &#64;ApplicationScoped
+ *     public class ReportService {
+ *         &#64;RequiresPermissions(permissions = {
+ *                 &#64;RequiresPermission(resource = "REPORTS", instance = "reportId", value = Permission.READ)
+ *         })
+ *         public Report find(&#64;Named("reportId") long reportId)
+ *     }
+ * </pre>
+ *
+ * @author julio.rocha
+ * @see com.github.jcrochavera.jwt.authz.boundary.PermissionsInterceptor
+ * @since 1.1.0
+ */
+@InterceptorBinding
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface EnforcePermissions {
+}
@@ -58,6 +58,20 @@ public @interface RequiresPermission {
      */
     String instance() default "";
 
+    /**
+     * <p>Top-level field of the JSON request entity holding the instance under test, for endpoints receiving the
+     * instance in the body instead of a path parameter. When it is defined {@link #instance()} is ignored.</p>
+     * <p>
+     * The top-level object of the entity is parsed until the field is found and the bytes read are given back to
+     * the entity stream, so requests are authorized before the entity is deserialized. Requests repeating the field
+     * are forbidden
+     * </p>
+     *
+     * @return the field of the request entity holding the instance under test
+     * @since 1.1.0
+     */
+    String bodyField() default "";
+
     /**
      * <p>The permission values under test</p>
      * <ul>
@@ -0,0 +1,94 @@
+package com.github.jcrochavera.jwt.authz.boundary;
+
+import com.github.jcrochavera.jwt.authz.annotations.RequiresPermissions;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.Priorities;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.DynamicFeature;
+import jakarta.ws.rs.container.ResourceInfo;
+import jakarta.ws.rs.core.FeatureContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.Objects;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ * <p>
+ * Registers an {@link AuthorizationFilter} at deployment only on the resource methods that require permissions,
+ * by their {@link RequiresPermissions} or the one of their class, or roles when they are evaluated. The compiled
+ * plan of each method is bound to its filter, so requests to unprotected methods are not filtered at all and
+ * protected ones do not look their plan up:
+ * </p>
+ * <pre>
+ * {@literal @}ApplicationPath("/api")
+ * public class JAXRSConfiguration extends Application {
+ *     {@literal @}Override
+ *     public Set&lt;Class&lt;?&gt;&gt; getClasses() {
+ *         return Set.of(AuthorizationFeature.class, ...);
+ *     }
+ * }
+ * </pre>
+ * <p>Registered as a class the request-scoped {@link ClientAuthz} is injected, an instance created with
+ * {@link #AuthorizationFeature(ClientAuthz, boolean, DenialGuard)} evaluates roles and uses a guard. A
+ * {@link PolicyFile} can change the permissions of the methods it filters, methods the policy protects must be
+ * in it before the deployment to be filtered.</p>
+ *
+ * @author julio.rocha
+ * @since 1.1.0
+ */
+public class AuthorizationFeature implements DynamicFeature {
+    static Logger LOG = LoggerFactory.getLogger(AuthorizationFeature.class);
+    @Inject
+    ClientAuthz clientAuth;
+    boolean evaluateRoles;
+    DenialGuard guard;
+
+    public AuthorizationFeature() {
+    }
+
+    /**
+     * @param clientAuth    session and principal of the request, usually a request-scoped proxy
+     * @param evaluateRoles true to evaluate role rules in the same pass as permissions
+     * @param guard         denials shared by the filters of the application, null to evaluate every request
+     */
+    public AuthorizationFeature(ClientAuthz clientAuth, boolean evaluateRoles, DenialGuard guard) {
+        Objects.requireNonNull(clientAuth, "clientAuth is mandatory");
+        this.clientAuth = clientAuth;
+        this.evaluateRoles = evaluateRoles;
+        this.guard = guard;
+    }
+
+    @Override
+    public void configure(ResourceInfo resourceInfo, FeatureContext context) {
+        Method method = resourceInfo.getResourceMethod();
+        if (Objects.isNull(method)) {
+            return;
+        }
+        AuthorizationPlan plan = AuthorizationPlan.annotated(method);
+        AuthorizationPlan current = plan.current();
+        if (current.requiresPermissions() || (evaluateRoles && current.requiresRoles())) {
+            LOG.debug("'{}' is filtered", method);
+            context.register(new BoundFilter(new AuthorizationFilter(plan, clientAuth, evaluateRoles, guard)),
+                    Priorities.AUTHORIZATION);
+        }
+    }
+
+    /**
+     * Filter of a single resource method
+     */
+    static final class BoundFilter implements ContainerRequestFilter {
+        final AuthorizationFilter filter;
+
+        BoundFilter(AuthorizationFilter filter) {
+            this.filter = filter;
+        }
+
+        @Override
+        public void filter(ContainerRequestContext requestContext) {
+            filter.filter(requestContext);
+        }
+    }
+}
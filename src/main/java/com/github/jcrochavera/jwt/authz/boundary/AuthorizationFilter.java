@@ -1,18 +1,17 @@
 package com.github.jcrochavera.jwt.authz.boundary;
 
-import com.github.jcrochavera.jwt.authz.annotations.Operation;
-import com.github.jcrochavera.jwt.authz.annotations.RequiresPermission;
 import com.github.jcrochavera.jwt.authz.annotations.RequiresPermissions;
 import com.github.jcrochavera.jwt.authz.control.UserSession;
-import com.github.jcrochavera.jwt.authz.utils.AnnotationUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import jakarta.annotation.security.DenyAll;
+import jakarta.annotation.security.PermitAll;
+import jakarta.annotation.security.RolesAllowed;
 import jakarta.ws.rs.ForbiddenException;
 import jakarta.ws.rs.NotAuthorizedException;
 import jakarta.ws.rs.container.ContainerRequestContext;
 import jakarta.ws.rs.container.ResourceInfo;
-import jakarta.ws.rs.core.MultivaluedMap;
 
 import java.lang.reflect.Method;
 import java.util.Objects;
@@ -25,19 +24,83 @@ import java.util.Objects;
  *     <li>Session does not have resource permission for the defined annotation</li>
  *     <li>Session does not have resource and instance permission for the defined annotation</li>
  *     <li>Request does not contain an expected instance name with no null value for the defined annotation</li>
+ *     <li>Roles are evaluated and user is not in any role of {@link RolesAllowed} or method is {@link DenyAll}</li>
  * </ul>
+ * <p>Annotations of every method are read once and cached as a compiled plan. With a {@link DenialGuard}, users
+ * denied too often on a method are rejected before their requests are evaluated. Decisions are recorded as
+ * {@link AuthzDecisionEvent} when Flight Recorder is enabled.</p>
+ * <p>Built from a {@link ResourceInfo}, the filter keeps the behaviour of 1.0 and only checks
+ * {@link RequiresPermissions} of the resource method, filters registered by {@link AuthorizationFeature} also check
+ * the one of its class.</p>
  *
  * @author julio.rocha
  * @since 1.0.0
  */
 public class AuthorizationFilter {
     static Logger LOG = LoggerFactory.getLogger(AuthorizationFilter.class);
+    /**
+     * False on runtimes linked without the <code>jdk.jfr</code> module, requests are filtered without {@link AuthzDecisionEvent}
+     */
+    static boolean FLIGHT_RECORDER = ModuleLayer.boot().findModule("jdk.jfr").isPresent();
     ResourceInfo resourceInfo;
     ClientAuthz clientAuth;
+    boolean evaluateRoles;
+    DenialGuard guard;
+    /**
+     * Plan of the annotations of the method bound at deployment, null to look it up on every request
+     */
+    AuthorizationPlan plan;
 
     public AuthorizationFilter(ResourceInfo resourceInfo, ClientAuthz clientAuth) {
+        this(resourceInfo, clientAuth, false);
+    }
+
+    /**
+     * @param resourceInfo  resource being invoked
+     * @param clientAuth    session and principal of the request
+     * @param evaluateRoles true to evaluate {@link RolesAllowed}, {@link PermitAll} and {@link DenyAll} against
+     *                      {@link ClientAuthz#getRoles()} in the same pass as permissions, instead of leaving them
+     *                      to the container
+     * @since 1.1.0
+     */
+    public AuthorizationFilter(ResourceInfo resourceInfo, ClientAuthz clientAuth, boolean evaluateRoles) {
+        this(resourceInfo, clientAuth, evaluateRoles, null);
+    }
+
+    /**
+     * @param resourceInfo  resource being invoked
+     * @param clientAuth    session and principal of the request
+     * @param evaluateRoles true to evaluate role rules in the same pass as permissions
+     * @param guard         denials shared by the filters of the application, null to evaluate every request
+     * @since 1.1.0
+     */
+    public AuthorizationFilter(ResourceInfo resourceInfo, ClientAuthz clientAuth, boolean evaluateRoles,
+                               DenialGuard guard) {
         this.resourceInfo = resourceInfo;
         this.clientAuth = clientAuth;
+        this.evaluateRoles = evaluateRoles;
+        this.guard = guard;
+    }
+
+    /**
+     * @param plan plan of the annotations of the only method filtered
+     */
+    AuthorizationFilter(AuthorizationPlan plan, ClientAuthz clientAuth, boolean evaluateRoles, DenialGuard guard) {
+        this((ResourceInfo) null, clientAuth, evaluateRoles, guard);
+        this.plan = plan;
+    }
+
+    /**
+     * @param bytes maximum number of bytes of a request entity read to find the fields checked by
+     *              {@link com.github.jcrochavera.jwt.authz.annotations.RequiresPermission#bodyField()}, requests
+     *              holding them further are rejected with 413 Payload Too Large (64 KiB by default)
+     * @since 1.1.0
+     */
+    public static void setBodyFieldsLimit(int bytes) {
+        if (bytes <= 0) {
+            throw new IllegalArgumentException("bytes must be positive");
+        }
+        RequestBodyFields.limit = bytes;
     }
 
     /**
@@ -46,52 +109,67 @@ public class AuthorizationFilter {
      * @param requestContext incoming request
      */
     public void filter(ContainerRequestContext requestContext) {
+        AuthorizationPlan plan = Objects.isNull(this.plan) ? resourcePlan() : this.plan.current();
+        AuthzDecisionEvent event = FLIGHT_RECORDER ? AuthzDecisionEvent.start() : null;
+        if (Objects.isNull(guard) && Objects.isNull(event)) {
+            plan.evaluate(requestContext, clientAuth, evaluateRoles);
+        } else {
+            evaluateObserved(plan, requestContext, event);
+        }
+    }
+
+    private AuthorizationPlan resourcePlan() {
         Method resourceMethod = resourceInfo.getResourceMethod();
         if (Objects.isNull(resourceMethod)) {
             LOG.error("resourceMethod is null, filter will not be executed");
             throw new IllegalStateException("resourceMethod is null, filter will not be executed");
         }
-        AnnotationUtils au = new AnnotationUtils(resourceMethod.getAnnotations());
-        if (au.isAnnotationPresent(RequiresPermissions.class)) {
+        // as in 1.0, permissions declared only on the resource class are not checked by this filter
+        AuthorizationPlan plan = AuthorizationPlan.of(resourceMethod).declared;
+        if (plan.requiresPermissions()) {
             LOG.debug("'{}' requires permission evaluation", resourceInfo.getResourceClass());
-            RequiresPermissions requiresPermissions = au.getAnnotation(RequiresPermissions.class);
-            RequiresPermission[] permissions = requiresPermissions.permissions();
-            for (RequiresPermission permission : permissions) {
-                String resource = permission.resource();
-                String[] value = permission.value();
-                Operation operation = permission.operation();
-                String instanceName = permission.instance();
-                evaluateOne(requestContext, resource, value, operation, instanceName);
-            }
         } else {
             LOG.debug("'{}' Just requires role evaluation", resourceInfo.getResourceClass());
         }
+        return plan;
     }
 
-    private void evaluateOne(ContainerRequestContext containerRequestContext, String resource, String[] value, Operation operation, String instanceName) {
-        UserSession session = clientAuth.getSession();
-        if (Objects.isNull(session)) {
-            throw new NotAuthorizedException("");
-        }
-        if (!instanceName.isEmpty()) {
-            String instance = getInstanceFromParameter(containerRequestContext, instanceName);
-            if (!session.hasInstancePermissions(resource, instance, operation, value)) {
+    /**
+     * Evaluates the plan recording its outcome in the guard and in the event, when they are present
+     */
+    private void evaluateObserved(AuthorizationPlan plan, ContainerRequestContext requestContext,
+                                  AuthzDecisionEvent event) {
+        String user = null;
+        if (Objects.nonNull(guard)) {
+            UserSession session = clientAuth.getSession();
+            user = Objects.isNull(session) ? null : session.getUser();
+            if (Objects.nonNull(user) && guard.isBlocked(user, plan.method)) {
+                LOG.debug("'{}' rejected, too many denials of '{}'", plan.method.getName(), user);
+                record(event, plan, requestContext, AuthzDecisionEvent.REJECTED);
                 throw new ForbiddenException();
             }
-        } else {
-            if (!session.hasPermissions(resource, operation, value)) {
-                throw new ForbiddenException();
+        }
+        String outcome = AuthzDecisionEvent.DENIED;
+        try {
+            plan.evaluate(requestContext, clientAuth, evaluateRoles);
+            outcome = AuthzDecisionEvent.PERMITTED;
+        } catch (NotAuthorizedException e) {
+            outcome = AuthzDecisionEvent.UNAUTHENTICATED;
+            throw e;
+        } catch (ForbiddenException e) {
+            if (Objects.nonNull(user)) {
+                guard.recordDenial(user, plan.method);
             }
+            throw e;
+        } finally {
+            record(event, plan, requestContext, outcome);
         }
     }
 
-    private String getInstanceFromParameter(ContainerRequestContext containerRequestContext, String instanceName) {
-        MultivaluedMap<String, String> pathParameters = containerRequestContext.getUriInfo().getPathParameters();
-        String instance = pathParameters.getFirst(instanceName);
-        if (Objects.isNull(instance)) {
-            LOG.warn("Value for parameter '{}' was not provided", instanceName);
-            throw new ForbiddenException();
+    private static void record(AuthzDecisionEvent event, AuthorizationPlan plan, ContainerRequestContext requestContext,
+                               String outcome) {
+        if (Objects.nonNull(event)) {
+            event.record(plan, requestContext, outcome);
         }
-        return instance;
     }
 }
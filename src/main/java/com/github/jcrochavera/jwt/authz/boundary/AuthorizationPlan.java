@@ -0,0 +1,476 @@
+package com.github.jcrochavera.jwt.authz.boundary;
+
+import com.github.jcrochavera.jwt.authz.annotations.Operation;
+import com.github.jcrochavera.jwt.authz.annotations.RequiresPermission;
+import com.github.jcrochavera.jwt.authz.annotations.RequiresPermissions;
+import com.github.jcrochavera.jwt.authz.control.UserSession;
+import com.github.jcrochavera.jwt.authz.utils.AnnotationUtils;
+import jakarta.annotation.security.DenyAll;
+import jakarta.annotation.security.PermitAll;
+import jakarta.annotation.security.RolesAllowed;
+import jakarta.inject.Named;
+import jakarta.ws.rs.ForbiddenException;
+import jakarta.ws.rs.NotAuthorizedException;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ * <p>
+ * Role and permission rules of a resource method, read from its annotations once and cached per method,
+ * so requests evaluate them in a single pass without reflection. Role rules follow the resolution of
+ * <code>jakarta.annotation.security</code>: {@link DenyAll}, {@link PermitAll} and {@link RolesAllowed} on the method
+ * take precedence over the ones of its class, and so does {@link RequiresPermissions}.
+ * </p>
+ * <p>Instances are read from the path parameters of a request, or from the parameters of an intercepted method
+ * bound by {@link PathParam}, {@link Named} or their name when the class is compiled with <code>-parameters</code>,
+ * or from the fields of a message received on a connection. Instances of {@link RequiresPermission#bodyField()} are
+ * read from the JSON entity of a request, or from the entity parameter of an intercepted method.</p>
+ *
+ * @author julio.rocha
+ * @since 1.1.0
+ */
+final class AuthorizationPlan {
+    static Logger LOG = LoggerFactory.getLogger(AuthorizationPlan.class);
+    private static final Map<Method, AuthorizationPlan> PLANS = new ConcurrentHashMap<>();
+    /**
+     * Plans of the methods overridden by the current {@link PolicyFile}, replaced as a whole on every reload
+     */
+    private static volatile Map<Method, AuthorizationPlan> policy = Map.of();
+
+    final Method method;
+    final boolean denyAll;
+    /**
+     * Roles allowed to invoke the method, null when no role is required
+     */
+    final String[] rolesAllowed;
+    final Check[] checks;
+    /**
+     * Fields of the request entity holding instances of the checks
+     */
+    final Set<String> bodyFields;
+    /**
+     * Resources of the checks separated by commas
+     */
+    final String resources;
+    /**
+     * This plan without the permissions of the class of the method, the same plan when they are declared on the
+     * method or by the policy
+     */
+    final AuthorizationPlan declared;
+
+    private AuthorizationPlan(Method method, boolean denyAll, String[] rolesAllowed, Check[] checks) {
+        this(method, denyAll, rolesAllowed, checks, null);
+    }
+
+    private AuthorizationPlan(Method method, boolean denyAll, String[] rolesAllowed, Check[] checks,
+                              AuthorizationPlan declared) {
+        this.method = method;
+        this.denyAll = denyAll;
+        this.rolesAllowed = rolesAllowed;
+        this.checks = checks;
+        this.bodyFields = Arrays.stream(checks).filter(check -> check.body).map(check -> check.instance)
+                .collect(Collectors.toUnmodifiableSet());
+        this.resources = Arrays.stream(checks).map(check -> check.resource).distinct().collect(Collectors.joining(","));
+        this.declared = Objects.isNull(declared) ? this : declared;
+    }
+
+    /**
+     * @param method resource method
+     * @return the plan of the method in the current policy, otherwise the one of its annotations compiled on its
+     * first use
+     */
+    static AuthorizationPlan of(Method method) {
+        AuthorizationPlan plan = policy.get(method);
+        return Objects.nonNull(plan) ? plan : annotated(method);
+    }
+
+    /**
+     * @param method resource method
+     * @return the plan of the annotations of the method, compiled on its first use, whatever the current policy
+     */
+    static AuthorizationPlan annotated(Method method) {
+        AuthorizationPlan plan = PLANS.get(method);
+        return Objects.nonNull(plan) ? plan : PLANS.computeIfAbsent(method, AuthorizationPlan::compile);
+    }
+
+    /**
+     * @param plans plans overriding the ones of the annotations, an empty map to restore them
+     */
+    static void setPolicy(Map<Method, AuthorizationPlan> plans) {
+        policy = plans;
+    }
+
+    /**
+     * @return methods whose plan was compiled
+     */
+    static Set<Method> compiled() {
+        return PLANS.keySet();
+    }
+
+    static AuthorizationPlan compile(Method method) {
+        AnnotationUtils methodAnnotations = new AnnotationUtils(method.getAnnotations());
+        AnnotationUtils classAnnotations = new AnnotationUtils(method.getDeclaringClass().getAnnotations());
+        AnnotationUtils roles = hasRoleRule(methodAnnotations) ? methodAnnotations : classAnnotations;
+        RolesAllowed rolesAllowed = roles.getAnnotation(RolesAllowed.class);
+        boolean denyAll = roles.isAnnotationPresent(DenyAll.class);
+        boolean permitAll = roles.isAnnotationPresent(PermitAll.class);
+        boolean inherited = !methodAnnotations.isAnnotationPresent(RequiresPermissions.class);
+        RequiresPermissions requiresPermissions = inherited ? classAnnotations.getAnnotation(RequiresPermissions.class)
+                : methodAnnotations.getAnnotation(RequiresPermissions.class);
+        RequiresPermission[] permissions = Objects.isNull(requiresPermissions) ? new RequiresPermission[0]
+                : requiresPermissions.permissions();
+        Check[] checks = new Check[permissions.length];
+        for (int i = 0; i < permissions.length; i++) {
+            RequiresPermission permission = permissions[i];
+            checks[i] = permission.bodyField().isEmpty()
+                    ? check(method, permission.resource(), permission.value(), permission.operation(),
+                    permission.instance())
+                    : bodyCheck(method, permission.resource(), permission.value(), permission.operation(),
+                    permission.bodyField());
+        }
+        String[] allowed = denyAll || permitAll || Objects.isNull(rolesAllowed) ? null : rolesAllowed.value();
+        AuthorizationPlan declared = inherited && checks.length > 0
+                ? new AuthorizationPlan(method, denyAll, allowed, new Check[0]) : null;
+        return new AuthorizationPlan(method, denyAll, allowed, checks, declared);
+    }
+
+    /**
+     * @param checks permissions required instead of the annotated ones
+     * @return a plan with the role rules of this one and the provided permissions
+     */
+    AuthorizationPlan withChecks(Check[] checks) {
+        return new AuthorizationPlan(method, denyAll, rolesAllowed, checks);
+    }
+
+    /**
+     * @return a check of the method, its instance bound as the ones of {@link RequiresPermission}
+     */
+    static Check check(Method method, String resource, String[] permissions, Operation operation, String instance) {
+        return new Check(resource, permissions, operation, instance, parameterIndex(method, instance));
+    }
+
+    /**
+     * @return a check of the method, its instance read from a field of the request entity as the ones of
+     * {@link RequiresPermission#bodyField()}
+     */
+    static Check bodyCheck(Method method, String resource, String[] permissions, Operation operation, String field) {
+        return new Check(resource, permissions, operation, field, entityIndex(method), true);
+    }
+
+    private static int parameterIndex(Method method, String instance) {
+        Parameter[] parameters = method.getParameters();
+        for (int i = 0; i < parameters.length && !instance.isEmpty(); i++) {
+            if (instance.equals(parameterName(parameters[i]))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return index of the parameter without JAX-RS annotations, the one receiving the entity, -1 when there is none
+     */
+    private static int entityIndex(Method method) {
+        Parameter[] parameters = method.getParameters();
+        for (int i = 0; i < parameters.length; i++) {
+            if (Arrays.stream(parameters[i].getAnnotations())
+                    .noneMatch(annotation -> annotation.annotationType().getName().startsWith("jakarta.ws.rs."))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String parameterName(Parameter parameter) {
+        PathParam pathParam = parameter.getAnnotation(PathParam.class);
+        if (Objects.nonNull(pathParam)) {
+            return pathParam.value();
+        }
+        Named named = parameter.getAnnotation(Named.class);
+        return Objects.nonNull(named) ? named.value() : parameter.getName();
+    }
+
+    private static boolean hasRoleRule(AnnotationUtils annotations) {
+        return annotations.isAnnotationPresent(DenyAll.class) || annotations.isAnnotationPresent(PermitAll.class)
+                || annotations.isAnnotationPresent(RolesAllowed.class);
+    }
+
+    /**
+     * @return the plan of the current policy when one overrides the method, otherwise this same plan, which must be
+     * the one of its annotations
+     */
+    AuthorizationPlan current() {
+        Map<Method, AuthorizationPlan> overrides = policy;
+        return overrides.isEmpty() ? this : overrides.getOrDefault(method, this);
+    }
+
+    /**
+     * @return true when role rules must be evaluated
+     */
+    boolean requiresRoles() {
+        return denyAll || Objects.nonNull(rolesAllowed);
+    }
+
+    /**
+     * @return true when the method or its class is annotated with {@link RequiresPermissions}
+     */
+    boolean requiresPermissions() {
+        return checks.length > 0;
+    }
+
+    /**
+     * @param requestContext incoming request
+     * @param clientAuth     session and principal of the request
+     * @param evaluateRoles  true to evaluate role rules, false when the container enforces them
+     * @throws NotAuthorizedException  when a rule must be evaluated and the request is not authenticated
+     * @throws ForbiddenException      when a rule is not satisfied
+     * @throws WebApplicationException with 413 when the body fields are not in the bytes read from the entity
+     */
+    void evaluate(ContainerRequestContext requestContext, ClientAuthz clientAuth, boolean evaluateRoles) {
+        if (evaluateRoles) {
+            evaluateRoles(clientAuth);
+        }
+        if (checks.length == 0) {
+            return;
+        }
+        UserSession session = clientAuth.getSession();
+        if (Objects.isNull(session)) {
+            throw new NotAuthorizedException("");
+        }
+        for (Check check : checks) {
+            boolean permitted;
+            if (check.body) {
+                continue;
+            } else if (check.instance.isEmpty()) {
+                permitted = session.hasPermissions(check.resource, check.operation, check.permissions);
+            } else {
+                String instance = getInstanceFromParameter(requestContext, check.instance);
+                permitted = session.hasInstancePermissions(check.resource, instance, check.operation, check.permissions);
+            }
+            if (!permitted) {
+                throw denied("permissions on '" + check.resource + "'");
+            }
+        }
+        if (bodyFields.isEmpty()) {
+            return;
+        }
+        // the entity is only read once the rest of the rules are satisfied
+        Map<String, String> fields = RequestBodyFields.read(requestContext, bodyFields);
+        for (Check check : checks) {
+            if (check.body) {
+                String instance = getInstanceFromBody(fields, check.instance);
+                if (!session.hasInstancePermissions(check.resource, instance, check.operation, check.permissions)) {
+                    throw denied("permissions on '" + check.resource + "'");
+                }
+            }
+        }
+    }
+
+    /**
+     * @param parameters    values of the parameters of an intercepted invocation of the method
+     * @param clientAuth    session and principal of the caller
+     * @param evaluateRoles true to evaluate role rules, false when the container enforces them
+     * @param memo          decisions already taken in the request, null to evaluate every check
+     * @throws NotAuthorizedException when a rule must be evaluated and the caller is not authenticated
+     * @throws ForbiddenException     when a rule is not satisfied
+     */
+    void evaluate(Object[] parameters, ClientAuthz clientAuth, boolean evaluateRoles, DecisionMemo memo) {
+        if (evaluateRoles) {
+            evaluateRoles(clientAuth);
+        }
+        if (checks.length == 0) {
+            return;
+        }
+        UserSession session = clientAuth.getSession();
+        if (Objects.isNull(session)) {
+            throw new NotAuthorizedException("");
+        }
+        for (Check check : checks) {
+            Object instance = check.instance.isEmpty() ? Check.RESOURCE : getInstanceFromArgument(parameters, check);
+            boolean permitted = Objects.isNull(memo) ? check.evaluate(session, instance)
+                    : memo.decide(session, check, instance);
+            if (!permitted) {
+                throw denied("permissions on '" + check.resource + "'");
+            }
+        }
+    }
+
+    /**
+     * @param message message received by the method on a connection
+     * @param session session bound to the connection, its roles are the ones evaluated
+     * @param memo    decisions already taken on the connection
+     * @throws ForbiddenException when a rule is not satisfied
+     */
+    void evaluate(Object message, UserSession session, DecisionMemo memo) {
+        if (denyAll) {
+            throw denied("@DenyAll");
+        }
+        if (Objects.nonNull(rolesAllowed)) {
+            evaluateRoles(session.getRoles());
+        }
+        for (Check check : checks) {
+            Object instance = check.instance.isEmpty() ? Check.RESOURCE : getInstanceFromMessage(message, check);
+            if (!memo.decide(session, check, instance)) {
+                throw denied("permissions on '" + check.resource + "'");
+            }
+        }
+    }
+
+    private void evaluateRoles(ClientAuthz clientAuth) {
+        if (denyAll) {
+            throw denied("@DenyAll");
+        }
+        if (Objects.isNull(rolesAllowed)) {
+            return;
+        }
+        if (Objects.isNull(clientAuth.getPrincipal()) && Objects.isNull(clientAuth.getSession())) {
+            throw new NotAuthorizedException("");
+        }
+        evaluateRoles(clientAuth.getRoles());
+    }
+
+    private void evaluateRoles(Set<String> roles) {
+        for (String role : rolesAllowed) {
+            if (roles.contains(role)) {
+                return;
+            }
+        }
+        throw denied("@RolesAllowed");
+    }
+
+    /**
+     * @param requestContext incoming request
+     * @return values of the instance path parameters of the checks separated by commas
+     */
+    String instances(ContainerRequestContext requestContext) {
+        StringJoiner instances = new StringJoiner(",");
+        for (Check check : checks) {
+            if (!check.instance.isEmpty() && !check.body) {
+                instances.add(String.valueOf(requestContext.getUriInfo().getPathParameters().getFirst(check.instance)));
+            }
+        }
+        return instances.toString();
+    }
+
+    private String getInstanceFromParameter(ContainerRequestContext requestContext, String instanceName) {
+        String instance = requestContext.getUriInfo().getPathParameters().getFirst(instanceName);
+        if (Objects.isNull(instance)) {
+            LOG.warn("Value for parameter '{}' was not provided", instanceName);
+            throw denied("missing parameter '" + instanceName + "'");
+        }
+        return instance;
+    }
+
+    private String getInstanceFromBody(Map<String, String> fields, String field) {
+        String instance = fields.get(field);
+        if (Objects.isNull(instance)) {
+            LOG.warn("Value for field '{}' was not provided", field);
+            throw denied("missing field '" + field + "'");
+        }
+        return instance;
+    }
+
+    private Object getInstanceFromArgument(Object[] parameters, Check check) {
+        Object argument = check.parameter < 0 ? null : parameters[check.parameter];
+        if (check.body && Objects.nonNull(argument)) {
+            argument = MessageFields.get(argument, check.instance);
+        }
+        if (Objects.isNull(argument)) {
+            LOG.warn("Value for parameter '{}' was not provided", check.instance);
+            throw denied("missing parameter '" + check.instance + "'");
+        }
+        return InstanceDispatch.toInstance(argument);
+    }
+
+    private Object getInstanceFromMessage(Object message, Check check) {
+        Object field = MessageFields.get(message, check.instance);
+        if (Objects.isNull(field)) {
+            LOG.warn("Value for field '{}' was not provided", check.instance);
+            throw denied("missing field '" + check.instance + "'");
+        }
+        return InstanceDispatch.toInstance(field);
+    }
+
+    private ForbiddenException denied(String rule) {
+        LOG.debug("'{}' denied by {}", method.getName(), rule);
+        return new ForbiddenException();
+    }
+
+    /**
+     * Permissions required on a resource, or on one of its instances. Checks are equal when they require the same
+     * permissions whatever the method or the parameter of the instance, so their decisions can be shared.
+     */
+    static final class Check {
+        /**
+         * Instance of checks on the whole resource
+         */
+        static final Object RESOURCE = new Object();
+
+        final String resource;
+        final String[] permissions;
+        final Operation operation;
+        final String instance;
+        /**
+         * Index of the method parameter bound to the instance, or holding it in a field when it is read from the
+         * entity, -1 when there is none
+         */
+        final int parameter;
+        /**
+         * True when the instance is a field of the request entity
+         */
+        final boolean body;
+
+        Check(String resource, String[] permissions, Operation operation, String instance, int parameter) {
+            this(resource, permissions, operation, instance, parameter, false);
+        }
+
+        Check(String resource, String[] permissions, Operation operation, String instance, int parameter,
+              boolean body) {
+            this.resource = resource;
+            this.permissions = permissions;
+            this.operation = operation;
+            this.instance = instance;
+            this.parameter = parameter;
+            this.body = body;
+        }
+
+        /**
+         * @param session  user's session
+         * @param instance {@link #RESOURCE}, or the instance as a {@link Long}, an {@link UUID} or a {@link String}
+         * @return true when the session has the permissions
+         */
+        boolean evaluate(UserSession session, Object instance) {
+            return InstanceDispatch.evaluate(this, session, instance);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Check)) {
+                return false;
+            }
+            Check that = (Check) o;
+            return resource.equals(that.resource) && operation == that.operation
+                    && Arrays.equals(permissions, that.permissions);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(resource, operation, Arrays.hashCode(permissions));
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.github.jcrochavera.jwt.authz.boundary;
+
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ * <p>
+ * Flight Recorder event of the authorization of a request by {@link AuthorizationFilter}. Only decisions slower than
+ * the threshold are recorded, 1 ms unless it is changed in the recording settings:
+ * </p>
+ * <pre>
+ * &lt;event name="com.github.jcrochavera.jwt.authz.AuthzDecision"&gt;
+ *     &lt;setting name="enabled"&gt;true&lt;/setting&gt;
+ *     &lt;setting name="threshold"&gt;20 ms&lt;/setting&gt;
+ * &lt;/event&gt;
+ * </pre>
+ * <p>Events are only created when they are enabled in a recording and their fields are only filled when they are
+ * committed, so requests do not pay for them when recording is disabled.</p>
+ *
+ * @author julio.rocha
+ * @since 1.1.0
+ */
+@Name(AuthzDecisionEvent.NAME)
+@Label("Authorization Decision")
+@Category({"Authorization"})
+@Description("Evaluation of the roles and permissions required by a resource method")
+@StackTrace(false)
+@Threshold("1 ms")
+public final class AuthzDecisionEvent extends Event {
+    public static final String NAME = "com.github.jcrochavera.jwt.authz.AuthzDecision";
+    public static final String PERMITTED = "PERMITTED";
+    public static final String DENIED = "DENIED";
+    public static final String UNAUTHENTICATED = "UNAUTHENTICATED";
+    public static final String REJECTED = "REJECTED";
+    private static final EventType TYPE = EventType.getEventType(AuthzDecisionEvent.class);
+
+    @Label("Method")
+    String method;
+    @Label("Resource")
+    @Description("Resources checked by the method, separated by commas")
+    String resource;
+    @Label("Instance")
+    @Description("Instances of the request, separated by commas")
+    String instance;
+    @Label("Outcome")
+    String outcome;
+
+    AuthzDecisionEvent() {
+    }
+
+    /**
+     * @return a begun event, null when the event is not enabled
+     */
+    static AuthzDecisionEvent start() {
+        if (!TYPE.isEnabled()) {
+            return null;
+        }
+        AuthzDecisionEvent event = new AuthzDecisionEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends the event and commits it when it is enabled and slower than the threshold
+     *
+     * @param plan           plan of the method
+     * @param requestContext incoming request
+     * @param outcome        decision taken
+     */
+    void record(AuthorizationPlan plan, ContainerRequestContext requestContext, String outcome) {
+        end();
+        if (shouldCommit()) {
+            this.method = plan.method.getDeclaringClass().getName() + '.' + plan.method.getName();
+            this.resource = plan.resources;
+            this.instance = plan.instances(requestContext);
+            this.outcome = outcome;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.github.jcrochavera.jwt.authz.boundary;
+
+import com.github.jcrochavera.jwt.authz.control.ClaimLimitException;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.ExceptionMapper;
+import jakarta.ws.rs.ext.Provider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ * <p>
+ * Answers requests whose authorization claim exceeds a {@link com.github.jcrochavera.jwt.authz.control.ClaimLimit}
+ * with 403 Forbidden instead of a server error, the claim comes from the token of the client:
+ * </p>
+ * <pre>
+ * {@literal @}ApplicationPath("/api")
+ * public class JAXRSConfiguration extends Application {
+ *     {@literal @}Override
+ *     public Set&lt;Class&lt;?&gt;&gt; getClasses() {
+ *         return Set.of(AuthorizationFeature.class, ClaimLimitExceptionMapper.class, ...);
+ *     }
+ * }
+ * </pre>
+ *
+ * @author julio.rocha
+ * @since 1.1.0
+ */
+@Provider
+public class ClaimLimitExceptionMapper implements ExceptionMapper<ClaimLimitException> {
+    static Logger LOG = LoggerFactory.getLogger(ClaimLimitExceptionMapper.class);
+
+    @Override
+    public Response toResponse(ClaimLimitException exception) {
+        LOG.debug("Request rejected: {}", exception.getMessage());
+        return Response.status(Response.Status.FORBIDDEN).build();
+    }
+}
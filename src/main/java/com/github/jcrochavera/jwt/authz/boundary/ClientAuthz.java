@@ -3,6 +3,10 @@ package com.github.jcrochavera.jwt.authz.boundary;
 import com.github.jcrochavera.jwt.authz.control.UserSession;
 import org.eclipse.microprofile.jwt.JsonWebToken;
 
+import java.util.Collections;
+import java.util.Objects;
+import java.util.Set;
+
 /**
  * Created by julio.rocha on 21/6/19.
  * <p>
@@ -98,4 +102,19 @@ public interface ClientAuthz {
      * @return the instance of {@link JsonWebToken} for the current session
      */
     JsonWebToken getPrincipal();
+
+    /**
+     * @return the roles of {@link UserSession} when it carries them, otherwise the <code>groups</code>
+     * claim of {@link JsonWebToken}, empty when there is none
+     * @since 1.1.0
+     */
+    default Set<String> getRoles() {
+        UserSession session = getSession();
+        if (Objects.nonNull(session) && !session.getRoles().isEmpty()) {
+            return session.getRoles();
+        }
+        JsonWebToken principal = getPrincipal();
+        Set<String> groups = Objects.isNull(principal) ? null : principal.getGroups();
+        return Objects.isNull(groups) ? Collections.emptySet() : groups;
+    }
 }
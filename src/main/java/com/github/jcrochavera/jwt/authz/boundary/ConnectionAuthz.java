@@ -0,0 +1,133 @@
+package com.github.jcrochavera.jwt.authz.boundary;
+
+import com.github.jcrochavera.jwt.authz.annotations.RequiresPermissions;
+import com.github.jcrochavera.jwt.authz.control.PermissionsDelta;
+import com.github.jcrochavera.jwt.authz.control.RefreshableSession;
+import com.github.jcrochavera.jwt.authz.control.UserSession;
+import jakarta.json.JsonObject;
+import jakarta.websocket.Session;
+import jakarta.ws.rs.NotAuthorizedException;
+
+import java.lang.reflect.Method;
+import java.util.Objects;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ * <p>
+ * Authorization of the messages of a long-lived connection, a WebSocket or a Server-Sent Events stream. The
+ * {@link UserSession} is bound to the connection once, when it is opened, and every message is checked against
+ * the {@link RequiresPermissions} of the method handling it, instances are read from the fields of the message:
+ * </p>
+ * <pre>
+ * {@literal @}ServerEndpoint("/reports")
+ * public class ReportsEndpoint {
+ *     static final Method ON_UPDATE = ...getDeclaredMethod("onUpdate", ReportUpdate.class, Session.class);
+ *
+ *     {@literal @}OnOpen
+ *     public void open(Session connection) {
+ *         ConnectionAuthz.bind(connection, clientAuthz.getSession());
+ *     }
+ *
+ *     {@literal @}OnMessage
+ *     {@literal @}RequiresPermissions(permissions = {
+ *             {@literal @}RequiresPermission(resource = "REPORTS", instance = "reportId", value = Permission.UPDATE)
+ *     })
+ *     public void onUpdate(ReportUpdate update, Session connection) {
+ *         ConnectionAuthz.of(connection).authorize(ON_UPDATE, update);
+ *         ...
+ *     }
+ * }
+ * </pre>
+ * <p>Decisions are kept per connection, so repeated messages on the same instances are not evaluated again. They
+ * are forgotten when the token is {@link #refresh(JsonObject) refreshed} with different grants. Role annotations
+ * are evaluated with the roles of the session.</p>
+ *
+ * @author julio.rocha
+ * @since 1.1.0
+ */
+public final class ConnectionAuthz {
+    /**
+     * Key of the user property of the WebSocket session holding its authorization
+     */
+    public static final String PROPERTY = ConnectionAuthz.class.getName();
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    final RefreshableSession session;
+    final DecisionMemo memo;
+
+    /**
+     * @param session user's session (mandatory)
+     */
+    public ConnectionAuthz(UserSession session) {
+        this(session, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param session  user's session (mandatory)
+     * @param capacity maximum number of decisions kept, they are all forgotten when it is reached
+     */
+    public ConnectionAuthz(UserSession session, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.session = new RefreshableSession(session);
+        this.memo = new DecisionMemo(capacity);
+    }
+
+    /**
+     * @param connection WebSocket session
+     * @param session    user's session (mandatory)
+     * @return the authorization bound to the connection
+     */
+    public static ConnectionAuthz bind(Session connection, UserSession session) {
+        ConnectionAuthz authz = new ConnectionAuthz(session);
+        connection.getUserProperties().put(PROPERTY, authz);
+        return authz;
+    }
+
+    /**
+     * @param connection WebSocket session
+     * @return the authorization bound to the connection
+     * @throws NotAuthorizedException when no session was bound to the connection
+     */
+    public static ConnectionAuthz of(Session connection) {
+        Object authz = connection.getUserProperties().get(PROPERTY);
+        if (!(authz instanceof ConnectionAuthz)) {
+            throw new NotAuthorizedException("");
+        }
+        return (ConnectionAuthz) authz;
+    }
+
+    /**
+     * @param handler method handling the message
+     * @param message received message, a {@link JsonObject}, a {@link java.util.Map} or a type with getters
+     * @throws jakarta.ws.rs.ForbiddenException when a rule of the method is not satisfied
+     */
+    public void authorize(Method handler, Object message) {
+        AuthorizationPlan.of(handler).evaluate(message, session.get(), memo);
+    }
+
+    /**
+     * Applies the grants of a refreshed token, decisions are forgotten when they changed
+     *
+     * @param authorization user's new authorization (not mandatory)
+     * @return the applied difference, empty when the grants did not change
+     */
+    public PermissionsDelta refresh(JsonObject authorization) {
+        return session.refresh(authorization);
+    }
+
+    /**
+     * @return the current session of the connection
+     */
+    public UserSession getSession() {
+        return session.get();
+    }
+
+    /**
+     * @return number of decisions kept
+     */
+    public int getDecisions() {
+        return memo.size();
+    }
+}
@@ -0,0 +1,88 @@
+package com.github.jcrochavera.jwt.authz.boundary;
+
+import com.github.jcrochavera.jwt.authz.control.UserSession;
+import jakarta.enterprise.context.RequestScoped;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ * <p>
+ * Decisions of the permission checks taken during a request, so a check repeated by the beans the request goes
+ * through is answered without evaluating it again. Decisions are forgotten when the session of the request changes.
+ * </p>
+ * <p>{@link ConnectionAuthz} keeps one per connection, bounded so long-lived connections do not grow it forever.</p>
+ *
+ * @author julio.rocha
+ * @since 1.1.0
+ */
+@RequestScoped
+public class DecisionMemo {
+    private final Map<Decision, Boolean> decisions = new HashMap<>();
+    private final int capacity;
+    private UserSession session;
+
+    public DecisionMemo() {
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param capacity maximum number of decisions, they are all forgotten when it is reached
+     */
+    DecisionMemo(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * @param session  user's session
+     * @param check    permissions required
+     * @param instance instance of the check, as accepted by {@link AuthorizationPlan.Check#evaluate(UserSession, Object)}
+     * @return the decision taken before in the request, evaluated when there is none
+     */
+    synchronized boolean decide(UserSession session, AuthorizationPlan.Check check, Object instance) {
+        if (this.session != session) {
+            decisions.clear();
+            this.session = session;
+        }
+        Decision key = new Decision(check, instance);
+        Boolean permitted = decisions.get(key);
+        if (Objects.isNull(permitted)) {
+            permitted = check.evaluate(session, instance);
+            if (decisions.size() >= capacity) {
+                decisions.clear();
+            }
+            decisions.put(key, permitted);
+        }
+        return permitted;
+    }
+
+    /**
+     * @return number of decisions taken in the request
+     */
+    public synchronized int size() {
+        return decisions.size();
+    }
+
+    private static final class Decision {
+        final AuthorizationPlan.Check check;
+        final Object instance;
+
+        Decision(AuthorizationPlan.Check check, Object instance) {
+            this.check = check;
+            this.instance = instance;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Decision && check.equals(((Decision) o).check)
+                    && instance.equals(((Decision) o).instance);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * check.hashCode() + instance.hashCode();
+        }
+    }
+}
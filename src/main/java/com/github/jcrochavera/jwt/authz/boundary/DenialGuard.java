@@ -0,0 +1,190 @@
+package com.github.jcrochavera.jwt.authz.boundary;
+
+import java.lang.reflect.Method;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ * <p>
+ * Counts recent denials per user and method, so {@link AuthorizationFilter} rejects a client that keeps calling a
+ * method it is not authorized for before evaluating its request again. A pair is blocked while its denials in the
+ * sliding window reach the threshold, and released as they age out of it.
+ * </p>
+ * <p>Counters live in a fixed array of stripes updated with compare-and-set, so memory is bounded whatever the
+ * number of users. Every stripe keeps the counts of the current and the previous window, the sliding count weights
+ * the previous one by the part of it still inside the window. A stripe is owned by the first pair denied in a
+ * window and a 32-bit tag of the pair is kept with the count, so a pair sharing the stripe is not blocked by the
+ * denials of another. Stripes and tags are taken from a SipHash of the whole user name keyed with a random key of
+ * the guard, so users cannot choose names colliding with the ones of others.</p>
+ * <pre>
+ * static final DenialGuard GUARD = new DenialGuard(20, Duration.ofMinutes(1));
+ * ...
+ * new AuthorizationFilter(resourceInfo, clientAuthz, false, GUARD).filter(requestContext);
+ * </pre>
+ *
+ * @author julio.rocha
+ * @since 1.1.0
+ */
+public final class DenialGuard {
+    public static final int DEFAULT_STRIPES = 4096;
+    private static final int COUNT_BITS = 16;
+    private static final int TAG_BITS = 32;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+    private static final long TAG_MASK = (1L << TAG_BITS) - 1;
+    private static final long EPOCH_MASK = (1L << (64 - COUNT_BITS - TAG_BITS)) - 1;
+
+    /**
+     * Two slots per stripe, for even and odd windows, holding the window, the tag of the pair and its count
+     */
+    final AtomicLongArray slots;
+    final int mask;
+    final int threshold;
+    final long windowNanos;
+    final LongSupplier clock;
+    private final long k0;
+    private final long k1;
+
+    /**
+     * @param threshold denials in the window that block a user on a method, at most 65535
+     * @param window    length of the sliding window
+     */
+    public DenialGuard(int threshold, Duration window) {
+        this(threshold, window, DEFAULT_STRIPES);
+    }
+
+    /**
+     * @param threshold denials in the window that block a user on a method, at most 65535
+     * @param window    length of the sliding window
+     * @param stripes   number of counters, a power of two
+     */
+    public DenialGuard(int threshold, Duration window, int stripes) {
+        this(threshold, window, stripes, System::nanoTime);
+    }
+
+    DenialGuard(int threshold, Duration window, int stripes, LongSupplier clock) {
+        if (threshold <= 0) {
+            throw new IllegalArgumentException("threshold must be positive");
+        }
+        if (threshold > COUNT_MASK) {
+            throw new IllegalArgumentException("threshold must be at most " + COUNT_MASK);
+        }
+        if (Objects.isNull(window) || window.isNegative() || window.isZero()) {
+            throw new IllegalArgumentException("window must be positive");
+        }
+        if (stripes <= 0 || Integer.bitCount(stripes) != 1) {
+            throw new IllegalArgumentException("stripes must be a power of two");
+        }
+        this.slots = new AtomicLongArray(stripes * 2);
+        this.mask = stripes - 1;
+        this.threshold = threshold;
+        this.windowNanos = window.toNanos();
+        this.clock = clock;
+        SecureRandom random = new SecureRandom();
+        this.k0 = random.nextLong();
+        this.k1 = random.nextLong();
+    }
+
+    /**
+     * @param user   user of the request
+     * @param method resource method
+     * @return true when the denials of the user on the method in the window reached the threshold
+     */
+    public boolean isBlocked(String user, Method method) {
+        long key = key(user, method);
+        long now = clock.getAsLong();
+        long window = Math.floorDiv(now, windowNanos);
+        int stripe = (int) key & mask;
+        long tag = key >>> (64 - TAG_BITS);
+        long current = count(slots.get(slot(stripe, window)), window, tag);
+        long previous = count(slots.get(slot(stripe, window - 1)), window - 1, tag);
+        double remaining = 1.0 - (double) Math.floorMod(now, windowNanos) / windowNanos;
+        return current + previous * remaining >= threshold;
+    }
+
+    /**
+     * @param user   user of the denied request
+     * @param method resource method
+     */
+    public void recordDenial(String user, Method method) {
+        long key = key(user, method);
+        long window = Math.floorDiv(clock.getAsLong(), windowNanos);
+        long tag = key >>> (64 - TAG_BITS);
+        int index = slot((int) key & mask, window);
+        while (true) {
+            long slot = slots.get(index);
+            long next;
+            if (((slot >>> (COUNT_BITS + TAG_BITS)) & EPOCH_MASK) != (window & EPOCH_MASK) || (slot & COUNT_MASK) == 0) {
+                next = ((window & EPOCH_MASK) << (COUNT_BITS + TAG_BITS)) | (tag << COUNT_BITS) | 1;
+            } else if (((slot >>> COUNT_BITS) & TAG_MASK) != tag || (slot & COUNT_MASK) == COUNT_MASK) {
+                return;
+            } else {
+                next = slot + 1;
+            }
+            if (slots.compareAndSet(index, slot, next)) {
+                return;
+            }
+        }
+    }
+
+    private static long count(long slot, long window, long tag) {
+        boolean owned = ((slot >>> (COUNT_BITS + TAG_BITS)) & EPOCH_MASK) == (window & EPOCH_MASK)
+                && ((slot >>> COUNT_BITS) & TAG_MASK) == tag;
+        return owned ? slot & COUNT_MASK : 0;
+    }
+
+    private static int slot(int stripe, long window) {
+        return stripe * 2 + (int) (window & 1);
+    }
+
+    /**
+     * @return SipHash-2-4 of the characters of the user followed by the hash of the method
+     */
+    long key(String user, Method method) {
+        long v0 = k0 ^ 0x736F6D6570736575L;
+        long v1 = k1 ^ 0x646F72616E646F6DL;
+        long v2 = k0 ^ 0x6C7967656E657261L;
+        long v3 = k1 ^ 0x7465646279746573L;
+        long[] v = {v0, v1, v2, v3};
+        int length = user.length();
+        int i = 0;
+        for (; i + 4 <= length; i += 4) {
+            compress(v, user.charAt(i) | (long) user.charAt(i + 1) << 16 | (long) user.charAt(i + 2) << 32
+                    | (long) user.charAt(i + 3) << 48);
+        }
+        long last = 0;
+        for (int shift = 0; i < length; i++, shift += 16) {
+            last |= (long) user.charAt(i) << shift;
+        }
+        compress(v, last | (long) (length & 0xFF) << 56);
+        compress(v, method.hashCode());
+        v[2] ^= 0xFF;
+        for (int round = 0; round < 4; round++) {
+            round(v);
+        }
+        return v[0] ^ v[1] ^ v[2] ^ v[3];
+    }
+
+    private static void compress(long[] v, long m) {
+        v[3] ^= m;
+        round(v);
+        round(v);
+        v[0] ^= m;
+    }
+
+    private static void round(long[] v) {
+        v[0] += v[1];
+        v[1] = Long.rotateLeft(v[1], 13) ^ v[0];
+        v[0] = Long.rotateLeft(v[0], 32);
+        v[2] += v[3];
+        v[3] = Long.rotateLeft(v[3], 16) ^ v[2];
+        v[0] += v[3];
+        v[3] = Long.rotateLeft(v[3], 21) ^ v[0];
+        v[2] += v[1];
+        v[1] = Long.rotateLeft(v[1], 17) ^ v[2];
+        v[2] = Long.rotateLeft(v[2], 32);
+    }
+}
@@ -0,0 +1,49 @@
+package com.github.jcrochavera.jwt.authz.boundary;
+
+import com.github.jcrochavera.jwt.authz.control.UserSession;
+
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerResponseContext;
+
+import java.util.Objects;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ * <p>Adds the {@link com.github.jcrochavera.jwt.authz.control.PermissionsFingerprint} of the session to responses,
+ * so caches in front of the service can key permission-sensitive responses by it instead of by user.
+ * Responses of requests without session are not modified.</p>
+ * <pre>
+ * {@literal @}Provider
+ * public class FingerprintResponseFilter implements ContainerResponseFilter {
+ *     {@literal @}Inject
+ *     ClientAuthz clientAuthz;
+ *
+ *     {@literal @}Override
+ *     public void filter(ContainerRequestContext request, ContainerResponseContext response) {
+ *         new FingerprintFilter(clientAuthz).filter(request, response);
+ *     }
+ * }
+ * </pre>
+ *
+ * @author julio.rocha
+ * @since 1.1.0
+ */
+public class FingerprintFilter {
+    public static final String HEADER = "X-Permissions-Fingerprint";
+    ClientAuthz clientAuth;
+
+    public FingerprintFilter(ClientAuthz clientAuth) {
+        this.clientAuth = clientAuth;
+    }
+
+    /**
+     * @param requestContext  incoming request
+     * @param responseContext outgoing response
+     */
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        UserSession session = clientAuth.getSession();
+        if (Objects.nonNull(session)) {
+            responseContext.getHeaders().putSingle(HEADER, session.getFingerprint().toString());
+        }
+    }
+}
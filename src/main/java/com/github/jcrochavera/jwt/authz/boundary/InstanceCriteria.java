@@ -0,0 +1,158 @@
+package com.github.jcrochavera.jwt.authz.boundary;
+
+import com.github.jcrochavera.jwt.authz.control.UserSession;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ * <p>
+ * Instances of a resource a session may access, turned into a JPA Criteria {@link Predicate} on the identifier of
+ * the entity, so lists are filtered by the database and pagination stays correct:
+ * </p>
+ * <pre>
+ * InstanceCriteria criteria = session.hasRole(BasicRoles.ADMIN) ? InstanceCriteria.all()
+ *         : InstanceCriteria.of(session, "REPORTS", Permission.READ);
+ * if (criteria.isNone()) {
+ *     return Collections.emptyList();
+ * }
+ * CriteriaQuery&lt;Report&gt; query = cb.createQuery(Report.class);
+ * Root&lt;Report&gt; report = query.from(Report.class);
+ * query.where(criteria.toPredicate(cb, report.get(Report_.id), Long::valueOf));
+ * </pre>
+ * <p>Large sets are split in several <code>IN</code> lists joined with <code>OR</code>, as some databases limit
+ * the number of elements of a list.</p>
+ *
+ * @author julio.rocha
+ * @since 1.1.0
+ */
+public final class InstanceCriteria {
+    public static final int DEFAULT_CHUNK_SIZE = 1000;
+    private static final InstanceCriteria ALL = new InstanceCriteria(null);
+    private static final InstanceCriteria NONE = new InstanceCriteria(Collections.emptySet());
+
+    /**
+     * Permitted instances, null when every instance is permitted
+     */
+    final Set<String> instances;
+
+    private InstanceCriteria(Set<String> instances) {
+        this.instances = instances;
+    }
+
+    /**
+     * @param session    user's session, no instance is permitted when it is null
+     * @param resource   the instances' resource
+     * @param permission the permission required on the instances
+     * @return criteria matching the instances of the resource with the permission
+     */
+    public static InstanceCriteria of(UserSession session, String resource, String permission) {
+        if (Objects.isNull(session)) {
+            return NONE;
+        }
+        Set<String> instances = session.getInstances(resource, permission);
+        return instances.isEmpty() ? NONE : new InstanceCriteria(instances);
+    }
+
+    /**
+     * @return criteria matching every instance, for users allowed to access the whole resource
+     */
+    public static InstanceCriteria all() {
+        return ALL;
+    }
+
+    /**
+     * @return criteria matching no instance
+     */
+    public static InstanceCriteria none() {
+        return NONE;
+    }
+
+    /**
+     * @return true when every instance is permitted, the query needs no predicate
+     */
+    public boolean isAll() {
+        return Objects.isNull(instances);
+    }
+
+    /**
+     * @return true when no instance is permitted, the query can be skipped
+     */
+    public boolean isNone() {
+        return Objects.nonNull(instances) && instances.isEmpty();
+    }
+
+    /**
+     * @return permitted instances, null when every instance is permitted
+     */
+    public Set<String> getInstances() {
+        return Objects.isNull(instances) ? null : Collections.unmodifiableSet(instances);
+    }
+
+    /**
+     * @param cb criteria builder of the query
+     * @param id identifier of the entity, compared as it was granted
+     * @return predicate matching the permitted instances
+     */
+    public Predicate toPredicate(CriteriaBuilder cb, Expression<String> id) {
+        return toPredicate(cb, id, Function.identity(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param cb        criteria builder of the query
+     * @param id        identifier of the entity
+     * @param converter converts instances to the type of the identifier, e.g. <code>Long::valueOf</code>, instances
+     *                  it rejects with {@link IllegalArgumentException} cannot match and are ignored
+     * @param <T>       type of the identifier
+     * @return predicate matching the permitted instances
+     */
+    public <T> Predicate toPredicate(CriteriaBuilder cb, Expression<T> id, Function<String, T> converter) {
+        return toPredicate(cb, id, converter, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param cb        criteria builder of the query
+     * @param id        identifier of the entity
+     * @param converter converts instances to the type of the identifier, instances it rejects with
+     *                  {@link IllegalArgumentException} cannot match and are ignored
+     * @param chunkSize maximum number of elements of each <code>IN</code> list
+     * @param <T>       type of the identifier
+     * @return predicate matching the permitted instances
+     */
+    public <T> Predicate toPredicate(CriteriaBuilder cb, Expression<T> id, Function<String, T> converter, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+        if (isAll()) {
+            return cb.conjunction();
+        }
+        List<T> values = new ArrayList<>(instances.size());
+        for (String instance : instances) {
+            try {
+                values.add(converter.apply(instance));
+            } catch (IllegalArgumentException e) {
+                // it cannot match any identifier of the entity
+            }
+        }
+        if (values.isEmpty()) {
+            return cb.disjunction();
+        }
+        if (values.size() <= chunkSize) {
+            return id.in(values);
+        }
+        List<Predicate> chunks = new ArrayList<>();
+        for (int from = 0; from < values.size(); from += chunkSize) {
+            chunks.add(id.in(new ArrayList<>(values.subList(from, Math.min(values.size(), from + chunkSize)))));
+        }
+        return cb.or(chunks.toArray(new Predicate[0]));
+    }
+}
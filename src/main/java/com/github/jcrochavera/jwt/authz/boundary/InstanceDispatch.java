@@ -0,0 +1,51 @@
+package com.github.jcrochavera.jwt.authz.boundary;
+
+import com.github.jcrochavera.jwt.authz.control.UserSession;
+
+import java.util.UUID;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ * <p>
+ * Dispatch on the type of the instances of compiled checks. Runtimes from Java 21 load the version of
+ * <code>META-INF/versions/21</code>, which uses pattern matching switches.
+ * </p>
+ *
+ * @author julio.rocha
+ * @since 1.1.0
+ */
+final class InstanceDispatch {
+    InstanceDispatch() {
+    }
+
+    /**
+     * @param value a value of a parameter, a field or a message
+     * @return the value as a {@link Long}, an {@link UUID} or a {@link String}
+     */
+    static Object toInstance(Object value) {
+        if (value instanceof Long || value instanceof Integer || value instanceof Short) {
+            return ((Number) value).longValue();
+        }
+        return value instanceof UUID ? value : value.toString();
+    }
+
+    /**
+     * @param check    permissions to evaluate
+     * @param session  user's session
+     * @param instance {@link AuthorizationPlan.Check#RESOURCE}, or the instance as a {@link Long}, an {@link UUID}
+     *                 or a {@link String}
+     * @return true when the session has the permissions
+     */
+    static boolean evaluate(AuthorizationPlan.Check check, UserSession session, Object instance) {
+        if (instance == AuthorizationPlan.Check.RESOURCE) {
+            return session.hasPermissions(check.resource, check.operation, check.permissions);
+        }
+        if (instance instanceof Long) {
+            return session.hasInstancePermissions(check.resource, (long) instance, check.operation, check.permissions);
+        }
+        if (instance instanceof UUID) {
+            return session.hasInstancePermissions(check.resource, (UUID) instance, check.operation, check.permissions);
+        }
+        return session.hasInstancePermissions(check.resource, (String) instance, check.operation, check.permissions);
+    }
+}
@@ -0,0 +1,106 @@
+package com.github.jcrochavera.jwt.authz.boundary;
+
+import jakarta.json.JsonNumber;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonString;
+import jakarta.json.JsonValue;
+
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ * <p>
+ * Reads the fields of messages received on a connection: members of a {@link JsonObject}, entries of a {@link Map},
+ * or the public getters, accessors and fields of any other type. Accessors of a type are looked up once.
+ * </p>
+ *
+ * @author julio.rocha
+ * @since 1.1.0
+ */
+final class MessageFields {
+    private static final ClassValue<Map<String, AccessibleObject>> ACCESSORS = new ClassValue<>() {
+        @Override
+        protected Map<String, AccessibleObject> computeValue(Class<?> type) {
+            return accessors(type);
+        }
+    };
+
+    MessageFields() {
+    }
+
+    /**
+     * @param message received message
+     * @param field   name of the field
+     * @return the value of the field, null when the message does not have it
+     */
+    static Object get(Object message, String field) {
+        if (Objects.isNull(message)) {
+            return null;
+        }
+        if (message instanceof JsonObject) {
+            return fromJson(((JsonObject) message).get(field));
+        }
+        if (message instanceof Map) {
+            return ((Map<?, ?>) message).get(field);
+        }
+        AccessibleObject accessor = ACCESSORS.get(message.getClass()).get(field);
+        try {
+            if (accessor instanceof Method) {
+                return ((Method) accessor).invoke(message);
+            }
+            return Objects.isNull(accessor) ? null : ((Field) accessor).get(message);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("Field '" + field + "' of " + message.getClass().getName()
+                    + " cannot be read", e);
+        }
+    }
+
+    /**
+     * Integral numbers that do not fit in a long keep their exact text, so they never match a numeric instance
+     */
+    private static Object fromJson(JsonValue value) {
+        if (value instanceof JsonNumber && ((JsonNumber) value).isIntegral()) {
+            try {
+                return ((JsonNumber) value).longValueExact();
+            } catch (ArithmeticException e) {
+                return value.toString();
+            }
+        }
+        if (value instanceof JsonString) {
+            return ((JsonString) value).getString();
+        }
+        return Objects.isNull(value) || value == JsonValue.NULL ? null : value.toString();
+    }
+
+    private static Map<String, AccessibleObject> accessors(Class<?> type) {
+        Map<String, AccessibleObject> accessors = new HashMap<>();
+        for (Field field : type.getFields()) {
+            if (!Modifier.isStatic(field.getModifiers()) && field.trySetAccessible()) {
+                accessors.put(field.getName(), field);
+            }
+        }
+        for (Method method : type.getMethods()) {
+            String name = method.getName();
+            if (isAccessor(method)) {
+                accessors.put(name, method);
+                if (name.length() > 3 && name.startsWith("get")) {
+                    accessors.put(Character.toLowerCase(name.charAt(3)) + name.substring(4), method);
+                }
+            }
+        }
+        return accessors;
+    }
+
+    private static boolean isAccessor(Method method) {
+        return method.getParameterCount() == 0 && method.getReturnType() != void.class
+                && !Modifier.isStatic(method.getModifiers()) && method.getDeclaringClass() != Object.class
+                && method.trySetAccessible();
+    }
+}
@@ -0,0 +1,75 @@
+package com.github.jcrochavera.jwt.authz.boundary;
+
+import com.github.jcrochavera.jwt.authz.annotations.EnforcePermissions;
+import com.github.jcrochavera.jwt.authz.annotations.RequiresPermissions;
+import jakarta.enterprise.context.ContextNotActiveException;
+import jakarta.enterprise.context.RequestScoped;
+import jakarta.enterprise.inject.spi.BeanManager;
+import jakarta.inject.Inject;
+import jakarta.interceptor.AroundInvoke;
+import jakarta.interceptor.InvocationContext;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ * <p>
+ * Evaluates the compiled {@link AuthorizationPlan} of the methods of beans bound with {@link EnforcePermissions},
+ * the same rules {@link AuthorizationFilter} evaluates for resource methods. Checks repeated in a request are
+ * answered by the {@link DecisionMemo} of the request, and evaluated every time when no request is active.
+ * </p>
+ * <p>Denials are reported with the same {@link jakarta.ws.rs.ForbiddenException} and
+ * {@link jakarta.ws.rs.NotAuthorizedException} of the filter.</p>
+ * <p>The library does not enable any interceptor, applications opt in by declaring one, and choose whether role
+ * annotations are evaluated or left to the container:</p>
+ * <pre>
+ * {@literal @}EnforcePermissions
+ * {@literal @}Interceptor
+ * {@literal @}Priority(Interceptor.Priority.LIBRARY_BEFORE)
+ * public class ServicePermissions extends PermissionsInterceptor {
+ *     {@literal @}Override
+ *     protected boolean isEvaluateRoles() {
+ *         return false;
+ *     }
+ * }
+ * </pre>
+ *
+ * @author julio.rocha
+ * @see RequiresPermissions
+ * @since 1.1.0
+ */
+public abstract class PermissionsInterceptor {
+    @Inject
+    ClientAuthz clientAuth;
+    @Inject
+    DecisionMemo memo;
+    @Inject
+    BeanManager beanManager;
+
+    /**
+     * @param context intercepted invocation
+     * @return the result of the invocation
+     * @throws Exception the exception of the invocation
+     */
+    @AroundInvoke
+    public Object authorize(InvocationContext context) throws Exception {
+        AuthorizationPlan.of(context.getMethod())
+                .evaluate(context.getParameters(), clientAuth, isEvaluateRoles(), isRequestActive() ? memo : null);
+        return context.proceed();
+    }
+
+    /**
+     * @return true to evaluate {@link jakarta.annotation.security.RolesAllowed},
+     * {@link jakarta.annotation.security.PermitAll} and {@link jakarta.annotation.security.DenyAll} against
+     * {@link ClientAuthz#getRoles()} (default), false when the container enforces them
+     */
+    protected boolean isEvaluateRoles() {
+        return true;
+    }
+
+    boolean isRequestActive() {
+        try {
+            return beanManager.getContext(RequestScoped.class).isActive();
+        } catch (ContextNotActiveException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.github.jcrochavera.jwt.authz.boundary;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UTFDataFormatException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ * <p>
+ * Resource methods whose {@link AuthorizationPlan} was compiled, kept across restarts so their plans are compiled
+ * on startup instead of on the first request of each method. Plans are compiled again from the annotations of the
+ * deployed classes, so a snapshot of a previous version never applies stale rules; methods that do not exist
+ * anymore are skipped.
+ * </p>
+ * <pre>
+ *     int    magic
+ *     byte   version
+ *     int    methods count, for each one:
+ *            modified UTF-8 class name, modified UTF-8 method name,
+ *            byte parameters count, modified UTF-8 parameter type names...
+ * </pre>
+ *
+ * @author julio.rocha
+ * @see com.github.jcrochavera.jwt.authz.control.SessionSnapshot
+ * @since 1.1.0
+ */
+public final class PlanSnapshot {
+    static Logger LOG = LoggerFactory.getLogger(PlanSnapshot.class);
+    static final int MAGIC = 0x4A574150;
+    static final byte VERSION = 1;
+    /**
+     * Methods of a snapshot, larger counts are read from corrupt files
+     */
+    static final int MAX_METHODS = 1 << 16;
+    private static final Map<String, Class<?>> PRIMITIVES = Map.of("boolean", boolean.class, "byte", byte.class,
+            "char", char.class, "short", short.class, "int", int.class, "long", long.class,
+            "float", float.class, "double", double.class);
+
+    PlanSnapshot() {
+    }
+
+    /**
+     * @return the methods of the compiled plans in the snapshot format
+     * @throws IOException never, the snapshot is written in memory
+     */
+    public static byte[] encode() throws IOException {
+        List<Method> methods = new ArrayList<>(AuthorizationPlan.compiled());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeInt(methods.size());
+        for (Method method : methods) {
+            out.writeUTF(method.getDeclaringClass().getName());
+            out.writeUTF(method.getName());
+            out.writeByte(method.getParameterCount());
+            for (Class<?> type : method.getParameterTypes()) {
+                out.writeUTF(type.getName());
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Compiles the plans of the methods of a snapshot
+     *
+     * @param encoded snapshot encoded by {@link #encode()}
+     * @param loader  class loader of the deployment
+     * @return number of plans compiled
+     * @throws IOException              when the snapshot is truncated
+     * @throws IllegalArgumentException when the content is not a plan snapshot or it is corrupt
+     */
+    public static int decode(InputStream encoded, ClassLoader loader) throws IOException {
+        DataInputStream in = new DataInputStream(encoded);
+        if (in.readInt() != MAGIC) {
+            throw new IllegalArgumentException("Content is not a plan snapshot");
+        }
+        byte version = in.readByte();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported plan snapshot version " + version);
+        }
+        int compiled = 0;
+        int count = in.readInt();
+        if (count < 0 || count > MAX_METHODS) {
+            throw new IllegalArgumentException("Plan snapshot is corrupt");
+        }
+        for (int i = 0; i < count; i++) {
+            String className = in.readUTF();
+            String methodName = in.readUTF();
+            String[] parameters = new String[in.readUnsignedByte()];
+            for (int j = 0; j < parameters.length; j++) {
+                parameters[j] = in.readUTF();
+            }
+            try {
+                Class<?>[] types = new Class<?>[parameters.length];
+                for (int j = 0; j < parameters.length; j++) {
+                    types[j] = type(parameters[j], loader);
+                }
+                AuthorizationPlan.of(Class.forName(className, false, loader).getDeclaredMethod(methodName, types));
+                compiled++;
+            } catch (ClassNotFoundException | NoSuchMethodException e) {
+                LOG.debug("'{}.{}' does not exist anymore, its plan is not compiled", className, methodName);
+            }
+        }
+        return compiled;
+    }
+
+    private static Class<?> type(String name, ClassLoader loader) throws ClassNotFoundException {
+        Class<?> primitive = PRIMITIVES.get(name);
+        return primitive != null ? primitive : Class.forName(name, false, loader);
+    }
+
+    /**
+     * Replaces the file atomically with the methods of the compiled plans
+     *
+     * @param file snapshot file
+     * @return number of methods written
+     * @throws IOException when the file cannot be written
+     */
+    public static int write(Path file) throws IOException {
+        byte[] encoded = encode();
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(temporary, encoded);
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        int written = ByteBuffer.wrap(encoded).getInt(5);
+        LOG.info("{} plans written to '{}'", written, file);
+        return written;
+    }
+
+    /**
+     * @param file   snapshot file
+     * @param loader class loader of the deployment
+     * @return number of plans compiled, 0 when the file does not exist or it is not a valid snapshot
+     * @throws IOException when the file cannot be read
+     */
+    public static int read(Path file, ClassLoader loader) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        try (InputStream in = Files.newInputStream(file)) {
+            int compiled = decode(in, loader);
+            LOG.info("{} plans compiled from '{}'", compiled, file);
+            return compiled;
+        } catch (EOFException | UTFDataFormatException | IllegalArgumentException e) {
+            LOG.warn("Plans of '{}' are discarded, it is not a valid snapshot: {}", file, e.toString());
+            return 0;
+        }
+    }
+}
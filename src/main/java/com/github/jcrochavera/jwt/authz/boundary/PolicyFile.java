@@ -0,0 +1,282 @@
+package com.github.jcrochavera.jwt.authz.boundary;
+
+import com.github.jcrochavera.jwt.authz.annotations.Operation;
+import com.github.jcrochavera.jwt.authz.control.UserSessionOptions;
+import jakarta.json.Json;
+import jakarta.json.JsonArray;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonReader;
+import jakarta.json.JsonString;
+import jakarta.json.JsonValue;
+import jakarta.ws.rs.HttpMethod;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ * <p>
+ * External policy that replaces the {@link com.github.jcrochavera.jwt.authz.annotations.RequiresPermissions} of
+ * resource methods, so their permissions change without a redeploy. Endpoints are matched by class and method name,
+ * or by HTTP method and path template; role annotations still apply.
+ * </p>
+ * <pre>
+ * {
+ *   "endpoints": [
+ *     {
+ *       "method": "com.example.ReportResource#find",
+ *       "permissions": [{"resource": "REPORTS", "instance": "id", "scopes": ["r"], "operation": "AND"}]
+ *     },
+ *     {
+ *       "path": "DELETE /reports/{id}",
+ *       "permissions": [{"resource": "REPORTS", "instance": "id", "scopes": ["d"]}]
+ *     },
+ *     {
+ *       "path": "POST /reports/comments",
+ *       "permissions": [{"resource": "REPORTS", "bodyField": "reportId", "scopes": ["c"]}]
+ *     }
+ *   ]
+ * }
+ * </pre>
+ * <p>The file is compiled into the plans of the matching methods of the resource classes and swapped in as a whole,
+ * requests see either the previous policy or the new one. The file is watched and compiled again in the
+ * background when the file it resolves to or its modification time changes, so symbolic links swapped by
+ * Kubernetes ConfigMap volumes are followed. A file that cannot be compiled, or with endpoints matching no method
+ * of the resource classes, is logged and the current policy is kept. Only one policy is applied at a time.</p>
+ * <p>When {@link UserSessionOptions#getResources()} restricts the indexed resources, the ones referenced only by
+ * the policy are added to the defaults when it is applied, sessions built before keep skipping them.</p>
+ * <pre>
+ * PolicyFile policy = PolicyFile.watch(Path.of("/etc/app/policy.json"), getClasses());
+ * ...
+ * policy.close();
+ * </pre>
+ *
+ * @author julio.rocha
+ * @since 1.1.0
+ */
+public class PolicyFile implements Closeable {
+    static Logger LOG = LoggerFactory.getLogger(PolicyFile.class);
+
+    final Path file;
+    final Collection<Class<?>> resourceClasses;
+    final AtomicLong version = new AtomicLong();
+    WatchService watcher;
+    volatile String applied;
+
+    PolicyFile(Path file, Collection<Class<?>> resourceClasses) {
+        this.file = file.toAbsolutePath();
+        this.resourceClasses = List.copyOf(resourceClasses);
+    }
+
+    /**
+     * Loads the policy and watches the file until it is closed
+     *
+     * @param file            policy file
+     * @param resourceClasses classes of the deployment, including their super classes
+     * @return the applied policy
+     * @throws IOException when the directory of the file cannot be watched
+     */
+    public static PolicyFile watch(Path file, Collection<Class<?>> resourceClasses) throws IOException {
+        Objects.requireNonNull(file, "file is mandatory");
+        Objects.requireNonNull(resourceClasses, "resourceClasses are mandatory");
+        PolicyFile policy = new PolicyFile(file, resourceClasses);
+        policy.watcher = FileSystems.getDefault().newWatchService();
+        policy.file.getParent().register(policy.watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        policy.reload();
+        Thread thread = new Thread(policy::watchChanges, "policy-file-watcher");
+        thread.setDaemon(true);
+        thread.start();
+        return policy;
+    }
+
+    private void watchChanges() {
+        try {
+            while (true) {
+                WatchKey key = watcher.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    changed |= file.getFileName().equals(event.context());
+                }
+                String stamp = stamp();
+                if (Objects.nonNull(stamp) && (changed || !stamp.equals(applied))) {
+                    reload();
+                }
+                key.reset();
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            LOG.debug("'{}' is not watched anymore", file);
+        }
+    }
+
+    /**
+     * Compiles the file and swaps the plans of its endpoints in, the current policy is kept when it fails
+     *
+     * @return true when the policy was applied
+     */
+    public boolean reload() {
+        try {
+            String stamp = stamp();
+            Map<Method, AuthorizationPlan> plans = compile(read());
+            index(plans.values());
+            AuthorizationPlan.setPolicy(plans);
+            applied = stamp;
+            LOG.info("Policy '{}' applied, version {}", file, version.incrementAndGet());
+            return true;
+        } catch (IOException | RuntimeException e) {
+            LOG.error("Policy '{}' could not be applied, the current one is kept", file, e);
+            return false;
+        }
+    }
+
+    /**
+     * @return number of times the policy was applied
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Stops watching the file and restores the permissions of the annotations
+     */
+    @Override
+    public void close() throws IOException {
+        if (Objects.nonNull(watcher)) {
+            watcher.close();
+        }
+        AuthorizationPlan.setPolicy(Map.of());
+    }
+
+    /**
+     * @return file the policy resolves to and its modification time, null when it cannot be read
+     */
+    String stamp() {
+        try {
+            Path target = file.toRealPath();
+            return target + "@" + Files.getLastModifiedTime(target);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Adds the resources of the policy to the ones indexed by default, otherwise sessions skip their permissions
+     */
+    static void index(Collection<AuthorizationPlan> plans) {
+        UserSessionOptions defaults = UserSessionOptions.defaults();
+        Set<String> indexed = defaults.getResources();
+        if (Objects.isNull(indexed)) {
+            return;
+        }
+        Set<String> resources = new TreeSet<>(indexed);
+        for (AuthorizationPlan plan : plans) {
+            for (AuthorizationPlan.Check check : plan.checks) {
+                resources.add(check.resource);
+            }
+        }
+        if (resources.size() > indexed.size()) {
+            UserSessionOptions.setDefaults(defaults.withResources(resources));
+            LOG.info("Resources indexed by default extended with the policy, {}", resources);
+        }
+    }
+
+    private JsonObject read() throws IOException {
+        try (Reader reader = Files.newBufferedReader(file); JsonReader json = Json.createReader(reader)) {
+            return json.readObject();
+        }
+    }
+
+    Map<Method, AuthorizationPlan> compile(JsonObject policy) {
+        Map<String, JsonArray> endpoints = new HashMap<>();
+        for (JsonValue value : policy.getJsonArray("endpoints")) {
+            JsonObject endpoint = value.asJsonObject();
+            String key = endpoint.containsKey("method") ? endpoint.getString("method") : endpoint.getString("path");
+            endpoints.put(key, endpoint.getJsonArray("permissions"));
+        }
+        Set<String> unmatched = new HashSet<>(endpoints.keySet());
+        Map<Method, AuthorizationPlan> plans = new HashMap<>();
+        for (Class<?> resourceClass : resourceClasses) {
+            for (Class<?> type = resourceClass; Objects.nonNull(type) && type != Object.class; type = type.getSuperclass()) {
+                for (Method method : type.getDeclaredMethods()) {
+                    String name = type.getName() + '#' + method.getName();
+                    JsonArray permissions = endpoints.get(name);
+                    unmatched.remove(name);
+                    String path = path(method);
+                    if (Objects.nonNull(path)) {
+                        permissions = Objects.isNull(permissions) ? endpoints.get(path) : permissions;
+                        unmatched.remove(path);
+                    }
+                    if (Objects.nonNull(permissions)) {
+                        plans.put(method, AuthorizationPlan.compile(method).withChecks(checks(method, permissions)));
+                    }
+                }
+            }
+        }
+        if (!unmatched.isEmpty()) {
+            throw new IllegalArgumentException("Endpoints match no method of the resource classes: "
+                    + new TreeSet<>(unmatched));
+        }
+        return Map.copyOf(plans);
+    }
+
+    private static AuthorizationPlan.Check[] checks(Method method, JsonArray permissions) {
+        List<AuthorizationPlan.Check> checks = new ArrayList<>(permissions.size());
+        for (JsonValue value : permissions) {
+            JsonObject permission = value.asJsonObject();
+            String[] scopes = permission.getJsonArray("scopes").getValuesAs(JsonString.class).stream()
+                    .map(JsonString::getString).toArray(String[]::new);
+            String resource = permission.getString("resource");
+            Operation operation = Operation.valueOf(permission.getString("operation", Operation.AND.name()));
+            String bodyField = permission.getString("bodyField", "");
+            checks.add(bodyField.isEmpty()
+                    ? AuthorizationPlan.check(method, resource, scopes, operation, permission.getString("instance", ""))
+                    : AuthorizationPlan.bodyCheck(method, resource, scopes, operation, bodyField));
+        }
+        return checks.toArray(new AuthorizationPlan.Check[0]);
+    }
+
+    /**
+     * @return HTTP method and path template of a resource method, e.g. <code>GET /reports/{id}</code>, null when
+     * it is not a resource method
+     */
+    static String path(Method method) {
+        String httpMethod = null;
+        for (Annotation annotation : method.getAnnotations()) {
+            HttpMethod designator = annotation.annotationType().getAnnotation(HttpMethod.class);
+            httpMethod = Objects.nonNull(designator) ? designator.value() : httpMethod;
+        }
+        if (Objects.isNull(httpMethod)) {
+            return null;
+        }
+        jakarta.ws.rs.Path classPath = method.getDeclaringClass().getAnnotation(jakarta.ws.rs.Path.class);
+        jakarta.ws.rs.Path methodPath = method.getAnnotation(jakarta.ws.rs.Path.class);
+        String template = (Objects.isNull(classPath) ? "" : "/" + classPath.value())
+                + (Objects.isNull(methodPath) ? "" : "/" + methodPath.value());
+        template = template.replaceAll("/+", "/");
+        template = template.length() > 1 && template.endsWith("/") ? template.substring(0, template.length() - 1) : template;
+        return httpMethod + ' ' + (template.isEmpty() ? "/" : template);
+    }
+}
@@ -0,0 +1,71 @@
+package com.github.jcrochavera.jwt.authz.boundary;
+
+import com.github.jcrochavera.jwt.authz.annotations.RequiresPermission;
+import com.github.jcrochavera.jwt.authz.annotations.RequiresPermissions;
+import com.github.jcrochavera.jwt.authz.control.UserSessionOptions;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ * <p>
+ * Collects the resources referenced by {@link RequiresPermission} in the classes and methods of the deployment,
+ * so sessions only index what the application checks:
+ * </p>
+ * <pre>
+ * {@literal @}ApplicationPath("/api")
+ * public class JAXRSConfiguration extends Application {
+ *     public JAXRSConfiguration() {
+ *         UserSessionOptions.setDefaults(UserSessionOptions.defaults()
+ *                 .withResources(ReferencedResources.of(ReportsResource.class, GroupsResource.class)));
+ *     }
+ * }
+ * </pre>
+ * <p>The resource classes are listed explicitly: runtimes scanning the deployment return no classes from
+ * {@code Application.getClasses()}. Resources checked programmatically with
+ * {@link com.github.jcrochavera.jwt.authz.control.UserSession} must be added to the collected ones.</p>
+ *
+ * @author julio.rocha
+ * @see UserSessionOptions#withResources(Collection)
+ * @since 1.1.0
+ */
+public final class ReferencedResources {
+    ReferencedResources() {
+    }
+
+    /**
+     * @param resourceClasses classes of the deployment, including their super classes
+     * @return names of the resources referenced by their methods
+     */
+    public static Set<String> of(Collection<Class<?>> resourceClasses) {
+        Set<String> resources = new TreeSet<>();
+        for (Class<?> resourceClass : resourceClasses) {
+            for (Class<?> type = resourceClass; Objects.nonNull(type) && type != Object.class; type = type.getSuperclass()) {
+                add(resources, type.getAnnotation(RequiresPermissions.class));
+                for (Method method : type.getDeclaredMethods()) {
+                    add(resources, method.getAnnotation(RequiresPermissions.class));
+                }
+            }
+        }
+        return resources;
+    }
+
+    /**
+     * @param resourceClasses classes of the deployment, including their super classes
+     * @return names of the resources referenced by their methods
+     */
+    public static Set<String> of(Class<?>... resourceClasses) {
+        return of(Arrays.asList(resourceClasses));
+    }
+
+    private static void add(Set<String> resources, RequiresPermissions permissions) {
+        if (Objects.nonNull(permissions)) {
+            Arrays.stream(permissions.permissions()).map(RequiresPermission::resource).forEach(resources::add);
+        }
+    }
+}
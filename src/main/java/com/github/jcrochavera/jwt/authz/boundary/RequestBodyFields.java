@@ -0,0 +1,339 @@
+package com.github.jcrochavera.jwt.authz.boundary;
+
+import jakarta.json.Json;
+import jakarta.json.JsonException;
+import jakarta.json.stream.JsonParser;
+import jakarta.json.stream.JsonParserFactory;
+import jakarta.ws.rs.ForbiddenException;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.core.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ * <p>
+ * Reads top-level fields of the JSON entity of a request with a streaming {@link JsonParser}, nested values are
+ * skipped without being built. Parsing stops once every field was found, only the bytes consumed until then are
+ * buffered, up to {@link #limit}, and given back to the request followed by the rest of the entity stream, so the
+ * entity is deserialized as if it was never read.
+ * </p>
+ * <p>Deserializers bind the last occurrence of a key, so requests repeating a field are denied instead of being
+ * authorized by another occurrence than the bound one. The parser denies them until it stops, the replayed stream
+ * fails when one appears in the rest of the entity while it is deserialized.</p>
+ *
+ * @author julio.rocha
+ * @since 1.1.0
+ */
+final class RequestBodyFields {
+    static Logger LOG = LoggerFactory.getLogger(RequestBodyFields.class);
+    static final JsonParserFactory PARSERS = Json.createParserFactory(Map.of());
+    /**
+     * Maximum number of bytes of the entity read to find the fields
+     */
+    static volatile int limit = 1 << 16;
+
+    RequestBodyFields() {
+    }
+
+    /**
+     * @param requestContext incoming request, its entity stream is replaced by one replaying the consumed bytes
+     * @param fields         names of the fields
+     * @return text of the string and number fields found, others are missing, none when the entity is malformed
+     * @throws ForbiddenException      when one of the fields appears more than once
+     * @throws WebApplicationException with {@link Response.Status#REQUEST_ENTITY_TOO_LARGE} when the fields are not
+     *                                 found in the first {@link #limit} bytes
+     */
+    static Map<String, String> read(ContainerRequestContext requestContext, Set<String> fields) {
+        Map<String, String> values = new HashMap<>();
+        if (!requestContext.hasEntity()) {
+            return values;
+        }
+        ConsumedInputStream entity = new ConsumedInputStream(requestContext.getEntityStream(), limit);
+        boolean complete = false;
+        try {
+            // the parser is not closed, it would close the entity stream
+            JsonParser parser = PARSERS.createParser(entity);
+            if (parser.hasNext() && parser.next() == JsonParser.Event.START_OBJECT) {
+                complete = read(parser, fields, values);
+            }
+        } catch (JsonException e) {
+            if (entity.exceeded) {
+                LOG.debug("Fields {} are not in the first {} bytes of the request entity", fields, entity.limit);
+                throw new WebApplicationException(Response.Status.REQUEST_ENTITY_TOO_LARGE);
+            }
+            LOG.debug("Request entity is not a JSON object: {}", e.getMessage());
+            values.clear();
+        }
+        requestContext.setEntityStream(complete ? new RepeatedFieldGuard(entity.replay(), fields) : entity.replay());
+        return values;
+    }
+
+    /**
+     * @return true when every field was found before the end of the object
+     */
+    private static boolean read(JsonParser parser, Set<String> fields, Map<String, String> values) {
+        while (values.size() < fields.size() && parser.next() == JsonParser.Event.KEY_NAME) {
+            String field = parser.getString();
+            JsonParser.Event event = parser.next();
+            if (fields.contains(field)) {
+                if (values.containsKey(field)) {
+                    LOG.debug("Field '{}' appears more than once in the request entity", field);
+                    throw new ForbiddenException();
+                }
+                values.put(field, event == JsonParser.Event.VALUE_STRING || event == JsonParser.Event.VALUE_NUMBER
+                        ? parser.getString() : null);
+            }
+            if (event == JsonParser.Event.START_OBJECT) {
+                parser.skipObject();
+            } else if (event == JsonParser.Event.START_ARRAY) {
+                parser.skipArray();
+            }
+        }
+        return values.size() == fields.size();
+    }
+
+    /**
+     * Keeps the bytes read from the entity stream to replay them
+     */
+    static final class ConsumedInputStream extends FilterInputStream {
+        private final ByteArrayOutputStream consumed = new ByteArrayOutputStream();
+        final int limit;
+        /**
+         * True when the stream ended because the limit was reached
+         */
+        boolean exceeded;
+
+        /**
+         * @param limit maximum number of bytes read, the stream ends there
+         */
+        ConsumedInputStream(InputStream in, int limit) {
+            super(in);
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining() == 0) {
+                return -1;
+            }
+            int b = super.read();
+            if (b >= 0) {
+                consumed.write(b);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len > 0 && remaining() == 0) {
+                return -1;
+            }
+            int n = super.read(b, off, Math.min(len, remaining()));
+            if (n > 0) {
+                consumed.write(b, off, n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            if (n <= 0) {
+                return 0;
+            }
+            byte[] skipped = new byte[(int) Math.min(n, 8192)];
+            return Math.max(0, read(skipped, 0, skipped.length));
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        private int remaining() {
+            int remaining = limit - consumed.size();
+            exceeded |= remaining == 0;
+            return remaining;
+        }
+
+        /**
+         * @return the consumed bytes followed by the rest of the entity stream
+         */
+        InputStream replay() {
+            return new SequenceInputStream(new ByteArrayInputStream(consumed.toByteArray()), in);
+        }
+    }
+
+    /**
+     * Scans the replayed entity for the top-level keys of the fields, the stream fails with a
+     * {@link ForbiddenException} when one of them appears again after parsing stopped
+     */
+    static final class RepeatedFieldGuard extends FilterInputStream {
+        private final Set<String> fields;
+        private final Set<String> seen = new HashSet<>();
+        private final int maxKeyBytes;
+        private final ByteArrayOutputStream key = new ByteArrayOutputStream();
+        private int depth;
+        private boolean inString;
+        private boolean escaped;
+        private boolean expectingKey;
+        private boolean readingKey;
+
+        RepeatedFieldGuard(InputStream in, Set<String> fields) {
+            super(in);
+            this.fields = fields;
+            // every char of a field is at most a six bytes escape
+            this.maxKeyBytes = 6 * fields.stream().mapToInt(String::length).max().orElse(0);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                scan((byte) b);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            for (int i = 0; i < n; i++) {
+                scan(b[off + i]);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            if (n <= 0) {
+                return 0;
+            }
+            byte[] skipped = new byte[(int) Math.min(n, 8192)];
+            return Math.max(0, read(skipped, 0, skipped.length));
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        private void scan(byte b) {
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (b == '\\') {
+                    escaped = true;
+                } else if (b == '"') {
+                    inString = false;
+                    if (readingKey) {
+                        readingKey = false;
+                        checkKey();
+                    }
+                    return;
+                }
+                if (readingKey && key.size() <= maxKeyBytes) {
+                    key.write(b);
+                }
+                return;
+            }
+            switch (b) {
+                case '"':
+                    inString = true;
+                    readingKey = depth == 1 && expectingKey;
+                    expectingKey = false;
+                    key.reset();
+                    break;
+                case '{':
+                case '[':
+                    depth++;
+                    expectingKey = depth == 1 && b == '{';
+                    break;
+                case '}':
+                case ']':
+                    depth--;
+                    break;
+                case ',':
+                    expectingKey = depth == 1;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private void checkKey() {
+            if (key.size() > maxKeyBytes) {
+                return;
+            }
+            String name = unescape(new String(key.toByteArray(), StandardCharsets.UTF_8));
+            if (fields.contains(name) && !seen.add(name)) {
+                LOG.debug("Field '{}' appears more than once in the request entity", name);
+                throw new ForbiddenException();
+            }
+        }
+
+        /**
+         * @return the key with its escape sequences decoded, malformed ones are kept as they are
+         */
+        static String unescape(String key) {
+            if (key.indexOf('\\') < 0) {
+                return key;
+            }
+            StringBuilder name = new StringBuilder(key.length());
+            for (int i = 0; i < key.length(); i++) {
+                char c = key.charAt(i);
+                if (c != '\\' || i + 1 == key.length()) {
+                    name.append(c);
+                    continue;
+                }
+                char escape = key.charAt(++i);
+                switch (escape) {
+                    case 'b':
+                        name.append('\b');
+                        break;
+                    case 'f':
+                        name.append('\f');
+                        break;
+                    case 'n':
+                        name.append('\n');
+                        break;
+                    case 'r':
+                        name.append('\r');
+                        break;
+                    case 't':
+                        name.append('\t');
+                        break;
+                    case 'u':
+                        if (i + 4 < key.length()) {
+                            try {
+                                name.append((char) Integer.parseInt(key.substring(i + 1, i + 5), 16));
+                                i += 4;
+                                break;
+                            } catch (NumberFormatException e) {
+                                // kept as it is
+                            }
+                        }
+                        name.append('\\').append(escape);
+                        break;
+                    default:
+                        name.append(escape);
+                        break;
+                }
+            }
+            return name.toString();
+        }
+    }
+}
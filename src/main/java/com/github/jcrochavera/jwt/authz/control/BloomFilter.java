@@ -0,0 +1,75 @@
+package com.github.jcrochavera.jwt.authz.control;
+
+import java.util.Collection;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ * <p>
+ * Bloom filter of the instances of a resource identified by strings, when it answers false the instance was
+ * definitely not granted. Instances are hashed from their cached hash codes, so lookups do not hash the instance
+ * again against the instances index.
+ * </p>
+ *
+ * @author julio.rocha
+ * @since 1.1.0
+ */
+class BloomFilter {
+    static final int BITS_PER_ENTRY = 10;
+    static final int HASHES = 7;
+    private final long[] bits;
+    private final int mask;
+
+    private BloomFilter(int entries) {
+        int size = Integer.highestOneBit(Math.max(64, entries * BITS_PER_ENTRY) - 1) << 1;
+        this.bits = new long[size >>> 6];
+        this.mask = size - 1;
+    }
+
+    /**
+     * @param instances instances of one resource
+     * @return a filter containing all the provided instances
+     */
+    static BloomFilter of(Collection<String> instances) {
+        BloomFilter filter = new BloomFilter(instances.size());
+        for (String instance : instances) {
+            long h = mix(instance.hashCode());
+            int h1 = (int) h;
+            int h2 = (int) (h >>> 32) | 1;
+            for (int i = 0; i < HASHES; i++) {
+                int bit = (h1 + i * h2) & filter.mask;
+                filter.bits[bit >>> 6] |= 1L << bit;
+            }
+        }
+        return filter;
+    }
+
+    /**
+     * @return false when the instance was definitely not granted
+     */
+    boolean mightContain(String instance) {
+        long h = mix(instance.hashCode());
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32) | 1;
+        for (int i = 0; i < HASHES; i++) {
+            int bit = (h1 + i * h2) & mask;
+            if ((bits[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long mix(int hash) {
+        long h = hash * 0x9E3779B97F4A7C15L;
+        h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+        h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
+    }
+
+    /**
+     * @return size of the filter in bits
+     */
+    int size() {
+        return mask + 1;
+    }
+}
@@ -0,0 +1,60 @@
+package com.github.jcrochavera.jwt.authz.control;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ * <p>
+ * Limits of the authorization claim enforced while a {@link UserSession} is built, configured with
+ * {@link UserSessionOptions#withLimit(ClaimLimit, int)}. Claims over a limit are rejected with a
+ * {@link ClaimLimitException}, or truncated when {@link UserSessionOptions#withTruncation(boolean)} is enabled.
+ * Every limit counts the sessions it rejected and the times it truncated a claim in this JVM.
+ * </p>
+ *
+ * @author julio.rocha
+ * @since 1.1.0
+ */
+public enum ClaimLimit {
+    /**
+     * Entries of the <code>permissions</code> claim, truncation ignores the entries after the limit
+     */
+    PERMISSIONS,
+    /**
+     * Scopes of an entry, truncation ignores the scopes after the limit
+     */
+    SCOPES,
+    /**
+     * Length of the <code>rsname</code> of an entry, truncation ignores the entry
+     */
+    RSNAME_LENGTH,
+    /**
+     * Distinct instances of a session, truncation ignores the entries of new instances after the limit.
+     * Sessions built in parallel count an instance repeated in several chunks once.
+     */
+    INSTANCES;
+
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder truncated = new LongAdder();
+
+    /**
+     * @return number of sessions rejected by this limit
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * @return number of times this limit truncated a claim
+     */
+    public long getTruncated() {
+        return truncated.sum();
+    }
+
+    void rejected() {
+        rejected.increment();
+    }
+
+    void truncated() {
+        truncated.increment();
+    }
+}
@@ -0,0 +1,34 @@
+package com.github.jcrochavera.jwt.authz.control;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ * <p>
+ * Thrown when an authorization claim exceeds a {@link ClaimLimit} and truncation is not enabled. The claim comes
+ * from the token of the client, register
+ * {@link com.github.jcrochavera.jwt.authz.boundary.ClaimLimitExceptionMapper} so these requests are answered with
+ * 403 Forbidden instead of a server error.
+ * </p>
+ *
+ * @author julio.rocha
+ * @since 1.1.0
+ */
+public class ClaimLimitException extends IllegalArgumentException {
+    private static final long serialVersionUID = 1L;
+    private final ClaimLimit limit;
+
+    /**
+     * @param limit the exceeded limit
+     * @param max   its configured value
+     */
+    public ClaimLimitException(ClaimLimit limit, int max) {
+        super("Authorization exceeds the " + limit + " limit of " + max);
+        this.limit = limit;
+    }
+
+    /**
+     * @return the exceeded limit
+     */
+    public ClaimLimit getLimit() {
+        return limit;
+    }
+}
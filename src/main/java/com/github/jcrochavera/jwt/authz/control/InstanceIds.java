@@ -0,0 +1,96 @@
+package com.github.jcrochavera.jwt.authz.control;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ * <p>
+ * Detects and parses instance identifiers without allocating. Only canonical representations are detected,
+ * so converting the parsed value back to a string returns the same identifier:
+ * </p>
+ * <ul>
+ *     <li>Numbers: decimal longs without leading zeros nor '+' sign</li>
+ *     <li>UUIDs: 36 lowercase characters as returned by {@link java.util.UUID#toString()}</li>
+ * </ul>
+ *
+ * @author julio.rocha
+ * @since 1.1.0
+ */
+class InstanceIds {
+    InstanceIds() {
+    }
+
+    /**
+     * @return true when the instance is the canonical representation of a long
+     */
+    static boolean isNumber(String instance) {
+        int length = instance.length();
+        int start = length > 1 && instance.charAt(0) == '-' ? 1 : 0;
+        if (length == 0 || length - start > 19 || (instance.charAt(start) == '0' && length > 1)) {
+            return false;
+        }
+        long limit = start == 1 ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long value = 0;
+        for (int i = start; i < length; i++) {
+            int digit = instance.charAt(i) - '0';
+            if (digit < 0 || digit > 9 || value < limit / 10 || value * 10 < limit + digit) {
+                return false;
+            }
+            value = value * 10 - digit;
+        }
+        return true;
+    }
+
+    /**
+     * @param instance an instance detected by {@link #isNumber(String)}
+     * @return the long value of the instance
+     */
+    static long toLong(String instance) {
+        boolean negative = instance.charAt(0) == '-';
+        long value = 0;
+        for (int i = negative ? 1 : 0; i < instance.length(); i++) {
+            value = value * 10 - (instance.charAt(i) - '0');
+        }
+        return negative ? value : -value;
+    }
+
+    /**
+     * @return true when the instance is the canonical representation of a UUID
+     */
+    static boolean isUuid(String instance) {
+        if (instance.length() != 36) {
+            return false;
+        }
+        for (int i = 0; i < 36; i++) {
+            char c = instance.charAt(i);
+            boolean valid = (i == 8 || i == 13 || i == 18 || i == 23) ? c == '-'
+                    : (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f');
+            if (!valid) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param instance an instance detected by {@link #isUuid(String)}
+     * @return the most significant bits of the UUID
+     */
+    static long mostSignificantBits(String instance) {
+        return hex(instance, 0, 8) << 32 | hex(instance, 9, 13) << 16 | hex(instance, 14, 18);
+    }
+
+    /**
+     * @param instance an instance detected by {@link #isUuid(String)}
+     * @return the least significant bits of the UUID
+     */
+    static long leastSignificantBits(String instance) {
+        return hex(instance, 19, 23) << 48 | hex(instance, 24, 36);
+    }
+
+    private static long hex(String value, int from, int to) {
+        long result = 0;
+        for (int i = from; i < to; i++) {
+            result = result << 4 | Character.digit(value.charAt(i), 16);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,453 @@
+package com.github.jcrochavera.jwt.authz.control;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ * <p>
+ * Instances granted to a {@link UserSession} grouped by resource and stored by the type of their identifier,
+ * detected by {@link InstanceIds}:
+ * </p>
+ * <ul>
+ *     <li>Numbers: open addressing table of primitive longs</li>
+ *     <li>UUIDs: open addressing table of the two longs of the UUID</li>
+ *     <li>Any other identifier: map of strings, filtered by a {@link BloomFilter} above a threshold</li>
+ * </ul>
+ * <p>
+ * Once built, equal scope sets are shared between instances and no structure is modified anymore.
+ * </p>
+ *
+ * @author julio.rocha
+ * @since 1.1.0
+ */
+class InstancePermissions {
+    private final Map<String, Instances> resources = new HashMap<>();
+    private int size;
+
+    /**
+     * @param instances keys built by {@link UserSession#instanceKey(String, String)} and their scopes
+     * @param threshold string instances of a resource from which a Bloom filter is built
+     * @return the instances built from the provided keys, scope sets are shared and not copied
+     */
+    static InstancePermissions of(Map<String, Set<String>> instances, int threshold) {
+        InstancePermissions permissions = new InstancePermissions();
+        instances.forEach((key, scopes) -> {
+            int separator = key.indexOf(':');
+            permissions.put(key.substring(0, separator), key.substring(separator + 1), scopes);
+        });
+        return permissions.build(threshold);
+    }
+
+    /**
+     * @return the scopes of the instance, a new mutable set when it is not present yet
+     */
+    Set<String> scopes(String resource, String instance) {
+        Set<String> scopes = get(resource, instance);
+        if (Objects.isNull(scopes)) {
+            scopes = new HashSet<>();
+            put(resource, instance, scopes);
+        }
+        return scopes;
+    }
+
+    private void put(String resource, String instance, Set<String> scopes) {
+        Instances instances = resources.computeIfAbsent(resource, k -> new Instances());
+        if (InstanceIds.isNumber(instance)) {
+            instances.numbers = Objects.isNull(instances.numbers) ? new LongTable() : instances.numbers;
+            instances.numbers.put(InstanceIds.toLong(instance), scopes);
+        } else if (InstanceIds.isUuid(instance)) {
+            instances.uuids = Objects.isNull(instances.uuids) ? new UuidTable() : instances.uuids;
+            instances.uuids.put(InstanceIds.mostSignificantBits(instance), InstanceIds.leastSignificantBits(instance), scopes);
+        } else {
+            instances.strings = Objects.isNull(instances.strings) ? new HashMap<>() : instances.strings;
+            instances.strings.put(instance, scopes);
+        }
+        size++;
+    }
+
+    /**
+     * Adds the instances of other permissions that are still being built, scopes of instances present in both
+     * are joined. Sets of the other permissions are reused, so it must not be used afterwards.
+     */
+    void merge(InstancePermissions other) {
+        other.resources.forEach((resource, theirs) -> {
+            Instances ours = resources.computeIfAbsent(resource, k -> new Instances());
+            if (Objects.nonNull(theirs.numbers)) {
+                ours.numbers = Objects.isNull(ours.numbers) ? new LongTable() : ours.numbers;
+                for (int i = 0; i < theirs.numbers.values.length; i++) {
+                    Set<String> scopes = theirs.numbers.values[i];
+                    if (Objects.nonNull(scopes)) {
+                        Set<String> current = ours.numbers.get(theirs.numbers.keys[i]);
+                        if (Objects.isNull(current)) {
+                            ours.numbers.put(theirs.numbers.keys[i], scopes);
+                            size++;
+                        } else {
+                            current.addAll(scopes);
+                        }
+                    }
+                }
+            }
+            if (Objects.nonNull(theirs.uuids)) {
+                ours.uuids = Objects.isNull(ours.uuids) ? new UuidTable() : ours.uuids;
+                for (int i = 0; i < theirs.uuids.values.length; i++) {
+                    Set<String> scopes = theirs.uuids.values[i];
+                    if (Objects.nonNull(scopes)) {
+                        Set<String> current = ours.uuids.get(theirs.uuids.high[i], theirs.uuids.low[i]);
+                        if (Objects.isNull(current)) {
+                            ours.uuids.put(theirs.uuids.high[i], theirs.uuids.low[i], scopes);
+                            size++;
+                        } else {
+                            current.addAll(scopes);
+                        }
+                    }
+                }
+            }
+            if (Objects.nonNull(theirs.strings)) {
+                ours.strings = Objects.isNull(ours.strings) ? new HashMap<>() : ours.strings;
+                theirs.strings.forEach((instance, scopes) -> {
+                    Set<String> current = ours.strings.putIfAbsent(instance, scopes);
+                    if (Objects.isNull(current)) {
+                        size++;
+                    } else {
+                        current.addAll(scopes);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Replaces the scope sets by shared immutable ones and builds the Bloom filters
+     *
+     * @param threshold string instances of a resource from which a Bloom filter is built
+     * @return this same instance
+     */
+    InstancePermissions build(int threshold) {
+        Map<Set<String>, Set<String>> shared = new HashMap<>();
+        for (Instances instances : resources.values()) {
+            build(instances, shared, threshold);
+        }
+        return this;
+    }
+
+    private static void build(Instances instances, Map<Set<String>, Set<String>> shared, int threshold) {
+        if (Objects.nonNull(instances.numbers)) {
+            instances.numbers.share(shared);
+        }
+        if (Objects.nonNull(instances.uuids)) {
+            instances.uuids.share(shared);
+        }
+        if (Objects.nonNull(instances.strings)) {
+            instances.strings.replaceAll((k, v) -> share(shared, v));
+            instances.filter = instances.strings.size() >= threshold ? BloomFilter.of(instances.strings.keySet()) : null;
+        }
+    }
+
+    /**
+     * Builds the permissions of a refreshed session, only the resources whose instances changed are built again,
+     * the structures of the others are shared with these permissions, which are not modified
+     *
+     * @param changed   resources whose instances changed
+     * @param instances every instance of the new grants, keyed by {@link UserSession#instanceKey(String, String)}
+     * @param threshold string instances of a resource from which a Bloom filter is built
+     * @return the permissions holding the new grants
+     */
+    InstancePermissions with(Set<String> changed, Map<String, Set<String>> instances, int threshold) {
+        InstancePermissions permissions = new InstancePermissions();
+        resources.forEach((resource, current) -> {
+            if (!changed.contains(resource)) {
+                permissions.resources.put(resource, current);
+                permissions.size += current.size();
+            }
+        });
+        instances.forEach((key, scopes) -> {
+            int separator = key.indexOf(':');
+            String resource = key.substring(0, separator);
+            if (changed.contains(resource)) {
+                permissions.put(resource, key.substring(separator + 1), scopes);
+            }
+        });
+        Map<Set<String>, Set<String>> shared = new HashMap<>();
+        for (String resource : changed) {
+            Instances rebuilt = permissions.resources.get(resource);
+            if (Objects.nonNull(rebuilt)) {
+                build(rebuilt, shared, threshold);
+            }
+        }
+        return permissions;
+    }
+
+    private static Set<String> share(Map<Set<String>, Set<String>> shared, Set<String> scopes) {
+        Set<String> copy = Set.copyOf(scopes);
+        Set<String> previous = shared.putIfAbsent(copy, copy);
+        return Objects.isNull(previous) ? copy : previous;
+    }
+
+    /**
+     * @return number of instances of all resources
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return scopes of the instance, null when it was not granted
+     */
+    Set<String> get(String resource, String instance) {
+        Instances instances = resources.get(resource);
+        if (Objects.isNull(instances)) {
+            return null;
+        }
+        if (InstanceIds.isNumber(instance)) {
+            return Objects.isNull(instances.numbers) ? null : instances.numbers.get(InstanceIds.toLong(instance));
+        }
+        if (InstanceIds.isUuid(instance)) {
+            return Objects.isNull(instances.uuids) ? null
+                    : instances.uuids.get(InstanceIds.mostSignificantBits(instance), InstanceIds.leastSignificantBits(instance));
+        }
+        if (Objects.isNull(instances.strings) || (Objects.nonNull(instances.filter) && !instances.filter.mightContain(instance))) {
+            return null;
+        }
+        return instances.strings.get(instance);
+    }
+
+    /**
+     * @return scopes of the numeric instance, null when it was not granted
+     */
+    Set<String> get(String resource, long instance) {
+        Instances instances = resources.get(resource);
+        return Objects.isNull(instances) || Objects.isNull(instances.numbers) ? null : instances.numbers.get(instance);
+    }
+
+    /**
+     * @return scopes of the UUID instance, null when it was not granted
+     */
+    Set<String> get(String resource, long mostSignificantBits, long leastSignificantBits) {
+        Instances instances = resources.get(resource);
+        return Objects.isNull(instances) || Objects.isNull(instances.uuids) ? null
+                : instances.uuids.get(mostSignificantBits, leastSignificantBits);
+    }
+
+    /**
+     * @return Bloom filter of the string instances of the resource, null when there is none
+     */
+    BloomFilter filter(String resource) {
+        Instances instances = resources.get(resource);
+        return Objects.isNull(instances) ? null : instances.filter;
+    }
+
+    /**
+     * @return identifiers of the instances of the resource, as they were granted
+     */
+    Set<String> instances(String resource) {
+        Set<String> names = new HashSet<>();
+        forEach(resource, (instance, scopes) -> names.add(instance));
+        return names;
+    }
+
+    /**
+     * @return resources with instances
+     */
+    Set<String> resources() {
+        return resources.keySet();
+    }
+
+    /**
+     * Performs the action with the identifier, as it was granted, and the scopes of every instance of the resource
+     */
+    void forEach(String resource, BiConsumer<String, Set<String>> action) {
+        Instances instances = resources.get(resource);
+        if (Objects.nonNull(instances)) {
+            instances.forEach(action);
+        }
+    }
+
+    /**
+     * @return a new map keyed by {@link UserSession#instanceKey(String, String)} with the scopes of every instance
+     */
+    Map<String, Set<String>> asMap() {
+        Map<String, Set<String>> map = new HashMap<>();
+        resources.forEach((resource, instances) ->
+                instances.forEach((instance, scopes) -> map.put(UserSession.instanceKey(resource, instance), scopes)));
+        return map;
+    }
+
+    /**
+     * Counts the tables, maps, filters and scope sets of the instances
+     *
+     * @param size estimate of the session
+     */
+    void retainedSize(RetainedSize size) {
+        size.object(2 * RetainedSize.REFERENCE).hashMap(resources.size());
+        resources.forEach((resource, instances) -> {
+            size.string(resource).object(4 * RetainedSize.REFERENCE);
+            if (Objects.nonNull(instances.numbers)) {
+                size.object(2 * RetainedSize.REFERENCE + 4).array(instances.numbers.keys.length, Long.BYTES)
+                        .array(instances.numbers.values.length, RetainedSize.REFERENCE);
+                scopes(size, instances.numbers.values);
+            }
+            if (Objects.nonNull(instances.uuids)) {
+                size.object(3 * RetainedSize.REFERENCE + 4).array(instances.uuids.high.length, Long.BYTES)
+                        .array(instances.uuids.low.length, Long.BYTES)
+                        .array(instances.uuids.values.length, RetainedSize.REFERENCE);
+                scopes(size, instances.uuids.values);
+            }
+            if (Objects.nonNull(instances.strings)) {
+                size.hashMap(instances.strings.size());
+                instances.strings.forEach((instance, scopes) -> size.string(instance).scopes(scopes));
+            }
+            if (Objects.nonNull(instances.filter)) {
+                size.object(RetainedSize.REFERENCE + 4).array(instances.filter.size() >>> 6, Long.BYTES);
+            }
+        });
+    }
+
+    private static void scopes(RetainedSize size, Set<String>[] values) {
+        for (Set<String> scopes : values) {
+            if (Objects.nonNull(scopes)) {
+                size.scopes(scopes);
+            }
+        }
+    }
+
+    private static final class Instances {
+        private LongTable numbers;
+        private UuidTable uuids;
+        private Map<String, Set<String>> strings;
+        private BloomFilter filter;
+
+        private int size() {
+            return (Objects.isNull(numbers) ? 0 : numbers.size) + (Objects.isNull(uuids) ? 0 : uuids.size)
+                    + (Objects.isNull(strings) ? 0 : strings.size());
+        }
+
+        private void forEach(BiConsumer<String, Set<String>> action) {
+            if (Objects.nonNull(numbers)) {
+                for (int i = 0; i < numbers.values.length; i++) {
+                    if (Objects.nonNull(numbers.values[i])) {
+                        action.accept(Long.toString(numbers.keys[i]), numbers.values[i]);
+                    }
+                }
+            }
+            if (Objects.nonNull(uuids)) {
+                for (int i = 0; i < uuids.values.length; i++) {
+                    if (Objects.nonNull(uuids.values[i])) {
+                        action.accept(new UUID(uuids.high[i], uuids.low[i]).toString(), uuids.values[i]);
+                    }
+                }
+            }
+            if (Objects.nonNull(strings)) {
+                strings.forEach(action);
+            }
+        }
+    }
+
+    private static final class LongTable {
+        private long[] keys = new long[8];
+        private Set<String>[] values = newValues(8);
+        private int size;
+
+        private Set<String> get(long key) {
+            int mask = keys.length - 1;
+            for (int i = index(key) & mask; Objects.nonNull(values[i]); i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return values[i];
+                }
+            }
+            return null;
+        }
+
+        private void put(long key, Set<String> value) {
+            if (++size * 2 > keys.length) {
+                long[] oldKeys = keys;
+                Set<String>[] oldValues = values;
+                keys = new long[oldKeys.length * 2];
+                values = newValues(oldKeys.length * 2);
+                for (int i = 0; i < oldKeys.length; i++) {
+                    if (Objects.nonNull(oldValues[i])) {
+                        insert(oldKeys[i], oldValues[i]);
+                    }
+                }
+            }
+            insert(key, value);
+        }
+
+        private void insert(long key, Set<String> value) {
+            int mask = keys.length - 1;
+            int i = index(key) & mask;
+            while (Objects.nonNull(values[i]) && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = value;
+        }
+
+        private void share(Map<Set<String>, Set<String>> shared) {
+            for (int i = 0; i < values.length; i++) {
+                values[i] = Objects.isNull(values[i]) ? null : InstancePermissions.share(shared, values[i]);
+            }
+        }
+    }
+
+    private static final class UuidTable {
+        private long[] high = new long[8];
+        private long[] low = new long[8];
+        private Set<String>[] values = newValues(8);
+        private int size;
+
+        private Set<String> get(long mostSignificantBits, long leastSignificantBits) {
+            int mask = values.length - 1;
+            for (int i = index(mostSignificantBits ^ leastSignificantBits) & mask; Objects.nonNull(values[i]); i = (i + 1) & mask) {
+                if (high[i] == mostSignificantBits && low[i] == leastSignificantBits) {
+                    return values[i];
+                }
+            }
+            return null;
+        }
+
+        private void put(long mostSignificantBits, long leastSignificantBits, Set<String> value) {
+            if (++size * 2 > values.length) {
+                long[] oldHigh = high;
+                long[] oldLow = low;
+                Set<String>[] oldValues = values;
+                high = new long[oldValues.length * 2];
+                low = new long[oldValues.length * 2];
+                values = newValues(oldValues.length * 2);
+                for (int i = 0; i < oldValues.length; i++) {
+                    if (Objects.nonNull(oldValues[i])) {
+                        insert(oldHigh[i], oldLow[i], oldValues[i]);
+                    }
+                }
+            }
+            insert(mostSignificantBits, leastSignificantBits, value);
+        }
+
+        private void insert(long mostSignificantBits, long leastSignificantBits, Set<String> value) {
+            int mask = values.length - 1;
+            int i = index(mostSignificantBits ^ leastSignificantBits) & mask;
+            while (Objects.nonNull(values[i]) && (high[i] != mostSignificantBits || low[i] != leastSignificantBits)) {
+                i = (i + 1) & mask;
+            }
+            high[i] = mostSignificantBits;
+            low[i] = leastSignificantBits;
+            values[i] = value;
+        }
+
+        private void share(Map<Set<String>, Set<String>> shared) {
+            for (int i = 0; i < values.length; i++) {
+                values[i] = Objects.isNull(values[i]) ? null : InstancePermissions.share(shared, values[i]);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Set<String>[] newValues(int length) {
+        return (Set<String>[]) new Set<?>[length];
+    }
+
+    private static int index(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,315 @@
+package com.github.jcrochavera.jwt.authz.control;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ * <p>
+ * Off-heap store of {@link UserSession} permissions backed by a memory-mapped file, so the JVMs of one host
+ * mapping the same file share the sessions built by any of them.
+ * </p>
+ * <p>
+ * The file is a fixed-layout open addressing table keyed by {@link TokenDigest}, every slot holds the
+ * permissions encoded by {@link PermissionsCodec} followed by their {@link SlotIndex}, and it is guarded by a
+ * sequence lock: writers move the sequence to an odd value with a CAS, write the payload, then the key stamped with
+ * the odd sequence they hold, and release the slot with the next even value. Readers never lock, they only accept a
+ * slot whose key matches and whose stamp is the sequence preceding the current one, and they validate that neither
+ * changed after reading. Sessions returned by {@link #get(String)} look up their grants in the index of the mapping,
+ * when its slot is replaced while they are in use their checks fail closed.
+ * </p>
+ * <p>Writers record the time they took a slot once they hold it. A slot held for longer than
+ * {@link #STALE_WRITE_MILLIS}, left by a process that died while writing it, is emptied by the next reader or writer
+ * probing it, or by {@link #recover()}. A writer stalled for that long loses its slot: it checks that it still holds
+ * the slot before writing the payload and before writing the key, and a key it writes anyway carries the stamp of
+ * the sequence it lost, so readers never accept it.</p>
+ * <p>The bytes of the mapping are reported to the {@link SessionMemory} named
+ * <code>MappedSessionStore:&lt;file&gt;</code> while the store is open.</p>
+ * <pre>
+ *     MappedSessionStore store = new MappedSessionStore(Path.of("/dev/shm/sessions"), 4096, 4096);
+ *     UserSession session = store.get(rawToken);
+ *     if (session == null) {
+ *         session = new UserSession(userName, authorization);
+ *         store.put(rawToken, session, expirationTimeMillis);
+ *     }
+ * </pre>
+ *
+ * @author julio.rocha
+ * @since 1.1.0
+ */
+public class MappedSessionStore implements Closeable {
+    static Logger LOG = LoggerFactory.getLogger(MappedSessionStore.class);
+    static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+    static final long MAGIC = 0x4A57415453544F52L;
+    static final long VERSION = 3;
+    static final int HEADER = 64;
+    static final int SEQUENCE = 0;
+    static final int KEY_HIGH = 8;
+    static final int KEY_LOW = 16;
+    static final int EXPIRES_AT = 24;
+    static final int LENGTH = 32;
+    /**
+     * Epoch millis since the slot is held, 0 while it is not held or its writer did not record it yet
+     */
+    static final int LOCKED_AT = 40;
+    static final int INDEX = 48;
+    static final int INDEX_CAPACITY = 52;
+    /**
+     * Odd sequence held by the writer of the key
+     */
+    static final int STAMP = 56;
+    static final int PAYLOAD = 64;
+    static final int PROBES = 8;
+    /**
+     * Milliseconds after which a slot held by a writer is considered abandoned
+     */
+    public static final long STALE_WRITE_MILLIS = 10_000;
+    /**
+     * Keeps reads of a slot that is being replaced inside the mapping, they are discarded by the sequence check
+     */
+    static final int PADDING = 1 << 17;
+
+    final FileChannel channel;
+    final MappedByteBuffer buffer;
+    final int slots;
+    final int slotSize;
+    final SessionMemory memory;
+
+    /**
+     * Maps the file, creating its layout when it is new
+     *
+     * @param file     file shared by the processes of the host
+     * @param slots    number of sessions, power of two
+     * @param slotSize bytes of each session, multiple of 8, sessions that do not fit are not stored
+     * @throws IOException when the file cannot be mapped
+     */
+    public MappedSessionStore(Path file, int slots, int slotSize) throws IOException {
+        if (slots <= 0 || Integer.bitCount(slots) != 1) {
+            throw new IllegalArgumentException("slots must be a power of two");
+        }
+        if (slotSize <= PAYLOAD || slotSize % Long.BYTES != 0 || (long) slots * slotSize > Integer.MAX_VALUE - HEADER - PADDING) {
+            throw new IllegalArgumentException("slotSize must be a multiple of 8 greater than " + PAYLOAD
+                    + " and the store must be smaller than 2GB");
+        }
+        this.slots = slots;
+        this.slotSize = slotSize;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            FileLock lock = channel.lock();
+            try {
+                this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER + (long) slots * slotSize + PADDING);
+                initializeLayout(file);
+                this.memory = SessionMemory.of(MappedSessionStore.class.getSimpleName() + ':' + file);
+                memory.mapped(buffer.capacity());
+            } finally {
+                lock.release();
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void initializeLayout(Path file) {
+        if ((long) LONGS.getVolatile(buffer, 0) == 0) {
+            LONGS.set(buffer, 8, VERSION);
+            LONGS.set(buffer, 16, (long) slots);
+            LONGS.set(buffer, 24, (long) slotSize);
+            LONGS.setRelease(buffer, 0, MAGIC);
+        } else if ((long) LONGS.get(buffer, 0) != MAGIC || (long) LONGS.get(buffer, 8) != VERSION
+                || (long) LONGS.get(buffer, 16) != slots || (long) LONGS.get(buffer, 24) != slotSize) {
+            throw new IllegalArgumentException("'" + file + "' was created with a different layout");
+        }
+    }
+
+    /**
+     * @param token     raw token of the session
+     * @param session   session to be shared
+     * @param expiresAt epoch millis after which the session is not returned anymore
+     * @return true when it was stored, false when it does not fit in a slot or another writer holds the slot
+     */
+    public boolean put(String token, UserSession session, long expiresAt) {
+        byte[] encoded = PermissionsCodec.encode(session);
+        int index = PAYLOAD + (encoded.length + Long.BYTES - 1) / Long.BYTES * Long.BYTES;
+        ByteBuffer entries = SlotIndex.build(encoded, PAYLOAD);
+        if (index + entries.capacity() > slotSize) {
+            LOG.debug("Session of '{}' requires {} bytes, it will not be stored", session.getUser(),
+                    index + entries.capacity());
+            return false;
+        }
+        TokenDigest key = TokenDigest.of(token);
+        int slot = select(key);
+        long owned = acquire(slot);
+        return owned >= 0 && write(slot, owned, expiresAt, encoded, index, entries) && publish(slot, owned, key);
+    }
+
+    /**
+     * @return the odd sequence of the slot taken by this writer, -1 when another writer holds it
+     */
+    long acquire(int slot) {
+        long sequence = sequence(slot);
+        if ((sequence & 1) != 0) {
+            recover(slot, sequence);
+            return -1;
+        }
+        if (!LONGS.compareAndSet(buffer, slot + SEQUENCE, sequence, sequence + 1)) {
+            return -1;
+        }
+        LONGS.compareAndSet(buffer, slot + LOCKED_AT, 0L, System.currentTimeMillis());
+        return sequence + 1;
+    }
+
+    /**
+     * Writes the payload of a slot taken by {@link #acquire(int)}
+     *
+     * @return false when the slot was recovered from this writer, nothing is written
+     */
+    boolean write(int slot, long owned, long expiresAt, byte[] encoded, int index, ByteBuffer entries) {
+        if (sequence(slot) != owned) {
+            return false;
+        }
+        LONGS.set(buffer, slot + EXPIRES_AT, expiresAt);
+        LONGS.set(buffer, slot + LENGTH, (long) encoded.length);
+        ByteBuffer payload = buffer.duplicate();
+        payload.putInt(slot + INDEX, index).putInt(slot + INDEX_CAPACITY, entries.capacity() / SlotIndex.ENTRY);
+        payload.position(slot + PAYLOAD);
+        payload.put(encoded);
+        payload.position(slot + index);
+        payload.put(entries.array());
+        return true;
+    }
+
+    /**
+     * Writes the key of a slot written by {@link #write} and releases it
+     *
+     * @return false when the slot was recovered from this writer, its write is not visible to readers
+     */
+    boolean publish(int slot, long owned, TokenDigest key) {
+        if (sequence(slot) != owned) {
+            return false;
+        }
+        LONGS.set(buffer, slot + STAMP, owned);
+        VarHandle.storeStoreFence();
+        LONGS.set(buffer, slot + KEY_HIGH, key.high);
+        LONGS.set(buffer, slot + KEY_LOW, key.low);
+        LONGS.set(buffer, slot + LOCKED_AT, 0L);
+        return LONGS.compareAndSet(buffer, slot + SEQUENCE, owned, owned + 1);
+    }
+
+    /**
+     * @param token raw token of the session
+     * @return a session reading from the mapping, null when it is not stored or it expired
+     */
+    public UserSession get(String token) {
+        TokenDigest key = TokenDigest.of(token);
+        int start = (int) key.low;
+        for (int i = 0; i < PROBES; i++) {
+            int slot = offset(start + i);
+            long sequence = sequence(slot);
+            if ((sequence & 1) != 0) {
+                recover(slot, sequence);
+            } else if (matches(slot, key) && isValid(slot, sequence)) {
+                boolean expired = (long) LONGS.get(buffer, slot + EXPIRES_AT) < System.currentTimeMillis();
+                return expired ? null : MappedUserSession.of(this, slot, sequence);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Empties the slots held by writers for longer than {@link #STALE_WRITE_MILLIS}
+     *
+     * @return number of slots emptied
+     */
+    public int recover() {
+        int recovered = 0;
+        for (int i = 0; i < slots; i++) {
+            int slot = offset(i);
+            long sequence = sequence(slot);
+            if ((sequence & 1) != 0 && recover(slot, sequence)) {
+                recovered++;
+            }
+        }
+        return recovered;
+    }
+
+    /**
+     * @param sequence odd sequence of the slot
+     * @return true when the writer holding the slot was stale and the slot was emptied
+     */
+    boolean recover(int slot, long sequence) {
+        long lockedAt = (long) LONGS.getAcquire(buffer, slot + LOCKED_AT);
+        if (lockedAt == 0) {
+            // the writer did not record the time yet, or died before doing it
+            LONGS.compareAndSet(buffer, slot + LOCKED_AT, 0L, System.currentTimeMillis());
+            return false;
+        }
+        if (System.currentTimeMillis() - lockedAt < STALE_WRITE_MILLIS
+                || !LONGS.compareAndSet(buffer, slot + SEQUENCE, sequence, sequence + 2)) {
+            return false;
+        }
+        LOG.warn("Slot {} was held by a writer since {}, it is emptied", (slot - HEADER) / slotSize, lockedAt);
+        LONGS.set(buffer, slot + KEY_HIGH, 0L);
+        LONGS.set(buffer, slot + KEY_LOW, 0L);
+        LONGS.set(buffer, slot + EXPIRES_AT, 0L);
+        LONGS.set(buffer, slot + STAMP, 0L);
+        LONGS.set(buffer, slot + LOCKED_AT, 0L);
+        LONGS.setRelease(buffer, slot + SEQUENCE, sequence + 3);
+        return true;
+    }
+
+    private int select(TokenDigest key) {
+        int start = (int) key.low;
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < PROBES; i++) {
+            int slot = offset(start + i);
+            boolean empty = (long) LONGS.get(buffer, slot + KEY_HIGH) == 0 && (long) LONGS.get(buffer, slot + KEY_LOW) == 0;
+            if (empty || matches(slot, key) || (long) LONGS.get(buffer, slot + EXPIRES_AT) < now) {
+                return slot;
+            }
+        }
+        return offset(start);
+    }
+
+    private boolean matches(int slot, TokenDigest key) {
+        return (long) LONGS.get(buffer, slot + KEY_HIGH) == key.high && (long) LONGS.get(buffer, slot + KEY_LOW) == key.low;
+    }
+
+    private int offset(int index) {
+        return HEADER + (index & (slots - 1)) * slotSize;
+    }
+
+    long sequence(int slot) {
+        return (long) LONGS.getVolatile(buffer, slot + SEQUENCE);
+    }
+
+    /**
+     * @return true when the slot was not modified since the sequence was read and its key was written while the
+     * slot was held with the preceding sequence
+     */
+    boolean isValid(int slot, long sequence) {
+        VarHandle.acquireFence();
+        return (long) LONGS.get(buffer, slot + STAMP) == sequence - 1 && sequence(slot) == sequence;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel.isOpen()) {
+            memory.mapped(-buffer.capacity());
+        }
+        channel.close();
+    }
+}
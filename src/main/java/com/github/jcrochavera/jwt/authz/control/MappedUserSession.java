@@ -0,0 +1,197 @@
+package com.github.jcrochavera.jwt.authz.control;
+
+import jakarta.json.JsonObject;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ * <p>
+ * {@link UserSession} reading its permissions in place from a slot of {@link MappedSessionStore}, checks look up
+ * the {@link SlotIndex} of the slot and validate that the slot was not replaced, otherwise they fail closed.
+ * </p>
+ *
+ * @author julio.rocha
+ * @since 1.1.0
+ */
+class MappedUserSession extends UserSession {
+    private final MappedSessionStore store;
+    private final ByteBuffer buffer;
+    private final int slot;
+    private final long sequence;
+    private final int end;
+    private final int resources;
+    private final int instances;
+    private final int index;
+    private final int capacity;
+
+    private MappedUserSession(MappedSessionStore store, int slot, long sequence, String user, int resources) {
+        super(user, Collections.emptyMap(), Collections.emptyMap());
+        this.store = store;
+        this.buffer = store.buffer;
+        this.slot = slot;
+        this.sequence = sequence;
+        this.end = slot + store.slotSize;
+        int payload = slot + MappedSessionStore.PAYLOAD;
+        this.resources = resources;
+        this.instances = payload + Math.max(0, Math.min(buffer.getInt(payload + PermissionsCodec.INSTANCES_OFFSET),
+                store.slotSize));
+        int indexOffset = buffer.getInt(slot + MappedSessionStore.INDEX);
+        int indexCapacity = buffer.getInt(slot + MappedSessionStore.INDEX_CAPACITY);
+        boolean readable = indexOffset >= MappedSessionStore.PAYLOAD && indexCapacity > 0
+                && Integer.bitCount(indexCapacity) == 1
+                && (long) indexOffset + (long) indexCapacity * SlotIndex.ENTRY <= store.slotSize;
+        this.index = slot + indexOffset;
+        this.capacity = readable ? indexCapacity : 0;
+    }
+
+    static MappedUserSession of(MappedSessionStore store, int slot, long sequence) {
+        int user = slot + MappedSessionStore.PAYLOAD + PermissionsCodec.USER_OFFSET;
+        int length = Short.toUnsignedInt(store.buffer.getShort(user));
+        byte[] name = new byte[Math.min(length, slot + store.slotSize - user - 2)];
+        for (int i = 0; i < name.length; i++) {
+            name[i] = store.buffer.get(user + 2 + i);
+        }
+        if (!store.isValid(slot, sequence)) {
+            return null;
+        }
+        return new MappedUserSession(store, slot, sequence, new String(name, StandardCharsets.UTF_8), user + 2 + length);
+    }
+
+    @Override
+    public boolean hasPermission(String resource, String permission) {
+        return contains(SlotIndex.hash(SlotIndex.seed(SlotIndex.RESOURCE), resource), SlotIndex.RESOURCE, resource,
+                null, 0, 0, permission);
+    }
+
+    @Override
+    public boolean hasInstancePermission(String resource, String instance, String permission) {
+        if (InstanceIds.isNumber(instance)) {
+            return hasInstancePermission(resource, InstanceIds.toLong(instance), permission);
+        }
+        if (InstanceIds.isUuid(instance)) {
+            return hasUuidPermission(resource, InstanceIds.mostSignificantBits(instance),
+                    InstanceIds.leastSignificantBits(instance), permission);
+        }
+        return contains(SlotIndex.hash(resource, instance), SlotIndex.STRING, resource, instance, 0, 0, permission);
+    }
+
+    @Override
+    public boolean hasInstancePermission(String resource, long instance, String permission) {
+        return contains(SlotIndex.hash(SlotIndex.hash(SlotIndex.seed(SlotIndex.NUMBER), resource), instance),
+                SlotIndex.NUMBER, resource, null, instance, 0, permission);
+    }
+
+    @Override
+    public boolean hasInstancePermission(String resource, UUID instance, String permission) {
+        return hasUuidPermission(resource, instance.getMostSignificantBits(), instance.getLeastSignificantBits(),
+                permission);
+    }
+
+    private boolean hasUuidPermission(String resource, long high, long low, String permission) {
+        int hash = SlotIndex.hash(SlotIndex.hash(SlotIndex.hash(SlotIndex.seed(SlotIndex.UUID), resource), high), low);
+        return contains(hash, SlotIndex.UUID, resource, null, high, low, permission);
+    }
+
+    @Override
+    public Set<String> getResources() {
+        return keys(resources, "");
+    }
+
+    @Override
+    public Set<String> getInstances(String resource) {
+        return keys(instances, instanceKey(resource, ""));
+    }
+
+    @Override
+    public Set<String> getInstances(String resource, String permission) {
+        Set<String> instances = new HashSet<>(getInstances(resource));
+        instances.removeIf(instance -> !hasInstancePermission(resource, instance, permission));
+        return Collections.unmodifiableSet(instances);
+    }
+
+    @Override
+    ScopeIndex scopeIndex() {
+        if (Objects.isNull(scopeIndex)) {
+            scopeIndex = materialize().scopeIndex();
+        }
+        return scopeIndex;
+    }
+
+    @Override
+    public PermissionsFingerprint getFingerprint() {
+        if (Objects.isNull(fingerprint)) {
+            fingerprint = materialize().getFingerprint();
+        }
+        return fingerprint;
+    }
+
+    @Override
+    public PermissionsDelta diff(JsonObject authorization) {
+        return materialize().diff(authorization);
+    }
+
+    @Override
+    UserSession apply(PermissionsDelta delta) {
+        return delta.isEmpty() ? this : materialize().apply(delta);
+    }
+
+    /**
+     * @return a heap copy of the permissions, a session without permissions when the slot was replaced
+     */
+    @Override
+    UserSession materialize() {
+        byte[] encoded = new byte[(int) Math.max(0, Math.min((long) MappedSessionStore.LONGS.get(buffer,
+                slot + MappedSessionStore.LENGTH), store.slotSize - MappedSessionStore.PAYLOAD))];
+        for (int i = 0; i < encoded.length; i++) {
+            encoded[i] = buffer.get(slot + MappedSessionStore.PAYLOAD + i);
+        }
+        if (!store.isValid(slot, sequence)) {
+            LOG.debug("Session of '{}' was replaced in the store, its permissions are denied", getUser());
+            return new UserSession(getUser(), Collections.emptyMap(), Collections.emptyMap());
+        }
+        return PermissionsCodec.decode(encoded);
+    }
+
+    private boolean contains(int hash, int kind, String resource, String instance, long high, long low, String scope) {
+        int key = SlotIndex.find(buffer, slot, end, index, capacity, hash, kind, resource, instance, high, low);
+        return key >= 0 && SlotIndex.hasScope(buffer, key, end, scope) && store.isValid(slot, sequence);
+    }
+
+    private Set<String> keys(int section, String prefix) {
+        Set<String> keys = new HashSet<>();
+        int count = buffer.getInt(section);
+        int position = section + 4;
+        for (int i = 0; i < count && position < end; i++) {
+            String key = stringAt(position);
+            if (key.startsWith(prefix)) {
+                keys.add(key.substring(prefix.length()));
+            }
+            position = skip(position);
+            int scopes = buffer.getInt(position);
+            position += 4;
+            for (int j = 0; j < scopes && position < end; j++) {
+                position = skip(position);
+            }
+        }
+        return store.isValid(slot, sequence) ? keys : Collections.emptySet();
+    }
+
+    private String stringAt(int position) {
+        byte[] value = new byte[Math.max(0, Math.min(Short.toUnsignedInt(buffer.getShort(position)), end - position - 2))];
+        for (int i = 0; i < value.length; i++) {
+            value[i] = buffer.get(position + 2 + i);
+        }
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    private int skip(int position) {
+        return position + 2 + Short.toUnsignedInt(buffer.getShort(position));
+    }
+}
@@ -0,0 +1,146 @@
+package com.github.jcrochavera.jwt.authz.control;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ * <p>
+ * Compact and versioned binary format of the permissions held by a {@link UserSession}.
+ * </p>
+ * <pre>
+ *     int    magic
+ *     byte   version
+ *     int    offset of the instances section
+ *     string user
+ *     int    resources count, for each one: string resource, int scopes count, string scope...
+ *     int    instances count, for each one: string resource:instance, int scopes count, string scope...
+ * </pre>
+ * <p>
+ * Where string is an unsigned short length followed by the UTF-8 bytes, all numbers are big-endian.
+ * The layout can be read in place, see {@link MappedSessionStore}.
+ * </p>
+ * <p>Roles are not part of the permissions, decoded sessions have none until they are applied again with
+ * {@link UserSession#withRoles(java.util.Collection)}. {@link SessionSnapshot} keeps them next to the
+ * permissions.</p>
+ *
+ * @author julio.rocha
+ * @since 1.1.0
+ */
+public class PermissionsCodec {
+    static final int MAGIC = 0x4A574154;
+    static final byte VERSION = 1;
+    static final int INSTANCES_OFFSET = 5;
+    static final int USER_OFFSET = 9;
+
+    PermissionsCodec() {
+    }
+
+    /**
+     * @param session the session to be encoded
+     * @return encoded permissions of the session
+     */
+    public static byte[] encode(UserSession session) {
+        UserSession heap = session.materialize();
+        byte[] user = bytes(heap.getUser());
+        Map<String, Set<String>> instances = heap.instancePermissions.asMap();
+        int size = USER_OFFSET + 2 + user.length + sectionSize(heap.resourcePermissions) + sectionSize(instances);
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC).put(VERSION).putInt(0);
+        putString(buffer, user);
+        writeSection(buffer, heap.resourcePermissions);
+        buffer.putInt(INSTANCES_OFFSET, buffer.position());
+        writeSection(buffer, instances);
+        return buffer.array();
+    }
+
+    /**
+     * @param encoded permissions encoded by {@link #encode(UserSession)}
+     * @return a heap session with the decoded permissions
+     */
+    public static UserSession decode(byte[] encoded) {
+        return decode(ByteBuffer.wrap(encoded));
+    }
+
+    /**
+     * @param encoded permissions encoded by {@link #encode(UserSession)}, starting at its position
+     * @return a heap session with the decoded permissions
+     */
+    public static UserSession decode(ByteBuffer encoded) {
+        ByteBuffer buffer = encoded.slice();
+        checkHeader(buffer);
+        buffer.position(USER_OFFSET);
+        String user = getString(buffer);
+        Map<String, Set<String>> resources = readSection(buffer);
+        Map<String, Set<String>> instances = readSection(buffer);
+        return new UserSession(user, resources, instances);
+    }
+
+    static void checkHeader(ByteBuffer buffer) {
+        if (buffer.remaining() < USER_OFFSET || buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Content is not encoded permissions");
+        }
+        if (buffer.get(4) != VERSION) {
+            throw new IllegalArgumentException("Unsupported encoded permissions version " + buffer.get(4));
+        }
+    }
+
+    private static int sectionSize(Map<String, Set<String>> section) {
+        int size = 4;
+        for (Map.Entry<String, Set<String>> e : section.entrySet()) {
+            size += 2 + bytes(e.getKey()).length + 4;
+            for (String scope : e.getValue()) {
+                size += 2 + bytes(scope).length;
+            }
+        }
+        return size;
+    }
+
+    private static void writeSection(ByteBuffer buffer, Map<String, Set<String>> section) {
+        buffer.putInt(section.size());
+        for (Map.Entry<String, Set<String>> e : section.entrySet()) {
+            putString(buffer, bytes(e.getKey()));
+            buffer.putInt(e.getValue().size());
+            for (String scope : e.getValue()) {
+                putString(buffer, bytes(scope));
+            }
+        }
+    }
+
+    private static Map<String, Set<String>> readSection(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        Map<String, Set<String>> section = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            String key = getString(buffer);
+            int scopes = buffer.getInt();
+            Set<String> values = new HashSet<>();
+            for (int j = 0; j < scopes; j++) {
+                values.add(getString(buffer));
+            }
+            section.put(key, values);
+        }
+        return section;
+    }
+
+    static byte[] bytes(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("Value is too long to be encoded: " + bytes.length + " bytes");
+        }
+        return bytes;
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] value) {
+        buffer.putShort((short) value.length).put(value);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] value = new byte[Short.toUnsignedInt(buffer.getShort())];
+        buffer.get(value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,147 @@
+package com.github.jcrochavera.jwt.authz.control;
+
+import java.util.*;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ * <p>
+ * Represents the grants added and removed between the current {@link UserSession}
+ * and a new authorization claim, see {@link UserSession#diff(jakarta.json.JsonObject)}
+ * </p>
+ *
+ * @author julio.rocha
+ * @since 1.1.0
+ */
+public class PermissionsDelta {
+    final Map<String, Set<String>> currentResources;
+    final Map<String, Set<String>> resources;
+    final Map<String, Set<String>> instances;
+    final Map<String, Set<String>> addedResourceScopes;
+    final Map<String, Set<String>> removedResourceScopes;
+    final Map<String, Set<String>> addedInstanceScopes;
+    final Map<String, Set<String>> removedInstanceScopes;
+
+    PermissionsDelta(Map<String, Set<String>> currentResources, Map<String, Set<String>> resources,
+                     Map<String, Set<String>> currentInstances, Map<String, Set<String>> instances) {
+        this.currentResources = currentResources;
+        this.resources = resources;
+        this.instances = instances;
+        this.addedResourceScopes = difference(resources, currentResources);
+        this.removedResourceScopes = difference(currentResources, resources);
+        this.addedInstanceScopes = difference(instances, currentInstances);
+        this.removedInstanceScopes = difference(currentInstances, instances);
+    }
+
+    private static Map<String, Set<String>> difference(Map<String, Set<String>> from, Map<String, Set<String>> other) {
+        Map<String, Set<String>> difference = new HashMap<>();
+        for (Map.Entry<String, Set<String>> e : from.entrySet()) {
+            Set<String> otherScopes = other.getOrDefault(e.getKey(), Collections.emptySet());
+            Set<String> scopes = new HashSet<>(e.getValue());
+            scopes.removeAll(otherScopes);
+            if (!scopes.isEmpty()) {
+                difference.put(e.getKey(), Collections.unmodifiableSet(scopes));
+            }
+        }
+        return Collections.unmodifiableMap(difference);
+    }
+
+    Map<String, Set<String>> applyResources(Map<String, Set<String>> current) {
+        return apply(current, resources, addedResourceScopes, removedResourceScopes);
+    }
+
+    /**
+     * @return resources with instances whose scopes were added or removed
+     */
+    Set<String> changedInstanceResources() {
+        Set<String> changed = new HashSet<>();
+        for (String key : addedInstanceScopes.keySet()) {
+            changed.add(key.substring(0, key.indexOf(':')));
+        }
+        for (String key : removedInstanceScopes.keySet()) {
+            changed.add(key.substring(0, key.indexOf(':')));
+        }
+        return changed;
+    }
+
+    private static Map<String, Set<String>> apply(Map<String, Set<String>> current, Map<String, Set<String>> target,
+                                                  Map<String, Set<String>> added, Map<String, Set<String>> removed) {
+        Map<String, Set<String>> applied = new HashMap<>(current);
+        Set<String> changed = new HashSet<>(added.keySet());
+        changed.addAll(removed.keySet());
+        for (String key : changed) {
+            Set<String> scopes = target.get(key);
+            if (Objects.isNull(scopes)) {
+                applied.remove(key);
+            } else {
+                applied.put(key, scopes);
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * @return true when the new authorization grants exactly the same permissions
+     */
+    public boolean isEmpty() {
+        return addedResourceScopes.isEmpty() && removedResourceScopes.isEmpty()
+                && addedInstanceScopes.isEmpty() && removedInstanceScopes.isEmpty();
+    }
+
+    /**
+     * @return resources granted by the new authorization that were not granted before
+     */
+    public Set<String> getAddedResources() {
+        return keysNotIn(addedResourceScopes, currentResources);
+    }
+
+    /**
+     * @return resources granted before that are not granted by the new authorization
+     */
+    public Set<String> getRemovedResources() {
+        return keysNotIn(removedResourceScopes, resources);
+    }
+
+    private static Set<String> keysNotIn(Map<String, Set<String>> changed, Map<String, Set<String>> other) {
+        Set<String> keys = new HashSet<>(changed.keySet());
+        keys.removeAll(other.keySet());
+        return Collections.unmodifiableSet(keys);
+    }
+
+    /**
+     * @return scopes gained per resource
+     */
+    public Map<String, Set<String>> getAddedScopes() {
+        return addedResourceScopes;
+    }
+
+    /**
+     * @return scopes lost per resource
+     */
+    public Map<String, Set<String>> getRemovedScopes() {
+        return removedResourceScopes;
+    }
+
+    /**
+     * @return scopes gained per resource and instance
+     */
+    public Map<String, Map<String, Set<String>>> getAddedInstanceScopes() {
+        return byResource(addedInstanceScopes);
+    }
+
+    /**
+     * @return scopes lost per resource and instance
+     */
+    public Map<String, Map<String, Set<String>>> getRemovedInstanceScopes() {
+        return byResource(removedInstanceScopes);
+    }
+
+    private static Map<String, Map<String, Set<String>>> byResource(Map<String, Set<String>> instanceScopes) {
+        Map<String, Map<String, Set<String>>> byResource = new HashMap<>();
+        for (Map.Entry<String, Set<String>> e : instanceScopes.entrySet()) {
+            int separator = e.getKey().indexOf(':');
+            byResource.computeIfAbsent(e.getKey().substring(0, separator), k -> new HashMap<>())
+                    .put(e.getKey().substring(separator + 1), e.getValue());
+        }
+        return byResource;
+    }
+}
@@ -0,0 +1,105 @@
+package com.github.jcrochavera.jwt.authz.control;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ * <p>
+ * SHA-256 fingerprint of the grants of a {@link UserSession}. Sessions with the same resource, instance and scope
+ * grants have the same fingerprint whatever the order of the authorization claim, the user or the JVM, so
+ * permission-sensitive responses can be cached per fingerprint instead of per user.
+ * </p>
+ * <p>Grants are digested in a canonical encoding: resources, instances and scopes sorted, every value prefixed by
+ * its length, so sessions with different grants do not share a fingerprint.</p>
+ *
+ * @author julio.rocha
+ * @since 1.1.0
+ */
+public final class PermissionsFingerprint {
+    private static final byte RESOURCE = 'R';
+    private static final byte INSTANCE = 'I';
+
+    final byte[] digest;
+
+    PermissionsFingerprint(byte[] digest) {
+        this.digest = digest;
+    }
+
+    static PermissionsFingerprint of(Map<String, Set<String>> resources, InstancePermissions instances) {
+        MessageDigest digest = sha256();
+        new TreeMap<>(resources).forEach((resource, scopes) -> {
+            digest.update(RESOURCE);
+            update(digest, resource);
+            update(digest, scopes);
+        });
+        for (String resource : new TreeSet<>(instances.resources())) {
+            Map<String, Set<String>> granted = new TreeMap<>();
+            instances.forEach(resource, granted::put);
+            granted.forEach((instance, scopes) -> {
+                digest.update(INSTANCE);
+                update(digest, resource);
+                update(digest, instance);
+                update(digest, scopes);
+            });
+        }
+        return new PermissionsFingerprint(digest.digest());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void update(MessageDigest digest, Set<String> scopes) {
+        digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(scopes.size()).array());
+        for (String scope : new TreeSet<>(scopes)) {
+            update(digest, scope);
+        }
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(bytes.length).array());
+        digest.update(bytes);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof PermissionsFingerprint)) {
+            return false;
+        }
+        PermissionsFingerprint that = (PermissionsFingerprint) o;
+        return Arrays.equals(digest, that.digest);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(digest);
+    }
+
+    /**
+     * @return the fingerprint as 64 hexadecimal digits
+     */
+    @Override
+    public String toString() {
+        StringBuilder hex = new StringBuilder(digest.length * 2);
+        for (byte b : digest) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
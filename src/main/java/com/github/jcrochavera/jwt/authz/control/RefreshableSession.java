@@ -0,0 +1,58 @@
+package com.github.jcrochavera.jwt.authz.control;
+
+import jakarta.json.JsonObject;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ * <p>
+ * Holds the current {@link UserSession} of a long-lived connection, when the token is refreshed
+ * the new grants are applied copy-on-write and the session is switched atomically,
+ * so concurrent readers see either the previous or the refreshed session but never a partial one.
+ * </p>
+ * <pre>
+ *     RefreshableSession session = new RefreshableSession(clientAuth.getSession());
+ *     ...
+ *     PermissionsDelta delta = session.refresh(newAuthorization);
+ *     session.get().hasPermission("MY_RESOURCE", Permission.READ);
+ * </pre>
+ *
+ * @author julio.rocha
+ * @since 1.1.0
+ */
+public class RefreshableSession {
+    private final AtomicReference<UserSession> current;
+
+    /**
+     * @param session initial session (mandatory)
+     */
+    public RefreshableSession(UserSession session) {
+        Objects.requireNonNull(session, "session is mandatory");
+        this.current = new AtomicReference<>(session);
+    }
+
+    /**
+     * @return the current session
+     */
+    public UserSession get() {
+        return current.get();
+    }
+
+    /**
+     * Applies the grants of the provided authorization to the current session
+     *
+     * @param authorization user's new authorization (not mandatory)
+     * @return the applied difference, empty when the grants did not change
+     */
+    public PermissionsDelta refresh(JsonObject authorization) {
+        UserSession previous;
+        PermissionsDelta delta;
+        do {
+            previous = current.get();
+            delta = previous.diff(authorization);
+        } while (!delta.isEmpty() && !current.compareAndSet(previous, previous.apply(delta)));
+        return delta;
+    }
+}
@@ -0,0 +1,125 @@
+package com.github.jcrochavera.jwt.authz.control;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ * <p>
+ * Estimates the bytes retained by the structures of a {@link UserSession} on a 64-bit JVM with compressed
+ * references: 12-byte object headers, 16-byte array headers, 4-byte references and 8-byte alignment. Scope sets
+ * and strings that may be shared are counted once.
+ * </p>
+ * <p>It is an estimate of the layout of the JDK collections, not a measure of the heap.</p>
+ *
+ * @author julio.rocha
+ * @since 1.1.0
+ */
+final class RetainedSize {
+    static final int OBJECT_HEADER = 12;
+    static final int ARRAY_HEADER = 16;
+    static final int REFERENCE = 4;
+    /**
+     * Header and fields of a HashMap and of the HashSet wrapping it
+     */
+    private static final int HASH_MAP = 48;
+    private static final int HASH_SET = 16;
+    private static final int HASH_MAP_ENTRY = 32;
+    /**
+     * Header, hash, coder and value of a String
+     */
+    private static final int STRING = 24;
+
+    private final Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+    private long bytes;
+
+    /**
+     * @return bytes counted so far
+     */
+    long bytes() {
+        return bytes;
+    }
+
+    /**
+     * @param fields bytes of the fields of the object
+     * @return this same instance
+     */
+    RetainedSize object(int fields) {
+        bytes += align(OBJECT_HEADER + fields);
+        return this;
+    }
+
+    /**
+     * @param length      elements of the array
+     * @param elementSize bytes of each element
+     * @return this same instance
+     */
+    RetainedSize array(int length, int elementSize) {
+        bytes += align(ARRAY_HEADER + (long) length * elementSize);
+        return this;
+    }
+
+    /**
+     * @param value string that is not shared with other structures of the session
+     * @return this same instance
+     */
+    RetainedSize string(String value) {
+        bytes += STRING + align(ARRAY_HEADER + (long) value.length() * (isLatin1(value) ? 1 : 2));
+        return this;
+    }
+
+    /**
+     * @param entries entries of a hash map, their keys and values are counted by the caller
+     * @return this same instance
+     */
+    RetainedSize hashMap(int entries) {
+        bytes += HASH_MAP + (long) HASH_MAP_ENTRY * entries;
+        if (entries > 0) {
+            array(tableSize(entries), REFERENCE);
+        }
+        return this;
+    }
+
+    /**
+     * @param scopes scopes of a resource or an instance, counted with their strings the first time they are found
+     * @return this same instance
+     */
+    RetainedSize scopes(Set<String> scopes) {
+        if (!visited.add(scopes)) {
+            return this;
+        }
+        if (scopes instanceof HashSet) {
+            bytes += HASH_SET;
+            hashMap(scopes.size());
+        } else {
+            // immutable sets of Set.copyOf keep their elements in an array twice their size
+            object(2 * REFERENCE).array(scopes.size() * 2, REFERENCE);
+        }
+        for (String scope : scopes) {
+            if (visited.add(scope)) {
+                string(scope);
+            }
+        }
+        return this;
+    }
+
+    private static int tableSize(int entries) {
+        int capacity = (int) (entries / 0.75f) + 1;
+        return Math.max(16, Integer.highestOneBit(capacity - 1) << 1);
+    }
+
+    private static boolean isLatin1(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > 0xFF) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+}
@@ -0,0 +1,103 @@
+package com.github.jcrochavera.jwt.authz.control;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ * <p>
+ * Scopes implied by other scopes, e.g. {@link com.github.jcrochavera.jwt.authz.utils.Permission#UPDATE} implies
+ * {@link com.github.jcrochavera.jwt.authz.utils.Permission#READ}. Rules are resolved into their transitive closure
+ * when they are added, and sessions built with them add the implied scopes to every grant, so checks cost the same
+ * and tokens do not list the implied scopes:
+ * </p>
+ * <pre>
+ * UserSessionOptions.setDefaults(UserSessionOptions.defaults().withImplications(ScopeImplications.none()
+ *         .with(Permission.UPDATE, Permission.READ)
+ *         .with(Permission.DELETE, Permission.ARCHIVE, Permission.UPDATE)));
+ * </pre>
+ * <p>Instances are immutable, {@link #with(String, String...)} returns a modified copy. Cycles are allowed, every
+ * scope of a cycle implies the others.</p>
+ *
+ * @author julio.rocha
+ * @since 1.1.0
+ */
+public final class ScopeImplications {
+    private static final ScopeImplications NONE = new ScopeImplications(Collections.emptyMap());
+
+    /**
+     * Scopes directly implied by each scope
+     */
+    private final Map<String, Set<String>> rules;
+    /**
+     * Scopes transitively implied by each scope, without the scope itself
+     */
+    private final Map<String, Set<String>> closure;
+
+    private ScopeImplications(Map<String, Set<String>> rules) {
+        this.rules = rules;
+        this.closure = close(rules);
+    }
+
+    /**
+     * @return implications without rules
+     */
+    public static ScopeImplications none() {
+        return NONE;
+    }
+
+    /**
+     * @param scope   granted scope (mandatory)
+     * @param implied scopes granted with it (mandatory)
+     * @return a copy of these implications with the provided rule
+     */
+    public ScopeImplications with(String scope, String... implied) {
+        Objects.requireNonNull(scope, "scope is mandatory");
+        Objects.requireNonNull(implied, "implied scopes are mandatory");
+        Map<String, Set<String>> added = new HashMap<>(rules);
+        Set<String> scopes = new HashSet<>(added.getOrDefault(scope, Collections.emptySet()));
+        Collections.addAll(scopes, implied);
+        added.put(scope, Set.copyOf(scopes));
+        return new ScopeImplications(Map.copyOf(added));
+    }
+
+    /**
+     * @param scope granted scope
+     * @return scopes transitively implied by it, empty when it implies none
+     */
+    public Set<String> implied(String scope) {
+        return closure.getOrDefault(scope, Collections.emptySet());
+    }
+
+    /**
+     * @return true when there is no rule
+     */
+    public boolean isEmpty() {
+        return closure.isEmpty();
+    }
+
+    private static Map<String, Set<String>> close(Map<String, Set<String>> rules) {
+        Map<String, Set<String>> closure = new HashMap<>();
+        for (String scope : rules.keySet()) {
+            Set<String> implied = new HashSet<>();
+            Deque<String> pending = new ArrayDeque<>(rules.get(scope));
+            while (!pending.isEmpty()) {
+                String next = pending.pop();
+                if (implied.add(next)) {
+                    pending.addAll(rules.getOrDefault(next, Collections.emptySet()));
+                }
+            }
+            implied.remove(scope);
+            if (!implied.isEmpty()) {
+                closure.put(scope, Set.copyOf(implied));
+            }
+        }
+        return Map.copyOf(closure);
+    }
+}
@@ -0,0 +1,59 @@
+package com.github.jcrochavera.jwt.authz.control;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ * <p>
+ * Reverse index of the grants of a {@link UserSession}, from each scope to the resources granted with it and, per
+ * resource, to the instances granted with it. Resources are indexed when the index is built, instances of a
+ * resource the first time they are queried. Every set returned is immutable.
+ * </p>
+ *
+ * @author julio.rocha
+ * @since 1.1.0
+ */
+final class ScopeIndex {
+    private final Map<String, Set<String>> resources;
+    private final InstancePermissions instancePermissions;
+    private final Map<String, Map<String, Set<String>>> instances = new ConcurrentHashMap<>();
+
+    ScopeIndex(Map<String, Set<String>> resourcePermissions, InstancePermissions instancePermissions) {
+        Map<String, Set<String>> index = new HashMap<>();
+        resourcePermissions.forEach((resource, scopes) -> scopes.forEach(scope ->
+                index.computeIfAbsent(scope, k -> new HashSet<>()).add(resource)));
+        this.resources = copy(index);
+        this.instancePermissions = instancePermissions;
+    }
+
+    /**
+     * @return resources granted with the scope
+     */
+    Set<String> resources(String scope) {
+        return resources.getOrDefault(scope, Collections.emptySet());
+    }
+
+    /**
+     * @return instances of the resource granted with the scope
+     */
+    Set<String> instances(String resource, String scope) {
+        return instances.computeIfAbsent(resource, this::index).getOrDefault(scope, Collections.emptySet());
+    }
+
+    private Map<String, Set<String>> index(String resource) {
+        Map<String, Set<String>> index = new HashMap<>();
+        instancePermissions.forEach(resource, (instance, scopes) -> scopes.forEach(scope ->
+                index.computeIfAbsent(scope, k -> new HashSet<>()).add(instance)));
+        return copy(index);
+    }
+
+    private static Map<String, Set<String>> copy(Map<String, Set<String>> index) {
+        index.replaceAll((scope, values) -> Set.copyOf(values));
+        return Map.copyOf(index);
+    }
+}
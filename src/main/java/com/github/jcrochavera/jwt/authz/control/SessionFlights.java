@@ -0,0 +1,86 @@
+package com.github.jcrochavera.jwt.authz.control;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ * <p>
+ * Builds a single {@link UserSession} for concurrent requests carrying the same token. The first request builds it
+ * and the requests arriving while it is in flight wait for its result, the entry is dropped as soon as the build
+ * completes. Waiting requests park on a {@link CompletableFuture} of their own, so virtual threads release their
+ * carrier while they wait.
+ * </p>
+ * <pre>
+ * static final SessionFlights FLIGHTS = new SessionFlights();
+ * ...
+ * {@literal @}PostConstruct
+ * void init() {
+ *     userSession = FLIGHTS.get(TokenDigest.of(principal.getRawToken()),
+ *             () -&gt; new UserSession(principal.getName(), authorization));
+ *     email = principal.getClaim("email");
+ * }
+ * </pre>
+ * <p>Failures are shared too: every waiting request gets the exception of the build, and the next request for the
+ * token builds it again.</p>
+ * <p>Every request of the flight gets the same session instance. The builder must only use what the token
+ * determines, and requests must not modify the session: sessions are {@link Cloneable} and subclasses may have
+ * mutable fields, so per-request state is kept out of the shared session, in the request-scoped bean.</p>
+ *
+ * @author julio.rocha
+ * @since 1.1.0
+ */
+public final class SessionFlights {
+    private final Map<TokenDigest, CompletableFuture<UserSession>> flights = new ConcurrentHashMap<>();
+
+    /**
+     * @param key     digest of the token (mandatory)
+     * @param builder builds the session of the token when no build is in flight
+     * @return the session built by this request or by the one in flight
+     */
+    public UserSession get(TokenDigest key, Supplier<? extends UserSession> builder) {
+        try {
+            return getAsync(key, builder).join();
+        } catch (CompletionException e) {
+            // builds only complete with unchecked exceptions
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw (RuntimeException) e.getCause();
+        }
+    }
+
+    /**
+     * @param key     digest of the token (mandatory)
+     * @param builder builds the session of the token when no build is in flight, on the calling thread
+     * @return the session built by this request, completed, or a copy of the future of the one in flight
+     */
+    public CompletableFuture<UserSession> getAsync(TokenDigest key, Supplier<? extends UserSession> builder) {
+        Objects.requireNonNull(key, "key is mandatory");
+        CompletableFuture<UserSession> flight = new CompletableFuture<>();
+        CompletableFuture<UserSession> current = flights.putIfAbsent(key, flight);
+        if (Objects.nonNull(current)) {
+            // completing or obtruding the future of a request does not affect the others
+            return current.copy();
+        }
+        try {
+            flight.complete(builder.get());
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+        } finally {
+            flights.remove(key, flight);
+        }
+        return flight;
+    }
+
+    /**
+     * @return number of sessions being built
+     */
+    public int getInFlight() {
+        return flights.size();
+    }
+}
@@ -0,0 +1,185 @@
+package com.github.jcrochavera.jwt.authz.control;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ * <p>
+ * Accounting of the {@link UserSession#getRetainedSize() retained size} of the sessions held by a cache, so heaps
+ * and cache bounds are sized from the actual sessions and outlier tokens are found. Caches register themselves by
+ * name and report the sessions they put and evict, keyed by the {@link TokenDigest} of their token so raw tokens
+ * are not retained by the accounting:
+ * </p>
+ * <pre>
+ * SessionMemory memory = SessionMemory.of("sessions");
+ * TokenDigest key = TokenDigest.of(token);
+ * cache.put(key, session);
+ * memory.put(key, session);
+ * ...
+ * cache.remove(key);
+ * memory.remove(key);
+ *
+ * long bytes = SessionMemory.getTotalBytes();
+ * String report = SessionMemory.dump(20);
+ * </pre>
+ * <p>Only the user and the size of each session are kept, sessions are not retained by the accounting.
+ * A {@link MappedSessionStore} reports the off-heap bytes of its mapping to the accounting named after its file,
+ * see {@link #getMappedBytes()}, its sessions are not counted one by one since other processes replace them.</p>
+ *
+ * @author julio.rocha
+ * @since 1.1.0
+ */
+public final class SessionMemory {
+    private static final Map<String, SessionMemory> CACHES = new ConcurrentHashMap<>();
+    private static final Comparator<Footprint> LARGEST = Comparator.comparingLong(Footprint::getBytes).reversed()
+            .thenComparing(Footprint::getUser, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private final String cache;
+    private final Map<Object, Footprint> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong mappedBytes = new AtomicLong();
+
+    private SessionMemory(String cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * @param cache name of the cache (mandatory)
+     * @return the accounting of the cache, created on its first use
+     */
+    public static SessionMemory of(String cache) {
+        Objects.requireNonNull(cache, "cache is mandatory");
+        return CACHES.computeIfAbsent(cache, SessionMemory::new);
+    }
+
+    /**
+     * @return accounting of every registered cache by name
+     */
+    public static Map<String, SessionMemory> caches() {
+        return Collections.unmodifiableMap(CACHES);
+    }
+
+    /**
+     * @return estimated bytes of the sessions of every registered cache
+     */
+    public static long getTotalBytes() {
+        return CACHES.values().stream().mapToLong(SessionMemory::getBytes).sum();
+    }
+
+    /**
+     * @return bytes mapped off-heap by the session stores of every registered cache
+     */
+    public static long getTotalMappedBytes() {
+        return CACHES.values().stream().mapToLong(SessionMemory::getMappedBytes).sum();
+    }
+
+    /**
+     * @param limit maximum number of sessions listed
+     * @return the largest sessions of every registered cache, one per line with the cache, the user and the bytes
+     */
+    public static String dump(int limit) {
+        List<Footprint> footprints = new ArrayList<>();
+        CACHES.values().forEach(memory -> footprints.addAll(memory.sessions.values()));
+        StringBuilder dump = new StringBuilder(String.format("%-24s %-40s %12s%n", "CACHE", "USER", "BYTES"));
+        footprints.stream().sorted(LARGEST).limit(limit).forEach(footprint -> dump.append(String.format(
+                "%-24s %-40s %12d%n", footprint.cache, footprint.user, footprint.bytes)));
+        return dump.toString();
+    }
+
+    /**
+     * @param key     key of the session in the cache (mandatory)
+     * @param session session put in the cache, replacing the one of the same key (mandatory)
+     */
+    public void put(Object key, UserSession session) {
+        Objects.requireNonNull(key, "key is mandatory");
+        Footprint footprint = new Footprint(cache, session.getUser(), session.getRetainedSize());
+        Footprint previous = sessions.put(key, footprint);
+        bytes.addAndGet(footprint.bytes - (Objects.isNull(previous) ? 0 : previous.bytes));
+    }
+
+    /**
+     * @param key key of the session evicted from the cache
+     */
+    public void remove(Object key) {
+        Footprint previous = sessions.remove(key);
+        if (Objects.nonNull(previous)) {
+            bytes.addAndGet(-previous.bytes);
+        }
+    }
+
+    /**
+     * Forgets every session of the cache
+     */
+    public void clear() {
+        sessions.keySet().forEach(this::remove);
+    }
+
+    /**
+     * @return estimated bytes of the sessions of the cache
+     */
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    /**
+     * @return bytes mapped off-heap by the session stores of the cache, not included in {@link #getBytes()}
+     */
+    public long getMappedBytes() {
+        return mappedBytes.get();
+    }
+
+    void mapped(long bytes) {
+        mappedBytes.addAndGet(bytes);
+    }
+
+    /**
+     * @return number of sessions of the cache
+     */
+    public int getSessions() {
+        return sessions.size();
+    }
+
+    /**
+     * @param limit maximum number of sessions
+     * @return the largest sessions of the cache, largest first
+     */
+    public List<Footprint> largest(int limit) {
+        List<Footprint> largest = new ArrayList<>(sessions.values());
+        largest.sort(LARGEST);
+        return largest.subList(0, Math.min(limit, largest.size()));
+    }
+
+    /**
+     * User and estimated size of a session of a cache
+     */
+    public static final class Footprint {
+        final String cache;
+        final String user;
+        final long bytes;
+
+        Footprint(String cache, String user, long bytes) {
+            this.cache = cache;
+            this.user = user;
+            this.bytes = bytes;
+        }
+
+        public String getCache() {
+            return cache;
+        }
+
+        public String getUser() {
+            return user;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package com.github.jcrochavera.jwt.authz.control;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.crypto.Mac;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ * <p>
+ * Sessions kept across restarts: the session cache of the application adds its entries on graceful shutdown and
+ * reads them back on startup, so users do not wait for their sessions to be built again.
+ * </p>
+ * <pre>
+ *     int    magic
+ *     byte   version
+ *     int    entries count, for each one:
+ *            long token digest high, long token digest low, long expiration epoch millis,
+ *            int length, permissions encoded by {@link PermissionsCodec},
+ *            int roles count, string role...
+ *     byte[32] HMAC-SHA256 of the previous bytes
+ * </pre>
+ * <p>All numbers are big-endian, strings are encoded as in {@link PermissionsCodec}. Expired entries are neither
+ * written nor read.</p>
+ * <p>The snapshot grants whatever it holds on startup, so it is authenticated with a key of the application,
+ * e.g. <code>new SecretKeySpec(secret, "HmacSHA256")</code>, kept out of the snapshot directory. Files are
+ * written readable by their owner only where the file system supports POSIX permissions, the directory must not be
+ * writable by other users. Files that are corrupt, truncated or not authentic are discarded with a warning.</p>
+ * <pre>
+ *     SessionSnapshot snapshot = new SessionSnapshot();
+ *     cache.forEach((token, entry) -&gt; snapshot.add(TokenDigest.of(token), entry.session, entry.expiresAt));
+ *     snapshot.write(Path.of("/var/lib/app/sessions.snapshot"), key);
+ * </pre>
+ *
+ * @author julio.rocha
+ * @since 1.1.0
+ */
+public final class SessionSnapshot {
+    static Logger LOG = LoggerFactory.getLogger(SessionSnapshot.class);
+    static final int MAGIC = 0x4A574153;
+    static final byte VERSION = 2;
+    static final int HEADER = 9;
+    static final int ENTRY_HEADER = 28;
+    static final String MAC_ALGORITHM = "HmacSHA256";
+    static final int MAC_LENGTH = 32;
+
+    private final List<Entry> entries = new ArrayList<>();
+
+    /**
+     * @param key       digest of the token of the session
+     * @param session   session to be kept, with its roles
+     * @param expiresAt epoch millis after which the session is not valid anymore
+     * @return this same snapshot
+     */
+    public SessionSnapshot add(TokenDigest key, UserSession session, long expiresAt) {
+        Objects.requireNonNull(key, "key is mandatory");
+        Objects.requireNonNull(session, "session is mandatory");
+        entries.add(new Entry(key, session, expiresAt));
+        return this;
+    }
+
+    /**
+     * @return the entries of the snapshot
+     */
+    public List<Entry> getEntries() {
+        return Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * @param key key authenticating the snapshot
+     * @return the entries that did not expire encoded in the snapshot format
+     */
+    public byte[] encode(Key key) {
+        Mac mac = mac(key);
+        long now = System.currentTimeMillis();
+        List<byte[]> encoded = new ArrayList<>(entries.size());
+        List<byte[][]> roles = new ArrayList<>(entries.size());
+        List<Entry> valid = new ArrayList<>(entries.size());
+        int size = HEADER + MAC_LENGTH;
+        for (Entry entry : entries) {
+            if (entry.expiresAt >= now) {
+                byte[] permissions = PermissionsCodec.encode(entry.session);
+                byte[][] entryRoles = entry.session.getRoles().stream().map(PermissionsCodec::bytes).toArray(byte[][]::new);
+                encoded.add(permissions);
+                roles.add(entryRoles);
+                valid.add(entry);
+                size += ENTRY_HEADER + permissions.length + 4;
+                for (byte[] role : entryRoles) {
+                    size += 2 + role.length;
+                }
+            }
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC).put(VERSION).putInt(valid.size());
+        for (int i = 0; i < valid.size(); i++) {
+            Entry entry = valid.get(i);
+            buffer.putLong(entry.key.high).putLong(entry.key.low).putLong(entry.expiresAt)
+                    .putInt(encoded.get(i).length).put(encoded.get(i)).putInt(roles.get(i).length);
+            for (byte[] role : roles.get(i)) {
+                buffer.putShort((short) role.length).put(role);
+            }
+        }
+        mac.update(buffer.array(), 0, buffer.position());
+        buffer.put(mac.doFinal());
+        return buffer.array();
+    }
+
+    /**
+     * @param encoded snapshot encoded by {@link #encode(Key)}, starting at its position
+     * @param key     key authenticating the snapshot
+     * @return a snapshot with the entries that did not expire
+     * @throws IllegalArgumentException when the content is not an authentic snapshot, or it is corrupt
+     */
+    public static SessionSnapshot decode(ByteBuffer encoded, Key key) {
+        return decode(encoded, key, System.currentTimeMillis());
+    }
+
+    static SessionSnapshot decode(ByteBuffer encoded, Key key, long now) {
+        ByteBuffer buffer = encoded.slice();
+        if (buffer.remaining() < HEADER + MAC_LENGTH || buffer.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Content is not a session snapshot");
+        }
+        byte version = buffer.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported session snapshot version " + version);
+        }
+        int end = buffer.limit() - MAC_LENGTH;
+        Mac mac = mac(key);
+        mac.update(buffer.duplicate().position(0).limit(end));
+        byte[] expected = new byte[MAC_LENGTH];
+        buffer.duplicate().position(end).get(expected);
+        if (!MessageDigest.isEqual(mac.doFinal(), expected)) {
+            throw new IllegalArgumentException("Session snapshot is not authentic");
+        }
+        buffer.limit(end);
+        try {
+            return decodeEntries(buffer, now);
+        } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Session snapshot is corrupt", e);
+        }
+    }
+
+    private static SessionSnapshot decodeEntries(ByteBuffer buffer, long now) {
+        SessionSnapshot snapshot = new SessionSnapshot();
+        int count = buffer.getInt();
+        for (int i = 0; i < count; i++) {
+            TokenDigest key = new TokenDigest(buffer.getLong(), buffer.getLong());
+            long expiresAt = buffer.getLong();
+            int length = buffer.getInt();
+            ByteBuffer permissions = buffer.slice();
+            permissions.limit(length);
+            buffer.position(buffer.position() + length);
+            Set<String> roles = new HashSet<>();
+            for (int r = buffer.getInt(); r > 0; r--) {
+                byte[] role = new byte[Short.toUnsignedInt(buffer.getShort())];
+                buffer.get(role);
+                roles.add(new String(role, StandardCharsets.UTF_8));
+            }
+            if (expiresAt >= now) {
+                UserSession session = PermissionsCodec.decode(permissions);
+                snapshot.entries.add(new Entry(key, roles.isEmpty() ? session : session.withRoles(roles), expiresAt));
+            }
+        }
+        if (buffer.hasRemaining()) {
+            throw new IllegalArgumentException(buffer.remaining() + " bytes after the entries");
+        }
+        return snapshot;
+    }
+
+    private static Mac mac(Key key) {
+        Objects.requireNonNull(key, "key is mandatory");
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalArgumentException("Key cannot authenticate a session snapshot", e);
+        }
+    }
+
+    /**
+     * Replaces the file atomically with the entries that did not expire, readable by its owner only
+     *
+     * @param file snapshot file
+     * @param key  key authenticating the snapshot
+     * @return number of entries written
+     * @throws IOException when the file cannot be written
+     */
+    public int write(Path file, Key key) throws IOException {
+        byte[] encoded = encode(key);
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.deleteIfExists(temporary);
+        if (Files.getFileStore(file.toAbsolutePath().getParent()).supportsFileAttributeView("posix")) {
+            Files.createFile(temporary, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        }
+        Files.write(temporary, encoded);
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        int written = ByteBuffer.wrap(encoded).getInt(5);
+        LOG.info("{} sessions written to '{}'", written, file);
+        return written;
+    }
+
+    /**
+     * Maps the file and decodes the entries that did not expire
+     *
+     * @param file snapshot file
+     * @param key  key authenticating the snapshot
+     * @return the snapshot, empty when the file does not exist or it is not an authentic snapshot
+     * @throws IOException when the file cannot be read
+     */
+    public static SessionSnapshot read(Path file, Key key) throws IOException {
+        mac(key);
+        if (!Files.exists(file)) {
+            return new SessionSnapshot();
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            SessionSnapshot snapshot = decode(buffer, key);
+            LOG.info("{} sessions read from '{}'", snapshot.entries.size(), file);
+            return snapshot;
+        } catch (IllegalArgumentException e) {
+            LOG.warn("Sessions of '{}' are discarded: {}", file, e.getMessage());
+            return new SessionSnapshot();
+        }
+    }
+
+    /**
+     * Session of the snapshot and the digest of its token
+     */
+    public static final class Entry {
+        final TokenDigest key;
+        final UserSession session;
+        final long expiresAt;
+
+        Entry(TokenDigest key, UserSession session, long expiresAt) {
+            this.key = key;
+            this.session = session;
+            this.expiresAt = expiresAt;
+        }
+
+        /**
+         * @return digest of the token of the session
+         */
+        public TokenDigest getKey() {
+            return key;
+        }
+
+        /**
+         * @return the session
+         */
+        public UserSession getSession() {
+            return session;
+        }
+
+        /**
+         * @return epoch millis after which the session is not valid anymore
+         */
+        public long getExpiresAt() {
+            return expiresAt;
+        }
+    }
+}
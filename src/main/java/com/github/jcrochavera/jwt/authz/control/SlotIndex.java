@@ -0,0 +1,255 @@
+package com.github.jcrochavera.jwt.authz.control;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ * <p>
+ * Open addressing index of the resources and instances of permissions encoded by {@link PermissionsCodec}, written
+ * after them in the slots of {@link MappedSessionStore} so {@link MappedUserSession} finds a grant without scanning
+ * the slot. Numeric and UUID instances are keyed by their value, as {@link InstancePermissions} does, and the other
+ * keys by their UTF-8 bytes, which are hashed and compared without being encoded into a new array.
+ * </p>
+ * <pre>
+ *     int  hash
+ *     int  offset of the key from the start of the slot, 0 when the entry is empty
+ *     int  kind of the key
+ *     int  unused
+ *     long number, or most significant bits of the UUID
+ *     long least significant bits of the UUID
+ * </pre>
+ *
+ * @author julio.rocha
+ * @since 1.1.0
+ */
+final class SlotIndex {
+    static final int ENTRY = 32;
+    static final int RESOURCE = 1;
+    static final int STRING = 2;
+    static final int NUMBER = 3;
+    static final int UUID = 4;
+    private static final int FNV_PRIME = 0x01000193;
+
+    SlotIndex() {
+    }
+
+    /**
+     * @param encoded  permissions encoded by {@link PermissionsCodec#encode(UserSession)}
+     * @param position offset of the encoded permissions from the start of the slot
+     * @return the entries of the index, its capacity is the power of two following the number of keys
+     */
+    static ByteBuffer build(byte[] encoded, int position) {
+        ByteBuffer source = ByteBuffer.wrap(encoded);
+        source.position(PermissionsCodec.USER_OFFSET);
+        skip(source);
+        int resources = source.getInt();
+        int sectionStart = source.position();
+        for (int i = 0; i < resources; i++) {
+            skipEntry(source);
+        }
+        int instances = source.getInt();
+        int capacity = Integer.highestOneBit(Math.max(1, resources + instances)) << 1;
+        ByteBuffer index = ByteBuffer.allocate(capacity * ENTRY);
+        source.position(sectionStart);
+        for (int i = 0; i < resources; i++) {
+            int key = source.position();
+            String resource = string(source);
+            put(index, hash(seed(RESOURCE), resource), position + key, RESOURCE, 0, 0);
+            skipScopes(source);
+        }
+        source.getInt();
+        for (int i = 0; i < instances; i++) {
+            int key = source.position();
+            String instanceKey = string(source);
+            int separator = instanceKey.indexOf(':');
+            String resource = instanceKey.substring(0, separator);
+            String instance = instanceKey.substring(separator + 1);
+            if (InstanceIds.isNumber(instance)) {
+                long value = InstanceIds.toLong(instance);
+                put(index, hash(hash(seed(NUMBER), resource), value), position + key, NUMBER, value, 0);
+            } else if (InstanceIds.isUuid(instance)) {
+                long high = InstanceIds.mostSignificantBits(instance);
+                long low = InstanceIds.leastSignificantBits(instance);
+                put(index, hash(hash(hash(seed(UUID), resource), high), low), position + key, UUID, high, low);
+            } else {
+                put(index, hash(seed(STRING), instanceKey), position + key, STRING, 0, 0);
+            }
+            skipScopes(source);
+        }
+        return index;
+    }
+
+    private static void put(ByteBuffer index, int hash, int key, int kind, long high, long low) {
+        int mask = index.capacity() / ENTRY - 1;
+        int entry = hash & mask;
+        while (index.getInt(entry * ENTRY + 4) != 0) {
+            entry = (entry + 1) & mask;
+        }
+        index.putInt(entry * ENTRY, hash).putInt(entry * ENTRY + 4, key).putInt(entry * ENTRY + 8, kind)
+                .putLong(entry * ENTRY + 16, high).putLong(entry * ENTRY + 24, low);
+    }
+
+    /**
+     * Finds a key in an index read in place, positions out of the slot are never read
+     *
+     * @param buffer   mapping of the store
+     * @param slot     position of the slot
+     * @param end      end of the slot
+     * @param index    position of the index
+     * @param capacity entries of the index, 0 when it cannot be read
+     * @param hash     hash of the key, see {@link #seed(int)}
+     * @param kind     kind of the key
+     * @param resource resource of the key
+     * @param instance instance of {@link #STRING} keys
+     * @param high     number, or most significant bits of the UUID
+     * @param low      least significant bits of the UUID
+     * @return position of the key, -1 when it is not present
+     */
+    static int find(ByteBuffer buffer, int slot, int end, int index, int capacity, int hash, int kind, String resource,
+                    String instance, long high, long low) {
+        int mask = capacity - 1;
+        int entry = hash & mask;
+        for (int probe = 0; probe < capacity; probe++, entry = (entry + 1) & mask) {
+            int position = index + entry * ENTRY;
+            int offset = buffer.getInt(position + 4);
+            if (offset == 0) {
+                return -1;
+            }
+            int key = slot + offset;
+            if (buffer.getInt(position) == hash && buffer.getInt(position + 8) == kind && offset > 0 && key + 2 <= end
+                    && buffer.getLong(position + 16) == high && buffer.getLong(position + 24) == low
+                    && matches(buffer, key, end, kind, resource, instance)) {
+                return key;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean matches(ByteBuffer buffer, int key, int end, int kind, String resource, String instance) {
+        int limit = Math.min(end, key + 2 + Short.toUnsignedInt(buffer.getShort(key)));
+        int position = match(buffer, key + 2, limit, resource);
+        if (kind == RESOURCE) {
+            return position == limit;
+        }
+        if (position < 0 || position >= limit || buffer.get(position) != ':') {
+            return false;
+        }
+        return kind != STRING || match(buffer, position + 1, limit, instance) == limit;
+    }
+
+    /**
+     * @param key   position of a key found by {@link #find}
+     * @param scope scope to look for
+     * @return true when the scope is one of the scopes of the key
+     */
+    static boolean hasScope(ByteBuffer buffer, int key, int end, String scope) {
+        int position = key + 2 + Short.toUnsignedInt(buffer.getShort(key));
+        if (position + 4 > end) {
+            return false;
+        }
+        int scopes = buffer.getInt(position);
+        position += 4;
+        for (int i = 0; i < scopes && position + 2 <= end; i++) {
+            int next = position + 2 + Short.toUnsignedInt(buffer.getShort(position));
+            if (match(buffer, position + 2, Math.min(end, next), scope) == next) {
+                return true;
+            }
+            position = next;
+        }
+        return false;
+    }
+
+    /**
+     * @return position after the value when the bytes at the position are its UTF-8 encoding, -1 otherwise
+     */
+    static int match(ByteBuffer buffer, int position, int limit, String value) {
+        for (int i = 0; i < value.length(); i += Character.charCount(value.codePointAt(i))) {
+            int codePoint = codePoint(value, i);
+            int length = utf8Length(codePoint);
+            for (int k = 0; k < length; k++) {
+                if (position >= limit || buffer.get(position++) != (byte) utf8Byte(codePoint, length, k)) {
+                    return -1;
+                }
+            }
+        }
+        return position;
+    }
+
+    /**
+     * @return first hash of keys of the kind
+     */
+    static int seed(int kind) {
+        return 0x811C9DC5 ^ kind;
+    }
+
+    /**
+     * @return the hash continued with the UTF-8 bytes of the value, the same bytes as {@link String#getBytes}
+     */
+    static int hash(int hash, String value) {
+        for (int i = 0; i < value.length(); i += Character.charCount(value.codePointAt(i))) {
+            int codePoint = codePoint(value, i);
+            int length = utf8Length(codePoint);
+            for (int k = 0; k < length; k++) {
+                hash = (hash ^ (utf8Byte(codePoint, length, k) & 0xFF)) * FNV_PRIME;
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * @return the hash continued with the value
+     */
+    static int hash(int hash, long value) {
+        long h = (hash ^ value) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * @return hash of the {@link #STRING} key of the instance, the same as the one of its bytes
+     */
+    static int hash(String resource, String instance) {
+        return hash((hash(seed(STRING), resource) ^ ':') * FNV_PRIME, instance);
+    }
+
+    private static int codePoint(String value, int i) {
+        int codePoint = value.codePointAt(i);
+        // unpaired surrogates are encoded as '?' by the UTF-8 encoder
+        return Character.isSurrogate((char) codePoint) && codePoint <= Character.MAX_VALUE ? '?' : codePoint;
+    }
+
+    private static int utf8Length(int codePoint) {
+        return codePoint < 0x80 ? 1 : codePoint < 0x800 ? 2 : codePoint < 0x10000 ? 3 : 4;
+    }
+
+    private static int utf8Byte(int codePoint, int length, int k) {
+        int shift = 6 * (length - 1 - k);
+        if (k > 0) {
+            return 0x80 | ((codePoint >> shift) & 0x3F);
+        }
+        return length == 1 ? codePoint : ((0xFF00 >> length) & 0xFF) | (codePoint >> shift);
+    }
+
+    private static String string(ByteBuffer source) {
+        byte[] value = new byte[Short.toUnsignedInt(source.getShort())];
+        source.get(value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    private static void skip(ByteBuffer source) {
+        int length = Short.toUnsignedInt(source.getShort());
+        source.position(source.position() + length);
+    }
+
+    private static void skipScopes(ByteBuffer source) {
+        int scopes = source.getInt();
+        for (int j = 0; j < scopes; j++) {
+            skip(source);
+        }
+    }
+
+    private static void skipEntry(ByteBuffer source) {
+        skip(source);
+        skipScopes(source);
+    }
+}
@@ -0,0 +1,62 @@
+package com.github.jcrochavera.jwt.authz.control;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ * <p>
+ * 128 bits of the SHA-256 digest of a raw token, used as key of sessions shared between requests
+ * without keeping the token itself.
+ * </p>
+ *
+ * @author julio.rocha
+ * @since 1.1.0
+ */
+public final class TokenDigest {
+    final long high;
+    final long low;
+
+    TokenDigest(long high, long low) {
+        this.high = high;
+        this.low = low;
+    }
+
+    /**
+     * @param token the raw token
+     * @return the digest of the token
+     */
+    public static TokenDigest of(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            ByteBuffer buffer = ByteBuffer.wrap(digest);
+            return new TokenDigest(buffer.getLong(), buffer.getLong());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof TokenDigest)) {
+            return false;
+        }
+        TokenDigest that = (TokenDigest) o;
+        return high == that.high && low == that.low;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(high ^ low);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%016x%016x", high, low);
+    }
+}
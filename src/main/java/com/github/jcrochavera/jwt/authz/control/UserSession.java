@@ -3,13 +3,15 @@ package com.github.jcrochavera.jwt.authz.control;
 import com.github.jcrochavera.jwt.authz.annotations.Operation;
 import jakarta.json.JsonArray;
 import jakarta.json.JsonObject;
-import jakarta.json.JsonString;
 import jakarta.json.JsonValue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Created by julio.rocha on 21/6/19.
@@ -76,46 +78,166 @@ import java.util.stream.Collectors;
  * @author julio.rocha
  * @since 1.0.0
  */
-public class UserSession {
+public class UserSession implements Cloneable {
     static Logger LOG = LoggerFactory.getLogger(UserSession.class);
+    /**
+     * False on runtimes linked without the <code>jdk.jfr</code> module, sessions are built without {@link UserSessionBuildEvent}
+     */
+    static boolean FLIGHT_RECORDER = ModuleLayer.boot().findModule("jdk.jfr").isPresent();
+    /**
+     * Minimum number of permissions indexed by each task of a parallel construction
+     */
+    static final int MIN_CHUNK = 1024;
     final String user;
-    final Map<String, Set<String>> resourcePermissions;
-    final Map<String, Set<String>> instancePermissions;
+    final UserSessionOptions options;
+    Map<String, Set<String>> resourcePermissions;
+    InstancePermissions instancePermissions;
+    Set<String> roles = Collections.emptySet();
+    PermissionsFingerprint fingerprint;
+    ScopeIndex scopeIndex;
+    long retainedSize;
 
     /**
      * @param user          user's name  (mandatory)
      * @param authorization user's authorization (not mandatory)
      */
     public UserSession(String user, JsonObject authorization) {
+        this(user, authorization, UserSessionOptions.defaults());
+    }
+
+    /**
+     * @param user          user's name  (mandatory)
+     * @param authorization user's authorization (not mandatory)
+     * @param options       settings applied to build the session (mandatory)
+     * @since 1.1.0
+     */
+    public UserSession(String user, JsonObject authorization, UserSessionOptions options) {
         Objects.requireNonNull(user, "Claim 'user' is mandatory");
+        Objects.requireNonNull(options, "options are mandatory");
+        UserSessionBuildEvent event = FLIGHT_RECORDER ? UserSessionBuildEvent.start() : null;
         this.user = user;
+        this.options = options;
         this.resourcePermissions = new HashMap<>();
-        this.instancePermissions = new HashMap<>();
-        this.initialize(authorization);
+        this.instancePermissions = new InstancePermissions();
+        this.initialize(authorization, resourcePermissions, instancePermissions);
+        this.instancePermissions.build(options.getBloomFilterThreshold());
+        this.retainedSize = estimateRetainedSize();
+        if (Objects.nonNull(event)) {
+            event.record(authorization, this);
+        }
+    }
+
+    UserSession(String user, Map<String, Set<String>> resourcePermissions,
+                Map<String, Set<String>> instancePermissions) {
+        Objects.requireNonNull(user, "Claim 'user' is mandatory");
+        this.user = user;
+        this.options = UserSessionOptions.defaults();
+        this.resourcePermissions = resourcePermissions;
+        this.instancePermissions = InstancePermissions.of(instancePermissions, options.getBloomFilterThreshold());
+        this.retainedSize = estimateRetainedSize();
     }
 
-    private void initialize(JsonObject authorization) {
+    /**
+     * Fields of a session: user, options, maps, roles, fingerprint and retained size
+     */
+    private long estimateRetainedSize() {
+        RetainedSize size = new RetainedSize().object(5 * RetainedSize.REFERENCE + Long.BYTES).string(user)
+                .hashMap(resourcePermissions.size()).scopes(roles);
+        resourcePermissions.forEach((resource, scopes) -> size.string(resource).scopes(scopes));
+        instancePermissions.retainedSize(size);
+        return size.bytes();
+    }
+
+    private void initialize(JsonObject authorization, Map<String, Set<String>> resources,
+                            InstancePermissions instances) {
         if (Objects.nonNull(authorization)) {
             JsonArray permissions = authorization.getJsonArray("permissions");
-            processPermissions(permissions);
+            processPermissions(permissions, resources, instances);
         } else {
             LOG.debug("No authorization has been provided");
         }
     }
 
-    private void processPermissions(JsonArray permissions) {
+    private void processPermissions(JsonArray permissions, Map<String, Set<String>> resources,
+                                    InstancePermissions instances) {
         if (isValidArray(permissions)) {
-            for (JsonValue p : permissions) {
-                processResourceScopes(p);
+            int count = permissions.size();
+            if (count > options.getLimit(ClaimLimit.PERMISSIONS)) {
+                exceeded(ClaimLimit.PERMISSIONS);
+                count = options.getLimit(ClaimLimit.PERMISSIONS);
+            }
+            int maxInstances = options.getLimit(ClaimLimit.INSTANCES);
+            InstanceBudget instanceBudget = maxInstances == Integer.MAX_VALUE ? null : new InstanceBudget(maxInstances);
+            if (count >= options.getParallelThreshold()) {
+                processInParallel(permissions, count, resources, instances, instanceBudget);
+            } else {
+                processRange(permissions, 0, count, resources, instances, instanceBudget);
             }
         } else {
             LOG.warn("No permissions has been provided");
         }
     }
 
-    private void processResourceScopes(JsonValue p) {
+    private void processRange(JsonArray permissions, int from, int to, Map<String, Set<String>> resources,
+                              InstancePermissions instances, InstanceBudget instanceBudget) {
+        for (int i = from; i < to; i++) {
+            processResourceScopes(permissions.get(i), resources, instances, instanceBudget);
+        }
+    }
+
+    /**
+     * Rejects the claim, or meters its truncation when it is enabled
+     */
+    private void exceeded(ClaimLimit limit) {
+        if (!options.isTruncation()) {
+            limit.rejected();
+            throw new ClaimLimitException(limit, options.getLimit(limit));
+        }
+        limit.truncated();
+        LOG.warn("Authorization of '{}' exceeds the {} limit of {}, it is truncated", user, limit, options.getLimit(limit));
+    }
+
+    /**
+     * Indexes chunks of the permissions on the parallel pool and merges them in order
+     */
+    private void processInParallel(JsonArray permissions, int count, Map<String, Set<String>> resources,
+                                   InstancePermissions instances, InstanceBudget instanceBudget) {
+        ForkJoinPool pool = options.getParallelPool();
+        int chunks = Math.max(1, Math.min(pool.getParallelism() * 4, count / MIN_CHUNK));
+        int chunk = (count + chunks - 1) / chunks;
+        List<ForkJoinTask<Map.Entry<Map<String, Set<String>>, InstancePermissions>>> tasks = new ArrayList<>(chunks);
+        for (int from = 0; from < count; from += chunk) {
+            int start = from;
+            int end = Math.min(count, from + chunk);
+            tasks.add(pool.submit(() -> {
+                Map<String, Set<String>> partialResources = new HashMap<>();
+                InstancePermissions partialInstances = new InstancePermissions();
+                processRange(permissions, start, end, partialResources, partialInstances, instanceBudget);
+                return Map.entry(partialResources, partialInstances);
+            }));
+        }
+        LOG.debug("{} permissions are indexed in {} chunks", count, tasks.size());
+        for (ForkJoinTask<Map.Entry<Map<String, Set<String>>, InstancePermissions>> task : tasks) {
+            Map.Entry<Map<String, Set<String>>, InstancePermissions> partial = task.join();
+            partial.getKey().forEach((resource, scopes) -> resources.merge(resource, scopes, (current, added) -> {
+                current.addAll(added);
+                return current;
+            }));
+            instances.merge(partial.getValue());
+        }
+    }
+
+    private void processResourceScopes(JsonValue p, Map<String, Set<String>> resources,
+                                       InstancePermissions instances, InstanceBudget instanceBudget) {
         JsonObject resource = p.asJsonObject();
         String resourceFullName = resource.getString("rsname");
+        if (resourceFullName.length() > options.getLimit(ClaimLimit.RSNAME_LENGTH)) {
+            exceeded(ClaimLimit.RSNAME_LENGTH);
+            return;
+        }
+        if (!options.isIndexed(resourceFullName)) {
+            return;
+        }
         String[] resourceUser = resourceFullName.split(":");
         if (!isValidFormat(resourceUser)) {
             LOG.warn("Resource '{}' is not compatible with RESOURCE:USER or " +
@@ -124,23 +246,58 @@ public class UserSession {
         }
         String resourceName = resourceUser[0];
         String instanceName = (resourceUser.length == 3) ? resourceUser[2] : null;
-        String instanceKey = resourceName + instanceName;
         LOG.debug("Resource Name: {}", resourceName);
         LOG.debug("Resource User: {}", resourceUser[1]);
         LOG.debug("Resource Inst: {}", instanceName);
         JsonArray scopes = resource.getJsonArray("scopes");
         if (Objects.nonNull(scopes)) {
-            Set<String> resourcesScopes = resourcesLazyInitialization(resourceName);
-            Set<String> instanceScopes = instancesLazyInitialization(instanceName, instanceKey);
-            for (JsonValue s : scopes) {
-                String value = ((JsonString) s).getString();
+            if (Objects.nonNull(instanceName) && Objects.nonNull(instanceBudget)
+                    && !instanceBudget.admit(resourceName, instanceName)) {
+                exceeded(ClaimLimit.INSTANCES);
+                return;
+            }
+            int count = scopes.size();
+            if (count > options.getLimit(ClaimLimit.SCOPES)) {
+                exceeded(ClaimLimit.SCOPES);
+                count = options.getLimit(ClaimLimit.SCOPES);
+            }
+            Set<String> resourcesScopes = lazyInitialization(resources, resourceName);
+            Set<String> instanceScopes = Objects.nonNull(instanceName) ? instances.scopes(resourceName, instanceName) : null;
+            ScopeImplications implications = options.getImplications();
+            for (int i = 0; i < count; i++) {
+                String value = scopes.getString(i);
                 addScope(instanceName, resourcesScopes, instanceScopes, value);
+                if (!implications.isEmpty()) {
+                    for (String implied : implications.implied(value)) {
+                        addScope(instanceName, resourcesScopes, instanceScopes, implied);
+                    }
+                }
             }
         } else {
             LOG.warn("No scopes has been provided for resource '{}'", resourceFullName);
         }
     }
 
+    /**
+     * Distinct instances admitted by the {@link ClaimLimit#INSTANCES} limit, shared by the chunks of a parallel
+     * construction so an instance repeated in several chunks is counted once
+     */
+    private static final class InstanceBudget {
+        private final AtomicInteger remaining;
+        private final Map<String, Boolean> admitted = new ConcurrentHashMap<>();
+
+        private InstanceBudget(int max) {
+            this.remaining = new AtomicInteger(max);
+        }
+
+        /**
+         * @return true when the instance was admitted before or fits in the limit, its entries are indexed
+         */
+        private boolean admit(String resource, String instance) {
+            return admitted.computeIfAbsent(instanceKey(resource, instance), k -> remaining.decrementAndGet() >= 0);
+        }
+    }
+
     private boolean isValidArray(JsonArray permissions) {
         return Objects.nonNull(permissions) && !permissions.isEmpty();
     }
@@ -149,22 +306,8 @@ public class UserSession {
         return resourceUser.length >= 2 && resourceUser.length <= 3;
     }
 
-    private Set<String> resourcesLazyInitialization(String resourceName) {
-        Set<String> resourcesScopes = resourcePermissions.get(resourceName);
-        if (Objects.isNull(resourcesScopes)) {
-            resourcesScopes = new HashSet<>();
-            resourcePermissions.put(resourceName, resourcesScopes);
-        }
-        return resourcesScopes;
-    }
-
-    private Set<String> instancesLazyInitialization(String instanceName, String instanceKey) {
-        Set<String> instanceScopes = instancePermissions.get(instanceKey);
-        if (Objects.nonNull(instanceName) && Objects.isNull(instanceScopes)) {
-            instanceScopes = new HashSet<>();
-            instancePermissions.put(instanceKey, instanceScopes);
-        }
-        return instanceScopes;
+    private Set<String> lazyInitialization(Map<String, Set<String>> permissions, String key) {
+        return permissions.computeIfAbsent(key, k -> new HashSet<>());
     }
 
     private void addScope(String instanceName, Set<String> resourcesScopes, Set<String> instanceScopes, String value) {
@@ -174,6 +317,132 @@ public class UserSession {
         }
     }
 
+    /**
+     * Resource names and instances never contain ':' because it is the separator of the 'rsname' claim,
+     * so the key is unique for each resource and instance pair
+     */
+    static String instanceKey(String resource, String instance) {
+        return resource + ':' + instance;
+    }
+
+    /**
+     * <p>Computes the grants that would be added and removed if this session is refreshed
+     * with the provided authorization, this session is not modified.</p>
+     *
+     * @param authorization user's new authorization (not mandatory)
+     * @return the difference between current grants and the provided ones
+     */
+    public PermissionsDelta diff(JsonObject authorization) {
+        Map<String, Set<String>> resources = new HashMap<>();
+        InstancePermissions instances = new InstancePermissions();
+        initialize(authorization, resources, instances);
+        return new PermissionsDelta(resourcePermissions, resources, instancePermissions.asMap(), instances.asMap());
+    }
+
+    /**
+     * <p>Returns a copy of this session (of the same type) holding the grants of the provided authorization.
+     * Only the resources and instances that changed are replaced, the rest are shared with this session,
+     * which is never modified, so readers holding it keep a consistent view.</p>
+     * <p>When grants did not change this same instance is returned.</p>
+     *
+     * @param authorization user's new authorization (not mandatory)
+     * @return the refreshed session
+     * @see RefreshableSession
+     */
+    public UserSession refresh(JsonObject authorization) {
+        return apply(diff(authorization));
+    }
+
+    UserSession apply(PermissionsDelta delta) {
+        if (delta.isEmpty()) {
+            return this;
+        }
+        UserSession refreshed = copy();
+        refreshed.resourcePermissions = delta.applyResources(resourcePermissions);
+        refreshed.instancePermissions = instancePermissions.with(delta.changedInstanceResources(), delta.instances,
+                options.getBloomFilterThreshold());
+        refreshed.fingerprint = null;
+        refreshed.scopeIndex = null;
+        refreshed.retainedSize = refreshed.estimateRetainedSize();
+        return refreshed;
+    }
+
+    /**
+     * @return a session whose permissions are held in the heap, this same instance for heap sessions
+     */
+    UserSession materialize() {
+        return this;
+    }
+
+    private UserSession copy() {
+        try {
+            return (UserSession) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * <p>Returns a copy of this session (of the same type) holding the provided roles, usually the
+     * <code>groups</code> claim of the token, so role checks do not query the security context again.</p>
+     *
+     * @param roles user's roles (mandatory)
+     * @return a session with the provided roles
+     * @since 1.1.0
+     */
+    public UserSession withRoles(Collection<String> roles) {
+        Objects.requireNonNull(roles, "roles are mandatory");
+        UserSession session = copy();
+        session.roles = Set.copyOf(roles);
+        session.retainedSize = session.estimateRetainedSize();
+        return session;
+    }
+
+    /**
+     * @return user's roles, empty when they were not provided
+     * @since 1.1.0
+     */
+    public Set<String> getRoles() {
+        return roles;
+    }
+
+    /**
+     * @param role the role under test
+     * @return true if user has the provided role, false in other case
+     * @since 1.1.0
+     */
+    public boolean hasRole(String role) {
+        return roles.contains(role);
+    }
+
+    /**
+     * <p>Fingerprint of the grants of this session, equal for sessions with the same resource, instance and scope
+     * grants whatever their user or the order of the authorization. It is computed on first use.</p>
+     *
+     * @return the fingerprint of the grants
+     * @since 1.1.0
+     */
+    public PermissionsFingerprint getFingerprint() {
+        PermissionsFingerprint result = fingerprint;
+        if (Objects.isNull(result)) {
+            result = PermissionsFingerprint.of(resourcePermissions, instancePermissions);
+            fingerprint = result;
+        }
+        return result;
+    }
+
+    /**
+     * <p>Estimate of the bytes retained by the permissions of this session, computed when it is built. Sessions held
+     * by a {@link MappedSessionStore} only count the heap part, their permissions are read from the store.</p>
+     *
+     * @return the estimated retained size in bytes
+     * @see SessionMemory
+     * @since 1.1.0
+     */
+    public long getRetainedSize() {
+        return retainedSize;
+    }
+
     /**
      * @return user's name
      */
@@ -237,7 +506,7 @@ public class UserSession {
      * @return evaluation's result
      */
     public boolean hasInstancePermission(String resource, String instance, String permission) {
-        Set<String> permissions = instancePermissions.get(resource + instance);
+        Set<String> permissions = instancePermissions.get(resource, instance);
         return Objects.nonNull(permissions) && permissions.contains(permission);
     }
 
@@ -278,6 +547,115 @@ public class UserSession {
         return permitted;
     }
 
+    /**
+     * <p>true if user has the specific permission to the provided resource and numeric instance, false in other case.
+     * The instance is looked up without converting it to a string.</p>
+     *
+     * @param resource   the resource under test
+     * @param instance   the instance under test
+     * @param permission the permission under test
+     * @return evaluation's result
+     * @since 1.1.0
+     */
+    public boolean hasInstancePermission(String resource, long instance, String permission) {
+        Set<String> permissions = instancePermissions.get(resource, instance);
+        return Objects.nonNull(permissions) && permissions.contains(permission);
+    }
+
+    /**
+     * <p>true if user has the specific permission to the provided resource and numeric instance, false in other case.</p>
+     * {@link Operation#AND} is used by default
+     *
+     * @param resource    the resource under test
+     * @param instance    the instance under test
+     * @param permissions the permissions under test
+     * @return evaluation's result
+     * @since 1.1.0
+     */
+    public boolean hasInstancePermissions(String resource, long instance, String... permissions) {
+        return hasInstancePermissions(resource, instance, Operation.AND, permissions);
+    }
+
+    /**
+     * <p>true if user has the specific permission to the provided resource and numeric instance, false in other case.</p>
+     *
+     * @param resource    the resource under test
+     * @param instance    the instance under test
+     * @param operation   the operation to be applied on permission's evaluation
+     * @param permissions the permissions under test
+     * @return evaluation's result
+     * @since 1.1.0
+     */
+    public boolean hasInstancePermissions(String resource, long instance, Operation operation, String... permissions) {
+        boolean permitted = Operation.AND == operation;
+        for (String p : permissions) {
+            if (Operation.AND == operation) {
+                permitted &= hasInstancePermission(resource, instance, p);
+            } else {
+                permitted = hasInstancePermission(resource, instance, p);
+                if (permitted) {
+                    break;
+                }
+            }
+        }
+        return permitted;
+    }
+
+    /**
+     * <p>true if user has the specific permission to the provided resource and UUID instance, false in other case.
+     * The instance is looked up without converting it to a string.</p>
+     *
+     * @param resource   the resource under test
+     * @param instance   the instance under test
+     * @param permission the permission under test
+     * @return evaluation's result
+     * @since 1.1.0
+     */
+    public boolean hasInstancePermission(String resource, UUID instance, String permission) {
+        Set<String> permissions = instancePermissions.get(resource, instance.getMostSignificantBits(),
+                instance.getLeastSignificantBits());
+        return Objects.nonNull(permissions) && permissions.contains(permission);
+    }
+
+    /**
+     * <p>true if user has the specific permission to the provided resource and UUID instance, false in other case.</p>
+     * {@link Operation#AND} is used by default
+     *
+     * @param resource    the resource under test
+     * @param instance    the instance under test
+     * @param permissions the permissions under test
+     * @return evaluation's result
+     * @since 1.1.0
+     */
+    public boolean hasInstancePermissions(String resource, UUID instance, String... permissions) {
+        return hasInstancePermissions(resource, instance, Operation.AND, permissions);
+    }
+
+    /**
+     * <p>true if user has the specific permission to the provided resource and UUID instance, false in other case.</p>
+     *
+     * @param resource    the resource under test
+     * @param instance    the instance under test
+     * @param operation   the operation to be applied on permission's evaluation
+     * @param permissions the permissions under test
+     * @return evaluation's result
+     * @since 1.1.0
+     */
+    public boolean hasInstancePermissions(String resource, UUID instance, Operation operation, String... permissions) {
+        boolean permitted = Operation.AND == operation;
+        for (String p : permissions) {
+            if (Operation.AND == operation) {
+                permitted &= hasInstancePermission(resource, instance, p);
+            } else {
+                permitted = hasInstancePermission(resource, instance, p);
+                if (permitted) {
+                    break;
+                }
+            }
+        }
+        return permitted;
+    }
+
     /**
      * @return a set of resources for the current session
      */
@@ -290,9 +668,41 @@ public class UserSession {
      * @return a set of instances for the provided resource in the current session
      */
     public Set<String> getInstances(String resource) {
-        return instancePermissions.keySet().stream()
-                .filter(k -> k.startsWith(resource))
-                .map(k -> k.replace(resource, ""))
-                .collect(Collectors.toSet());
+        return instancePermissions.instances(resource);
+    }
+
+    /**
+     * @param resource   the instances' resource
+     * @param permission the permission granted on the instances
+     * @return an immutable set of instances for the provided resource with the provided permission in the current
+     * session, answered from a reverse index of the grants built on first use
+     * @since 1.1.0
+     */
+    public Set<String> getInstances(String resource, String permission) {
+        return scopeIndex().instances(resource, permission);
+    }
+
+    /**
+     * <p>Resources granted with the permission, answered from a reverse index of the grants built on first use,
+     * e.g. to build the menus of the user.</p>
+     *
+     * @param permission the permission granted on the resources
+     * @return an immutable set of the resources with the provided permission in the current session
+     * @since 1.1.0
+     */
+    public Set<String> getResourcesWith(String permission) {
+        return scopeIndex().resources(permission);
+    }
+
+    /**
+     * @return the reverse index of the grants, built on first use
+     */
+    ScopeIndex scopeIndex() {
+        ScopeIndex result = scopeIndex;
+        if (Objects.isNull(result)) {
+            result = new ScopeIndex(resourcePermissions, instancePermissions);
+            scopeIndex = result;
+        }
+        return result;
     }
 }
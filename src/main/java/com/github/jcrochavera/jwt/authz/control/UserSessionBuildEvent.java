@@ -0,0 +1,81 @@
+package com.github.jcrochavera.jwt.authz.control;
+
+import jakarta.json.JsonArray;
+import jakarta.json.JsonObject;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+import java.util.Objects;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ * <p>
+ * Flight Recorder event of the construction of a {@link UserSession} from the authorization claim. Only builds
+ * slower than the threshold are recorded, 1 ms unless it is changed in the recording settings, e.g.
+ * <code>recording.enable(UserSessionBuildEvent.NAME).withThreshold(Duration.ofMillis(10))</code>.
+ * </p>
+ *
+ * @author julio.rocha
+ * @since 1.1.0
+ */
+@Name(UserSessionBuildEvent.NAME)
+@Label("User Session Build")
+@Category({"Authorization"})
+@Description("Indexing of the permissions of the authorization claim of a session")
+@StackTrace(false)
+@Threshold("1 ms")
+public final class UserSessionBuildEvent extends Event {
+    public static final String NAME = "com.github.jcrochavera.jwt.authz.UserSessionBuild";
+    private static final EventType TYPE = EventType.getEventType(UserSessionBuildEvent.class);
+
+    @Label("Permissions")
+    @Description("Entries of the permissions claim")
+    int permissions;
+    @Label("Resources")
+    int resources;
+    @Label("Instances")
+    int instances;
+    @Label("Retained Size")
+    @DataAmount
+    long retainedSize;
+
+    UserSessionBuildEvent() {
+    }
+
+    /**
+     * @return a begun event, null when the event is not enabled
+     */
+    static UserSessionBuildEvent start() {
+        if (!TYPE.isEnabled()) {
+            return null;
+        }
+        UserSessionBuildEvent event = new UserSessionBuildEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends the event and commits it when it is enabled and slower than the threshold
+     *
+     * @param authorization claim of the session
+     * @param session       session built
+     */
+    void record(JsonObject authorization, UserSession session) {
+        end();
+        if (shouldCommit()) {
+            JsonArray claim = Objects.isNull(authorization) ? null : authorization.getJsonArray("permissions");
+            this.permissions = Objects.isNull(claim) ? 0 : claim.size();
+            this.resources = session.resourcePermissions.size();
+            this.instances = session.instancePermissions.size();
+            this.retainedSize = session.retainedSize;
+            commit();
+        }
+    }
+}
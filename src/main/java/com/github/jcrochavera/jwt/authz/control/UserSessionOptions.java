@@ -0,0 +1,247 @@
+package com.github.jcrochavera.jwt.authz.control;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ * <p>
+ * Settings applied when a {@link UserSession} is built from the authorization claim.
+ * Instances are immutable, every <code>with</code> method returns a modified copy.
+ * </p>
+ * <pre>
+ *     UserSessionOptions.setDefaults(UserSessionOptions.defaults().withBloomFilterThreshold(512));
+ * </pre>
+ *
+ * @author julio.rocha
+ * @since 1.1.0
+ */
+public class UserSessionOptions {
+    private static volatile UserSessionOptions defaults = new UserSessionOptions();
+
+    private int bloomFilterThreshold = 1024;
+    private int parallelThreshold = Integer.MAX_VALUE;
+    private ForkJoinPool parallelPool = ForkJoinPool.commonPool();
+    private String[] resources;
+    private int[] limits = new int[ClaimLimit.values().length];
+    private boolean truncation;
+    private ScopeImplications implications = ScopeImplications.none();
+
+    UserSessionOptions() {
+        Arrays.fill(limits, Integer.MAX_VALUE);
+    }
+
+    private UserSessionOptions(UserSessionOptions other) {
+        this.bloomFilterThreshold = other.bloomFilterThreshold;
+        this.parallelThreshold = other.parallelThreshold;
+        this.parallelPool = other.parallelPool;
+        this.resources = other.resources;
+        this.limits = other.limits.clone();
+        this.truncation = other.truncation;
+        this.implications = other.implications;
+    }
+
+    /**
+     * @return the options used by sessions built without explicit options
+     */
+    public static UserSessionOptions defaults() {
+        return defaults;
+    }
+
+    /**
+     * @param options the options to be used by sessions built without explicit options
+     */
+    public static void setDefaults(UserSessionOptions options) {
+        Objects.requireNonNull(options, "options are mandatory");
+        defaults = options;
+    }
+
+    /**
+     * Resources with at least this number of instances identified by strings build a Bloom filter, so most of the
+     * checks of instances that were not granted are answered without looking them up in the instances index.
+     * Numeric and UUID instances are not filtered, their primitive tables answer as fast.
+     *
+     * @param threshold number of string instances of a resource, {@link Integer#MAX_VALUE} disables the filter
+     * @return a copy of these options with the provided threshold
+     */
+    public UserSessionOptions withBloomFilterThreshold(int threshold) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("threshold must not be negative");
+        }
+        UserSessionOptions options = new UserSessionOptions(this);
+        options.bloomFilterThreshold = threshold;
+        return options;
+    }
+
+    /**
+     * @return number of string instances of a resource from which a Bloom filter is built
+     */
+    public int getBloomFilterThreshold() {
+        return bloomFilterThreshold;
+    }
+
+    /**
+     * Authorizations with at least this number of permissions are split in chunks indexed in parallel on
+     * {@link #getParallelPool()} and then merged, the session is the same one built sequentially.
+     *
+     * @param threshold number of permissions, {@link Integer#MAX_VALUE} (default) disables parallel construction
+     * @return a copy of these options with the provided threshold
+     */
+    public UserSessionOptions withParallelThreshold(int threshold) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("threshold must not be negative");
+        }
+        UserSessionOptions options = new UserSessionOptions(this);
+        options.parallelThreshold = threshold;
+        return options;
+    }
+
+    /**
+     * @return number of permissions from which sessions are built in parallel
+     */
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    /**
+     * @param pool pool indexing the chunks of large authorizations, {@link ForkJoinPool#commonPool()} by default
+     * @return a copy of these options with the provided pool
+     */
+    public UserSessionOptions withParallelPool(ForkJoinPool pool) {
+        Objects.requireNonNull(pool, "pool is mandatory");
+        UserSessionOptions options = new UserSessionOptions(this);
+        options.parallelPool = pool;
+        return options;
+    }
+
+    /**
+     * @return pool indexing the chunks of large authorizations
+     */
+    public ForkJoinPool getParallelPool() {
+        return parallelPool;
+    }
+
+    /**
+     * Sessions only index the permissions of these resources, the rest of the entries are skipped before their
+     * scopes are read, so memory and build time depend on the grants the application checks.
+     *
+     * @param resources names checked by the application, see
+     *                  {@link com.github.jcrochavera.jwt.authz.boundary.ReferencedResources}
+     * @return a copy of these options indexing only the provided resources
+     * @throws IllegalArgumentException when there are no resources, sessions would deny every check
+     */
+    public UserSessionOptions withResources(Collection<String> resources) {
+        Objects.requireNonNull(resources, "resources are mandatory");
+        if (resources.isEmpty()) {
+            throw new IllegalArgumentException(
+                    "resources must not be empty, use withAllResources() to index every resource");
+        }
+        UserSessionOptions options = new UserSessionOptions(this);
+        options.resources = resources.stream().distinct().toArray(String[]::new);
+        return options;
+    }
+
+    /**
+     * @return a copy of these options indexing every resource (default)
+     */
+    public UserSessionOptions withAllResources() {
+        UserSessionOptions options = new UserSessionOptions(this);
+        options.resources = null;
+        return options;
+    }
+
+    /**
+     * @return names of the indexed resources, null when every resource is indexed
+     */
+    public Set<String> getResources() {
+        return Objects.isNull(resources) ? null : Set.of(resources);
+    }
+
+    /**
+     * Tests the resource of the 'rsname' claim in place, without splitting it
+     *
+     * @return true when the resource of the claim is indexed or the claim has no resource separator
+     */
+    boolean isIndexed(String rsname) {
+        if (Objects.isNull(resources)) {
+            return true;
+        }
+        int separator = rsname.indexOf(':');
+        if (separator < 0) {
+            return true;
+        }
+        for (String resource : resources) {
+            if (resource.length() == separator && rsname.startsWith(resource)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Claims over the limit are rejected, or truncated when {@link #withTruncation(boolean)} is enabled, while
+     * they are indexed, so hostile tokens cannot make sessions allocate without bounds.
+     *
+     * @param limit limit of the claim
+     * @param max   maximum value, {@link Integer#MAX_VALUE} (default) disables the limit
+     * @return a copy of these options with the provided limit
+     */
+    public UserSessionOptions withLimit(ClaimLimit limit, int max) {
+        Objects.requireNonNull(limit, "limit is mandatory");
+        if (max <= 0) {
+            throw new IllegalArgumentException("max must be positive");
+        }
+        UserSessionOptions options = new UserSessionOptions(this);
+        options.limits[limit.ordinal()] = max;
+        return options;
+    }
+
+    /**
+     * @param limit limit of the claim
+     * @return its maximum value
+     */
+    public int getLimit(ClaimLimit limit) {
+        return limits[limit.ordinal()];
+    }
+
+    /**
+     * @param truncation true to truncate claims over a limit, false (default) to reject them with a
+     *                   {@link ClaimLimitException}
+     * @return a copy of these options with the provided policy
+     */
+    public UserSessionOptions withTruncation(boolean truncation) {
+        UserSessionOptions options = new UserSessionOptions(this);
+        options.truncation = truncation;
+        return options;
+    }
+
+    /**
+     * @return true when claims over a limit are truncated instead of rejected
+     */
+    public boolean isTruncation() {
+        return truncation;
+    }
+
+    /**
+     * Sessions add the scopes implied by each granted scope while they are built, refreshes included
+     *
+     * @param implications rules between scopes, {@link ScopeImplications#none()} by default
+     * @return a copy of these options with the provided implications
+     */
+    public UserSessionOptions withImplications(ScopeImplications implications) {
+        Objects.requireNonNull(implications, "implications are mandatory");
+        UserSessionOptions options = new UserSessionOptions(this);
+        options.implications = implications;
+        return options;
+    }
+
+    /**
+     * @return rules adding the scopes implied by the granted ones
+     */
+    public ScopeImplications getImplications() {
+        return implications;
+    }
+}
@@ -0,0 +1,49 @@
+package com.github.jcrochavera.jwt.authz.boundary;
+
+import com.github.jcrochavera.jwt.authz.control.UserSession;
+
+import java.util.UUID;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ * <p>
+ * Dispatch on the type of the instances of compiled checks, Java 21 version of the multi-release jar.
+ * </p>
+ *
+ * @author julio.rocha
+ * @since 1.1.0
+ */
+final class InstanceDispatch {
+    InstanceDispatch() {
+    }
+
+    /**
+     * @param value a value of a parameter, a field or a message
+     * @return the value as a {@link Long}, an {@link UUID} or a {@link String}
+     */
+    static Object toInstance(Object value) {
+        return switch (value) {
+            case Long id -> id;
+            case Integer id -> id.longValue();
+            case Short id -> id.longValue();
+            case UUID id -> id;
+            default -> value.toString();
+        };
+    }
+
+    /**
+     * @param check    permissions to evaluate
+     * @param session  user's session
+     * @param instance {@link AuthorizationPlan.Check#RESOURCE}, or the instance as a {@link Long}, an {@link UUID}
+     *                 or a {@link String}
+     * @return true when the session has the permissions
+     */
+    static boolean evaluate(AuthorizationPlan.Check check, UserSession session, Object instance) {
+        return switch (instance) {
+            case Long id -> session.hasInstancePermissions(check.resource, (long) id, check.operation, check.permissions);
+            case UUID id -> session.hasInstancePermissions(check.resource, id, check.operation, check.permissions);
+            case String id -> session.hasInstancePermissions(check.resource, id, check.operation, check.permissions);
+            default -> session.hasPermissions(check.resource, check.operation, check.permissions);
+        };
+    }
+}
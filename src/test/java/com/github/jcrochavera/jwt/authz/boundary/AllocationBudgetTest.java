@@ -0,0 +1,161 @@
+package com.github.jcrochavera.jwt.authz.boundary;
+
+import com.github.jcrochavera.jwt.authz.annotations.Operation;
+import com.github.jcrochavera.jwt.authz.control.RptGenerator;
+import com.github.jcrochavera.jwt.authz.control.UserSession;
+import com.github.jcrochavera.jwt.authz.utils.Permission;
+import com.sun.management.HotSpotDiagnosticMXBean;
+import jakarta.ws.rs.ForbiddenException;
+import org.eclipse.microprofile.jwt.JsonWebToken;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ * <p>
+ * Measures the bytes allocated by the current thread on warmed-up authorization checks and fails when an
+ * operation allocates more than its budget. Budgets are upper bounds per operation, lower them when the
+ * hot path allocates less, raise them only on purpose. Part of the hot path is only free of allocations once
+ * escape analysis removes them, so VMs without it, such as interpreted runs or C1 only runs, get relaxed budgets.
+ * </p>
+ *
+ * @author julio.rocha
+ */
+public class AllocationBudgetTest {
+    static final int WARM_UP = 20_000;
+    static final int ITERATIONS = 20_000;
+    /**
+     * Whether the hot path is compiled by C2 with escape analysis, the strict budgets are only enforced then
+     */
+    static final boolean ESCAPE_ANALYSIS = escapeAnalysis();
+    /**
+     * Lookups of resources allocate nothing, less than an object per operation is left for the JIT
+     */
+    static final long RESOURCE_CHECK_BUDGET = budget(8, 128);
+    /**
+     * Numeric instances are parsed in place and looked up in primitive tables
+     */
+    static final long INSTANCE_CHECK_BUDGET = budget(8, 256);
+    /**
+     * Annotations are compiled once per method, what is left depends on escape analysis of the filter
+     */
+    static final long ALLOWED_REQUEST_BUDGET = budget(128, 1024);
+    /**
+     * The allowed request plus the {@link ForbiddenException} and its stack trace
+     */
+    static final long DENIED_REQUEST_BUDGET = budget(4096, 8192);
+    static final String[] PERMISSIONS = {Permission.READ, Permission.EXECUTE};
+
+    static Logger LOG = LoggerFactory.getLogger(AllocationBudgetTest.class);
+    static com.sun.management.ThreadMXBean threads;
+    static UserSession session;
+
+    @BeforeClass
+    public static void setUp() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        threads = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+        session = new UserSession("dummy", new RptGenerator(10, 2000, 4).authorization("dummy"));
+    }
+
+    static boolean escapeAnalysis() {
+        try {
+            HotSpotDiagnosticMXBean vm = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+            return vm != null && Boolean.parseBoolean(vm.getVMOption("UseCompiler").getValue())
+                    && Boolean.parseBoolean(vm.getVMOption("DoEscapeAnalysis").getValue())
+                    && Integer.parseInt(vm.getVMOption("TieredStopAtLevel").getValue()) >= 4;
+        } catch (RuntimeException e) {
+            // not a HotSpot VM
+            return false;
+        }
+    }
+
+    /**
+     * @param strict  bytes per operation with escape analysis
+     * @param relaxed bytes per operation with other compilers, or none
+     * @return budget for the running VM
+     */
+    static long budget(long strict, long relaxed) {
+        return ESCAPE_ANALYSIS ? strict : relaxed;
+    }
+
+    static long allocatedPerOperation(Runnable operation) {
+        for (int i = 0; i < WARM_UP; i++) {
+            operation.run();
+        }
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < ITERATIONS; i++) {
+            operation.run();
+        }
+        return (threads.getThreadAllocatedBytes(thread) - before) / ITERATIONS;
+    }
+
+    static AuthorizationFilter filter(String method, Class<?>... parameters) throws Exception {
+        return new AuthorizationFilter(new StubResourceInfo(LoadResource.class.getMethod(method, parameters)),
+                new ClientAuthz() {
+                    @Override
+                    public UserSession getSession() {
+                        return session;
+                    }
+
+                    @Override
+                    public JsonWebToken getPrincipal() {
+                        return null;
+                    }
+                });
+    }
+
+    static void assertBudget(String operation, long allocated, long budget) {
+        LOG.info("{} {} bytes/op (budget {})", operation, allocated, budget);
+        assertThat(operation + " allocated " + allocated + " bytes/op, budget is " + budget,
+                allocated <= budget, is(true));
+    }
+
+    @Test
+    public void resourceCheck() {
+        long allocated = allocatedPerOperation(() -> session.hasPermissions("REPORTS", Operation.AND, PERMISSIONS));
+        assertBudget("resource check", allocated, RESOURCE_CHECK_BUDGET);
+    }
+
+    @Test
+    public void instanceCheck() {
+        String instance = String.valueOf(1500);
+        long allocated = allocatedPerOperation(() ->
+                session.hasInstancePermissions("REPORTS", instance, Operation.AND, PERMISSIONS));
+        assertBudget("instance check", allocated, INSTANCE_CHECK_BUDGET);
+    }
+
+    @Test
+    public void allowedRequest() throws Exception {
+        AuthorizationFilter filter = filter("report", String.class);
+        StubRequestContext request = new StubRequestContext().pathParameter("id", String.valueOf(1500));
+        long allocated = allocatedPerOperation(() -> filter.filter(request));
+        assertBudget("allowed request", allocated, ALLOWED_REQUEST_BUDGET);
+    }
+
+    @Test
+    public void deniedRequest() throws Exception {
+        AuthorizationFilter filter = filter("report", String.class);
+        StubRequestContext request = new StubRequestContext().pathParameter("id", String.valueOf(3500));
+        long allocated = allocatedPerOperation(() -> {
+            try {
+                filter.filter(request);
+                throw new IllegalStateException("request must be denied");
+            } catch (ForbiddenException e) {
+                // expected
+            }
+        });
+        assertBudget("denied request", allocated, DENIED_REQUEST_BUDGET);
+    }
+}
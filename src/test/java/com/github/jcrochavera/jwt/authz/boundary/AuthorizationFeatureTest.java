@@ -0,0 +1,115 @@
+package com.github.jcrochavera.jwt.authz.boundary;
+
+import com.github.jcrochavera.jwt.authz.annotations.RequiresPermission;
+import com.github.jcrochavera.jwt.authz.annotations.RequiresPermissions;
+import com.github.jcrochavera.jwt.authz.utils.BasicRoles;
+import com.github.jcrochavera.jwt.authz.utils.Permission;
+import jakarta.ws.rs.ForbiddenException;
+import jakarta.ws.rs.Priorities;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.ResourceInfo;
+import jakarta.ws.rs.core.FeatureContext;
+import org.hamcrest.core.IsEqual;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+
+import static com.github.jcrochavera.jwt.authz.boundary.AuthorizationPlanTest.clientAuth;
+import static com.github.jcrochavera.jwt.authz.boundary.AuthorizationPlanTest.session;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ *
+ * @author julio.rocha
+ */
+public class AuthorizationFeatureTest {
+    @SuppressWarnings("unused")
+    @RequiresPermissions(permissions = @RequiresPermission(resource = "GROUPS", value = Permission.READ))
+    public static class GroupsResource {
+        public void list() {
+        }
+
+        @RequiresPermissions(permissions = @RequiresPermission(resource = "GROUPS", value = Permission.DELETE))
+        public void delete() {
+        }
+    }
+
+    @After
+    public void tearDown() {
+        AuthorizationPlan.setPolicy(Map.of());
+    }
+
+    static ContainerRequestFilter configure(AuthorizationFeature feature, Method method) {
+        FeatureContext context = Mockito.mock(FeatureContext.class);
+        feature.configure(new StubResourceInfo(method), context);
+        ArgumentCaptor<Object> filter = ArgumentCaptor.forClass(Object.class);
+        Mockito.verify(context, Mockito.atMost(1)).register(filter.capture(), Mockito.eq(Priorities.AUTHORIZATION));
+        return filter.getAllValues().isEmpty() ? null : (ContainerRequestFilter) filter.getValue();
+    }
+
+    @Test
+    public void onlyProtectedMethodsAreFiltered() throws Exception {
+        AuthorizationFeature feature = new AuthorizationFeature(clientAuth(session(), Set.of(BasicRoles.USER)),
+                false, null);
+
+        assertThat(configure(feature, ResourceTest.class.getMethod("openEndpoint")), nullValue());
+        assertThat(configure(feature, AuthorizationPlanTest.AdminResource.class.getMethod("closed")), nullValue());
+        assertThat(configure(new AuthorizationFeature(), AuthorizationPlanTest.AdminResource.class.getMethod("open")),
+                nullValue());
+        feature.configure(Mockito.mock(ResourceInfo.class), Mockito.mock(FeatureContext.class));
+
+        ContainerRequestFilter report = configure(feature, AuthorizationPlanTest.AdminResource.class.getMethod("report"));
+        report.filter(new StubRequestContext().pathParameter("id", "34"));
+        Assert.assertThrows(ForbiddenException.class, () -> report.filter(new StubRequestContext().pathParameter("id", "35")));
+        assertThat(((AuthorizationFeature.BoundFilter) report).filter.plan,
+                sameInstance(AuthorizationPlan.of(AuthorizationPlanTest.AdminResource.class.getMethod("report"))));
+    }
+
+    @Test
+    public void rolesAndGuard() throws Exception {
+        DenialGuard guard = new DenialGuard(1, Duration.ofMinutes(1));
+        AuthorizationFeature feature = new AuthorizationFeature(clientAuth(session(), Set.of(BasicRoles.USER)),
+                true, guard);
+
+        ContainerRequestFilter closed = configure(feature, AuthorizationPlanTest.AdminResource.class.getMethod("closed"));
+        ContainerRequestFilter inherited = configure(feature,
+                AuthorizationPlanTest.AdminResource.class.getMethod("inherited"));
+
+        Assert.assertThrows(ForbiddenException.class, () -> closed.filter(new StubRequestContext()));
+        Assert.assertThrows(ForbiddenException.class, () -> inherited.filter(new StubRequestContext()));
+        assertThat(guard.isBlocked("dummy", AuthorizationPlanTest.AdminResource.class.getMethod("closed")),
+                is(IsEqual.equalTo(true)));
+        assertThat(configure(feature, AuthorizationPlanTest.AdminResource.class.getMethod("open")), nullValue());
+        assertThat(Assert.assertThrows(NullPointerException.class, () -> new AuthorizationFeature(null, true, guard))
+                .getMessage(), is("clientAuth is mandatory"));
+    }
+
+    @Test
+    public void permissionsOfTheClass() throws Exception {
+        AuthorizationFeature feature = new AuthorizationFeature(clientAuth(session(), null), false, null);
+        Method delete = GroupsResource.class.getMethod("delete");
+
+        configure(feature, GroupsResource.class.getMethod("list")).filter(new StubRequestContext());
+        ContainerRequestFilter deleteFilter = configure(feature, delete);
+        Assert.assertThrows(ForbiddenException.class, () -> deleteFilter.filter(new StubRequestContext()));
+
+        AuthorizationPlan annotated = AuthorizationPlan.annotated(delete);
+        AuthorizationPlan.setPolicy(Map.of(delete, annotated.withChecks(AuthorizationPlan.annotated(
+                GroupsResource.class.getMethod("list")).checks)));
+        deleteFilter.filter(new StubRequestContext());
+        assertThat(annotated.current(), sameInstance(AuthorizationPlan.of(delete)));
+        AuthorizationPlan.setPolicy(Map.of());
+        Assert.assertThrows(ForbiddenException.class, () -> deleteFilter.filter(new StubRequestContext()));
+    }
+}
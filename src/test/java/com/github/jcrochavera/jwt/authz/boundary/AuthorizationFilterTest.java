@@ -1,7 +1,9 @@
 package com.github.jcrochavera.jwt.authz.boundary;
 
 import com.github.jcrochavera.jwt.authz.annotations.RequiresPermissions;
+import com.github.jcrochavera.jwt.authz.control.UserSession;
 import com.github.jcrochavera.jwt.authz.utils.AnnotationUtils;
+import com.github.jcrochavera.jwt.authz.utils.BasicRoles;
 import com.github.jcrochavera.jwt.authz.utils.Permission;
 import jakarta.annotation.security.RolesAllowed;
 import jakarta.json.Json;
@@ -22,6 +24,9 @@ import org.junit.Test;
 import org.mockito.Mockito;
 
 import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
 
 import static com.github.jcrochavera.jwt.authz.control.UserSessionTest.addResource;
 import static com.github.jcrochavera.jwt.authz.control.UserSessionTest.addScopes;
@@ -322,4 +327,69 @@ public class AuthorizationFilterTest {
                 .hasInstancePermissions(resourceName1, "3", Permission.INSERT, Permission.UPDATE,
                         Permission.DELETE, Permission.ARCHIVE), is(IsEqual.equalTo(false)));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void rolesEvaluatedByFilter() throws Exception {
+        ClientAuthzImpl clientAuth = new ClientAuthzImpl();
+        clientAuth.principal = Mockito.mock(JsonWebToken.class);
+        Mockito.when(clientAuth.principal.getName()).thenReturn("dummyPrincipal");
+        Mockito.when(clientAuth.principal.getGroups()).thenReturn(Set.of(BasicRoles.ADMIN));
+        clientAuth.userName = "dummy";
+        clientAuth.tenant = "DUMMY";
+        clientAuth.groupId = 3L;
+        clientAuth.init();
+        ResourceInfo resourceInfo = new StubResourceInfo(ResourceTest.class.getMethod("helloTest"));
+
+        new AuthorizationFilter(resourceInfo, clientAuth).filter(new StubRequestContext());
+        AuthorizationFilter af = new AuthorizationFilter(resourceInfo, clientAuth, true);
+        assertThat(af.evaluateRoles, is(true));
+        Assert.assertThrows(ForbiddenException.class, () -> af.filter(new StubRequestContext()));
+
+        Mockito.when(clientAuth.principal.getGroups()).thenReturn(Set.of(BasicRoles.USER));
+        af.filter(new StubRequestContext());
+    }
+
+    @Test
+    public void repeatedDenialsRejectedByGuard() throws Exception {
+        ClientAuthzImpl clientAuth = new ClientAuthzImpl();
+        clientAuth.principal = Mockito.mock(JsonWebToken.class);
+        Mockito.when(clientAuth.principal.getName()).thenReturn("dummyPrincipal");
+        clientAuth.userName = "dummy";
+        clientAuth.tenant = "DUMMY";
+        clientAuth.groupId = 3L;
+        clientAuth.authorization = Json.createObjectBuilder().add("permissions", Json.createArrayBuilder()
+                .add(addScopes(addResource("REPORTS:dummy:2"), Permission.READ, Permission.EXECUTE))).build();
+        clientAuth.init();
+        Method helloTest3 = ResourceTest.class.getMethod("helloTest3", String.class, String.class);
+        DenialGuard guard = Mockito.spy(new DenialGuard(2, Duration.ofMinutes(1)));
+        AuthorizationFilter af = new AuthorizationFilter(new StubResourceInfo(helloTest3), clientAuth, false, guard);
+        StubRequestContext denied = new StubRequestContext().pathParameter("idReports", "3").pathParameter("idGroups", "5");
+
+        Assert.assertThrows(ForbiddenException.class, () -> af.filter(denied));
+        Assert.assertThrows(ForbiddenException.class, () -> af.filter(denied));
+        Assert.assertThrows(ForbiddenException.class, () -> af.filter(denied));
+
+        Mockito.verify(guard, Mockito.times(2)).recordDenial("dummy", helloTest3);
+        assertThat(guard.isBlocked("dummy", helloTest3), is(true));
+        Assert.assertThrows(NotAuthorizedException.class, () -> new AuthorizationFilter(new StubResourceInfo(helloTest3),
+                new ClientAuthzImpl(), false, guard).filter(denied));
+    }
+
+    @Test
+    public void permissionsOfTheClassLeftToTheFeature() throws Exception {
+        ClientAuthz clientAuth = AuthorizationPlanTest.clientAuth(new UserSession("dummy", null), null);
+        Method list = AuthorizationFeatureTest.GroupsResource.class.getMethod("list");
+        AuthorizationFilter af = new AuthorizationFilter(new StubResourceInfo(list), clientAuth);
+
+        af.filter(new StubRequestContext());
+        Assert.assertThrows(ForbiddenException.class, () -> AuthorizationFeatureTest.configure(
+                new AuthorizationFeature(clientAuth, false, null), list).filter(new StubRequestContext()));
+        try {
+            AuthorizationPlan.setPolicy(Map.of(list, AuthorizationPlan.annotated(list).withChecks(AuthorizationPlan
+                    .annotated(AuthorizationFeatureTest.GroupsResource.class.getMethod("delete")).checks)));
+            Assert.assertThrows(ForbiddenException.class, () -> af.filter(new StubRequestContext()));
+        } finally {
+            AuthorizationPlan.setPolicy(Map.of());
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.github.jcrochavera.jwt.authz.boundary;
+
+import com.github.jcrochavera.jwt.authz.annotations.Operation;
+import com.github.jcrochavera.jwt.authz.annotations.RequiresPermission;
+import com.github.jcrochavera.jwt.authz.annotations.RequiresPermissions;
+import com.github.jcrochavera.jwt.authz.control.UserSession;
+import com.github.jcrochavera.jwt.authz.utils.BasicRoles;
+import com.github.jcrochavera.jwt.authz.utils.Permission;
+import jakarta.annotation.security.DenyAll;
+import jakarta.annotation.security.PermitAll;
+import jakarta.annotation.security.RolesAllowed;
+import jakarta.ws.rs.ForbiddenException;
+import jakarta.ws.rs.NotAuthorizedException;
+import org.eclipse.microprofile.jwt.JsonWebToken;
+import org.hamcrest.core.IsEqual;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+
+import static com.github.jcrochavera.jwt.authz.control.UserSessionTest.addResource;
+import static com.github.jcrochavera.jwt.authz.control.UserSessionTest.addScopes;
+import static com.github.jcrochavera.jwt.authz.control.UserSessionTest.authorization;
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ *
+ * @author julio.rocha
+ */
+public class AuthorizationPlanTest {
+    @SuppressWarnings("unused")
+    @RolesAllowed(BasicRoles.ADMIN)
+    public static class AdminResource {
+        public void inherited() {
+        }
+
+        @PermitAll
+        public void open() {
+        }
+
+        @DenyAll
+        public void closed() {
+        }
+
+        @RolesAllowed({BasicRoles.USER, BasicRoles.ADMIN})
+        @RequiresPermissions(permissions = {
+                @RequiresPermission(resource = "GROUPS", value = Permission.READ),
+                @RequiresPermission(resource = "REPORTS", instance = "id", value = Permission.READ)
+        })
+        public void report() {
+        }
+    }
+
+    @SuppressWarnings("unused")
+    @DenyAll
+    public static class ClosedResource {
+        public void inherited() {
+        }
+
+        @RolesAllowed(BasicRoles.USER)
+        public void user() {
+        }
+    }
+
+    static ClientAuthz clientAuth(UserSession session, Set<String> groups) {
+        JsonWebToken principal = Mockito.mock(JsonWebToken.class);
+        Mockito.when(principal.getGroups()).thenReturn(groups);
+        return new ClientAuthz() {
+            @Override
+            public UserSession getSession() {
+                return session;
+            }
+
+            @Override
+            public JsonWebToken getPrincipal() {
+                return groups == null && session == null ? null : principal;
+            }
+        };
+    }
+
+    static UserSession session() {
+        return new UserSession("dummy", authorization(addScopes(addResource("GROUPS:dummy"), Permission.READ),
+                addScopes(addResource("REPORTS:dummy:34"), Permission.READ)));
+    }
+
+    static void evaluate(String method, ClientAuthz clientAuth, String id) throws Exception {
+        AuthorizationPlan.of(AdminResource.class.getMethod(method))
+                .evaluate(new StubRequestContext().pathParameter("id", id), clientAuth, true);
+    }
+
+    @Test
+    public void compile() throws Exception {
+        AuthorizationPlan inherited = AuthorizationPlan.of(AdminResource.class.getMethod("inherited"));
+        assertThat(inherited, sameInstance(AuthorizationPlan.of(AdminResource.class.getMethod("inherited"))));
+        assertThat(inherited.rolesAllowed, is(IsEqual.equalTo(new String[]{BasicRoles.ADMIN})));
+        assertThat(inherited.denyAll, is(false));
+        assertThat(inherited.requiresPermissions(), is(false));
+        assertThat(AuthorizationPlan.of(AdminResource.class.getMethod("open")).rolesAllowed, nullValue());
+        assertThat(AuthorizationPlan.of(AdminResource.class.getMethod("closed")).denyAll, is(true));
+        AuthorizationPlan report = AuthorizationPlan.of(AdminResource.class.getMethod("report"));
+        assertThat(report.rolesAllowed, is(IsEqual.equalTo(new String[]{BasicRoles.USER, BasicRoles.ADMIN})));
+        assertThat(report.checks.length, is(2));
+        assertThat(report.checks[1].resource, is("REPORTS"));
+        assertThat(report.checks[1].instance, is("id"));
+        assertThat(AuthorizationPlan.of(ClosedResource.class.getMethod("inherited")).denyAll, is(true));
+        assertThat(AuthorizationPlan.of(ClosedResource.class.getMethod("user")).denyAll, is(false));
+        AuthorizationPlan open = AuthorizationPlan.of(ResourceTest.class.getMethod("openEndpoint"));
+        assertThat(open.rolesAllowed, nullValue());
+        assertThat(open.denyAll, is(false));
+    }
+
+    @Test
+    public void rolesFromPrincipalGroups() throws Exception {
+        ClientAuthz admin = clientAuth(null, Set.of(BasicRoles.ADMIN));
+        evaluate("inherited", admin, null);
+        evaluate("open", clientAuth(null, null), null);
+        Assert.assertThrows(ForbiddenException.class, () -> evaluate("closed", admin, null));
+        Assert.assertThrows(ForbiddenException.class, () -> evaluate("inherited", clientAuth(null, Set.of(BasicRoles.USER)), null));
+        Assert.assertThrows(NotAuthorizedException.class, () -> evaluate("inherited", clientAuth(null, null), null));
+        Assert.assertThrows(NotAuthorizedException.class, () -> evaluate("report", admin, "34"));
+    }
+
+    @Test
+    public void rolesFromSession() throws Exception {
+        UserSession session = session();
+        ClientAuthz withoutGroups = clientAuth(session, Set.of());
+        Assert.assertThrows(ForbiddenException.class, () -> evaluate("report", withoutGroups, "34"));
+        ClientAuthz nullGroups = clientAuth(session, null);
+        Assert.assertThrows(ForbiddenException.class, () -> evaluate("inherited", nullGroups, null));
+
+        ClientAuthz user = clientAuth(session.withRoles(Set.of(BasicRoles.USER)), Set.of());
+        assertThat(user.getRoles(), is(IsEqual.equalTo(Set.of(BasicRoles.USER))));
+        evaluate("report", user, "34");
+        Assert.assertThrows(ForbiddenException.class, () -> evaluate("report", user, "35"));
+        Assert.assertThrows(ForbiddenException.class, () -> evaluate("report", user, null));
+        Assert.assertThrows(ForbiddenException.class, () -> evaluate("inherited", user, null));
+    }
+
+    @Test
+    public void rolesLeftToContainer() throws Exception {
+        ClientAuthz user = clientAuth(session(), Set.of(BasicRoles.USER));
+        AuthorizationPlan.of(AdminResource.class.getMethod("closed")).evaluate(new StubRequestContext(), user, false);
+        AuthorizationPlan.of(AdminResource.class.getMethod("report"))
+                .evaluate(new StubRequestContext().pathParameter("id", "34"), user, false);
+    }
+
+    static StubRequestContext withEntity(String entity) {
+        StubRequestContext requestContext = new StubRequestContext();
+        requestContext.setEntityStream(new ByteArrayInputStream(entity.getBytes(StandardCharsets.UTF_8)));
+        return requestContext;
+    }
+
+    @Test
+    public void instancesInTheEntity() throws Exception {
+        Method comment = ResourceTest.class.getMethod("comment", String.class, Map.class);
+        AuthorizationPlan plan = AuthorizationPlan.of(comment);
+        assertThat(plan.checks[0].body, is(true));
+        assertThat(plan.checks[0].parameter, is(1));
+        assertThat(plan.bodyFields, is(IsEqual.equalTo(Set.of("reportId"))));
+        ClientAuthz user = clientAuth(new UserSession("dummy",
+                authorization(addScopes(addResource("REPORTS:dummy:34"), Permission.UPDATE))), Set.of());
+
+        String entity = "{\"text\": \"hi\", \"tags\": [\"a\", {\"reportId\": 35}], \"meta\": {\"reportId\": 35},"
+                + " \"reportId\": 34, \"more\": \"text\"}";
+        StubRequestContext permitted = withEntity(entity);
+        plan.evaluate(permitted, user, false);
+        assertThat(new String(permitted.getEntityStream().readAllBytes(), StandardCharsets.UTF_8), is(entity));
+        assertThat(plan.instances(permitted), is(""));
+        plan.evaluate(withEntity("{\"reportId\": \"34\"}"), user, false);
+
+        for (String denied : new String[]{"{\"reportId\": 35}", "{\"reportId\": null}", "{\"id\": 34}", "[34]", "{34"}) {
+            Assert.assertThrows(denied, ForbiddenException.class, () -> plan.evaluate(withEntity(denied), user, false));
+        }
+        Assert.assertThrows(ForbiddenException.class, () -> plan.evaluate(new StubRequestContext(), user, false));
+
+        plan.evaluate(new Object[]{null, Map.of("reportId", 34L)}, user, false, null);
+        Assert.assertThrows(ForbiddenException.class,
+                () -> plan.evaluate(new Object[]{null, Map.of("reportId", 35)}, user, false, null));
+        Assert.assertThrows(ForbiddenException.class,
+                () -> plan.evaluate(new Object[]{null, Map.of()}, user, false, null));
+        Assert.assertThrows(ForbiddenException.class, () -> plan.evaluate(new Object[]{null, null}, user, false, null));
+    }
+
+    @Test
+    public void entityReadAfterTheOtherRules() throws Exception {
+        Method comment = ResourceTest.class.getMethod("comment", String.class, Map.class);
+        AuthorizationPlan plan = AuthorizationPlan.compile(comment).withChecks(new AuthorizationPlan.Check[]{
+                AuthorizationPlan.bodyCheck(comment, "REPORTS", new String[]{Permission.UPDATE}, Operation.AND, "reportId"),
+                AuthorizationPlan.check(comment, "GROUPS", new String[]{Permission.READ}, Operation.AND, "")});
+        ClientAuthz user = clientAuth(new UserSession("dummy",
+                authorization(addScopes(addResource("REPORTS:dummy:34"), Permission.UPDATE))), Set.of());
+        ByteArrayInputStream entity = new ByteArrayInputStream("{\"reportId\": 34}".getBytes(StandardCharsets.UTF_8));
+        StubRequestContext requestContext = new StubRequestContext();
+        requestContext.setEntityStream(entity);
+
+        Assert.assertThrows(ForbiddenException.class, () -> plan.evaluate(requestContext, user, false));
+        assertThat(requestContext.getEntityStream(), sameInstance(entity));
+        assertThat(entity.available(), is(16));
+    }
+}
@@ -0,0 +1,105 @@
+package com.github.jcrochavera.jwt.authz.boundary;
+
+import com.github.jcrochavera.jwt.authz.control.UserSession;
+import com.github.jcrochavera.jwt.authz.utils.BasicRoles;
+import jakarta.ws.rs.ForbiddenException;
+import jakarta.ws.rs.NotAuthorizedException;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static com.github.jcrochavera.jwt.authz.boundary.AuthorizationPlanTest.clientAuth;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ *
+ * @author julio.rocha
+ */
+public class AuthzDecisionEventTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    List<RecordedEvent> record(Duration threshold, Runnable operation) throws Exception {
+        Path file = folder.newFile("decisions.jfr").toPath();
+        try (Recording recording = new Recording()) {
+            recording.enable(AuthzDecisionEvent.NAME).withThreshold(threshold);
+            recording.start();
+            operation.run();
+            recording.stop();
+            recording.dump(file);
+        }
+        return RecordingFile.readAllEvents(file).stream()
+                .filter(event -> event.getEventType().getName().equals(AuthzDecisionEvent.NAME))
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void decisionsAreRecorded() throws Exception {
+        UserSession session = AuthorizationPlanTest.session();
+        Method report = AuthorizationPlanTest.AdminResource.class.getMethod("report");
+        Method open = AuthorizationPlanTest.AdminResource.class.getMethod("open");
+        DenialGuard guard = new DenialGuard(1, Duration.ofMinutes(1));
+        AuthorizationFilter filter = new AuthorizationFilter(new StubResourceInfo(report),
+                clientAuth(session.withRoles(Set.of(BasicRoles.USER)), Set.of()), true, guard);
+        List<RecordedEvent> events = record(Duration.ZERO, () -> {
+            filter.filter(new StubRequestContext().pathParameter("id", "34"));
+            Assert.assertThrows(ForbiddenException.class, () -> filter.filter(new StubRequestContext().pathParameter("id", "35")));
+            Assert.assertThrows(ForbiddenException.class, () -> filter.filter(new StubRequestContext().pathParameter("id", "34")));
+            Assert.assertThrows(NotAuthorizedException.class, () -> new AuthorizationFilter(new StubResourceInfo(report),
+                    clientAuth(null, null), true).filter(new StubRequestContext()));
+            new AuthorizationFilter(new StubResourceInfo(open), clientAuth(null, null), true).filter(new StubRequestContext());
+        });
+
+        assertThat(events.size(), is(5));
+        RecordedEvent permitted = events.get(0);
+        assertThat(permitted.getString("method"), is(AuthorizationPlanTest.AdminResource.class.getName() + ".report"));
+        assertThat(permitted.getString("resource"), is("GROUPS,REPORTS"));
+        assertThat(permitted.getString("instance"), is("34"));
+        assertThat(permitted.getString("outcome"), is(AuthzDecisionEvent.PERMITTED));
+        assertThat(events.get(1).getString("instance"), is("35"));
+        assertThat(events.get(1).getString("outcome"), is(AuthzDecisionEvent.DENIED));
+        assertThat(events.get(2).getString("outcome"), is(AuthzDecisionEvent.REJECTED));
+        assertThat(events.get(2).getString("instance"), is("34"));
+        assertThat(events.get(3).getString("instance"), is("null"));
+        assertThat(events.get(3).getString("outcome"), is(AuthzDecisionEvent.UNAUTHENTICATED));
+        assertThat(events.get(4).getString("resource"), is(""));
+        assertThat(events.get(4).getString("outcome"), is(AuthzDecisionEvent.PERMITTED));
+    }
+
+    @Test
+    public void fastDecisionsAreNotRecorded() throws Exception {
+        AuthorizationFilter filter = new AuthorizationFilter(new StubResourceInfo(
+                AuthorizationPlanTest.AdminResource.class.getMethod("open")), clientAuth(null, null), true);
+
+        List<RecordedEvent> events = record(Duration.ofHours(1), () -> filter.filter(new StubRequestContext()));
+
+        assertThat(events.size(), is(0));
+    }
+
+    @Test
+    public void notRecordedWithoutFlightRecorderModule() throws Exception {
+        AuthorizationFilter filter = new AuthorizationFilter(new StubResourceInfo(
+                AuthorizationPlanTest.AdminResource.class.getMethod("open")), clientAuth(null, null), true);
+        AuthorizationFilter.FLIGHT_RECORDER = false;
+        try {
+            List<RecordedEvent> events = record(Duration.ZERO, () -> filter.filter(new StubRequestContext()));
+
+            assertThat(events.size(), is(0));
+        } finally {
+            AuthorizationFilter.FLIGHT_RECORDER = true;
+        }
+    }
+}
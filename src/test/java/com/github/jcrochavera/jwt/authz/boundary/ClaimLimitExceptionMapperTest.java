@@ -0,0 +1,24 @@
+package com.github.jcrochavera.jwt.authz.boundary;
+
+import com.github.jcrochavera.jwt.authz.control.ClaimLimit;
+import com.github.jcrochavera.jwt.authz.control.ClaimLimitException;
+import jakarta.ws.rs.core.Response;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ *
+ * @author julio.rocha
+ */
+public class ClaimLimitExceptionMapperTest {
+    @Test
+    public void claimsOverLimitsAreForbidden() {
+        Response response = new ClaimLimitExceptionMapper().toResponse(new ClaimLimitException(ClaimLimit.INSTANCES, 10));
+
+        assertThat(response.getStatus(), is(Response.Status.FORBIDDEN.getStatusCode()));
+        assertThat(response.hasEntity(), is(false));
+    }
+}
@@ -0,0 +1,153 @@
+package com.github.jcrochavera.jwt.authz.boundary;
+
+import com.github.jcrochavera.jwt.authz.annotations.RequiresPermission;
+import com.github.jcrochavera.jwt.authz.annotations.RequiresPermissions;
+import com.github.jcrochavera.jwt.authz.control.UserSession;
+import com.github.jcrochavera.jwt.authz.utils.BasicRoles;
+import com.github.jcrochavera.jwt.authz.utils.Permission;
+import jakarta.annotation.security.DenyAll;
+import jakarta.annotation.security.RolesAllowed;
+import jakarta.json.Json;
+import jakarta.websocket.Session;
+import jakarta.ws.rs.ForbiddenException;
+import jakarta.ws.rs.NotAuthorizedException;
+import org.hamcrest.core.IsEqual;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.github.jcrochavera.jwt.authz.control.UserSessionTest.addResource;
+import static com.github.jcrochavera.jwt.authz.control.UserSessionTest.addScopes;
+import static com.github.jcrochavera.jwt.authz.control.UserSessionTest.authorization;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ *
+ * @author julio.rocha
+ */
+public class ConnectionAuthzTest {
+    @SuppressWarnings("unused")
+    public static class ReportsEndpoint {
+        @RequiresPermissions(permissions = {
+                @RequiresPermission(resource = "GROUPS", value = Permission.READ),
+                @RequiresPermission(resource = "REPORTS", instance = "reportId", value = Permission.UPDATE)
+        })
+        public void onUpdate(ReportUpdate update, Session connection) {
+        }
+
+        @RolesAllowed(BasicRoles.ADMIN)
+        public void onAdmin(ReportUpdate update) {
+        }
+
+        @DenyAll
+        public void onClose(ReportUpdate update) {
+        }
+    }
+
+    public static class ReportUpdate {
+        final long reportId;
+
+        public ReportUpdate(long reportId) {
+            this.reportId = reportId;
+        }
+
+        public long getReportId() {
+            return reportId;
+        }
+    }
+
+    Method onUpdate;
+    UserSession session;
+
+    @Before
+    public void setUp() throws Exception {
+        onUpdate = ReportsEndpoint.class.getMethod("onUpdate", ReportUpdate.class, Session.class);
+        session = new UserSession("dummy", authorization(addScopes(addResource("GROUPS:dummy"), Permission.READ),
+                addScopes(addResource("REPORTS:dummy:34"), Permission.UPDATE)));
+    }
+
+    @Test
+    public void invalidConnection() {
+        assertThat(Assert.assertThrows(NullPointerException.class, () -> new ConnectionAuthz(null)).getMessage(),
+                is("session is mandatory"));
+        assertThat(Assert.assertThrows(IllegalArgumentException.class, () -> new ConnectionAuthz(session, 0))
+                .getMessage(), is("capacity must be positive"));
+    }
+
+    @Test
+    public void boundToWebSocketSession() {
+        Session connection = Mockito.mock(Session.class);
+        Map<String, Object> properties = new HashMap<>();
+        Mockito.when(connection.getUserProperties()).thenReturn(properties);
+        Assert.assertThrows(NotAuthorizedException.class, () -> ConnectionAuthz.of(connection));
+
+        ConnectionAuthz authz = ConnectionAuthz.bind(connection, session);
+
+        assertThat(ConnectionAuthz.of(connection), sameInstance(authz));
+        assertThat(authz.getSession(), sameInstance(session));
+    }
+
+    @Test
+    public void messagesCheckedWithCachedDecisions() {
+        ConnectionAuthz authz = new ConnectionAuthz(session);
+
+        authz.authorize(onUpdate, new ReportUpdate(34));
+        authz.authorize(onUpdate, Json.createObjectBuilder().add("reportId", 34).build());
+        authz.authorize(onUpdate, Map.of("reportId", "34"));
+        Assert.assertThrows(ForbiddenException.class, () -> authz.authorize(onUpdate, new ReportUpdate(35)));
+        Assert.assertThrows(ForbiddenException.class, () -> authz.authorize(onUpdate, Map.of()));
+
+        assertThat(authz.getDecisions(), is(IsEqual.equalTo(4)));
+    }
+
+    @Test
+    public void refreshForgetsDecisions() {
+        ConnectionAuthz authz = new ConnectionAuthz(session);
+        authz.authorize(onUpdate, new ReportUpdate(34));
+
+        assertThat(authz.refresh(authorization(addScopes(addResource("GROUPS:dummy"), Permission.READ),
+                addScopes(addResource("REPORTS:dummy:34"), Permission.UPDATE))).isEmpty(), is(IsEqual.equalTo(true)));
+        assertThat(authz.getDecisions(), is(IsEqual.equalTo(2)));
+        authz.refresh(authorization(addScopes(addResource("GROUPS:dummy"), Permission.READ),
+                addScopes(addResource("REPORTS:dummy:35"), Permission.UPDATE)));
+
+        assertThat(authz.getSession(), not(sameInstance(session)));
+        Assert.assertThrows(ForbiddenException.class, () -> authz.authorize(onUpdate, new ReportUpdate(34)));
+        authz.authorize(onUpdate, new ReportUpdate(35));
+        assertThat(authz.getDecisions(), is(IsEqual.equalTo(3)));
+    }
+
+    @Test
+    public void decisionsAreBounded() {
+        ConnectionAuthz authz = new ConnectionAuthz(session, 2);
+        for (long report = 30; report < 40; report++) {
+            try {
+                authz.authorize(onUpdate, new ReportUpdate(report));
+            } catch (ForbiddenException e) {
+                // only 34 is permitted
+            }
+        }
+        assertThat(authz.getDecisions() <= 2, is(IsEqual.equalTo(true)));
+    }
+
+    @Test
+    public void rolesOfTheSession() throws Exception {
+        Method onAdmin = ReportsEndpoint.class.getMethod("onAdmin", ReportUpdate.class);
+        Method onClose = ReportsEndpoint.class.getMethod("onClose", ReportUpdate.class);
+
+        Assert.assertThrows(ForbiddenException.class, () -> new ConnectionAuthz(session).authorize(onAdmin, null));
+        new ConnectionAuthz(session.withRoles(List.of(BasicRoles.ADMIN))).authorize(onAdmin, null);
+        Assert.assertThrows(ForbiddenException.class, () -> new ConnectionAuthz(session.withRoles(
+                List.of(BasicRoles.ADMIN))).authorize(onClose, null));
+    }
+}
@@ -0,0 +1,108 @@
+package com.github.jcrochavera.jwt.authz.boundary;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ *
+ * @author julio.rocha
+ */
+public class DenialGuardTest {
+    static final long SECOND = Duration.ofSeconds(1).toNanos();
+
+    @Test
+    public void invalidConfiguration() {
+        assertThat(Assert.assertThrows(IllegalArgumentException.class, () -> new DenialGuard(0, Duration.ofSeconds(1)))
+                .getMessage(), is("threshold must be positive"));
+        assertThat(Assert.assertThrows(IllegalArgumentException.class, () -> new DenialGuard(65536, Duration.ofSeconds(1)))
+                .getMessage(), is("threshold must be at most 65535"));
+        assertThat(Assert.assertThrows(IllegalArgumentException.class, () -> new DenialGuard(1, Duration.ZERO))
+                .getMessage(), is("window must be positive"));
+        assertThat(Assert.assertThrows(IllegalArgumentException.class, () -> new DenialGuard(1, Duration.ofSeconds(-1)))
+                .getMessage(), is("window must be positive"));
+        assertThat(Assert.assertThrows(IllegalArgumentException.class, () -> new DenialGuard(1, null))
+                .getMessage(), is("window must be positive"));
+        assertThat(Assert.assertThrows(IllegalArgumentException.class, () -> new DenialGuard(1, Duration.ofSeconds(1), 3))
+                .getMessage(), is("stripes must be a power of two"));
+        assertThat(Assert.assertThrows(IllegalArgumentException.class, () -> new DenialGuard(1, Duration.ofSeconds(1), 0))
+                .getMessage(), is("stripes must be a power of two"));
+    }
+
+    @Test
+    public void blockedWithinTheWindow() throws Exception {
+        AtomicLong clock = new AtomicLong(-SECOND / 2);
+        DenialGuard guard = new DenialGuard(3, Duration.ofSeconds(1), 64, clock::get);
+        Method hello = ResourceTest.class.getMethod("helloTest");
+        Method open = ResourceTest.class.getMethod("openEndpoint");
+
+        guard.recordDenial("dummy", hello);
+        guard.recordDenial("dummy", hello);
+        assertThat(guard.isBlocked("dummy", hello), is(false));
+        guard.recordDenial("dummy", hello);
+        assertThat(guard.isBlocked("dummy", hello), is(true));
+        assertThat(guard.isBlocked("dummy", open), is(false));
+        assertThat(guard.isBlocked("other", hello), is(false));
+
+        clock.addAndGet(SECOND / 2 + SECOND / 4);
+        assertThat(guard.isBlocked("dummy", hello), is(false));
+        guard.recordDenial("dummy", hello);
+        assertThat(guard.isBlocked("dummy", hello), is(true));
+
+        clock.addAndGet(SECOND);
+        assertThat(guard.isBlocked("dummy", hello), is(false));
+        clock.addAndGet(SECOND * 2);
+        assertThat(guard.isBlocked("dummy", hello), is(false));
+    }
+
+    @Test
+    public void stripeOwnedByTheFirstDeniedPair() throws Exception {
+        DenialGuard guard = new DenialGuard(2, Duration.ofSeconds(1), 1, () -> 0L);
+        Method hello = ResourceTest.class.getMethod("helloTest");
+
+        guard.recordDenial("dummy", hello);
+        guard.recordDenial("other", hello);
+        guard.recordDenial("other", hello);
+        guard.recordDenial("dummy", hello);
+
+        assertThat(guard.isBlocked("dummy", hello), is(true));
+        assertThat(guard.isBlocked("other", hello), is(false));
+    }
+
+    @Test
+    public void countSaturates() throws Exception {
+        DenialGuard guard = new DenialGuard(1, Duration.ofSeconds(1), 1, () -> 0L);
+        Method hello = ResourceTest.class.getMethod("helloTest");
+        guard.recordDenial("dummy", hello);
+        guard.slots.set(0, guard.slots.get(0) | 0xFFFF);
+
+        guard.recordDenial("dummy", hello);
+
+        assertThat(guard.slots.get(0) & 0xFFFF, is(0xFFFFL));
+        assertThat(guard.isBlocked("dummy", hello), is(true));
+    }
+
+    @Test
+    public void collidingNamesDoNotBlockEachOther() throws Exception {
+        DenialGuard guard = new DenialGuard(2, Duration.ofSeconds(1), 1, () -> 0L);
+        Method hello = ResourceTest.class.getMethod("helloTest");
+        assertThat("Aa".hashCode(), is("BB".hashCode()));
+
+        guard.recordDenial("Aa", hello);
+        guard.recordDenial("Aa", hello);
+        guard.recordDenial("Aa", hello);
+
+        assertThat(guard.isBlocked("Aa", hello), is(true));
+        assertThat(guard.isBlocked("BB", hello), is(false));
+        assertThat(guard.key("Aa", hello) == guard.key("BB", hello), is(false));
+        assertThat(guard.key("Aa", hello) == new DenialGuard(2, Duration.ofSeconds(1)).key("Aa", hello), is(false));
+        assertThat(guard.key("dummy1234", hello) == guard.key("dummy123", hello), is(false));
+    }
+}
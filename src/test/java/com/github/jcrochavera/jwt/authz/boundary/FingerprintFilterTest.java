@@ -0,0 +1,36 @@
+package com.github.jcrochavera.jwt.authz.boundary;
+
+import com.github.jcrochavera.jwt.authz.control.UserSession;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.core.MultivaluedHashMap;
+import jakarta.ws.rs.core.MultivaluedMap;
+import org.hamcrest.core.IsEqual;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import static com.github.jcrochavera.jwt.authz.control.UserSessionTest.addResource;
+import static com.github.jcrochavera.jwt.authz.control.UserSessionTest.addScopes;
+import static com.github.jcrochavera.jwt.authz.control.UserSessionTest.authorization;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ *
+ * @author julio.rocha
+ */
+public class FingerprintFilterTest {
+    @Test
+    public void headerOfSession() {
+        UserSession session = new UserSession("dummy", authorization(addScopes(addResource("REPORTS:dummy:34"), "r")));
+        MultivaluedMap<String, Object> headers = new MultivaluedHashMap<>();
+        ContainerResponseContext response = Mockito.mock(ContainerResponseContext.class);
+        Mockito.when(response.getHeaders()).thenReturn(headers);
+
+        new FingerprintFilter(AuthorizationPlanTest.clientAuth(null, null)).filter(new StubRequestContext(), response);
+        assertThat(headers.isEmpty(), is(true));
+
+        new FingerprintFilter(AuthorizationPlanTest.clientAuth(session, null)).filter(new StubRequestContext(), response);
+        assertThat(headers.getFirst(FingerprintFilter.HEADER), is(IsEqual.equalTo(session.getFingerprint().toString())));
+    }
+}
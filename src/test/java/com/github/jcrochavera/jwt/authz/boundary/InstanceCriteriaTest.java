@@ -0,0 +1,105 @@
+package com.github.jcrochavera.jwt.authz.boundary;
+
+import com.github.jcrochavera.jwt.authz.control.UserSession;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import org.hamcrest.core.IsEqual;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+
+import static com.github.jcrochavera.jwt.authz.control.UserSessionTest.addResource;
+import static com.github.jcrochavera.jwt.authz.control.UserSessionTest.addScopes;
+import static com.github.jcrochavera.jwt.authz.control.UserSessionTest.authorization;
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ *
+ * @author julio.rocha
+ */
+@SuppressWarnings("unchecked")
+public class InstanceCriteriaTest {
+    static final UUID UUID_INSTANCE = UUID.randomUUID();
+    final CriteriaBuilder cb = Mockito.mock(CriteriaBuilder.class);
+    final Predicate all = Mockito.mock(Predicate.class);
+    final Predicate none = Mockito.mock(Predicate.class);
+    final Predicate in = Mockito.mock(Predicate.class);
+    final Predicate or = Mockito.mock(Predicate.class);
+
+    static UserSession session() {
+        return new UserSession("dummy", authorization(addScopes(addResource("REPORTS:dummy:34"), "r", "x"),
+                addScopes(addResource("REPORTS:dummy:38"), "x"), addScopes(addResource("REPORTS:dummy:report"), "r"),
+                addScopes(addResource("REPORTS:dummy:" + UUID_INSTANCE), "r")));
+    }
+
+    <T> Expression<T> id() {
+        Expression<T> id = Mockito.mock(Expression.class);
+        Mockito.when(id.in(Mockito.any(Collection.class))).thenReturn(in);
+        Mockito.when(cb.conjunction()).thenReturn(all);
+        Mockito.when(cb.disjunction()).thenReturn(none);
+        Mockito.when(cb.or(Mockito.any(Predicate[].class))).thenReturn(or);
+        return id;
+    }
+
+    @Test
+    public void shortCircuits() {
+        assertThat(InstanceCriteria.all().isAll(), is(true));
+        assertThat(InstanceCriteria.all().isNone(), is(false));
+        assertThat(InstanceCriteria.all().getInstances(), nullValue());
+        assertThat(InstanceCriteria.all().toPredicate(cb, id()), sameInstance(all));
+        assertThat(InstanceCriteria.none().isNone(), is(true));
+        assertThat(InstanceCriteria.of(null, "REPORTS", "r").isNone(), is(true));
+        assertThat(InstanceCriteria.of(session(), "REPORTS", "d").isNone(), is(true));
+        assertThat(InstanceCriteria.of(session(), "GROUPS", "r").isNone(), is(true));
+        assertThat(InstanceCriteria.none().toPredicate(cb, id()), sameInstance(none));
+        assertThat(InstanceCriteria.of(session(), "REPORTS", "x").toPredicate(cb, id(), UUID::fromString),
+                sameInstance(none));
+        assertThat(Assert.assertThrows(IllegalArgumentException.class,
+                () -> InstanceCriteria.all().toPredicate(cb, id(), Function.identity(), 0)).getMessage(),
+                is("chunkSize must be positive"));
+    }
+
+    @Test
+    public void inList() {
+        InstanceCriteria criteria = InstanceCriteria.of(session(), "REPORTS", "r");
+        assertThat(criteria.isAll(), is(false));
+        assertThat(criteria.isNone(), is(false));
+        assertThat(criteria.getInstances(), is(IsEqual.equalTo(Set.of("34", "report", UUID_INSTANCE.toString()))));
+
+        Expression<String> strings = id();
+        assertThat(criteria.toPredicate(cb, strings), sameInstance(in));
+        ArgumentCaptor<Collection<?>> values = ArgumentCaptor.forClass(Collection.class);
+        Mockito.verify(strings).in(values.capture());
+        assertThat(Set.copyOf(values.getValue()), is(IsEqual.equalTo(Set.of("34", "report", UUID_INSTANCE.toString()))));
+
+        Expression<Long> longs = id();
+        assertThat(criteria.toPredicate(cb, longs, Long::valueOf), sameInstance(in));
+        Mockito.verify(longs).in(values.capture());
+        assertThat(values.getValue(), is(IsEqual.equalTo(List.of(34L))));
+    }
+
+    @Test
+    public void chunkedInList() {
+        InstanceCriteria criteria = InstanceCriteria.of(session(), "REPORTS", "r");
+        Expression<String> id = id();
+
+        assertThat(criteria.toPredicate(cb, id, Function.identity(), 2), sameInstance(or));
+        ArgumentCaptor<Collection<?>> values = ArgumentCaptor.forClass(Collection.class);
+        Mockito.verify(id, Mockito.times(2)).in(values.capture());
+        assertThat(values.getAllValues().get(0).size(), is(2));
+        assertThat(values.getAllValues().get(1).size(), is(1));
+        ArgumentCaptor<Predicate[]> chunks = ArgumentCaptor.forClass(Predicate[].class);
+        Mockito.verify(cb).or(chunks.capture());
+        assertThat(chunks.getValue().length, is(2));
+    }
+}
@@ -0,0 +1,65 @@
+package com.github.jcrochavera.jwt.authz.boundary;
+
+import com.github.jcrochavera.jwt.authz.annotations.Operation;
+import com.github.jcrochavera.jwt.authz.control.UserSession;
+import org.hamcrest.core.IsEqual;
+import org.junit.Test;
+
+import java.util.UUID;
+
+import static com.github.jcrochavera.jwt.authz.control.UserSessionTest.addResource;
+import static com.github.jcrochavera.jwt.authz.control.UserSessionTest.addScopes;
+import static com.github.jcrochavera.jwt.authz.control.UserSessionTest.authorization;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ *
+ * @author julio.rocha
+ */
+public class InstanceDispatchTest {
+    static final UUID DOCUMENT = UUID.fromString("0f8fad5b-d9cb-469f-a165-70867728950e");
+
+    @Test
+    public void loadedVersion() {
+        String location = InstanceDispatch.class.getResource("InstanceDispatch.class").toString();
+        if (System.getProperty("release", "").equals("21")) {
+            assertThat(location, containsString("META-INF/versions/21/"));
+        } else {
+            assertThat(location, not(containsString("META-INF/versions/")));
+        }
+    }
+
+    @Test
+    public void toInstance() {
+        new InstanceDispatch();
+        assertThat(InstanceDispatch.toInstance(34L), is(IsEqual.equalTo(34L)));
+        assertThat(InstanceDispatch.toInstance(34), is(IsEqual.equalTo(34L)));
+        assertThat(InstanceDispatch.toInstance((short) 34), is(IsEqual.equalTo(34L)));
+        assertThat(InstanceDispatch.toInstance(DOCUMENT), sameInstance(DOCUMENT));
+        assertThat(InstanceDispatch.toInstance(34.5), is(IsEqual.equalTo("34.5")));
+        assertThat(InstanceDispatch.toInstance("abc"), is(IsEqual.equalTo("abc")));
+    }
+
+    @Test
+    public void evaluate() {
+        UserSession session = new UserSession("dummy", authorization(
+                addScopes(addResource("REPORTS:dummy:34"), "r"),
+                addScopes(addResource("REPORTS:dummy:" + DOCUMENT), "r"),
+                addScopes(addResource("REPORTS:dummy:abc"), "r")));
+        AuthorizationPlan.Check read = new AuthorizationPlan.Check("REPORTS", new String[]{"r"}, Operation.AND, "id", 0);
+        AuthorizationPlan.Check write = new AuthorizationPlan.Check("REPORTS", new String[]{"w"}, Operation.AND, "id", 0);
+
+        assertThat(InstanceDispatch.evaluate(read, session, AuthorizationPlan.Check.RESOURCE), is(IsEqual.equalTo(true)));
+        assertThat(InstanceDispatch.evaluate(read, session, 34L), is(IsEqual.equalTo(true)));
+        assertThat(InstanceDispatch.evaluate(read, session, 35L), is(IsEqual.equalTo(false)));
+        assertThat(InstanceDispatch.evaluate(read, session, DOCUMENT), is(IsEqual.equalTo(true)));
+        assertThat(InstanceDispatch.evaluate(read, session, "abc"), is(IsEqual.equalTo(true)));
+        assertThat(InstanceDispatch.evaluate(write, session, AuthorizationPlan.Check.RESOURCE), is(IsEqual.equalTo(false)));
+        assertThat(InstanceDispatch.evaluate(write, session, "abc"), is(IsEqual.equalTo(false)));
+    }
+}
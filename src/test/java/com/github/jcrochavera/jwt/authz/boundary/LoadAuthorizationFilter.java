@@ -0,0 +1,52 @@
+package com.github.jcrochavera.jwt.authz.boundary;
+
+import com.github.jcrochavera.jwt.authz.control.UserSession;
+import jakarta.annotation.Priority;
+import jakarta.json.JsonObject;
+import jakarta.ws.rs.Priorities;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.ResourceInfo;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.ext.Provider;
+import org.eclipse.microprofile.jwt.JsonWebToken;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ * <p>
+ * The filter described in README, the session is built on every request from the claim
+ * of the user sent in {@link #USER_HEADER}, as a request scoped {@link ClientAuthz} does.
+ * </p>
+ *
+ * @author julio.rocha
+ */
+@Provider
+@Priority(Priorities.AUTHORIZATION)
+public class LoadAuthorizationFilter implements ContainerRequestFilter {
+    static final String USER_HEADER = "X-User";
+    @Context
+    ResourceInfo resourceInfo;
+    final JsonObject[] claims;
+
+    LoadAuthorizationFilter(JsonObject[] claims) {
+        this.claims = claims;
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        int user = Integer.parseInt(requestContext.getHeaderString(USER_HEADER));
+        UserSession session = new UserSession("user" + user, claims[user]);
+        AuthorizationFilter af = new AuthorizationFilter(resourceInfo, new ClientAuthz() {
+            @Override
+            public UserSession getSession() {
+                return session;
+            }
+
+            @Override
+            public JsonWebToken getPrincipal() {
+                return null;
+            }
+        });
+        af.filter(requestContext);
+    }
+}
@@ -0,0 +1,156 @@
+package com.github.jcrochavera.jwt.authz.boundary;
+
+import com.github.jcrochavera.jwt.authz.control.RptGenerator;
+import jakarta.json.JsonObject;
+import org.glassfish.jersey.internal.MapPropertiesDelegate;
+import org.glassfish.jersey.server.ApplicationHandler;
+import org.glassfish.jersey.server.ContainerRequest;
+import org.glassfish.jersey.server.ResourceConfig;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.*;
+import java.util.function.IntFunction;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ * <p>
+ * Drives concurrent requests through an in-process Jersey runtime deploying {@link LoadResource}
+ * and {@link LoadAuthorizationFilter}, no container nor network is involved. Every endpoint shape is
+ * measured on its own and reported with its latency percentiles and throughput.
+ * </p>
+ *
+ * @author julio.rocha
+ */
+public class LoadHarness {
+    static final URI BASE = URI.create("http://localhost/");
+    final ApplicationHandler handler;
+    final RptGenerator generator;
+    final int users;
+
+    public LoadHarness(RptGenerator generator, int users) {
+        this.generator = generator;
+        this.users = users;
+        JsonObject[] claims = new JsonObject[users];
+        for (int u = 0; u < users; u++) {
+            claims[u] = generator.authorization("user" + u);
+        }
+        this.handler = new ApplicationHandler(new ResourceConfig(LoadResource.class)
+                .register(new LoadAuthorizationFilter(claims)));
+    }
+
+    /**
+     * @return the endpoint shapes, every one with its path generator and expected status
+     */
+    public List<Shape> shapes() {
+        int instances = Math.max(1, generator.getInstances());
+        return Arrays.asList(
+                new Shape("open", 200, i -> "load/open"),
+                new Shape("resource", 200, i -> "load/reports"),
+                new Shape("instance-allowed", generator.getInstances() > 0 ? 200 : 403,
+                        i -> "load/reports/" + (1 + i % instances)),
+                new Shape("instance-denied", 403, i -> "load/reports/" + (instances + 1 + i)),
+                new Shape("multi-instance", generator.getInstances() > 0 ? 200 : 403,
+                        i -> "load/groups/" + (1 + i % instances) + "/reports/" + (1 + (i * 7) % instances)));
+    }
+
+    int call(String path, int user) throws Exception {
+        ContainerRequest request = new ContainerRequest(BASE, BASE.resolve(path), "GET", null,
+                new MapPropertiesDelegate(), handler.getConfiguration());
+        request.header(LoadAuthorizationFilter.USER_HEADER, String.valueOf(user));
+        return handler.apply(request).get().getStatus();
+    }
+
+    /**
+     * @param shape    endpoint shape under test
+     * @param executor executor running the workers
+     * @param workers  number of concurrent workers
+     * @param requests requests sent by every worker
+     * @return latencies and throughput of the shape
+     */
+    public Report run(Shape shape, ExecutorService executor, int workers, int requests) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<long[]>> results = new ArrayList<>();
+        for (int w = 0; w < workers; w++) {
+            int worker = w;
+            results.add(executor.submit(() -> {
+                long[] latencies = new long[requests];
+                start.await();
+                for (int i = 0; i < requests; i++) {
+                    int request = worker * requests + i;
+                    long begin = System.nanoTime();
+                    int status = call(shape.path.apply(request), request % users);
+                    latencies[i] = status == shape.status ? System.nanoTime() - begin : -1;
+                }
+                return latencies;
+            }));
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        long[] all = new long[workers * requests];
+        int position = 0;
+        for (Future<long[]> result : results) {
+            long[] latencies = result.get(10, TimeUnit.MINUTES);
+            System.arraycopy(latencies, 0, all, position, latencies.length);
+            position += latencies.length;
+        }
+        return new Report(shape.name, all, System.nanoTime() - begin);
+    }
+
+    /**
+     * @return an executor starting a virtual thread per task, null when the runtime does not support them
+     */
+    static ExecutorService virtualThreads() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    public static class Shape {
+        final String name;
+        final int status;
+        final IntFunction<String> path;
+
+        Shape(String name, int status, IntFunction<String> path) {
+            this.name = name;
+            this.status = status;
+            this.path = path;
+        }
+    }
+
+    public static class Report {
+        final String shape;
+        final int requests;
+        final int errors;
+        final long[] latencies;
+        final long elapsed;
+
+        Report(String shape, long[] measured, long elapsed) {
+            this.shape = shape;
+            this.requests = measured.length;
+            this.latencies = Arrays.stream(measured).filter(l -> l >= 0).sorted().toArray();
+            this.errors = requests - latencies.length;
+            this.elapsed = elapsed;
+        }
+
+        long percentile(double percentile) {
+            return latencies.length == 0 ? 0 : latencies[(int) Math.ceil(percentile * latencies.length) - 1];
+        }
+
+        double throughput() {
+            return requests / (elapsed / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%-17s %8d req %6d err %10.0f req/s  p50 %8.1f us  p99 %8.1f us  p999 %8.1f us",
+                    shape, requests, errors, throughput(), percentile(0.5) / 1e3, percentile(0.99) / 1e3,
+                    percentile(0.999) / 1e3);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.github.jcrochavera.jwt.authz.boundary;
+
+import com.github.jcrochavera.jwt.authz.control.RptGenerator;
+import org.hamcrest.core.IsEqual;
+import org.junit.Assume;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ * <p>
+ * Runs {@link LoadHarness}, it is left out of the regular build and runs with the {@code load} profile. The load
+ * is small by default, bigger runs are configured with system properties:
+ * </p>
+ * <pre>
+ *     mvn test -Pload -Dtest=LoadHarnessTest -Dauthz.load.resources=20 -Dauthz.load.instances=1000 \
+ *         -Dauthz.load.scopes=4 -Dauthz.load.users=50 -Dauthz.load.workers=64 -Dauthz.load.requests=5000
+ * </pre>
+ *
+ * @author julio.rocha
+ */
+public class LoadHarnessTest {
+    static Logger LOG = LoggerFactory.getLogger(LoadHarnessTest.class);
+    static final int RESOURCES = Integer.getInteger("authz.load.resources", 5);
+    static final int INSTANCES = Integer.getInteger("authz.load.instances", 50);
+    static final int SCOPES = Integer.getInteger("authz.load.scopes", 4);
+    static final int USERS = Integer.getInteger("authz.load.users", 4);
+    static final int WORKERS = Integer.getInteger("authz.load.workers", 4);
+    static final int REQUESTS = Integer.getInteger("authz.load.requests", 100);
+
+    @Test
+    public void platformThreads() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(WORKERS);
+        try {
+            run("platform", executor);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void virtualThreads() throws Exception {
+        ExecutorService executor = LoadHarness.virtualThreads();
+        Assume.assumeNotNull(executor);
+        try {
+            run("virtual", executor);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void run(String threads, ExecutorService executor) throws Exception {
+        RptGenerator generator = new RptGenerator(RESOURCES, INSTANCES, SCOPES);
+        LoadHarness harness = new LoadHarness(generator, USERS);
+        LOG.info("{} threads, {} workers, {} permission entries per RPT", threads, WORKERS,
+                generator.getPermissionEntries());
+        for (LoadHarness.Shape shape : harness.shapes()) {
+            harness.run(shape, executor, WORKERS, Math.max(1, REQUESTS / 10));
+            LoadHarness.Report report = harness.run(shape, executor, WORKERS, REQUESTS);
+            LOG.info("{}", report);
+            assertThat(report.shape + " unexpected status", report.errors, is(IsEqual.equalTo(0)));
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.github.jcrochavera.jwt.authz.boundary;
+
+import com.github.jcrochavera.jwt.authz.annotations.Operation;
+import com.github.jcrochavera.jwt.authz.annotations.RequiresPermission;
+import com.github.jcrochavera.jwt.authz.annotations.RequiresPermissions;
+import com.github.jcrochavera.jwt.authz.utils.BasicRoles;
+import com.github.jcrochavera.jwt.authz.utils.Permission;
+import jakarta.annotation.security.RolesAllowed;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ * <p>
+ * Same endpoint shapes as {@link ResourceTest} with paths that can be deployed together
+ * </p>
+ *
+ * @author julio.rocha
+ */
+@SuppressWarnings("unused")
+@Path("/load")
+public class LoadResource {
+
+    @GET
+    @Path("/open")
+    @Produces(MediaType.TEXT_PLAIN)
+    public String openEndpoint() {
+        return "Hello";
+    }
+
+    @GET
+    @Path("/reports")
+    @Produces(MediaType.TEXT_PLAIN)
+    @RolesAllowed(BasicRoles.USER)
+    @RequiresPermissions(permissions = {
+            @RequiresPermission(resource = "REPORTS", value = {Permission.READ})
+    })
+    public String reports() {
+        return "Hello";
+    }
+
+    @GET
+    @Path("/reports/{id}")
+    @Produces(MediaType.TEXT_PLAIN)
+    @RolesAllowed(BasicRoles.USER)
+    @RequiresPermissions(permissions = {
+            @RequiresPermission(resource = "REPORTS", instance = "id",
+                    value = {Permission.READ, Permission.EXECUTE},
+                    operation = Operation.AND
+            )
+    })
+    public String report(@PathParam("id") String id) {
+        return "Hello";
+    }
+
+    @GET
+    @Path("/groups/{idGroups}/reports/{idReports}")
+    @Produces(MediaType.TEXT_PLAIN)
+    @RolesAllowed(BasicRoles.USER)
+    @RequiresPermissions(permissions = {
+            @RequiresPermission(resource = "REPORTS", instance = "idReports",
+                    value = {Permission.READ, Permission.EXECUTE},
+                    operation = Operation.AND
+            ),
+            @RequiresPermission(resource = "GROUPS", instance = "idGroups",
+                    value = {Permission.DELETE, Permission.READ},
+                    operation = Operation.OR
+            )
+    })
+    public String groupReport(@PathParam("idReports") String idReports, @PathParam("idGroups") String idGroups) {
+        return "Hello";
+    }
+}
@@ -0,0 +1,95 @@
+package com.github.jcrochavera.jwt.authz.boundary;
+
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import org.hamcrest.core.IsEqual;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ *
+ * @author julio.rocha
+ */
+public class MessageFieldsTest {
+    static final UUID DOCUMENT = UUID.fromString("0f8fad5b-d9cb-469f-a165-70867728950e");
+
+    @SuppressWarnings("unused")
+    public static class Message {
+        public static String type = "update";
+        public String name = "report";
+
+        public UUID document() {
+            return DOCUMENT;
+        }
+
+        public int getGroupId() {
+            return 3;
+        }
+
+        public String getBroken() {
+            throw new IllegalStateException("broken");
+        }
+
+        public String get() {
+            return "get";
+        }
+
+        public String find(String name) {
+            return name;
+        }
+
+        public void touch() {
+        }
+
+        public static String kind() {
+            return "update";
+        }
+    }
+
+    @Test
+    public void fieldsOfObjects() {
+        new MessageFields();
+        Message message = new Message();
+
+        assertThat(MessageFields.get(message, "name"), is("report"));
+        assertThat(MessageFields.get(message, "document"), is(DOCUMENT));
+        assertThat(MessageFields.get(message, "groupId"), is(3));
+        assertThat(MessageFields.get(message, "getGroupId"), is(3));
+        assertThat(MessageFields.get(message, "get"), is("get"));
+        assertThat(MessageFields.get(message, "type"), nullValue());
+        assertThat(MessageFields.get(message, "find"), nullValue());
+        assertThat(MessageFields.get(message, "touch"), nullValue());
+        assertThat(MessageFields.get(message, "kind"), nullValue());
+        assertThat(MessageFields.get(message, "hashCode"), nullValue());
+        assertThat(MessageFields.get(null, "name"), nullValue());
+        String error = Assert.assertThrows(IllegalStateException.class, () -> MessageFields.get(message, "broken"))
+                .getMessage();
+        assertThat(error, is("Field 'broken' of " + Message.class.getName() + " cannot be read"));
+    }
+
+    @Test
+    public void fieldsOfJsonAndMaps() {
+        JsonObject message = Json.createObjectBuilder().add("id", 34).add("ratio", 1.5).add("name", "report")
+                .addNull("none").add("tags", Json.createArrayBuilder().add("a"))
+                .add("overflow", new BigInteger("18446744073709551650")).add("min", Long.MIN_VALUE).build();
+
+        assertThat(MessageFields.get(message, "id"), is(IsEqual.equalTo(34L)));
+        assertThat(MessageFields.get(message, "overflow"), is("18446744073709551650"));
+        assertThat(MessageFields.get(message, "min"), is(IsEqual.equalTo(Long.MIN_VALUE)));
+        assertThat(MessageFields.get(message, "ratio"), is("1.5"));
+        assertThat(MessageFields.get(message, "name"), is("report"));
+        assertThat(MessageFields.get(message, "none"), nullValue());
+        assertThat(MessageFields.get(message, "missing"), nullValue());
+        assertThat(MessageFields.get(message, "tags"), is("[\"a\"]"));
+        assertThat(MessageFields.get(Map.of("id", 34L), "id"), is(IsEqual.equalTo(34L)));
+    }
+}
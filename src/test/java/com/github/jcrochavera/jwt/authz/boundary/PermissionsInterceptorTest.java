@@ -0,0 +1,178 @@
+package com.github.jcrochavera.jwt.authz.boundary;
+
+import com.github.jcrochavera.jwt.authz.annotations.Operation;
+import com.github.jcrochavera.jwt.authz.annotations.RequiresPermission;
+import com.github.jcrochavera.jwt.authz.annotations.RequiresPermissions;
+import com.github.jcrochavera.jwt.authz.control.UserSession;
+import com.github.jcrochavera.jwt.authz.utils.BasicRoles;
+import com.github.jcrochavera.jwt.authz.utils.Permission;
+import jakarta.annotation.security.RolesAllowed;
+import jakarta.enterprise.context.ContextNotActiveException;
+import jakarta.enterprise.context.RequestScoped;
+import jakarta.enterprise.context.spi.Context;
+import jakarta.enterprise.inject.spi.BeanManager;
+import jakarta.inject.Named;
+import jakarta.interceptor.InvocationContext;
+import jakarta.ws.rs.ForbiddenException;
+import jakarta.ws.rs.NotAuthorizedException;
+import jakarta.ws.rs.PathParam;
+import org.hamcrest.core.IsEqual;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.Set;
+import java.util.UUID;
+
+import static com.github.jcrochavera.jwt.authz.boundary.AuthorizationPlanTest.clientAuth;
+import static com.github.jcrochavera.jwt.authz.control.UserSessionTest.addResource;
+import static com.github.jcrochavera.jwt.authz.control.UserSessionTest.addScopes;
+import static com.github.jcrochavera.jwt.authz.control.UserSessionTest.authorization;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ *
+ * @author julio.rocha
+ */
+public class PermissionsInterceptorTest {
+    static final UUID DOCUMENT = UUID.fromString("0f8fad5b-d9cb-469f-a165-70867728950e");
+
+    @SuppressWarnings("unused")
+    public static class ReportService {
+        @RequiresPermissions(permissions = {
+                @RequiresPermission(resource = "GROUPS", value = Permission.READ),
+                @RequiresPermission(resource = "REPORTS", instance = "reportId", value = Permission.READ)
+        })
+        public String find(@Named("reportId") long reportId) {
+            return "report";
+        }
+
+        @RequiresPermissions(permissions = @RequiresPermission(resource = "REPORTS", instance = "id", value = Permission.READ))
+        public String findByName(@PathParam("id") String id) {
+            return "report";
+        }
+
+        @RequiresPermissions(permissions = @RequiresPermission(resource = "DOCUMENTS", instance = "id", value = Permission.READ))
+        public String document(@Named("id") UUID id) {
+            return "document";
+        }
+
+        @RequiresPermissions(permissions = @RequiresPermission(resource = "REPORTS", instance = "missing", value = Permission.READ))
+        public String unbound(String id) {
+            return "report";
+        }
+
+        @RolesAllowed(BasicRoles.ADMIN)
+        public String admin() {
+            return "admin";
+        }
+    }
+
+    PermissionsInterceptor interceptor;
+    UserSession session;
+    Context requestContext;
+
+    @Before
+    public void setUp() {
+        session = Mockito.spy(new UserSession("dummy", authorization(addScopes(addResource("GROUPS:dummy"), Permission.READ),
+                addScopes(addResource("REPORTS:dummy:34"), Permission.READ),
+                addScopes(addResource("DOCUMENTS:dummy:" + DOCUMENT), Permission.READ))));
+        requestContext = Mockito.mock(Context.class);
+        Mockito.when(requestContext.isActive()).thenReturn(true);
+        interceptor = new PermissionsInterceptor() {
+        };
+        interceptor.clientAuth = clientAuth(session, Set.of(BasicRoles.USER));
+        interceptor.memo = new DecisionMemo();
+        interceptor.beanManager = Mockito.mock(BeanManager.class);
+        Mockito.when(interceptor.beanManager.getContext(RequestScoped.class)).thenReturn(requestContext);
+    }
+
+    Object invoke(String method, Class<?> parameterType, Object argument) throws Exception {
+        InvocationContext context = Mockito.mock(InvocationContext.class);
+        Mockito.when(context.getMethod()).thenReturn(parameterType == null ? ReportService.class.getMethod(method)
+                : ReportService.class.getMethod(method, parameterType));
+        Mockito.when(context.getParameters()).thenReturn(parameterType == null ? new Object[0] : new Object[]{argument});
+        Mockito.when(context.proceed()).thenReturn(method);
+        return interceptor.authorize(context);
+    }
+
+    @Test
+    public void instancesBoundFromParameters() throws Exception {
+        assertThat(invoke("find", long.class, 34L), is(IsEqual.equalTo("find")));
+        assertThat(invoke("findByName", String.class, "34"), is(IsEqual.equalTo("findByName")));
+        assertThat(invoke("document", UUID.class, DOCUMENT), is(IsEqual.equalTo("document")));
+        Assert.assertThrows(ForbiddenException.class, () -> invoke("find", long.class, 35L));
+        Assert.assertThrows(ForbiddenException.class, () -> invoke("document", UUID.class, UUID.randomUUID()));
+        Assert.assertThrows(ForbiddenException.class, () -> invoke("findByName", String.class, null));
+        Assert.assertThrows(ForbiddenException.class, () -> invoke("unbound", String.class, "34"));
+        Assert.assertThrows(ForbiddenException.class, () -> invoke("admin", null, null));
+        interceptor.clientAuth = clientAuth(null, Set.of(BasicRoles.ADMIN));
+        assertThat(invoke("admin", null, null), is(IsEqual.equalTo("admin")));
+        Assert.assertThrows(NotAuthorizedException.class, () -> invoke("find", long.class, 34L));
+    }
+
+    @Test
+    public void rolesLeftToTheContainer() throws Exception {
+        PermissionsInterceptor permissionsOnly = new PermissionsInterceptor() {
+            @Override
+            protected boolean isEvaluateRoles() {
+                return false;
+            }
+        };
+        permissionsOnly.clientAuth = interceptor.clientAuth;
+        permissionsOnly.memo = interceptor.memo;
+        permissionsOnly.beanManager = interceptor.beanManager;
+        interceptor = permissionsOnly;
+
+        assertThat(invoke("admin", null, null), is(IsEqual.equalTo("admin")));
+        Assert.assertThrows(ForbiddenException.class, () -> invoke("find", long.class, 35L));
+    }
+
+    @Test
+    public void checksEqualAcrossMethods() throws Exception {
+        AuthorizationPlan find = AuthorizationPlan.of(ReportService.class.getMethod("find", long.class));
+        AuthorizationPlan findByName = AuthorizationPlan.of(ReportService.class.getMethod("findByName", String.class));
+        AuthorizationPlan document = AuthorizationPlan.of(ReportService.class.getMethod("document", UUID.class));
+
+        assertThat(find.checks[1].parameter, is(0));
+        assertThat(AuthorizationPlan.of(ReportService.class.getMethod("unbound", String.class)).checks[0].parameter, is(-1));
+        assertThat(find.checks[1], is(IsEqual.equalTo(findByName.checks[0])));
+        assertThat(find.checks[1].hashCode(), is(findByName.checks[0].hashCode()));
+        assertThat(find.checks[0].equals(find.checks[1]), is(false));
+        assertThat(find.checks[1].equals(document.checks[0]), is(false));
+        assertThat(find.checks[1].equals(find), is(false));
+    }
+
+    @Test
+    public void repeatedChecksAreMemoized() throws Exception {
+        invoke("find", long.class, 34L);
+        invoke("find", long.class, 34L);
+        Assert.assertThrows(ForbiddenException.class, () -> invoke("find", long.class, 35L));
+        Assert.assertThrows(ForbiddenException.class, () -> invoke("find", long.class, 35L));
+        invoke("findByName", String.class, "34");
+
+        assertThat(interceptor.memo.size(), is(4));
+        Mockito.verify(session, Mockito.times(1)).hasPermissions("GROUPS", Operation.AND, Permission.READ);
+        Mockito.verify(session, Mockito.times(1)).hasInstancePermissions("REPORTS", 34L, Operation.AND, Permission.READ);
+        Mockito.verify(session, Mockito.times(1)).hasInstancePermissions("REPORTS", 35L, Operation.AND, Permission.READ);
+
+        UserSession refreshed = new UserSession("dummy", authorization(addScopes(addResource("GROUPS:dummy"), Permission.READ)));
+        interceptor.clientAuth = clientAuth(refreshed, Set.of());
+        Assert.assertThrows(ForbiddenException.class, () -> invoke("find", long.class, 34L));
+        assertThat(interceptor.memo.size(), is(2));
+    }
+
+    @Test
+    public void evaluatedWithoutRequest() throws Exception {
+        Mockito.when(requestContext.isActive()).thenReturn(false);
+        invoke("find", long.class, 34L);
+        Mockito.when(interceptor.beanManager.getContext(RequestScoped.class)).thenThrow(new ContextNotActiveException());
+        invoke("find", long.class, 34L);
+
+        assertThat(interceptor.memo.size(), is(0));
+        Mockito.verify(session, Mockito.times(2)).hasInstancePermissions("REPORTS", 34L, Operation.AND, Permission.READ);
+    }
+}
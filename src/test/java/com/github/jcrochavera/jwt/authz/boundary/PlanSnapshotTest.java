@@ -0,0 +1,102 @@
+package com.github.jcrochavera.jwt.authz.boundary;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ *
+ * @author julio.rocha
+ */
+public class PlanSnapshotTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void plansCompiledOnStartup() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("plans.snapshot");
+        ClassLoader loader = getClass().getClassLoader();
+        Method find = PermissionsInterceptorTest.ReportService.class.getMethod("find", long.class);
+        Method report = ResourceTest.class.getMethod("helloTest3", String.class, String.class);
+        AuthorizationPlan.of(find);
+        AuthorizationPlan.of(report);
+
+        assertThat(PlanSnapshot.read(file, loader), is(0));
+        int written = PlanSnapshot.write(file);
+        AuthorizationPlan.compiled().remove(find);
+        AuthorizationPlan.compiled().remove(report);
+
+        assertThat(PlanSnapshot.read(file, loader), is(written));
+        assertThat(AuthorizationPlan.compiled().contains(find), is(true));
+        assertThat(AuthorizationPlan.compiled().contains(report), is(true));
+    }
+
+    @Test
+    public void methodsThatDoNotExistAreSkipped() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(PlanSnapshot.MAGIC);
+        out.writeByte(PlanSnapshot.VERSION);
+        out.writeInt(3);
+        out.writeUTF("com.example.Missing");
+        out.writeUTF("find");
+        out.writeByte(0);
+        out.writeUTF(ResourceTest.class.getName());
+        out.writeUTF("missing");
+        out.writeByte(1);
+        out.writeUTF("int");
+        out.writeUTF(ResourceTest.class.getName());
+        out.writeUTF("openEndpoint");
+        out.writeByte(0);
+
+        assertThat(PlanSnapshot.decode(new ByteArrayInputStream(bytes.toByteArray()), getClass().getClassLoader()), is(1));
+    }
+
+    @Test
+    public void invalidContent() throws Exception {
+        byte[] encoded = PlanSnapshot.encode();
+        ClassLoader loader = getClass().getClassLoader();
+        assertThat(Assert.assertThrows(IllegalArgumentException.class, () -> PlanSnapshot.decode(
+                new ByteArrayInputStream(new byte[9]), loader)).getMessage(), is("Content is not a plan snapshot"));
+        encoded[4] = 2;
+        assertThat(Assert.assertThrows(IllegalArgumentException.class, () -> PlanSnapshot.decode(
+                new ByteArrayInputStream(encoded), loader)).getMessage(), is("Unsupported plan snapshot version 2"));
+    }
+
+    @Test
+    public void invalidFilesAreDiscarded() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("plans.snapshot");
+        ClassLoader loader = getClass().getClassLoader();
+        AuthorizationPlan.of(ResourceTest.class.getMethod("helloTest3", String.class, String.class));
+        PlanSnapshot.write(file);
+        byte[] encoded = Files.readAllBytes(file);
+
+        Files.write(file, Arrays.copyOf(encoded, encoded.length - 3));
+        assertThat(PlanSnapshot.read(file, loader), is(0));
+        Files.write(file, Arrays.copyOf(encoded, 7));
+        assertThat(PlanSnapshot.read(file, loader), is(0));
+        Files.write(file, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9});
+        assertThat(PlanSnapshot.read(file, loader), is(0));
+
+        ByteBuffer.wrap(encoded).putInt(5, -1);
+        Files.write(file, encoded);
+        assertThat(PlanSnapshot.read(file, loader), is(0));
+        ByteBuffer.wrap(encoded).putInt(5, PlanSnapshot.MAX_METHODS + 1);
+        assertThat(Assert.assertThrows(IllegalArgumentException.class, () -> PlanSnapshot.decode(
+                new ByteArrayInputStream(encoded), loader)).getMessage(), is("Plan snapshot is corrupt"));
+    }
+}
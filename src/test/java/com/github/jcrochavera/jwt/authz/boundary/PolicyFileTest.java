@@ -0,0 +1,180 @@
+package com.github.jcrochavera.jwt.authz.boundary;
+
+import com.github.jcrochavera.jwt.authz.annotations.Operation;
+import com.github.jcrochavera.jwt.authz.control.UserSessionOptions;
+import com.github.jcrochavera.jwt.authz.utils.Permission;
+import org.hamcrest.core.IsEqual;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ *
+ * @author julio.rocha
+ */
+public class PolicyFileTest {
+    static final String POLICY = "{\"endpoints\": ["
+            + "{\"method\": \"" + ResourceTest.class.getName() + "#openEndpoint\","
+            + " \"permissions\": [{\"resource\": \"GROUPS\", \"scopes\": [\"r\", \"x\"], \"operation\": \"OR\"}]},"
+            + "{\"path\": \"GET /test/{id}\","
+            + " \"permissions\": [{\"resource\": \"REPORTS\", \"instance\": \"id\", \"scopes\": [\"d\"]}]},"
+            + "{\"path\": \"POST /test/comments\","
+            + " \"permissions\": [{\"resource\": \"REPORTS\", \"bodyField\": \"id\", \"scopes\": [\"c\"]}]}"
+            + "]}";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void pathTemplates() throws Exception {
+        assertThat(PolicyFile.path(ResourceTest.class.getMethod("openEndpoint")), is("GET /test"));
+        assertThat(PolicyFile.path(ResourceTest.class.getMethod("helloTest1", String.class)), is("GET /test/{id}"));
+        assertThat(PolicyFile.path(ResourceTest.class.getMethod("helloTest3", String.class, String.class)),
+                is("GET /test/groups/{idGroups}/reports/{idReports}"));
+        assertThat(PolicyFile.path(LoadResource.class.getMethod("report", String.class)), is("GET /load/reports/{id}"));
+        assertThat(PolicyFile.path(Object.class.getMethod("toString")), nullValue());
+    }
+
+    @Test
+    public void policyReplacesAnnotatedPermissions() throws Exception {
+        Path file = folder.newFile("policy.json").toPath();
+        Files.writeString(file, POLICY);
+        Method open = ResourceTest.class.getMethod("openEndpoint");
+        Method byId = ResourceTest.class.getMethod("helloTest1", String.class);
+        AuthorizationPlan annotated = AuthorizationPlan.of(byId);
+        PolicyFile policy = new PolicyFile(file, List.of(ResourceTest.class));
+        try {
+            assertThat(policy.reload(), is(true));
+
+            AuthorizationPlan openPlan = AuthorizationPlan.of(open);
+            assertThat(openPlan.checks.length, is(1));
+            assertThat(openPlan.checks[0].resource, is("GROUPS"));
+            assertThat(openPlan.checks[0].permissions, is(IsEqual.equalTo(new String[]{"r", "x"})));
+            assertThat(openPlan.checks[0].operation, is(Operation.OR));
+            AuthorizationPlan byIdPlan = AuthorizationPlan.of(byId);
+            assertThat(byIdPlan.rolesAllowed, is(IsEqual.equalTo(annotated.rolesAllowed)));
+            assertThat(byIdPlan.checks.length, is(1));
+            assertThat(byIdPlan.checks[0].permissions, is(IsEqual.equalTo(new String[]{Permission.DELETE})));
+            assertThat(byIdPlan.checks[0].operation, is(Operation.AND));
+            assertThat(byIdPlan.checks[0].parameter, is(0));
+            AuthorizationPlan commentPlan = AuthorizationPlan.of(ResourceTest.class.getMethod("comment", String.class,
+                    Map.class));
+            assertThat(commentPlan.checks[0].body, is(true));
+            assertThat(commentPlan.bodyFields, is(IsEqual.equalTo(Set.of("id"))));
+
+            Files.writeString(file, "{\"endpoints\": [{\"method\": 3}]}");
+            assertThat(policy.reload(), is(false));
+            assertThat(AuthorizationPlan.of(byId), sameInstance(byIdPlan));
+            assertThat(policy.getVersion(), is(1L));
+        } finally {
+            policy.close();
+        }
+        assertThat(AuthorizationPlan.of(byId), sameInstance(annotated));
+    }
+
+    @Test
+    public void changesAreWatched() throws Exception {
+        Path file = folder.newFile("watched.json").toPath();
+        Files.writeString(file, "{\"endpoints\": []}");
+        Method open = ResourceTest.class.getMethod("openEndpoint");
+        try (PolicyFile policy = PolicyFile.watch(file, List.of(ResourceTest.class))) {
+            assertThat(policy.getVersion(), is(1L));
+            assertThat(AuthorizationPlan.of(open).requiresPermissions(), is(false));
+            Files.writeString(folder.newFile("other.json").toPath(), POLICY);
+            Files.writeString(file, POLICY);
+
+            for (int i = 0; i < 200 && policy.getVersion() == 1L; i++) {
+                Thread.sleep(50);
+            }
+
+            assertThat(AuthorizationPlan.of(open).requiresPermissions(), is(true));
+        }
+        assertThat(AuthorizationPlan.of(open).requiresPermissions(), is(false));
+    }
+
+    @Test
+    public void unmatchedEndpointsKeepTheCurrentPolicy() throws Exception {
+        Path file = folder.newFile("policy.json").toPath();
+        Files.writeString(file, POLICY);
+        Method open = ResourceTest.class.getMethod("openEndpoint");
+        try (PolicyFile policy = new PolicyFile(file, List.of(ResourceTest.class))) {
+            assertThat(policy.reload(), is(true));
+            AuthorizationPlan openPlan = AuthorizationPlan.of(open);
+
+            Files.writeString(file, "{\"endpoints\": ["
+                    + "{\"method\": \"" + ResourceTest.class.getName() + "#openEndpoint\", \"permissions\": []},"
+                    + "{\"method\": \"" + ResourceTest.class.getName() + "#removed\", \"permissions\": []},"
+                    + "{\"path\": \"GET /tests/{id}\", \"permissions\": []}]}");
+
+            assertThat(policy.reload(), is(false));
+            assertThat(AuthorizationPlan.of(open), sameInstance(openPlan));
+            assertThat(policy.getVersion(), is(1L));
+        }
+    }
+
+    @Test
+    public void resourcesOfThePolicyAreIndexed() throws Exception {
+        Path file = folder.newFile("policy.json").toPath();
+        Files.writeString(file, POLICY);
+        UserSessionOptions defaults = UserSessionOptions.defaults();
+        UserSessionOptions.setDefaults(defaults.withResources(Set.of("GROUPS")));
+        try (PolicyFile policy = new PolicyFile(file, List.of(ResourceTest.class))) {
+            assertThat(policy.reload(), is(true));
+            assertThat(UserSessionOptions.defaults().getResources(), is(Set.of("GROUPS", "REPORTS")));
+
+            UserSessionOptions indexed = UserSessionOptions.defaults();
+            assertThat(policy.reload(), is(true));
+            assertThat(UserSessionOptions.defaults(), sameInstance(indexed));
+
+            UserSessionOptions.setDefaults(defaults.withAllResources());
+            assertThat(policy.reload(), is(true));
+            assertThat(UserSessionOptions.defaults().getResources(), nullValue());
+        } finally {
+            UserSessionOptions.setDefaults(defaults);
+        }
+    }
+
+    @Test
+    public void swappedSymbolicLinksAreWatched() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        Path first = Files.createDirectory(directory.resolve("..2026_10_18_first"));
+        Files.writeString(first.resolve("policy.json"), "{\"endpoints\": []}");
+        Files.createSymbolicLink(directory.resolve("..data"), first.getFileName());
+        Path file = Files.createSymbolicLink(directory.resolve("policy.json"), Path.of("..data", "policy.json"));
+        Method open = ResourceTest.class.getMethod("openEndpoint");
+        try (PolicyFile policy = PolicyFile.watch(file, List.of(ResourceTest.class))) {
+            assertThat(policy.getVersion(), is(1L));
+            Path second = Files.createDirectory(directory.resolve("..2026_10_18_second"));
+            Files.writeString(second.resolve("policy.json"), POLICY);
+            Path swap = Files.createSymbolicLink(directory.resolve("..data_tmp"), second.getFileName());
+            Files.move(swap, directory.resolve("..data"), StandardCopyOption.ATOMIC_MOVE);
+
+            for (int i = 0; i < 200 && policy.getVersion() == 1L; i++) {
+                Thread.sleep(50);
+            }
+
+            assertThat(AuthorizationPlan.of(open).requiresPermissions(), is(true));
+        }
+    }
+
+    @Test
+    public void unreadableFilesHaveNoStamp() {
+        PolicyFile policy = new PolicyFile(folder.getRoot().toPath().resolve("missing.json"), List.of());
+        assertThat(policy.stamp(), nullValue());
+        assertThat(policy.reload(), is(false));
+    }
+}
@@ -0,0 +1,31 @@
+package com.github.jcrochavera.jwt.authz.boundary;
+
+import org.hamcrest.core.IsEqual;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ *
+ * @author julio.rocha
+ */
+public class ReferencedResourcesTest {
+    public static class ExtendedResource extends AuthorizationPlanTest.AdminResource {
+    }
+
+    @Test
+    public void resourcesOfAnnotatedMethods() {
+        new ReferencedResources();
+        assertThat(ReferencedResources.of(ResourceTest.class), is(IsEqual.equalTo(Set.of("REPORTS", "GROUPS"))));
+        assertThat(ReferencedResources.of(List.of(ExtendedResource.class, String.class, Object.class)),
+                is(IsEqual.equalTo(Set.of("REPORTS", "GROUPS"))));
+        assertThat(ReferencedResources.of(StubResourceInfo.class, Runnable.class).isEmpty(), is(true));
+        assertThat(ReferencedResources.of(AuthorizationFeatureTest.GroupsResource.class),
+                is(IsEqual.equalTo(Set.of("GROUPS"))));
+    }
+}
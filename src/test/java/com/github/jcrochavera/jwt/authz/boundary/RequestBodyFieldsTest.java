@@ -0,0 +1,175 @@
+package com.github.jcrochavera.jwt.authz.boundary;
+
+import jakarta.ws.rs.ForbiddenException;
+import jakarta.ws.rs.WebApplicationException;
+import org.hamcrest.core.IsEqual;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ *
+ * @author julio.rocha
+ */
+public class RequestBodyFieldsTest {
+    static String replayed(StubRequestContext requestContext) throws Exception {
+        return new String(requestContext.getEntityStream().readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void readsTheTopLevelObject() throws Exception {
+        new RequestBodyFields();
+        String entity = "{\"reportId\": 34, \"data\": \"" + String.join("", Collections.nCopies(1 << 16, "x")) + "\"}";
+        ByteArrayInputStream stream = new ByteArrayInputStream(entity.getBytes(StandardCharsets.UTF_8));
+        StubRequestContext requestContext = new StubRequestContext();
+        requestContext.setEntityStream(stream);
+
+        assertThat(RequestBodyFields.read(requestContext, Set.of("reportId")),
+                is(IsEqual.equalTo(Map.of("reportId", "34"))));
+        assertThat(stream.available() > 0, is(true));
+        assertThat(replayed(requestContext), is(entity));
+    }
+
+    @Test
+    public void fields() throws Exception {
+        String entity = "{\"a\": {\"id\": 1}, \"b\": [{\"id\": 2}], \"id\": \"3\", \"flag\": true, \"none\": null,"
+                + " \"amount\": 4.5, \"other\": 5}";
+        StubRequestContext requestContext = AuthorizationPlanTest.withEntity(entity);
+        Map<String, String> expected = new HashMap<>();
+        expected.put("id", "3");
+        expected.put("flag", null);
+        expected.put("none", null);
+        expected.put("amount", "4.5");
+
+        assertThat(RequestBodyFields.read(requestContext, Set.of("id", "flag", "none", "amount", "missing")),
+                is(IsEqual.equalTo(expected)));
+        assertThat(replayed(requestContext), is(entity));
+    }
+
+    @Test
+    public void entitiesWithoutFields() throws Exception {
+        assertThat(RequestBodyFields.read(new StubRequestContext(), Set.of("id")), is(IsEqual.equalTo(Map.of())));
+        for (String entity : new String[]{"", "[{\"id\": 1}]", "{\"id\" 1}", "{\"a\": 1, \"id\""}) {
+            StubRequestContext requestContext = AuthorizationPlanTest.withEntity(entity);
+            assertThat(entity, RequestBodyFields.read(requestContext, Set.of("id")), is(IsEqual.equalTo(Map.of())));
+            assertThat(replayed(requestContext), is(entity));
+        }
+        // the rest of the entity is left to the deserializer
+        StubRequestContext requestContext = AuthorizationPlanTest.withEntity("{\"id\": 1, \"a\"");
+        assertThat(RequestBodyFields.read(requestContext, Set.of("id")), is(IsEqual.equalTo(Map.of("id", "1"))));
+        assertThat(replayed(requestContext), is("{\"id\": 1, \"a\""));
+    }
+
+    @Test
+    public void repeatedFieldsAreForbidden() throws Exception {
+        String entity = "{\"reportId\": 34, \"data\": {\"reportId\": 1}, \"reportId\": 35}";
+        Assert.assertThrows(ForbiddenException.class,
+                () -> RequestBodyFields.read(AuthorizationPlanTest.withEntity(entity), Set.of("reportId", "missing")));
+        StubRequestContext requestContext = AuthorizationPlanTest.withEntity(entity);
+        assertThat(RequestBodyFields.read(requestContext, Set.of("reportId")),
+                is(IsEqual.equalTo(Map.of("reportId", "34"))));
+        Assert.assertThrows(ForbiddenException.class, () -> replayed(requestContext));
+
+        StubRequestContext data = AuthorizationPlanTest.withEntity(entity);
+        assertThat(RequestBodyFields.read(data, Set.of("data")), is(IsEqual.equalTo(
+                Collections.singletonMap("data", null))));
+        assertThat(replayed(data), is(entity));
+    }
+
+    @Test
+    public void repeatedFieldsAreForbiddenAfterParsingStops() throws Exception {
+        for (String entity : new String[]{
+                "{\"reportId\": 34, \"text\": \"\\\"reportId\\\": 1\", \"reportId\": 35}",
+                "{\"reportId\": 34, \"list\": [{\"a\": 1}, \"x\"], \"report\\u0049d\": 35}"}) {
+            StubRequestContext requestContext = AuthorizationPlanTest.withEntity(entity);
+            assertThat(RequestBodyFields.read(requestContext, Set.of("reportId")),
+                    is(IsEqual.equalTo(Map.of("reportId", "34"))));
+            InputStream replay = requestContext.getEntityStream();
+            Assert.assertThrows(entity, ForbiddenException.class, () -> {
+                while (replay.read() >= 0) {
+                    replay.skip(1);
+                }
+            });
+        }
+        String entity = "{\"reportId\": 34, \"nested\": {\"reportId\": 1, \"list\": [\"reportId\"]},"
+                + " \"reportIds\": [35], \"value\": \"reportId\", \"\\\\\": 1}";
+        StubRequestContext requestContext = AuthorizationPlanTest.withEntity(entity);
+        assertThat(RequestBodyFields.read(requestContext, Set.of("reportId")),
+                is(IsEqual.equalTo(Map.of("reportId", "34"))));
+        assertThat(requestContext.getEntityStream().markSupported(), is(false));
+        assertThat(requestContext.getEntityStream().skip(0), is(0L));
+        assertThat(replayed(requestContext), is(entity));
+    }
+
+    @Test
+    public void escapedKeys() {
+        assertThat(RequestBodyFields.RepeatedFieldGuard.unescape("id"), is("id"));
+        assertThat(RequestBodyFields.RepeatedFieldGuard.unescape("\\u0069\\d\\\"\\\\\\/"), is("id\"\\/"));
+        assertThat(RequestBodyFields.RepeatedFieldGuard.unescape("\\b\\f\\n\\r\\t"), is("\b\f\n\r\t"));
+        assertThat(RequestBodyFields.RepeatedFieldGuard.unescape("\\uzzzz\\u00\\"), is("\\uzzzz\\u00\\"));
+    }
+
+    @Test
+    public void fieldsBeyondTheLimit() throws Exception {
+        String entity = "{\"data\": \"" + String.join("", Collections.nCopies(64, "x")) + "\", \"reportId\": 34}";
+        int limit = RequestBodyFields.limit;
+        try {
+            AuthorizationFilter.setBodyFieldsLimit(32);
+            WebApplicationException exceeded = Assert.assertThrows(WebApplicationException.class,
+                    () -> RequestBodyFields.read(AuthorizationPlanTest.withEntity(entity), Set.of("reportId")));
+            assertThat(exceeded.getResponse().getStatus(), is(413));
+            String first = "{\"reportId\": 34, \"data\": \"" + String.join("", Collections.nCopies(64, "x")) + "\"}";
+            StubRequestContext requestContext = AuthorizationPlanTest.withEntity(first);
+            assertThat(RequestBodyFields.read(requestContext, Set.of("reportId")),
+                    is(IsEqual.equalTo(Map.of("reportId", "34"))));
+            assertThat(replayed(requestContext), is(first));
+
+            AuthorizationFilter.setBodyFieldsLimit(entity.length());
+            requestContext = AuthorizationPlanTest.withEntity(entity);
+            assertThat(RequestBodyFields.read(requestContext, Set.of("reportId")),
+                    is(IsEqual.equalTo(Map.of("reportId", "34"))));
+            assertThat(replayed(requestContext), is(entity));
+            Assert.assertThrows(IllegalArgumentException.class, () -> AuthorizationFilter.setBodyFieldsLimit(0));
+        } finally {
+            RequestBodyFields.limit = limit;
+        }
+    }
+
+    @Test
+    public void consumedBytesAreReplayed() throws Exception {
+        RequestBodyFields.ConsumedInputStream consumed = new RequestBodyFields.ConsumedInputStream(
+                new ByteArrayInputStream("abcdef".getBytes(StandardCharsets.US_ASCII)), 100);
+        assertThat(consumed.markSupported(), is(false));
+        assertThat(consumed.read(), is((int) 'a'));
+        assertThat(consumed.skip(0), is(0L));
+        assertThat(consumed.skip(2), is(2L));
+        assertThat(consumed.read(), is((int) 'd'));
+        InputStream replay = consumed.replay();
+        assertThat(consumed.skip(5), is(2L));
+        assertThat(consumed.read(), is(-1));
+        assertThat(consumed.skip(1), is(0L));
+
+        assertThat(new String(replay.readAllBytes(), StandardCharsets.US_ASCII), is("abcd"));
+
+        InputStream entity = new ByteArrayInputStream("abcdef".getBytes(StandardCharsets.US_ASCII));
+        RequestBodyFields.ConsumedInputStream limited = new RequestBodyFields.ConsumedInputStream(entity, 3);
+        assertThat(limited.read(new byte[8], 0, 8), is(3));
+        assertThat(limited.exceeded, is(false));
+        assertThat(limited.read(new byte[8], 0, 0), is(0));
+        assertThat(limited.read(), is(-1));
+        assertThat(limited.read(new byte[8], 0, 8), is(-1));
+        assertThat(limited.exceeded, is(true));
+        assertThat(new String(limited.replay().readAllBytes(), StandardCharsets.US_ASCII), is("abcdef"));
+    }
+}
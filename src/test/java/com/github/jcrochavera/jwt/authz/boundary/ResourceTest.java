@@ -6,12 +6,17 @@ import com.github.jcrochavera.jwt.authz.annotations.RequiresPermissions;
 import com.github.jcrochavera.jwt.authz.utils.BasicRoles;
 import com.github.jcrochavera.jwt.authz.utils.Permission;
 import jakarta.annotation.security.RolesAllowed;
+import jakarta.ws.rs.Consumes;
 import jakarta.ws.rs.GET;
+import jakarta.ws.rs.HeaderParam;
+import jakarta.ws.rs.POST;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.core.MediaType;
 
+import java.util.Map;
+
 /**
  * Created by julio.rocha on 21/6/19.
  *
@@ -78,4 +83,14 @@ public class ResourceTest {
     public String helloTest3(@PathParam("idReports") String idReports, @PathParam("idGroups") String idGroups) {
         return "Hello " + System.currentTimeMillis();
     }
+
+    @POST
+    @Path("/comments")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @RequiresPermissions(permissions = {
+            @RequiresPermission(resource = "REPORTS", bodyField = "reportId", value = {Permission.UPDATE})
+    })
+    public String comment(@HeaderParam("X-Trace") String trace, Map<String, Object> comment) {
+        return "Hello " + System.currentTimeMillis();
+    }
 }
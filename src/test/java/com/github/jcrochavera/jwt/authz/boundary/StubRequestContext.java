@@ -0,0 +1,243 @@
+package com.github.jcrochavera.jwt.authz.boundary;
+
+import jakarta.ws.rs.core.*;
+import jakarta.ws.rs.container.ContainerRequestContext;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.util.*;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ * <p>
+ * Request context answering path parameters without allocating, unlike mocks that record every invocation
+ * </p>
+ *
+ * @author julio.rocha
+ */
+public class StubRequestContext implements ContainerRequestContext, UriInfo {
+    final MultivaluedMap<String, String> pathParameters = new MultivaluedHashMap<>();
+    final Map<String, Object> properties = new HashMap<>();
+    final MultivaluedMap<String, String> headers = new MultivaluedHashMap<>();
+    InputStream entity;
+
+    public StubRequestContext pathParameter(String name, String value) {
+        pathParameters.putSingle(name, value);
+        return this;
+    }
+
+    @Override
+    public Object getProperty(String name) {
+        return properties.get(name);
+    }
+
+    @Override
+    public Collection<String> getPropertyNames() {
+        return properties.keySet();
+    }
+
+    @Override
+    public void setProperty(String name, Object object) {
+        properties.put(name, object);
+    }
+
+    @Override
+    public void removeProperty(String name) {
+        properties.remove(name);
+    }
+
+    @Override
+    public UriInfo getUriInfo() {
+        return this;
+    }
+
+    @Override
+    public void setRequestUri(URI requestUri) {
+    }
+
+    @Override
+    public void setRequestUri(URI baseUri, URI requestUri) {
+    }
+
+    @Override
+    public Request getRequest() {
+        return null;
+    }
+
+    @Override
+    public String getMethod() {
+        return "GET";
+    }
+
+    @Override
+    public void setMethod(String method) {
+    }
+
+    @Override
+    public MultivaluedMap<String, String> getHeaders() {
+        return headers;
+    }
+
+    @Override
+    public String getHeaderString(String name) {
+        return headers.getFirst(name);
+    }
+
+    @Override
+    public Date getDate() {
+        return null;
+    }
+
+    @Override
+    public Locale getLanguage() {
+        return null;
+    }
+
+    @Override
+    public int getLength() {
+        return -1;
+    }
+
+    @Override
+    public MediaType getMediaType() {
+        return null;
+    }
+
+    @Override
+    public List<MediaType> getAcceptableMediaTypes() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public List<Locale> getAcceptableLanguages() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public Map<String, Cookie> getCookies() {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public boolean hasEntity() {
+        return entity != null;
+    }
+
+    @Override
+    public InputStream getEntityStream() {
+        return entity;
+    }
+
+    @Override
+    public void setEntityStream(InputStream input) {
+        this.entity = input;
+    }
+
+    @Override
+    public SecurityContext getSecurityContext() {
+        return null;
+    }
+
+    @Override
+    public void setSecurityContext(SecurityContext context) {
+    }
+
+    @Override
+    public void abortWith(Response response) {
+    }
+
+    @Override
+    public String getPath() {
+        return null;
+    }
+
+    @Override
+    public String getPath(boolean decode) {
+        return null;
+    }
+
+    @Override
+    public List<PathSegment> getPathSegments() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public List<PathSegment> getPathSegments(boolean decode) {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public URI getRequestUri() {
+        return null;
+    }
+
+    @Override
+    public UriBuilder getRequestUriBuilder() {
+        return null;
+    }
+
+    @Override
+    public URI getAbsolutePath() {
+        return null;
+    }
+
+    @Override
+    public UriBuilder getAbsolutePathBuilder() {
+        return null;
+    }
+
+    @Override
+    public URI getBaseUri() {
+        return null;
+    }
+
+    @Override
+    public UriBuilder getBaseUriBuilder() {
+        return null;
+    }
+
+    @Override
+    public MultivaluedMap<String, String> getPathParameters() {
+        return pathParameters;
+    }
+
+    @Override
+    public MultivaluedMap<String, String> getPathParameters(boolean decode) {
+        return pathParameters;
+    }
+
+    @Override
+    public MultivaluedMap<String, String> getQueryParameters() {
+        return new MultivaluedHashMap<>();
+    }
+
+    @Override
+    public MultivaluedMap<String, String> getQueryParameters(boolean decode) {
+        return new MultivaluedHashMap<>();
+    }
+
+    @Override
+    public List<String> getMatchedURIs() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public List<String> getMatchedURIs(boolean decode) {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public List<Object> getMatchedResources() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public URI resolve(URI uri) {
+        return uri;
+    }
+
+    @Override
+    public URI relativize(URI uri) {
+        return uri;
+    }
+}
@@ -0,0 +1,28 @@
+package com.github.jcrochavera.jwt.authz.boundary;
+
+import jakarta.ws.rs.container.ResourceInfo;
+
+import java.lang.reflect.Method;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ *
+ * @author julio.rocha
+ */
+public class StubResourceInfo implements ResourceInfo {
+    final Method method;
+
+    public StubResourceInfo(Method method) {
+        this.method = method;
+    }
+
+    @Override
+    public Method getResourceMethod() {
+        return method;
+    }
+
+    @Override
+    public Class<?> getResourceClass() {
+        return method.getDeclaringClass();
+    }
+}
@@ -0,0 +1,54 @@
+package com.github.jcrochavera.jwt.authz.control;
+
+import org.hamcrest.core.IsEqual;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ *
+ * @author julio.rocha
+ */
+public class BloomFilterTest {
+    @Test
+    public void noFalseNegatives() {
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            keys.add("report-" + i);
+        }
+        BloomFilter filter = BloomFilter.of(keys);
+
+        assertThat(filter.size(), is(IsEqual.equalTo(131072)));
+        for (int i = 0; i < 10000; i++) {
+            assertThat(filter.mightContain("report-" + i), is(IsEqual.equalTo(true)));
+        }
+    }
+
+    @Test
+    public void fewFalsePositives() {
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            keys.add("report-" + i);
+        }
+        BloomFilter filter = BloomFilter.of(keys);
+
+        int falsePositives = 0;
+        for (int i = 10000; i < 110000; i++) {
+            falsePositives += filter.mightContain("report-" + i) ? 1 : 0;
+        }
+        assertThat(falsePositives < 1500, is(IsEqual.equalTo(true)));
+    }
+
+    @Test
+    public void emptyFilter() {
+        BloomFilter filter = BloomFilter.of(List.of());
+
+        assertThat(filter.size(), is(IsEqual.equalTo(64)));
+        assertThat(filter.mightContain("report-1"), is(IsEqual.equalTo(false)));
+    }
+}
@@ -0,0 +1,45 @@
+package com.github.jcrochavera.jwt.authz.control;
+
+import org.hamcrest.core.IsEqual;
+import org.junit.Test;
+
+import java.util.UUID;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ *
+ * @author julio.rocha
+ */
+public class InstanceIdsTest {
+    @Test
+    public void numbers() {
+        new InstanceIds();
+        for (long value : new long[]{0, 7, -7, 34, 1500, Long.MAX_VALUE, Long.MIN_VALUE, Long.MIN_VALUE + 1}) {
+            String instance = Long.toString(value);
+            assertThat(InstanceIds.isNumber(instance), is(IsEqual.equalTo(true)));
+            assertThat(InstanceIds.toLong(instance), is(IsEqual.equalTo(value)));
+        }
+        for (String instance : new String[]{"", "-", "-0", "00", "034", "+34", "3a", "a3", "3-", "9223372036854775808",
+                "-9223372036854775809", "19223372036854775807", "99999999999999999999"}) {
+            assertThat(instance, InstanceIds.isNumber(instance), is(IsEqual.equalTo(false)));
+        }
+    }
+
+    @Test
+    public void uuids() {
+        for (UUID uuid : new UUID[]{UUID.randomUUID(), new UUID(0, 0), new UUID(-1, -1), new UUID(Long.MIN_VALUE, 1)}) {
+            String instance = uuid.toString();
+            assertThat(InstanceIds.isUuid(instance), is(IsEqual.equalTo(true)));
+            assertThat(InstanceIds.mostSignificantBits(instance), is(IsEqual.equalTo(uuid.getMostSignificantBits())));
+            assertThat(InstanceIds.leastSignificantBits(instance), is(IsEqual.equalTo(uuid.getLeastSignificantBits())));
+        }
+        String uuid = UUID.randomUUID().toString();
+        for (String instance : new String[]{"", uuid.toUpperCase().replace('0', 'A'), uuid.replace('-', '_'),
+                uuid.substring(1), uuid + "0", "g" + uuid.substring(1), "/" + uuid.substring(1)}) {
+            assertThat(instance, InstanceIds.isUuid(instance), is(IsEqual.equalTo(false)));
+        }
+    }
+}
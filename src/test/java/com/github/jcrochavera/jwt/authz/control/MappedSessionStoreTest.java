@@ -0,0 +1,292 @@
+package com.github.jcrochavera.jwt.authz.control;
+
+import jakarta.json.JsonObject;
+import org.hamcrest.core.IsEqual;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.UUID;
+
+import static com.github.jcrochavera.jwt.authz.control.UserSessionTest.addResource;
+import static com.github.jcrochavera.jwt.authz.control.UserSessionTest.addScopes;
+import static com.github.jcrochavera.jwt.authz.control.UserSessionTest.authorization;
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ *
+ * @author julio.rocha
+ */
+public class MappedSessionStoreTest {
+    static final long FUTURE = Long.MAX_VALUE;
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    static JsonObject grants() {
+        return authorization(addScopes(addResource("REPORTS:dummy:34"), "r", "x"),
+                addScopes(addResource("REPORTS:dummy:38"), "a"),
+                addScopes(addResource("GROUPS:dummy"), "i"));
+    }
+
+    @Test
+    public void invalidLayout() throws Exception {
+        Path file = folder.newFile().toPath();
+        assertThat(Assert.assertThrows(IllegalArgumentException.class, () -> new MappedSessionStore(file, 3, 256))
+                .getMessage(), is("slots must be a power of two"));
+        assertThat(Assert.assertThrows(IllegalArgumentException.class, () -> new MappedSessionStore(file, 0, 256))
+                .getMessage(), is("slots must be a power of two"));
+        assertThat(Assert.assertThrows(IllegalArgumentException.class, () -> new MappedSessionStore(file, 4, 64))
+                .getMessage(), is("slotSize must be a multiple of 8 greater than 64 and the store must be smaller than 2GB"));
+        assertThat(Assert.assertThrows(IllegalArgumentException.class, () -> new MappedSessionStore(file, 4, 44))
+                .getMessage(), is("slotSize must be a multiple of 8 greater than 64 and the store must be smaller than 2GB"));
+        assertThat(Assert.assertThrows(IllegalArgumentException.class, () -> new MappedSessionStore(file, 1 << 20, 4096))
+                .getMessage(), is("slotSize must be a multiple of 8 greater than 64 and the store must be smaller than 2GB"));
+    }
+
+    @Test
+    public void fileWithDifferentLayout() throws Exception {
+        Path file = folder.newFile().toPath();
+        new MappedSessionStore(file, 4, 256).close();
+        String message = Assert.assertThrows(IllegalArgumentException.class, () -> new MappedSessionStore(file, 8, 256))
+                .getMessage();
+        assertThat(message, is("'" + file + "' was created with a different layout"));
+        Assert.assertThrows(IllegalArgumentException.class, () -> new MappedSessionStore(file, 4, 512));
+        try (MappedSessionStore store = new MappedSessionStore(file, 4, 256)) {
+            for (int field = 0; field < 4; field++) {
+                long value = (long) MappedSessionStore.LONGS.get(store.buffer, field * 8);
+                MappedSessionStore.LONGS.set(store.buffer, field * 8, value + 1);
+                Assert.assertThrows(IllegalArgumentException.class, () -> new MappedSessionStore(file, 4, 256));
+                MappedSessionStore.LONGS.set(store.buffer, field * 8, value);
+            }
+        }
+    }
+
+    @Test
+    public void sharedBetweenMappings() throws Exception {
+        Path file = folder.newFile().toPath();
+        try (MappedSessionStore writer = new MappedSessionStore(file, 16, 512);
+             MappedSessionStore reader = new MappedSessionStore(file, 16, 512)) {
+            assertThat(reader.get("token"), nullValue());
+            assertThat(writer.put("token", new UserSessionExtended("dummy", "dummy@dummy.com", "DUMMY", 3L, grants()),
+                    FUTURE), is(IsEqual.equalTo(true)));
+
+            UserSession session = reader.get("token");
+
+            assertThat(session, instanceOf(MappedUserSession.class));
+            assertThat(session.getUser(), is(IsEqual.equalTo("dummy")));
+            assertThat(session.hasPermission("REPORTS", "r"), is(IsEqual.equalTo(true)));
+            assertThat(session.hasPermissions("REPORTS", "r", "x", "a"), is(IsEqual.equalTo(true)));
+            assertThat(session.hasPermission("REPORTS", "d"), is(IsEqual.equalTo(false)));
+            assertThat(session.hasPermission("USERS", "r"), is(IsEqual.equalTo(false)));
+            assertThat(session.hasInstancePermissions("REPORTS", "34", "r", "x"), is(IsEqual.equalTo(true)));
+            assertThat(session.hasInstancePermission("REPORTS", "34", "a"), is(IsEqual.equalTo(false)));
+            assertThat(session.hasInstancePermission("REPORTS", "35", "a"), is(IsEqual.equalTo(false)));
+            assertThat(session.hasInstancePermission("GROUPS", "", "i"), is(IsEqual.equalTo(false)));
+            assertThat(session.hasInstancePermission("REPORTS", 34L, "x"), is(IsEqual.equalTo(true)));
+            assertThat(session.getInstances("REPORTS", "x"), is(IsEqual.equalTo(Set.of("34"))));
+            assertThat(session.hasInstancePermission("REPORTS", UUID.randomUUID(), "x"), is(IsEqual.equalTo(false)));
+            assertThat(session.getResources(), is(IsEqual.equalTo(Set.of("REPORTS", "GROUPS"))));
+            assertThat(session.getResourcesWith("a"), is(IsEqual.equalTo(Set.of("REPORTS"))));
+            assertThat(session.getResourcesWith("i"), sameInstance(session.getResourcesWith("i")));
+            assertThat(session.getInstances("REPORTS"), is(IsEqual.equalTo(Set.of("34", "38"))));
+            assertThat(session.getInstances("GROUPS"), is(IsEqual.equalTo(Set.of())));
+            Assert.assertThrows(UnsupportedOperationException.class, () -> session.getInstances("REPORTS", "x").clear());
+            assertThat(reader.get("other"), nullValue());
+        }
+    }
+
+    @Test
+    public void sessionsThatDoNotFitOrExpired() throws Exception {
+        try (MappedSessionStore store = new MappedSessionStore(folder.newFile().toPath(), 4, 160)) {
+            assertThat(store.put("token", new UserSession("dummy", grants()), FUTURE), is(IsEqual.equalTo(false)));
+            assertThat(store.put("token", new UserSession("d", null), 0), is(IsEqual.equalTo(true)));
+            assertThat(store.get("token"), nullValue());
+            assertThat(store.put("other", new UserSession("d", null), FUTURE), is(IsEqual.equalTo(true)));
+            assertThat(store.get("other").getUser(), is(IsEqual.equalTo("d")));
+        }
+    }
+
+    @Test
+    public void slotHeldByAnotherWriter() throws Exception {
+        try (MappedSessionStore store = new MappedSessionStore(folder.newFile().toPath(), 1, 512)) {
+            int slot = MappedSessionStore.HEADER;
+            store.put("token", new UserSession("dummy", grants()), FUTURE);
+            MappedSessionStore.LONGS.set(store.buffer, slot, store.sequence(slot) + 1);
+
+            assertThat(store.get("token"), nullValue());
+            assertThat(store.put("token", new UserSession("dummy", grants()), FUTURE), is(IsEqual.equalTo(false)));
+        }
+    }
+
+    @Test
+    public void replacedSessionFailsClosed() throws Exception {
+        try (MappedSessionStore store = new MappedSessionStore(folder.newFile().toPath(), 1, 512)) {
+            store.put("token", new UserSession("dummy", grants()), FUTURE);
+            UserSession session = store.get("token");
+            assertThat(session.hasPermission("REPORTS", "r"), is(IsEqual.equalTo(true)));
+
+            store.put("other", new UserSession("other", grants()), FUTURE);
+
+            assertThat(store.get("token"), nullValue());
+            assertThat(session.hasPermission("REPORTS", "r"), is(IsEqual.equalTo(false)));
+            assertThat(session.hasInstancePermission("REPORTS", "34", "r"), is(IsEqual.equalTo(false)));
+            assertThat(session.getResources(), is(IsEqual.equalTo(Set.of())));
+            assertThat(session.getResourcesWith("r"), is(IsEqual.equalTo(Set.of())));
+            assertThat(session.diff(grants()).getAddedResources(), is(IsEqual.equalTo(Set.of("REPORTS", "GROUPS"))));
+            assertThat(store.get("other").getUser(), is(IsEqual.equalTo("other")));
+        }
+    }
+
+    @Test
+    public void sessionReplacedWhileItIsOpened() throws Exception {
+        try (MappedSessionStore store = new MappedSessionStore(folder.newFile().toPath(), 1, 512)) {
+            store.put("token", new UserSession("dummy", grants()), FUTURE);
+            long sequence = store.sequence(MappedSessionStore.HEADER);
+            store.put("token", new UserSession("dummy", grants()), FUTURE);
+
+            assertThat(MappedUserSession.of(store, MappedSessionStore.HEADER, sequence), nullValue());
+        }
+    }
+
+    @Test
+    public void refreshMaterializesTheSession() throws Exception {
+        try (MappedSessionStore store = new MappedSessionStore(folder.newFile().toPath(), 8, 512)) {
+            store.put("token", new UserSession("dummy", grants()), FUTURE);
+            UserSession session = store.get("token");
+
+            assertThat(session.refresh(grants()), sameInstance(session));
+            UserSession refreshed = session.refresh(authorization(addScopes(addResource("REPORTS:dummy:34"), "r")));
+
+            assertThat(refreshed, not(instanceOf(MappedUserSession.class)));
+            assertThat(refreshed.getResources(), is(IsEqual.equalTo(Set.of("REPORTS"))));
+            assertThat(refreshed.hasInstancePermission("REPORTS", "34", "r"), is(IsEqual.equalTo(true)));
+            assertThat(PermissionsCodec.decode(PermissionsCodec.encode(session)).instancePermissions.asMap(),
+                    is(IsEqual.equalTo(new UserSession("dummy", grants()).instancePermissions.asMap())));
+        }
+    }
+
+    @Test
+    public void typedAndEncodedInstances() throws Exception {
+        UUID document = UUID.fromString("0f8fad5b-d9cb-469f-a165-70867728950e");
+        try (MappedSessionStore store = new MappedSessionStore(folder.newFile().toPath(), 4, 1024)) {
+            store.put("token", new UserSession("dummy", authorization(
+                    addScopes(addResource("DOCUMENTS:dummy:" + document), "r"),
+                    addScopes(addResource("REPORTS:dummy:-9223372036854775808"), "r"),
+                    addScopes(addResource("REPORTS:dummy:034"), "r"),
+                    addScopes(addResource("CIUDADES:dummy:La Paz ñ 𝄞"), "ver"),
+                    addScopes(addResource("ÁREAS:dummy"), "€"))), FUTURE);
+            UserSession session = store.get("token");
+
+            assertThat(session.hasInstancePermission("DOCUMENTS", document, "r"), is(IsEqual.equalTo(true)));
+            assertThat(session.hasInstancePermission("DOCUMENTS", document.toString(), "r"), is(IsEqual.equalTo(true)));
+            assertThat(session.hasInstancePermission("DOCUMENTS", UUID.randomUUID(), "r"), is(IsEqual.equalTo(false)));
+            assertThat(session.hasInstancePermission("REPORTS", Long.MIN_VALUE, "r"), is(IsEqual.equalTo(true)));
+            assertThat(session.hasInstancePermission("REPORTS", "-9223372036854775808", "r"), is(IsEqual.equalTo(true)));
+            assertThat(session.hasInstancePermission("REPORTS", "034", "r"), is(IsEqual.equalTo(true)));
+            assertThat(session.hasInstancePermission("REPORTS", 34L, "r"), is(IsEqual.equalTo(false)));
+            assertThat(session.hasInstancePermission("DOCUMENTS", Long.MIN_VALUE, "r"), is(IsEqual.equalTo(false)));
+            assertThat(session.hasInstancePermission("CIUDADES", "La Paz ñ 𝄞", "ver"), is(IsEqual.equalTo(true)));
+            assertThat(session.hasInstancePermission("CIUDADES", "La Paz ñ", "ver"), is(IsEqual.equalTo(false)));
+            assertThat(session.hasInstancePermission("CIUDADES", "La Paz ñ 𝄞", "ve"), is(IsEqual.equalTo(false)));
+            assertThat(session.hasPermission("ÁREAS", "€"), is(IsEqual.equalTo(true)));
+            assertThat(session.hasPermission("AREAS", "€"), is(IsEqual.equalTo(false)));
+        }
+    }
+
+    @Test
+    public void unreadableIndexDenies() throws Exception {
+        try (MappedSessionStore store = new MappedSessionStore(folder.newFile().toPath(), 1, 512)) {
+            store.put("token", new UserSession("dummy", grants()), FUTURE);
+            store.buffer.putInt(MappedSessionStore.HEADER + MappedSessionStore.INDEX_CAPACITY, 3);
+
+            assertThat(store.get("token").hasPermission("REPORTS", "r"), is(IsEqual.equalTo(false)));
+        }
+    }
+
+    @Test
+    public void slotOfDeadWriterIsRecovered() throws Exception {
+        try (MappedSessionStore store = new MappedSessionStore(folder.newFile().toPath(), 1, 512)) {
+            int slot = MappedSessionStore.HEADER;
+            store.put("token", new UserSession("dummy", grants()), FUTURE);
+            long sequence = store.sequence(slot);
+            MappedSessionStore.LONGS.set(store.buffer, slot, sequence + 1);
+
+            assertThat(store.get("token"), nullValue());
+            assertThat(store.put("token", new UserSession("dummy", grants()), FUTURE), is(IsEqual.equalTo(false)));
+            assertThat(store.recover(), is(0));
+
+            stale(store, slot);
+            assertThat(store.recover(), is(1));
+            assertThat(store.sequence(slot) & 1, is(0L));
+            assertThat(store.get("token"), nullValue());
+            assertThat(store.put("token", new UserSession("dummy", grants()), FUTURE), is(IsEqual.equalTo(true)));
+            assertThat(store.get("token").hasPermission("REPORTS", "r"), is(IsEqual.equalTo(true)));
+
+            MappedSessionStore.LONGS.set(store.buffer, slot, store.sequence(slot) + 1);
+            assertThat(store.get("token"), nullValue());
+            assertThat(store.sequence(slot) & 1, is(1L));
+            assertThat((long) MappedSessionStore.LONGS.get(store.buffer, slot + MappedSessionStore.LOCKED_AT) > 0,
+                    is(IsEqual.equalTo(true)));
+        }
+    }
+
+    static void stale(MappedSessionStore store, int slot) {
+        MappedSessionStore.LONGS.set(store.buffer, slot + MappedSessionStore.LOCKED_AT,
+                System.currentTimeMillis() - MappedSessionStore.STALE_WRITE_MILLIS);
+    }
+
+    @Test
+    public void stalledWriterResumingAfterRecovery() throws Exception {
+        try (MappedSessionStore store = new MappedSessionStore(folder.newFile().toPath(), 1, 512)) {
+            int slot = MappedSessionStore.HEADER;
+            UserSession stalled = new UserSession("stalled", authorization(addScopes(addResource("USERS:stalled"), "d")));
+            byte[] encoded = PermissionsCodec.encode(stalled);
+            int index = MappedSessionStore.PAYLOAD + (encoded.length + 7) / 8 * 8;
+            long owned = store.acquire(slot);
+            assertThat(owned & 1, is(1L));
+            assertThat(store.acquire(slot), is(-1L));
+
+            stale(store, slot);
+            assertThat(store.recover(), is(1));
+            assertThat(store.put("token", new UserSession("dummy", grants()), FUTURE), is(IsEqual.equalTo(true)));
+            UserSession session = store.get("token");
+
+            assertThat(store.write(slot, owned, FUTURE, encoded, index, SlotIndex.build(encoded, MappedSessionStore.PAYLOAD)),
+                    is(IsEqual.equalTo(false)));
+            assertThat(store.publish(slot, owned, TokenDigest.of("stalled")), is(IsEqual.equalTo(false)));
+            assertThat(store.get("stalled"), nullValue());
+            assertThat(store.get("token").getUser(), is(IsEqual.equalTo("dummy")));
+            assertThat(session.hasPermission("REPORTS", "r"), is(IsEqual.equalTo(true)));
+
+            // the key of the stalled writer landed after it checked that it held the slot
+            MappedSessionStore.LONGS.set(store.buffer, slot + MappedSessionStore.STAMP, owned);
+            assertThat(store.get("token"), nullValue());
+            assertThat(session.hasPermission("REPORTS", "r"), is(IsEqual.equalTo(false)));
+        }
+    }
+
+    @Test
+    public void stalledWriterRecoveredBeforePublishing() throws Exception {
+        try (MappedSessionStore store = new MappedSessionStore(folder.newFile().toPath(), 1, 512)) {
+            int slot = MappedSessionStore.HEADER;
+            UserSession stalled = new UserSession("stalled", authorization(addScopes(addResource("USERS:stalled"), "d")));
+            byte[] encoded = PermissionsCodec.encode(stalled);
+            int index = MappedSessionStore.PAYLOAD + (encoded.length + 7) / 8 * 8;
+            long owned = store.acquire(slot);
+            assertThat(store.write(slot, owned, FUTURE, encoded, index, SlotIndex.build(encoded, MappedSessionStore.PAYLOAD)),
+                    is(IsEqual.equalTo(true)));
+
+            stale(store, slot);
+            assertThat(store.recover(), is(1));
+
+            assertThat(store.publish(slot, owned, TokenDigest.of("stalled")), is(IsEqual.equalTo(false)));
+            assertThat(store.get("stalled"), nullValue());
+            assertThat(store.sequence(slot) & 1, is(0L));
+        }
+    }
+}
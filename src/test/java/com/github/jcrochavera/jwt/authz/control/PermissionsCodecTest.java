@@ -0,0 +1,80 @@
+package com.github.jcrochavera.jwt.authz.control;
+
+import org.hamcrest.core.IsEqual;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Set;
+
+import static com.github.jcrochavera.jwt.authz.control.UserSessionTest.addResource;
+import static com.github.jcrochavera.jwt.authz.control.UserSessionTest.addScopes;
+import static com.github.jcrochavera.jwt.authz.control.UserSessionTest.authorization;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ *
+ * @author julio.rocha
+ */
+public class PermissionsCodecTest {
+    @Test
+    public void roundTrip() {
+        new PermissionsCodec();
+        UserSessionExtended session = new UserSessionExtended("dummy", "dummy@dummy.com", "DUMMY", 3L,
+                authorization(addScopes(addResource("REPORTS:dummy:34"), "r", "x"),
+                        addScopes(addResource("GROUPS:dummy"), "i"),
+                        addScopes(addResource("ÁREAS:dummy:ñ"), "d")));
+
+        UserSession decoded = PermissionsCodec.decode(PermissionsCodec.encode(session));
+
+        assertThat(decoded.getUser(), is(IsEqual.equalTo("dummy")));
+        assertThat(decoded.resourcePermissions, is(IsEqual.equalTo(session.resourcePermissions)));
+        assertThat(decoded.instancePermissions.asMap(), is(IsEqual.equalTo(session.instancePermissions.asMap())));
+        assertThat(decoded.hasInstancePermission("ÁREAS", "ñ", "d"), is(IsEqual.equalTo(true)));
+        assertThat(decoded.diff(authorization(addScopes(addResource("REPORTS:dummy:34"), "r", "x"),
+                addScopes(addResource("GROUPS:dummy"), "i"),
+                addScopes(addResource("ÁREAS:dummy:ñ"), "d"))).isEmpty(), is(IsEqual.equalTo(true)));
+    }
+
+    @Test
+    public void decodeFromBufferPosition() {
+        byte[] encoded = PermissionsCodec.encode(new UserSession("dummy", null));
+        ByteBuffer buffer = ByteBuffer.allocate(encoded.length + 3);
+        buffer.position(3);
+        buffer.put(encoded);
+        buffer.position(3);
+
+        UserSession decoded = PermissionsCodec.decode(buffer);
+
+        assertThat(decoded.getUser(), is(IsEqual.equalTo("dummy")));
+        assertThat(decoded.getResources(), is(IsEqual.equalTo(Set.of())));
+    }
+
+    @Test
+    public void notEncodedPermissions() {
+        String message = Assert.assertThrows(IllegalArgumentException.class,
+                () -> PermissionsCodec.decode(new byte[16])).getMessage();
+        assertThat(message, is("Content is not encoded permissions"));
+        message = Assert.assertThrows(IllegalArgumentException.class,
+                () -> PermissionsCodec.decode(new byte[2])).getMessage();
+        assertThat(message, is("Content is not encoded permissions"));
+    }
+
+    @Test
+    public void unsupportedVersion() {
+        byte[] encoded = PermissionsCodec.encode(new UserSession("dummy", null));
+        encoded[4] = 9;
+        String message = Assert.assertThrows(IllegalArgumentException.class,
+                () -> PermissionsCodec.decode(encoded)).getMessage();
+        assertThat(message, is("Unsupported encoded permissions version 9"));
+    }
+
+    @Test
+    public void valueTooLong() {
+        String message = Assert.assertThrows(IllegalArgumentException.class,
+                () -> PermissionsCodec.encode(new UserSession("d".repeat(70000), null))).getMessage();
+        assertThat(message, is("Value is too long to be encoded: 70000 bytes"));
+    }
+}
@@ -0,0 +1,96 @@
+package com.github.jcrochavera.jwt.authz.control;
+
+import jakarta.json.JsonObject;
+import org.hamcrest.core.IsEqual;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static com.github.jcrochavera.jwt.authz.control.UserSessionTest.addResource;
+import static com.github.jcrochavera.jwt.authz.control.UserSessionTest.addScopes;
+import static com.github.jcrochavera.jwt.authz.control.UserSessionTest.authorization;
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ *
+ * @author julio.rocha
+ */
+public class PermissionsFingerprintTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    static JsonObject grants() {
+        return authorization(addScopes(addResource("REPORTS:dummy:34"), "r", "x"),
+                addScopes(addResource("REPORTS:dummy:38"), "a"),
+                addScopes(addResource("GROUPS:dummy"), "i"));
+    }
+
+    @Test
+    public void stableValue() {
+        PermissionsFingerprint fingerprint = new UserSession("dummy", grants()).getFingerprint();
+
+        assertThat(fingerprint.toString(), is(IsEqual.equalTo("e5df71eb5cdefc553bd4f5161da166ea3766f4f26bc9f8e8a82461389964f97f")));
+        assertThat(new UserSession("dummy", null).getFingerprint().toString(),
+                is(IsEqual.equalTo("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855")));
+    }
+
+    @Test
+    public void independentOfOrderAndUser() {
+        UserSession session = new UserSession("dummy", grants());
+        UserSession reordered = new UserSession("other", authorization(addScopes(addResource("GROUPS:other"), "i"),
+                addScopes(addResource("REPORTS:other:38"), "a"), addScopes(addResource("REPORTS:other:34"), "x"),
+                addScopes(addResource("REPORTS:other:34"), "r")));
+
+        assertThat(reordered.getFingerprint(), is(IsEqual.equalTo(session.getFingerprint())));
+        assertThat(reordered.getFingerprint().hashCode(), is(IsEqual.equalTo(session.getFingerprint().hashCode())));
+        assertThat(session.getFingerprint(), sameInstance(session.getFingerprint()));
+        assertThat(session.getFingerprint().equals(session.getFingerprint()), is(true));
+        assertThat(session.getFingerprint().equals("dummy"), is(false));
+    }
+
+    @Test
+    public void changesWithGrants() {
+        UserSession session = new UserSession("dummy", grants());
+        PermissionsFingerprint fingerprint = session.getFingerprint();
+
+        assertThat(new UserSession("dummy", authorization(addScopes(addResource("REPORTS:dummy:34"), "r", "x"),
+                addScopes(addResource("REPORTS:dummy:38"), "a"), addScopes(addResource("GROUPS:dummy:5"), "i")))
+                .getFingerprint(), not(IsEqual.equalTo(fingerprint)));
+        assertThat(new UserSession("dummy", authorization(addScopes(addResource("REPORTS:dummy:34"), "r", "x"),
+                addScopes(addResource("REPORTS:dummy:38"), "a", "r"), addScopes(addResource("GROUPS:dummy"), "i")))
+                .getFingerprint(), not(IsEqual.equalTo(fingerprint)));
+        assertThat(new UserSession("dummy", authorization(addScopes(addResource("REPORTS:dummy:34"), "rx"),
+                addScopes(addResource("REPORTS:dummy:38"), "a"), addScopes(addResource("GROUPS:dummy"), "i")))
+                .getFingerprint(), not(IsEqual.equalTo(new UserSession("dummy", authorization(
+                addScopes(addResource("REPORTS:dummy:34"), "r", "x"), addScopes(addResource("REPORTS:dummy:38"), "a"),
+                addScopes(addResource("GROUPS:dummy"), "i"))).getFingerprint())));
+        assertThat(new UserSession("dummy", authorization(addScopes(addResource("REPORTS:dummy:3"), "r"),
+                addScopes(addResource("REPORTS:dummy:4"), "r"))).getFingerprint(),
+                not(IsEqual.equalTo(new UserSession("dummy", authorization(addScopes(addResource("REPORTS:dummy:34"),
+                        "r"))).getFingerprint())));
+        assertThat(new PermissionsFingerprint(new byte[]{1, 2}), not(IsEqual.equalTo(new PermissionsFingerprint(
+                new byte[]{1, 3}))));
+
+        UserSession refreshed = session.refresh(authorization(addScopes(addResource("REPORTS:dummy:34"), "r")));
+        assertThat(refreshed.getFingerprint(), not(IsEqual.equalTo(fingerprint)));
+        assertThat(refreshed.getFingerprint(), is(IsEqual.equalTo(
+                new UserSession("dummy", authorization(addScopes(addResource("REPORTS:dummy:34"), "r"))).getFingerprint())));
+        assertThat(session.getFingerprint(), sameInstance(fingerprint));
+    }
+
+    @Test
+    public void sameForStoredSessions() throws Exception {
+        UserSession session = new UserSession("dummy", grants());
+        try (MappedSessionStore store = new MappedSessionStore(folder.newFile().toPath(), 16, 1024)) {
+            store.put("token", session, Long.MAX_VALUE);
+            UserSession mapped = store.get("token");
+
+            assertThat(mapped.getFingerprint(), is(IsEqual.equalTo(session.getFingerprint())));
+            assertThat(mapped.getFingerprint(), sameInstance(mapped.getFingerprint()));
+            assertThat(PermissionsCodec.decode(PermissionsCodec.encode(session)).getFingerprint(),
+                    is(IsEqual.equalTo(session.getFingerprint())));
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.github.jcrochavera.jwt.authz.control;
+
+import org.hamcrest.core.IsEqual;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.github.jcrochavera.jwt.authz.control.UserSessionTest.addResource;
+import static com.github.jcrochavera.jwt.authz.control.UserSessionTest.addScopes;
+import static com.github.jcrochavera.jwt.authz.control.UserSessionTest.authorization;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ *
+ * @author julio.rocha
+ */
+public class RefreshableSessionTest {
+    @Test
+    public void nullSession() {
+        String message = Assert.assertThrows(NullPointerException.class, () -> new RefreshableSession(null))
+                .getMessage();
+        assertThat(message, is("session is mandatory"));
+    }
+
+    @Test
+    public void refreshWithoutChanges() {
+        UserSession session = new UserSession("dummy", authorization(addScopes(addResource("REPORTS:dummy:34"), "r")));
+        RefreshableSession refreshable = new RefreshableSession(session);
+
+        PermissionsDelta delta = refreshable.refresh(authorization(addScopes(addResource("REPORTS:dummy:34"), "r")));
+
+        assertThat(delta.isEmpty(), is(IsEqual.equalTo(true)));
+        assertThat(refreshable.get(), sameInstance(session));
+    }
+
+    @Test
+    public void refreshSwitchesSession() {
+        UserSession session = new UserSession("dummy", authorization(addScopes(addResource("REPORTS:dummy:34"), "r")));
+        RefreshableSession refreshable = new RefreshableSession(session);
+
+        PermissionsDelta delta = refreshable.refresh(authorization(addScopes(addResource("REPORTS:dummy:35"), "r")));
+
+        assertThat(delta.getAddedInstanceScopes().get("REPORTS").keySet(), is(IsEqual.equalTo(Set.of("35"))));
+        assertThat(refreshable.get().hasInstancePermission("REPORTS", "35", "r"), is(IsEqual.equalTo(true)));
+        assertThat(refreshable.get().hasInstancePermission("REPORTS", "34", "r"), is(IsEqual.equalTo(false)));
+        assertThat(session.hasInstancePermission("REPORTS", "34", "r"), is(IsEqual.equalTo(true)));
+    }
+
+    @Test
+    public void concurrentReadersSeeCompleteSessions() throws Exception {
+        RefreshableSession refreshable = new RefreshableSession(new UserSession("dummy",
+                authorization(addScopes(addResource("REPORTS:dummy:1"), "r"), addScopes(addResource("GROUPS:dummy:1"), "r"))));
+        int readers = 3;
+        ExecutorService executor = Executors.newFixedThreadPool(readers);
+        CountDownLatch started = new CountDownLatch(readers);
+        AtomicBoolean done = new AtomicBoolean();
+        try {
+            List<Future<Set<UserSession>>> reads = new ArrayList<>();
+            for (int r = 0; r < readers; r++) {
+                reads.add(executor.submit(() -> {
+                    Set<UserSession> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+                    started.countDown();
+                    while (!done.get()) {
+                        UserSession current = refreshable.get();
+                        if (!current.getInstances("REPORTS").equals(current.getInstances("GROUPS"))) {
+                            throw new AssertionError("Incomplete session " + current.getInstances("REPORTS"));
+                        }
+                        seen.add(current);
+                    }
+                    return seen;
+                }));
+            }
+            assertThat(started.await(10, TimeUnit.SECONDS), is(IsEqual.equalTo(true)));
+            for (int i = 2; i < 200; i++) {
+                refreshable.refresh(authorization(addScopes(addResource("REPORTS:dummy:" + i), "r"),
+                        addScopes(addResource("GROUPS:dummy:" + i), "r")));
+                Thread.yield();
+            }
+            done.set(true);
+            for (Future<Set<UserSession>> read : reads) {
+                // readers overlapped the refreshes, they saw more than one session
+                assertThat(read.get(10, TimeUnit.SECONDS).size() > 1, is(IsEqual.equalTo(true)));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
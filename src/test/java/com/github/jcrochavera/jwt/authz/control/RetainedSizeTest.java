@@ -0,0 +1,44 @@
+package com.github.jcrochavera.jwt.authz.control;
+
+import org.hamcrest.core.IsEqual;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ *
+ * @author julio.rocha
+ */
+public class RetainedSizeTest {
+    @Test
+    public void layouts() {
+        assertThat(new RetainedSize().object(4).bytes(), is(IsEqual.equalTo(16L)));
+        assertThat(new RetainedSize().object(5).bytes(), is(IsEqual.equalTo(24L)));
+        assertThat(new RetainedSize().array(3, Long.BYTES).bytes(), is(IsEqual.equalTo(40L)));
+        assertThat(new RetainedSize().string("report").bytes(), is(IsEqual.equalTo(24L + 24)));
+        assertThat(new RetainedSize().string("réport").bytes(), is(IsEqual.equalTo(24L + 24)));
+        assertThat(new RetainedSize().string("репорт").bytes(),
+                is(IsEqual.equalTo(24L + 32)));
+        assertThat(new RetainedSize().hashMap(0).bytes(), is(IsEqual.equalTo(48L)));
+        assertThat(new RetainedSize().hashMap(2).bytes(), is(IsEqual.equalTo(48L + 64 + 80)));
+        assertThat(new RetainedSize().hashMap(13).bytes(), is(IsEqual.equalTo(48L + 13 * 32 + 144)));
+    }
+
+    @Test
+    public void sharedScopesAreCountedOnce() {
+        Set<String> scopes = new HashSet<>(Set.of("r", "x"));
+        Set<String> shared = Set.copyOf(scopes);
+        RetainedSize size = new RetainedSize().scopes(scopes);
+        long once = size.bytes();
+
+        assertThat(once, is(IsEqual.equalTo(16L + 48 + 64 + 80 + 2 * 48)));
+        assertThat(size.scopes(scopes).bytes(), is(IsEqual.equalTo(once)));
+        assertThat(size.scopes(shared).bytes(), is(IsEqual.equalTo(once + 24 + 32)));
+        assertThat(size.scopes(shared).bytes(), is(IsEqual.equalTo(once + 24 + 32)));
+    }
+}
@@ -0,0 +1,70 @@
+package com.github.jcrochavera.jwt.authz.control;
+
+import com.github.jcrochavera.jwt.authz.utils.Permission;
+import jakarta.json.Json;
+import jakarta.json.JsonArrayBuilder;
+import jakarta.json.JsonObject;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ * <p>
+ * Generates the 'authorization' claim of a Keycloak RPT with the provided number of resources,
+ * instances per resource and scopes per entry. The first resources are always REPORTS and GROUPS,
+ * every resource has a resource entry and instances from 1 to the number of instances.
+ * </p>
+ *
+ * @author julio.rocha
+ */
+public class RptGenerator {
+    public static final String[] SCOPES = {Permission.READ, Permission.EXECUTE, Permission.PRINT, Permission.UPDATE,
+            Permission.INSERT, Permission.DELETE, Permission.ARCHIVE};
+    final int resources;
+    final int instances;
+    final int scopes;
+
+    /**
+     * @param resources            number of resources, at least 1
+     * @param instancesPerResource number of instances of every resource
+     * @param scopesPerEntry       number of scopes of every entry, from 1 to 7
+     */
+    public RptGenerator(int resources, int instancesPerResource, int scopesPerEntry) {
+        if (resources < 1 || instancesPerResource < 0 || scopesPerEntry < 1 || scopesPerEntry > SCOPES.length) {
+            throw new IllegalArgumentException("Invalid RPT size");
+        }
+        this.resources = resources;
+        this.instances = instancesPerResource;
+        this.scopes = scopesPerEntry;
+    }
+
+    public static String resourceName(int index) {
+        return index == 0 ? "REPORTS" : index == 1 ? "GROUPS" : "RESOURCE_" + index;
+    }
+
+    public int getInstances() {
+        return instances;
+    }
+
+    public int getPermissionEntries() {
+        return resources * (instances + 1);
+    }
+
+    public JsonObject authorization(String user) {
+        JsonArrayBuilder permissions = Json.createArrayBuilder();
+        for (int r = 0; r < resources; r++) {
+            String resource = resourceName(r);
+            permissions.add(entry(resource + ":" + user));
+            for (int i = 1; i <= instances; i++) {
+                permissions.add(entry(resource + ":" + user + ":" + i));
+            }
+        }
+        return Json.createObjectBuilder().add("permissions", permissions).build();
+    }
+
+    private JsonObject entry(String rsname) {
+        JsonArrayBuilder values = Json.createArrayBuilder();
+        for (int s = 0; s < scopes; s++) {
+            values.add(SCOPES[s]);
+        }
+        return Json.createObjectBuilder().add("rsname", rsname).add("scopes", values).build();
+    }
+}
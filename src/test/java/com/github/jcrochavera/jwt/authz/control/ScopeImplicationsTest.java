@@ -0,0 +1,52 @@
+package com.github.jcrochavera.jwt.authz.control;
+
+import com.github.jcrochavera.jwt.authz.utils.Permission;
+import org.hamcrest.core.IsEqual;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ *
+ * @author julio.rocha
+ */
+public class ScopeImplicationsTest {
+    @Test
+    public void transitiveClosure() {
+        ScopeImplications implications = ScopeImplications.none()
+                .with(Permission.UPDATE, Permission.READ)
+                .with(Permission.DELETE, Permission.ARCHIVE)
+                .with(Permission.DELETE, Permission.UPDATE)
+                .with(Permission.ARCHIVE, Permission.PRINT);
+
+        assertThat(implications.implied(Permission.DELETE), is(IsEqual.equalTo(
+                Set.of(Permission.ARCHIVE, Permission.UPDATE, Permission.READ, Permission.PRINT))));
+        assertThat(implications.implied(Permission.UPDATE), is(IsEqual.equalTo(Set.of(Permission.READ))));
+        assertThat(implications.implied(Permission.READ), is(IsEqual.equalTo(Set.of())));
+        assertThat(implications.isEmpty(), is(false));
+        assertThat(ScopeImplications.none().implied(Permission.READ), is(IsEqual.equalTo(Set.of())));
+        assertThat(ScopeImplications.none().isEmpty(), is(true));
+        assertThat(ScopeImplications.none().with(Permission.READ).isEmpty(), is(true));
+        assertThat(ScopeImplications.none(), sameInstance(ScopeImplications.none()));
+    }
+
+    @Test
+    public void cycles() {
+        ScopeImplications implications = ScopeImplications.none()
+                .with(Permission.UPDATE, Permission.INSERT)
+                .with(Permission.INSERT, Permission.UPDATE, Permission.READ);
+
+        assertThat(implications.implied(Permission.UPDATE), is(IsEqual.equalTo(Set.of(Permission.INSERT, Permission.READ))));
+        assertThat(implications.implied(Permission.INSERT), is(IsEqual.equalTo(Set.of(Permission.UPDATE, Permission.READ))));
+        assertThat(Assert.assertThrows(NullPointerException.class, () -> implications.with(null)).getMessage(),
+                is("scope is mandatory"));
+        assertThat(Assert.assertThrows(NullPointerException.class,
+                () -> implications.with(Permission.READ, (String[]) null)).getMessage(), is("implied scopes are mandatory"));
+    }
+}
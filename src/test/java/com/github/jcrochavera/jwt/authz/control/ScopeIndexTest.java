@@ -0,0 +1,37 @@
+package com.github.jcrochavera.jwt.authz.control;
+
+import org.hamcrest.core.IsEqual;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ *
+ * @author julio.rocha
+ */
+public class ScopeIndexTest {
+    @Test
+    public void reverseIndex() {
+        InstancePermissions instances = InstancePermissions.of(Map.of("REPORTS:34", Set.of("r", "x"),
+                "REPORTS:" + new UUID(1, 2), Set.of("r"), "REPORTS:report", Set.of("x"),
+                "GROUPS:5", Set.of("r")), 1024);
+        ScopeIndex index = new ScopeIndex(Map.of("REPORTS", Set.of("r", "x"), "GROUPS", Set.of("r")), instances);
+
+        assertThat(index.resources("r"), is(IsEqual.equalTo(Set.of("REPORTS", "GROUPS"))));
+        assertThat(index.resources("x"), is(IsEqual.equalTo(Set.of("REPORTS"))));
+        assertThat(index.resources("d"), is(IsEqual.equalTo(Set.of())));
+        assertThat(index.instances("REPORTS", "r"),
+                is(IsEqual.equalTo(Set.of("34", new UUID(1, 2).toString()))));
+        assertThat(index.instances("REPORTS", "x"), is(IsEqual.equalTo(Set.of("34", "report"))));
+        assertThat(index.instances("REPORTS", "x"), sameInstance(index.instances("REPORTS", "x")));
+        assertThat(index.instances("GROUPS", "x"), is(IsEqual.equalTo(Set.of())));
+        assertThat(index.instances("USERS", "r"), is(IsEqual.equalTo(Set.of())));
+    }
+}
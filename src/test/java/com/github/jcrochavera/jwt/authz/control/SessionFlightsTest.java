@@ -0,0 +1,90 @@
+package com.github.jcrochavera.jwt.authz.control;
+
+import org.hamcrest.core.IsEqual;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ *
+ * @author julio.rocha
+ */
+public class SessionFlightsTest {
+    final SessionFlights flights = new SessionFlights();
+    final AtomicInteger builds = new AtomicInteger();
+    final Supplier<UserSession> builder = () -> {
+        builds.incrementAndGet();
+        return new UserSession("dummy", MappedSessionStoreTest.grants());
+    };
+
+    @Test
+    public void concurrentRequestsShareTheBuild() throws Exception {
+        TokenDigest key = TokenDigest.of("token");
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<UserSession> first = executor.submit(() -> flights.get(key, () -> {
+                await(release);
+                return builder.get();
+            }));
+            while (flights.getInFlight() == 0) {
+                Thread.sleep(1);
+            }
+            CompletableFuture<UserSession> waiting = flights.getAsync(key, builder);
+            CompletableFuture<UserSession> cancelled = flights.getAsync(key, builder);
+            assertThat(cancelled, not(sameInstance(waiting)));
+            assertThat(waiting.isDone(), is(false));
+            cancelled.cancel(true);
+            assertThat(waiting.isDone(), is(false));
+
+            release.countDown();
+
+            assertThat(waiting.get(5, TimeUnit.SECONDS), sameInstance(first.get(5, TimeUnit.SECONDS)));
+            assertThat(builds.get(), is(IsEqual.equalTo(1)));
+            assertThat(flights.getInFlight(), is(IsEqual.equalTo(0)));
+            assertThat(flights.get(key, builder), not(sameInstance(first.get())));
+            assertThat(builds.get(), is(IsEqual.equalTo(2)));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void failuresAreSharedAndNotKept() {
+        TokenDigest key = TokenDigest.of("token");
+        IllegalStateException failure = new IllegalStateException("claim");
+
+        assertThat(Assert.assertThrows(IllegalStateException.class, () -> flights.get(key, () -> {
+            throw failure;
+        })), sameInstance(failure));
+        Assert.assertThrows(AssertionError.class, () -> flights.get(key, () -> {
+            throw new AssertionError("build");
+        }));
+        assertThat(flights.getInFlight(), is(IsEqual.equalTo(0)));
+        assertThat(flights.get(key, builder).getUser(), is("dummy"));
+        assertThat(Assert.assertThrows(NullPointerException.class, () -> flights.get(null, builder)).getMessage(),
+                is("key is mandatory"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.github.jcrochavera.jwt.authz.control;
+
+import org.hamcrest.core.IsEqual;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.github.jcrochavera.jwt.authz.control.UserSessionTest.addResource;
+import static com.github.jcrochavera.jwt.authz.control.UserSessionTest.addScopes;
+import static com.github.jcrochavera.jwt.authz.control.UserSessionTest.authorization;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ *
+ * @author julio.rocha
+ */
+public class SessionMemoryTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    final UserSession small = new UserSession("small", null);
+    final UserSession large = new UserSession("large", MappedSessionStoreTest.grants());
+
+    @After
+    public void tearDown() {
+        SessionMemory.caches().values().forEach(SessionMemory::clear);
+    }
+
+    @Test
+    public void sessionsOfACache() {
+        SessionMemory memory = SessionMemory.of("sessions");
+        assertThat(SessionMemory.of("sessions"), sameInstance(memory));
+
+        memory.put("a", small);
+        memory.put("b", small);
+        memory.put("b", large);
+
+        assertThat(memory.getSessions(), is(IsEqual.equalTo(2)));
+        assertThat(memory.getBytes(), is(IsEqual.equalTo(small.getRetainedSize() + large.getRetainedSize())));
+        List<SessionMemory.Footprint> largest = memory.largest(5);
+        assertThat(largest.stream().map(SessionMemory.Footprint::getUser).collect(Collectors.toList()),
+                is(IsEqual.equalTo(List.of("large", "small"))));
+        assertThat(largest.get(0).getBytes(), is(IsEqual.equalTo(large.getRetainedSize())));
+        assertThat(largest.get(0).getCache(), is("sessions"));
+        assertThat(memory.largest(1).size(), is(IsEqual.equalTo(1)));
+
+        memory.remove("b");
+        memory.remove("missing");
+
+        assertThat(memory.getBytes(), is(IsEqual.equalTo(small.getRetainedSize())));
+        assertThat(Assert.assertThrows(NullPointerException.class, () -> memory.put(null, small)).getMessage(),
+                is("key is mandatory"));
+        assertThat(Assert.assertThrows(NullPointerException.class, () -> SessionMemory.of(null)).getMessage(),
+                is("cache is mandatory"));
+    }
+
+    @Test
+    public void gaugesAndDumpOfEveryCache() {
+        SessionMemory.of("sessions").put("a", small);
+        SessionMemory.of("connections").put("a", large);
+        SessionMemory.of("connections").put("b", small);
+
+        assertThat(SessionMemory.getTotalBytes(),
+                is(IsEqual.equalTo(2 * small.getRetainedSize() + large.getRetainedSize())));
+        String[] lines = SessionMemory.dump(2).split(System.lineSeparator());
+        assertThat(lines.length, is(IsEqual.equalTo(3)));
+        assertThat(lines[0], containsString("USER"));
+        assertThat(lines[1], containsString("connections"));
+        assertThat(lines[1], containsString("large"));
+        assertThat(lines[1], containsString(Long.toString(large.getRetainedSize())));
+        assertThat(lines[2], containsString("small"));
+    }
+
+    @Test
+    public void sessionsWithoutUser() {
+        UserSession anonymous = Mockito.mock(UserSession.class);
+        SessionMemory memory = SessionMemory.of("sessions");
+        memory.put(TokenDigest.of("a"), anonymous);
+        memory.put(TokenDigest.of("b"), small);
+        memory.put(TokenDigest.of("c"), anonymous);
+
+        assertThat(memory.largest(3).stream().map(SessionMemory.Footprint::getUser).collect(Collectors.toList()),
+                is(IsEqual.equalTo(Arrays.asList("small", null, null))));
+        assertThat(SessionMemory.dump(3).split(System.lineSeparator()).length, is(IsEqual.equalTo(4)));
+    }
+
+    @Test
+    public void mappedStores() throws Exception {
+        Path file = folder.newFile().toPath();
+        SessionMemory memory;
+        long total = SessionMemory.getTotalMappedBytes();
+        try (MappedSessionStore store = new MappedSessionStore(file, 4, 256)) {
+            memory = SessionMemory.of("MappedSessionStore:" + file);
+            assertThat(memory.getMappedBytes(), is(IsEqual.equalTo((long) store.buffer.capacity())));
+            assertThat(SessionMemory.getTotalMappedBytes(), is(IsEqual.equalTo(total + store.buffer.capacity())));
+            assertThat(memory.getBytes(), is(IsEqual.equalTo(0L)));
+            store.close();
+        }
+        assertThat(memory.getMappedBytes(), is(IsEqual.equalTo(0L)));
+    }
+}
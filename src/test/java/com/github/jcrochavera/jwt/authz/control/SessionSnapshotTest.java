@@ -0,0 +1,148 @@
+package com.github.jcrochavera.jwt.authz.control;
+
+import org.hamcrest.core.IsEqual;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.Key;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static com.github.jcrochavera.jwt.authz.control.MappedSessionStoreTest.FUTURE;
+import static com.github.jcrochavera.jwt.authz.control.MappedSessionStoreTest.grants;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ *
+ * @author julio.rocha
+ */
+public class SessionSnapshotTest {
+    static final Key KEY = new SecretKeySpec("snapshot-secret".getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    static byte[] sign(byte[] content) {
+        try {
+            Mac mac = Mac.getInstance(SessionSnapshot.MAC_ALGORITHM);
+            mac.init(KEY);
+            byte[] signed = Arrays.copyOf(content, content.length + SessionSnapshot.MAC_LENGTH);
+            System.arraycopy(mac.doFinal(content), 0, signed, content.length, SessionSnapshot.MAC_LENGTH);
+            return signed;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Test
+    public void validSessionsSurviveRestart() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("sessions.snapshot");
+        UserSession session = new UserSession("dummy", grants()).withRoles(Set.of("User", "Admin"));
+        SessionSnapshot snapshot = new SessionSnapshot()
+                .add(TokenDigest.of("token"), session, FUTURE)
+                .add(TokenDigest.of("expired"), new UserSession("other", grants()), 0)
+                .add(TokenDigest.of("empty"), new UserSession("empty", null), FUTURE);
+
+        assertThat(SessionSnapshot.read(file, KEY).getEntries().size(), is(0));
+        assertThat(snapshot.write(file, KEY), is(2));
+        List<SessionSnapshot.Entry> entries = SessionSnapshot.read(file, KEY).getEntries();
+
+        assertThat(entries.size(), is(2));
+        assertThat(entries.get(0).getKey(), is(IsEqual.equalTo(TokenDigest.of("token"))));
+        assertThat(entries.get(0).getExpiresAt(), is(FUTURE));
+        assertThat(entries.get(0).getSession().getUser(), is("dummy"));
+        assertThat(entries.get(0).getSession().getRoles(), is(IsEqual.equalTo(Set.of("User", "Admin"))));
+        assertThat(entries.get(0).getSession().instancePermissions.asMap(),
+                is(IsEqual.equalTo(session.instancePermissions.asMap())));
+        assertThat(entries.get(0).getSession().resourcePermissions, is(IsEqual.equalTo(session.resourcePermissions)));
+        assertThat(entries.get(1).getSession().getUser(), is("empty"));
+        assertThat(entries.get(1).getSession().getRoles().isEmpty(), is(true));
+        assertThat(snapshot.write(file, KEY), is(2));
+        if (Files.getFileStore(file).supportsFileAttributeView("posix")) {
+            assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(file)), is("rw-------"));
+        }
+    }
+
+    @Test
+    public void entriesExpiredWhileStoredAreSkipped() {
+        long now = System.currentTimeMillis();
+        byte[] encoded = new SessionSnapshot().add(TokenDigest.of("token"), new UserSession("dummy", grants()), now + 60_000)
+                .add(TokenDigest.of("other"), new UserSession("other", grants()), FUTURE).encode(KEY);
+
+        List<SessionSnapshot.Entry> entries = SessionSnapshot.decode(ByteBuffer.wrap(encoded), KEY, now + 120_000)
+                .getEntries();
+
+        assertThat(entries.size(), is(1));
+        assertThat(entries.get(0).getSession().getUser(), is("other"));
+    }
+
+    @Test
+    public void tamperedAndCorruptFilesAreDiscarded() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("sessions.snapshot");
+        byte[] encoded = new SessionSnapshot().add(TokenDigest.of("token"), new UserSession("dummy", grants()), FUTURE)
+                .encode(KEY);
+        byte[] tampered = encoded.clone();
+        tampered[SessionSnapshot.HEADER + 16] ^= 1;
+
+        assertThat(Assert.assertThrows(IllegalArgumentException.class, () -> SessionSnapshot.decode(ByteBuffer.wrap(tampered), KEY))
+                .getMessage(), is("Session snapshot is not authentic"));
+        Key other = new SecretKeySpec("other".getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+        assertThat(Assert.assertThrows(IllegalArgumentException.class, () -> SessionSnapshot.decode(ByteBuffer.wrap(encoded), other))
+                .getMessage(), is("Session snapshot is not authentic"));
+        Files.write(file, tampered);
+        assertThat(SessionSnapshot.read(file, KEY).getEntries().size(), is(0));
+        Files.write(file, Arrays.copyOf(encoded, encoded.length / 2));
+        assertThat(SessionSnapshot.read(file, KEY).getEntries().size(), is(0));
+        Files.write(file, new byte[0]);
+        assertThat(SessionSnapshot.read(file, KEY).getEntries().size(), is(0));
+    }
+
+    @Test
+    public void corruptAuthenticContent() {
+        byte[] encoded = new SessionSnapshot().add(TokenDigest.of("token"), new UserSession("dummy", grants()), FUTURE)
+                .encode(KEY);
+        ByteBuffer content = ByteBuffer.allocate(encoded.length + 4).put(encoded, 0, encoded.length - SessionSnapshot.MAC_LENGTH);
+        byte[] truncated = sign(Arrays.copyOf(encoded, SessionSnapshot.HEADER + 20));
+        byte[] trailing = sign(Arrays.copyOf(content.array(), content.position() + 4));
+        ByteBuffer.wrap(encoded).putInt(SessionSnapshot.HEADER + 24, Integer.MAX_VALUE);
+        byte[] length = sign(Arrays.copyOf(encoded, encoded.length - SessionSnapshot.MAC_LENGTH));
+
+        for (byte[] corrupt : List.of(truncated, trailing, length)) {
+            assertThat(Assert.assertThrows(IllegalArgumentException.class, () -> SessionSnapshot.decode(ByteBuffer.wrap(corrupt), KEY))
+                    .getMessage(), is("Session snapshot is corrupt"));
+        }
+    }
+
+    @Test
+    public void invalidContent() {
+        byte[] encoded = new SessionSnapshot().encode(KEY);
+        assertThat(Assert.assertThrows(IllegalArgumentException.class, () -> SessionSnapshot.decode(ByteBuffer.allocate(4), KEY))
+                .getMessage(), is("Content is not a session snapshot"));
+        assertThat(Assert.assertThrows(IllegalArgumentException.class, () -> SessionSnapshot.decode(ByteBuffer.allocate(41), KEY))
+                .getMessage(), is("Content is not a session snapshot"));
+        encoded[4] = 1;
+        assertThat(Assert.assertThrows(IllegalArgumentException.class, () -> SessionSnapshot.decode(ByteBuffer.wrap(encoded), KEY))
+                .getMessage(), is("Unsupported session snapshot version 1"));
+        assertThat(Assert.assertThrows(IllegalArgumentException.class, () -> new SessionSnapshot()
+                .encode(Mockito.mock(Key.class))).getMessage(), is("Key cannot authenticate a session snapshot"));
+        assertThat(Assert.assertThrows(NullPointerException.class, () -> new SessionSnapshot().encode(null))
+                .getMessage(), is("key is mandatory"));
+        assertThat(Assert.assertThrows(NullPointerException.class, () -> new SessionSnapshot().add(null, null, 0))
+                .getMessage(), is("key is mandatory"));
+        assertThat(Assert.assertThrows(NullPointerException.class, () -> new SessionSnapshot().add(TokenDigest.of("t"), null, 0))
+                .getMessage(), is("session is mandatory"));
+    }
+}
@@ -0,0 +1,38 @@
+package com.github.jcrochavera.jwt.authz.control;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ *
+ * @author julio.rocha
+ */
+public class SlotIndexTest {
+    static int fnv(int hash, byte[] bytes) {
+        for (byte b : bytes) {
+            hash = (hash ^ (b & 0xFF)) * 0x01000193;
+        }
+        return hash;
+    }
+
+    @Test
+    public void keysAreHashedAndMatchedAsTheirUtf8Bytes() {
+        new SlotIndex();
+        for (String value : new String[]{"", "REPORTS", "ñandú", "€uro", "clef 𝄞", "broken \uD834 pair", "\uDD1E"}) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            assertThat(value, SlotIndex.hash(SlotIndex.seed(SlotIndex.RESOURCE), value),
+                    is(fnv(SlotIndex.seed(SlotIndex.RESOURCE), bytes)));
+            ByteBuffer buffer = ByteBuffer.allocate(bytes.length + 1).put(bytes);
+            assertThat(value, SlotIndex.match(buffer, 0, bytes.length, value), is(bytes.length));
+            assertThat(value, SlotIndex.match(buffer, 0, bytes.length, value + "x"), is(-1));
+        }
+        assertThat(SlotIndex.hash("REPORTS", "ñ"), is(fnv(SlotIndex.seed(SlotIndex.STRING),
+                "REPORTS:ñ".getBytes(StandardCharsets.UTF_8))));
+    }
+}
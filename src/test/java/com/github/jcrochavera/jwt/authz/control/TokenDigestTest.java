@@ -0,0 +1,48 @@
+package com.github.jcrochavera.jwt.authz.control;
+
+import org.hamcrest.core.IsEqual;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ *
+ * @author julio.rocha
+ */
+public class TokenDigestTest {
+    @Test
+    public void sameTokenSameDigest() {
+        TokenDigest digest = TokenDigest.of("eyJhbGciOiJSUzI1NiJ9.dummy");
+
+        assertThat(digest, is(IsEqual.equalTo(TokenDigest.of("eyJhbGciOiJSUzI1NiJ9.dummy"))));
+        assertThat(digest, is(IsEqual.equalTo(digest)));
+        assertThat(digest.hashCode(), is(IsEqual.equalTo(TokenDigest.of("eyJhbGciOiJSUzI1NiJ9.dummy").hashCode())));
+        assertThat(digest, not(IsEqual.equalTo(TokenDigest.of("eyJhbGciOiJSUzI1NiJ9.other"))));
+        assertThat(digest.equals("eyJhbGciOiJSUzI1NiJ9.dummy"), is(IsEqual.equalTo(false)));
+        assertThat(new TokenDigest(1, 2), not(IsEqual.equalTo(new TokenDigest(1, 3))));
+    }
+
+    @Test
+    public void digestNotAvailable() {
+        try (MockedStatic<MessageDigest> digest = Mockito.mockStatic(MessageDigest.class)) {
+            digest.when(() -> MessageDigest.getInstance("SHA-256")).thenThrow(new NoSuchAlgorithmException("SHA-256"));
+            Throwable cause = Assert.assertThrows(IllegalStateException.class, () -> TokenDigest.of("abc")).getCause();
+            assertThat(cause, instanceOf(NoSuchAlgorithmException.class));
+        }
+    }
+
+    @Test
+    public void hexadecimalRepresentation() {
+        assertThat(TokenDigest.of("abc").toString(), is(IsEqual.equalTo("ba7816bf8f01cfea414140de5dae2223")));
+    }
+}
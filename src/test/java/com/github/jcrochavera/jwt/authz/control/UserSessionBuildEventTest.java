@@ -0,0 +1,88 @@
+package com.github.jcrochavera.jwt.authz.control;
+
+import jakarta.json.Json;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.github.jcrochavera.jwt.authz.control.UserSessionTest.addResource;
+import static com.github.jcrochavera.jwt.authz.control.UserSessionTest.addScopes;
+import static com.github.jcrochavera.jwt.authz.control.UserSessionTest.authorization;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ *
+ * @author julio.rocha
+ */
+public class UserSessionBuildEventTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    List<RecordedEvent> record(Duration threshold, Runnable operation) throws Exception {
+        Path file = folder.newFile("session.jfr").toPath();
+        try (Recording recording = new Recording()) {
+            recording.enable(UserSessionBuildEvent.NAME).withThreshold(threshold);
+            recording.start();
+            operation.run();
+            recording.stop();
+            recording.dump(file);
+        }
+        return RecordingFile.readAllEvents(file).stream()
+                .filter(event -> event.getEventType().getName().equals(UserSessionBuildEvent.NAME))
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void sessionBuildsAreRecorded() throws Exception {
+        List<RecordedEvent> events = record(Duration.ZERO, () -> {
+            new UserSession("dummy", authorization(addScopes(addResource("REPORTS:dummy:34"), "r", "x"),
+                    addScopes(addResource("REPORTS:dummy:38"), "a"),
+                    addScopes(addResource("GROUPS:dummy"), "i")));
+            new UserSession("dummy", null);
+            new UserSession("dummy", Json.createObjectBuilder().build());
+        });
+
+        assertThat(events.size(), is(3));
+        assertThat(events.get(0).getInt("permissions"), is(3));
+        assertThat(events.get(0).getInt("resources"), is(2));
+        assertThat(events.get(0).getInt("instances"), is(2));
+        assertThat(events.get(0).getLong("retainedSize") > 0, is(true));
+        assertThat(events.get(1).getInt("permissions"), is(0));
+        assertThat(events.get(2).getInt("permissions"), is(0));
+    }
+
+    @Test
+    public void fastBuildsAreNotRecorded() throws Exception {
+        List<RecordedEvent> events = record(Duration.ofHours(1), () -> new UserSession("dummy", null));
+
+        assertThat(events.size(), is(0));
+    }
+
+    @Test
+    public void notCreatedWithoutRecording() {
+        assertThat(UserSessionBuildEvent.start(), nullValue());
+    }
+
+    @Test
+    public void notCreatedWithoutFlightRecorderModule() throws Exception {
+        UserSession.FLIGHT_RECORDER = false;
+        try {
+            List<RecordedEvent> events = record(Duration.ZERO, () -> new UserSession("dummy", null));
+
+            assertThat(events.size(), is(0));
+        } finally {
+            UserSession.FLIGHT_RECORDER = true;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.github.jcrochavera.jwt.authz.control;
+
+import org.hamcrest.core.IsEqual;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Created by julio.rocha on 18/10/26.
+ *
+ * @author julio.rocha
+ */
+public class UserSessionOptionsTest {
+    @Test
+    public void defaultValues() {
+        UserSessionOptions options = new UserSessionOptions();
+        assertThat(options.getBloomFilterThreshold(), is(IsEqual.equalTo(1024)));
+        assertThat(options.getParallelThreshold(), is(IsEqual.equalTo(Integer.MAX_VALUE)));
+        assertThat(options.getParallelPool(), sameInstance(ForkJoinPool.commonPool()));
+    }
+
+    @Test
+    public void withCopiesTheOptions() {
+        UserSessionOptions options = new UserSessionOptions();
+        UserSessionOptions modified = options.withBloomFilterThreshold(10);
+
+        assertThat(modified, not(sameInstance(options)));
+        assertThat(modified.getBloomFilterThreshold(), is(IsEqual.equalTo(10)));
+        assertThat(options.getBloomFilterThreshold(), is(IsEqual.equalTo(1024)));
+        String message = Assert.assertThrows(IllegalArgumentException.class,
+                () -> options.withBloomFilterThreshold(-1)).getMessage();
+        assertThat(message, is("threshold must not be negative"));
+    }
+
+    @Test
+    public void withParallelism() {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        UserSessionOptions options = new UserSessionOptions().withParallelThreshold(5000).withParallelPool(pool)
+                .withBloomFilterThreshold(10);
+
+        assertThat(options.getParallelThreshold(), is(IsEqual.equalTo(5000)));
+        assertThat(options.getParallelPool(), sameInstance(pool));
+        assertThat(Assert.assertThrows(IllegalArgumentException.class,
+                () -> options.withParallelThreshold(-1)).getMessage(), is("threshold must not be negative"));
+        assertThat(Assert.assertThrows(NullPointerException.class,
+                () -> options.withParallelPool(null)).getMessage(), is("pool is mandatory"));
+        pool.shutdown();
+    }
+
+    @Test
+    public void withLimits() {
+        UserSessionOptions options = new UserSessionOptions().withLimit(ClaimLimit.SCOPES, 8).withTruncation(true);
+
+        assertThat(options.getLimit(ClaimLimit.SCOPES), is(IsEqual.equalTo(8)));
+        assertThat(options.getLimit(ClaimLimit.PERMISSIONS), is(IsEqual.equalTo(Integer.MAX_VALUE)));
+        assertThat(options.isTruncation(), is(true));
+        assertThat(options.withLimit(ClaimLimit.SCOPES, 2).withBloomFilterThreshold(3).getLimit(ClaimLimit.SCOPES),
+                is(IsEqual.equalTo(2)));
+        assertThat(options.getLimit(ClaimLimit.SCOPES), is(IsEqual.equalTo(8)));
+        assertThat(new UserSessionOptions().isTruncation(), is(false));
+        assertThat(Assert.assertThrows(IllegalArgumentException.class,
+                () -> options.withLimit(ClaimLimit.SCOPES, 0)).getMessage(), is("max must be positive"));
+        assertThat(Assert.assertThrows(NullPointerException.class,
+                () -> options.withLimit(null, 1)).getMessage(), is("limit is mandatory"));
+    }
+
+    @Test
+    public void replaceDefaults() {
+        UserSessionOptions defaults = UserSessionOptions.defaults();
+        try {
+            UserSessionOptions options = defaults.withBloomFilterThreshold(0);
+            UserSessionOptions.setDefaults(options);
+
+            assertThat(UserSessionOptions.defaults(), sameInstance(options));
+            assertThat(new UserSession("dummy", null).options, sameInstance(options));
+            String message = Assert.assertThrows(NullPointerException.class,
+                    () -> UserSessionOptions.setDefaults(null)).getMessage();
+            assertThat(message, is("options are mandatory"));
+        } finally {
+            UserSessionOptions.setDefaults(defaults);
+        }
+    }
+
+    @Test
+    public void withImplications() {
+        ScopeImplications implications = ScopeImplications.none().with("u", "r");
+        UserSessionOptions options = new UserSessionOptions().withImplications(implications);
+
+        assertThat(options.getImplications(), sameInstance(implications));
+        assertThat(options.withBloomFilterThreshold(3).getImplications(), sameInstance(implications));
+        assertThat(new UserSessionOptions().getImplications().isEmpty(), is(true));
+        assertThat(Assert.assertThrows(NullPointerException.class,
+                () -> options.withImplications(null)).getMessage(), is("implications are mandatory"));
+    }
+}
@@ -1,15 +1,25 @@
 package com.github.jcrochavera.jwt.authz.control;
 
 import com.github.jcrochavera.jwt.authz.annotations.Operation;
+import com.github.jcrochavera.jwt.authz.utils.Permission;
 import jakarta.json.*;
 import org.hamcrest.MatcherAssert;
 import org.hamcrest.core.IsEqual;
+import org.junit.Assert;
 import org.junit.Test;
 
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
 
+import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.hamcrest.MatcherAssert.assertThat;
 
 /**
@@ -204,6 +214,391 @@ public class UserSessionTest {
         assertThat(session.hasInstancePermissions(resourceName1, instanceValue1, "i"), is(IsEqual.equalTo(true)));
     }
 
+    @Test
+    public void instancesOfResourcesSharingPrefix() {
+        JsonArray permissions = Json.createArrayBuilder()
+                .add(addScopes(addResource("REPORT:dummy:34"), "r"))
+                .add(addScopes(addResource("REPORTS:dummy:4"), "r"))
+                .build();
+        JsonObject authorization = Json.createObjectBuilder().add("permissions", permissions).build();
+        UserSession session = new UserSession("dummy", authorization);
+
+        assertThat(session.getInstances("REPORT"), is(IsEqual.equalTo(Set.of("34"))));
+        assertThat(session.getInstances("REPORTS"), is(IsEqual.equalTo(Set.of("4"))));
+        assertThat(session.hasInstancePermission("REPORTS", "4", "r"), is(IsEqual.equalTo(true)));
+        assertThat(session.hasInstancePermission("REPORT", "S4", "r"), is(IsEqual.equalTo(false)));
+    }
+
+    @Test
+    public void diffWithSameGrants() {
+        UserSessionExtended session = new UserSessionExtended("dummy", "dummy@dummy.com", "DUMMY", 3L,
+                authorization(addScopes(addResource("REPORTS:dummy:34"), "r", "x")));
+
+        PermissionsDelta delta = session.diff(authorization(addScopes(addResource("REPORTS:dummy:34"), "x", "r")));
+
+        assertThat(delta.isEmpty(), is(IsEqual.equalTo(true)));
+        assertThat(session.refresh(authorization(addScopes(addResource("REPORTS:dummy:34"), "r", "x"))),
+                sameInstance(session));
+    }
+
+    @Test
+    public void diffWithAddedAndRemovedGrants() {
+        UserSessionExtended session = new UserSessionExtended("dummy", "dummy@dummy.com", "DUMMY", 3L,
+                authorization(addScopes(addResource("REPORTS:dummy:34"), "r", "x"),
+                        addScopes(addResource("REPORTS:dummy:38"), "r"),
+                        addScopes(addResource("GROUPS:dummy"), "i")));
+        JsonObject newAuthorization = authorization(addScopes(addResource("REPORTS:dummy:34"), "r", "p"),
+                addScopes(addResource("REPORTS:dummy:38"), "r"),
+                addScopes(addResource("USERS:dummy:7"), "d"));
+
+        PermissionsDelta delta = session.diff(newAuthorization);
+
+        assertThat(delta.isEmpty(), is(IsEqual.equalTo(false)));
+        assertThat(delta.getAddedResources(), is(IsEqual.equalTo(Set.of("USERS"))));
+        assertThat(delta.getRemovedResources(), is(IsEqual.equalTo(Set.of("GROUPS"))));
+        assertThat(delta.getAddedScopes(), is(IsEqual.equalTo(Map.of("REPORTS", Set.of("p"), "USERS", Set.of("d")))));
+        assertThat(delta.getRemovedScopes(), is(IsEqual.equalTo(Map.of("REPORTS", Set.of("x"), "GROUPS", Set.of("i")))));
+        assertThat(delta.getAddedInstanceScopes(), is(IsEqual.equalTo(
+                Map.of("REPORTS", Map.of("34", Set.of("p")), "USERS", Map.of("7", Set.of("d"))))));
+        assertThat(delta.getRemovedInstanceScopes(), is(IsEqual.equalTo(
+                Map.of("REPORTS", Map.of("34", Set.of("x"))))));
+    }
+
+    @Test
+    public void refreshKeepsPreviousSessionAndSharesUnchangedGrants() {
+        UserSessionExtended session = new UserSessionExtended("dummy", "dummy@dummy.com", "DUMMY", 3L,
+                authorization(addScopes(addResource("REPORTS:dummy:34"), "r", "x"),
+                        addScopes(addResource("GROUPS:dummy:5"), "i")));
+
+        UserSession refreshed = session.refresh(authorization(addScopes(addResource("REPORTS:dummy:34"), "r"),
+                addScopes(addResource("GROUPS:dummy:5"), "i")));
+
+        assertThat(refreshed, instanceOf(UserSessionExtended.class));
+        assertThat(((UserSessionExtended) refreshed).getTenant(), is(IsEqual.equalTo("DUMMY")));
+        assertThat(refreshed.getUser(), is(IsEqual.equalTo("dummy")));
+        assertThat(refreshed.hasInstancePermission("REPORTS", "34", "x"), is(IsEqual.equalTo(false)));
+        assertThat(refreshed.hasInstancePermissions("REPORTS", "34", "r"), is(IsEqual.equalTo(true)));
+        assertThat(session.hasInstancePermissions("REPORTS", "34", "r", "x"), is(IsEqual.equalTo(true)));
+        assertThat(refreshed.resourcePermissions.get("GROUPS"), sameInstance(session.resourcePermissions.get("GROUPS")));
+        assertThat(refreshed.instancePermissions.get("GROUPS", "5"), sameInstance(session.instancePermissions.get("GROUPS", "5")));
+        assertThat(refreshed.instancePermissions.size(), is(IsEqual.equalTo(2)));
+
+        UserSession revoked = refreshed.refresh(null);
+        assertThat(revoked.getResources().size(), is(IsEqual.equalTo(0)));
+        assertThat(revoked.getInstances("REPORTS").size(), is(IsEqual.equalTo(0)));
+        assertThat(refreshed.getResources().size(), is(IsEqual.equalTo(2)));
+    }
+
+    @Test
+    public void bloomFilterAboveThreshold() {
+        UserSessionOptions options = UserSessionOptions.defaults().withBloomFilterThreshold(2);
+        JsonObject authorization = authorization(addScopes(addResource("REPORTS:dummy:report-34"), "r"),
+                addScopes(addResource("REPORTS:dummy:report-38"), "x"), addScopes(addResource("REPORTS:dummy:40"), "r"),
+                addScopes(addResource("GROUPS:dummy:group-5"), "r"));
+        UserSession session = new UserSession("dummy", authorization, options);
+
+        assertThat(session.instancePermissions.filter("REPORTS"), notNullValue());
+        assertThat(session.instancePermissions.filter("GROUPS"), nullValue());
+        assertThat(session.instancePermissions.filter("USERS"), nullValue());
+        assertThat(session.hasInstancePermission("REPORTS", "report-34", "r"), is(IsEqual.equalTo(true)));
+        assertThat(session.hasInstancePermission("REPORTS", "report-38", "r"), is(IsEqual.equalTo(false)));
+        assertThat(session.hasInstancePermission("REPORTS", "report-35", "r"), is(IsEqual.equalTo(false)));
+        assertThat(session.hasInstancePermission("REPORTS", "40", "r"), is(IsEqual.equalTo(true)));
+        assertThat(session.hasInstancePermission("GROUPS", "report-34", "r"), is(IsEqual.equalTo(false)));
+
+        UserSession refreshed = session.refresh(authorization(addScopes(addResource("REPORTS:dummy:report-34"), "r")));
+        assertThat(refreshed.instancePermissions.filter("REPORTS"), nullValue());
+        assertThat(refreshed.hasInstancePermission("REPORTS", "report-34", "r"), is(IsEqual.equalTo(true)));
+        String message = Assert.assertThrows(NullPointerException.class,
+                () -> new UserSession("dummy", (JsonObject) null, null)).getMessage();
+        assertThat(message, is("options are mandatory"));
+    }
+
+    @Test
+    public void roles() {
+        UserSession session = new UserSession("dummy", authorization(addScopes(addResource("REPORTS:dummy:34"), "r")));
+        assertThat(session.getRoles().isEmpty(), is(IsEqual.equalTo(true)));
+
+        UserSession withRoles = session.withRoles(Arrays.asList("User", "User"));
+        assertThat(withRoles.hasRole("User"), is(IsEqual.equalTo(true)));
+        assertThat(withRoles.hasRole("Admin"), is(IsEqual.equalTo(false)));
+        assertThat(withRoles.getRoles(), is(IsEqual.equalTo(Set.of("User"))));
+        assertThat(session.hasRole("User"), is(IsEqual.equalTo(false)));
+        assertThat(withRoles.refresh(null).hasRole("User"), is(IsEqual.equalTo(true)));
+        String message = Assert.assertThrows(NullPointerException.class, () -> session.withRoles(null)).getMessage();
+        assertThat(message, is("roles are mandatory"));
+    }
+
+    @Test
+    public void parallelConstruction() {
+        JsonObject authorization = new RptGenerator(20, 1000, 3).authorization("dummy");
+        ForkJoinPool pool = new ForkJoinPool(4);
+        UserSessionOptions options = UserSessionOptions.defaults().withParallelThreshold(0).withParallelPool(pool);
+        UserSession sequential = new UserSession("dummy", authorization);
+        UserSession parallel = new UserSession("dummy", authorization, options);
+
+        assertThat(parallel.resourcePermissions, is(IsEqual.equalTo(sequential.resourcePermissions)));
+        assertThat(parallel.instancePermissions.size(), is(IsEqual.equalTo(sequential.instancePermissions.size())));
+        assertThat(parallel.instancePermissions.asMap(), is(IsEqual.equalTo(sequential.instancePermissions.asMap())));
+        assertThat(new UserSession("dummy", authorization(addScopes(addResource("REPORTS:dummy:34"), "r")), options)
+                .hasInstancePermission("REPORTS", 34L, "r"), is(IsEqual.equalTo(true)));
+        pool.shutdown();
+    }
+
+    @Test
+    public void claimsOverLimitsAreRejected() {
+        JsonObject authorization = authorization(addScopes(addResource("REPORTS:dummy:34"), "r", "x"),
+                addScopes(addResource("REPORTS:dummy:38"), "a"),
+                addScopes(addResource("GROUPS:dummy"), "i"));
+        UserSessionOptions options = UserSessionOptions.defaults();
+        long rejected = ClaimLimit.PERMISSIONS.getRejected();
+
+        ClaimLimitException exception = Assert.assertThrows(ClaimLimitException.class, () ->
+                new UserSession("dummy", authorization, options.withLimit(ClaimLimit.PERMISSIONS, 2)));
+
+        assertThat(exception.getLimit(), is(ClaimLimit.PERMISSIONS));
+        assertThat(exception.getMessage(), is("Authorization exceeds the PERMISSIONS limit of 2"));
+        assertThat(ClaimLimit.PERMISSIONS.getRejected(), is(rejected + 1));
+        Assert.assertThrows(ClaimLimitException.class, () ->
+                new UserSession("dummy", authorization, options.withLimit(ClaimLimit.SCOPES, 1)));
+        Assert.assertThrows(ClaimLimitException.class, () ->
+                new UserSession("dummy", authorization, options.withLimit(ClaimLimit.RSNAME_LENGTH, 15)));
+        Assert.assertThrows(ClaimLimitException.class, () ->
+                new UserSession("dummy", authorization, options.withLimit(ClaimLimit.INSTANCES, 1)));
+        UserSession withinLimits = new UserSession("dummy", authorization, options.withLimit(ClaimLimit.PERMISSIONS, 3)
+                .withLimit(ClaimLimit.SCOPES, 2).withLimit(ClaimLimit.RSNAME_LENGTH, 16).withLimit(ClaimLimit.INSTANCES, 2));
+        assertThat(withinLimits.instancePermissions.asMap(), is(IsEqual.equalTo(
+                new UserSession("dummy", authorization).instancePermissions.asMap())));
+    }
+
+    @Test
+    public void instancesRepeatedInChunksAreCountedOnce() {
+        JsonObjectBuilder[] permissions = new JsonObjectBuilder[4 * UserSession.MIN_CHUNK];
+        for (int i = 0; i < permissions.length; i++) {
+            permissions[i] = addScopes(addResource("REPORTS:dummy:" + i % 10), "r");
+        }
+        JsonObject authorization = authorization(permissions);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        UserSessionOptions options = UserSessionOptions.defaults().withParallelThreshold(0).withParallelPool(pool);
+
+        UserSession session = new UserSession("dummy", authorization, options.withLimit(ClaimLimit.INSTANCES, 10));
+
+        assertThat(session.instancePermissions.asMap().size(), is(IsEqual.equalTo(10)));
+        Assert.assertThrows(ClaimLimitException.class, () ->
+                new UserSession("dummy", authorization, options.withLimit(ClaimLimit.INSTANCES, 9)));
+        pool.shutdown();
+    }
+
+    @Test
+    public void claimsOverLimitsAreTruncated() {
+        JsonObject authorization = authorization(addScopes(addResource("REPORTS:dummy:34"), "r", "x"),
+                addScopes(addResource("REPORTS:dummy:34"), "a"),
+                addScopes(addResource("REPORTS:dummy:38"), "a"),
+                addScopes(addResource("GROUPS:dummy"), "i"),
+                addScopes(addResource("GROUPS:dummy:long-instance"), "i"),
+                addScopes(addResource("USERS:dummy"), "u"));
+        UserSessionOptions options = UserSessionOptions.defaults().withTruncation(true);
+        long truncated = ClaimLimit.INSTANCES.getTruncated();
+
+        UserSession session = new UserSession("dummy", authorization, options.withLimit(ClaimLimit.PERMISSIONS, 5)
+                .withLimit(ClaimLimit.SCOPES, 1).withLimit(ClaimLimit.RSNAME_LENGTH, 16)
+                .withLimit(ClaimLimit.INSTANCES, 1));
+
+        assertThat(session.getResources(), is(IsEqual.equalTo(Set.of("REPORTS", "GROUPS"))));
+        assertThat(session.instancePermissions.asMap(), is(IsEqual.equalTo(Map.of("REPORTS:34", Set.of("r", "a")))));
+        assertThat(session.hasPermissions("REPORTS", "r", "a"), is(IsEqual.equalTo(true)));
+        assertThat(ClaimLimit.INSTANCES.getTruncated(), is(truncated + 1));
+        ForkJoinPool pool = new ForkJoinPool(2);
+        UserSession parallel = new UserSession("dummy", new RptGenerator(20, 1000, 3).authorization("dummy"),
+                options.withLimit(ClaimLimit.INSTANCES, 100).withParallelThreshold(0).withParallelPool(pool));
+        assertThat(parallel.instancePermissions.size(), is(IsEqual.equalTo(100)));
+        pool.shutdown();
+    }
+
+    @Test
+    public void parallelConstructionJoinsScopesOfChunks() {
+        UUID uuid = UUID.randomUUID();
+        JsonObjectBuilder[] resources = new JsonObjectBuilder[4 * UserSession.MIN_CHUNK];
+        for (int i = 0; i < resources.length; i++) {
+            resources[i] = addScopes(addResource("GROUPS:dummy:" + i), "i");
+        }
+        String[] instances = {"34", uuid.toString(), "report"};
+        for (int i = 0; i < instances.length; i++) {
+            resources[i] = addScopes(addResource("REPORTS:dummy:" + instances[i]), "r");
+            resources[resources.length - 1 - i] = addScopes(addResource("REPORTS:dummy:" + instances[i]), "x");
+        }
+        resources[resources.length / 2] = addScopes(addResource("REPORTS:dummy"), "a");
+        JsonObject authorization = authorization(resources);
+        UserSession sequential = new UserSession("dummy", authorization);
+        UserSession parallel = new UserSession("dummy", authorization,
+                UserSessionOptions.defaults().withParallelThreshold(resources.length));
+
+        assertThat(parallel.resourcePermissions, is(IsEqual.equalTo(sequential.resourcePermissions)));
+        assertThat(parallel.getResources(), is(IsEqual.equalTo(Set.of("GROUPS", "REPORTS"))));
+        assertThat(parallel.instancePermissions.asMap(), is(IsEqual.equalTo(sequential.instancePermissions.asMap())));
+        assertThat(parallel.instancePermissions.size(), is(IsEqual.equalTo(resources.length - 4)));
+        assertThat(parallel.hasInstancePermissions("REPORTS", 34L, "r", "x"), is(IsEqual.equalTo(true)));
+        assertThat(parallel.hasInstancePermissions("REPORTS", uuid, "r", "x"), is(IsEqual.equalTo(true)));
+        assertThat(parallel.hasInstancePermissions("REPORTS", "report", "r", "x"), is(IsEqual.equalTo(true)));
+    }
+
+    @Test
+    public void projectedResources() {
+        UserSessionOptions options = UserSessionOptions.defaults().withResources(List.of("REPORTS", "GROUPS", "REPORTS"));
+        JsonObject authorization = authorization(addScopes(addResource("REPORTS:dummy:34"), "r"),
+                addScopes(addResource("REPORTSX:dummy:34"), "r"), addScopes(addResource("REPORT:dummy"), "r"),
+                addScopes(addResource("USERS:dummy:7"), "r"), addScopes(addResource("GROUPS:dummy"), "i"),
+                addScopes(addResource("REPORTS"), "r"));
+        UserSession session = new UserSession("dummy", authorization, options);
+
+        assertThat(options.getResources(), is(IsEqual.equalTo(Set.of("REPORTS", "GROUPS"))));
+        assertThat(session.getResources(), is(IsEqual.equalTo(Set.of("REPORTS", "GROUPS"))));
+        assertThat(session.instancePermissions.size(), is(IsEqual.equalTo(1)));
+        assertThat(session.hasInstancePermission("REPORTS", "34", "r"), is(IsEqual.equalTo(true)));
+        assertThat(session.refresh(authorization(addScopes(addResource("USERS:dummy:7"), "r"))).getResources().isEmpty(),
+                is(IsEqual.equalTo(true)));
+
+        UserSessionOptions all = options.withAllResources();
+        assertThat(all.getResources(), nullValue());
+        assertThat(new UserSession("dummy", authorization, all).getResources(),
+                is(IsEqual.equalTo(Set.of("REPORTS", "REPORTSX", "REPORT", "USERS", "GROUPS"))));
+        String message = Assert.assertThrows(NullPointerException.class, () -> options.withResources(null)).getMessage();
+        assertThat(message, is("resources are mandatory"));
+        message = Assert.assertThrows(IllegalArgumentException.class, () -> options.withResources(Set.of())).getMessage();
+        assertThat(message, is("resources must not be empty, use withAllResources() to index every resource"));
+    }
+
+    @Test
+    public void typedInstances() {
+        UUID uuid = UUID.randomUUID();
+        JsonObject authorization = authorization(addScopes(addResource("REPORTS:dummy:34"), "r", "x"),
+                addScopes(addResource("REPORTS:dummy:-9223372036854775808"), "r", "x"),
+                addScopes(addResource("REPORTS:dummy:9223372036854775807"), "r"),
+                addScopes(addResource("REPORTS:dummy:034"), "x"),
+                addScopes(addResource("REPORTS:dummy:" + uuid), "r"),
+                addScopes(addResource("REPORTS:dummy:" + uuid.toString().toUpperCase()), "x"),
+                addScopes(addResource("REPORTS:dummy:report"), "x"));
+        UserSession session = new UserSession("dummy", authorization);
+
+        assertThat(session.instancePermissions.size(), is(IsEqual.equalTo(7)));
+        assertThat(session.getInstances("REPORTS"), is(IsEqual.equalTo(Set.of("34", "-9223372036854775808",
+                "9223372036854775807", "034", uuid.toString(), uuid.toString().toUpperCase(), "report"))));
+        assertThat(session.hasInstancePermission("REPORTS", 34L, "x"), is(IsEqual.equalTo(true)));
+        assertThat(session.hasInstancePermission("REPORTS", 35L, "x"), is(IsEqual.equalTo(false)));
+        assertThat(session.hasInstancePermission("GROUPS", 34L, "x"), is(IsEqual.equalTo(false)));
+        assertThat(session.hasInstancePermissions("REPORTS", Long.MIN_VALUE, "r", "x"), is(IsEqual.equalTo(true)));
+        assertThat(session.hasInstancePermissions("REPORTS", Long.MAX_VALUE, "r", "x"), is(IsEqual.equalTo(false)));
+        assertThat(session.hasInstancePermissions("REPORTS", Long.MAX_VALUE, Operation.OR, "x", "r"), is(IsEqual.equalTo(true)));
+        assertThat(session.hasInstancePermissions("REPORTS", 35L, Operation.OR, "x", "r"), is(IsEqual.equalTo(false)));
+        assertThat(session.hasInstancePermission("REPORTS", "034", "x"), is(IsEqual.equalTo(true)));
+        assertThat(session.hasInstancePermission("REPORTS", "034", "r"), is(IsEqual.equalTo(false)));
+        assertThat(session.hasInstancePermission("REPORTS", uuid, "r"), is(IsEqual.equalTo(true)));
+        assertThat(session.hasInstancePermission("REPORTS", uuid.toString(), "r"), is(IsEqual.equalTo(true)));
+        assertThat(session.hasInstancePermission("REPORTS", uuid.toString().toUpperCase(), "r"), is(IsEqual.equalTo(false)));
+        assertThat(session.hasInstancePermission("REPORTS", UUID.randomUUID().toString(), "r"), is(IsEqual.equalTo(false)));
+        assertThat(session.hasInstancePermission("GROUPS", uuid, "r"), is(IsEqual.equalTo(false)));
+        assertThat(session.hasInstancePermissions("REPORTS", uuid, "r", "x"), is(IsEqual.equalTo(false)));
+        assertThat(session.hasInstancePermissions("REPORTS", uuid, Operation.OR, "x", "r"), is(IsEqual.equalTo(true)));
+        assertThat(session.hasInstancePermissions("REPORTS", UUID.randomUUID(), Operation.OR, "x", "r"), is(IsEqual.equalTo(false)));
+        assertThat(session.hasInstancePermission("REPORTS", "report", "x"), is(IsEqual.equalTo(true)));
+        assertThat(session.hasInstancePermission("REPORTS", "other", "x"), is(IsEqual.equalTo(false)));
+        assertThat(session.instancePermissions.get("REPORTS", 34L),
+                sameInstance(session.instancePermissions.get("REPORTS", "-9223372036854775808")));
+    }
+
+    @Test
+    public void manyTypedInstances() {
+        JsonObjectBuilder[] resources = new JsonObjectBuilder[2000];
+        for (int i = 0; i < 1000; i++) {
+            resources[2 * i] = addScopes(addResource("REPORTS:dummy:" + (i * 7919L)), "r");
+            resources[2 * i + 1] = addScopes(addResource("REPORTS:dummy:" + new UUID(i, -i)), "x");
+        }
+        UserSession session = new UserSession("dummy", authorization(resources));
+
+        assertThat(session.instancePermissions.size(), is(IsEqual.equalTo(2000)));
+        for (int i = 0; i < 1000; i++) {
+            assertThat(session.hasInstancePermission("REPORTS", i * 7919L, "r"), is(IsEqual.equalTo(true)));
+            assertThat(session.hasInstancePermission("REPORTS", i * 7919L + 1, "r"), is(IsEqual.equalTo(false)));
+            assertThat(session.hasInstancePermission("REPORTS", new UUID(i, -i), "x"), is(IsEqual.equalTo(true)));
+            assertThat(session.hasInstancePermission("REPORTS", new UUID(-i, i), "x"), is(i == 0));
+        }
+    }
+
+    @Test
+    public void retainedSize() {
+        UserSession empty = new UserSession("dummy", null);
+        UserSession small = new UserSession("dummy", authorization(addScopes(addResource("REPORTS:dummy:34"), "r")));
+        JsonObjectBuilder[] resources = new JsonObjectBuilder[3000];
+        for (int i = 0; i < 1000; i++) {
+            resources[3 * i] = addScopes(addResource("REPORTS:dummy:" + i), "r", "x");
+            resources[3 * i + 1] = addScopes(addResource("DOCUMENTS:dummy:" + new UUID(i, -i)), "r", "x");
+            resources[3 * i + 2] = addScopes(addResource("GROUPS:dummy:group-" + i), "r", "x");
+        }
+        UserSession large = new UserSession("dummy", authorization(resources));
+
+        assertThat(empty.getRetainedSize() > 0, is(IsEqual.equalTo(true)));
+        assertThat(small.getRetainedSize() > empty.getRetainedSize(), is(IsEqual.equalTo(true)));
+        // instances share one scope set, the size is dominated by the tables and the string instances
+        assertThat(large.getRetainedSize() > 1000 * (8 + 16 + 40), is(IsEqual.equalTo(true)));
+        assertThat(large.getRetainedSize() < 1000 * 200, is(IsEqual.equalTo(true)));
+        assertThat(small.withRoles(List.of("User")).getRetainedSize() > small.getRetainedSize(),
+                is(IsEqual.equalTo(true)));
+        assertThat(large.refresh(authorization(addScopes(addResource("REPORTS:dummy:34"), "r"))).getRetainedSize()
+                < large.getRetainedSize() / 100, is(IsEqual.equalTo(true)));
+        assertThat(PermissionsCodec.decode(PermissionsCodec.encode(small)).getRetainedSize()
+                > empty.getRetainedSize(), is(IsEqual.equalTo(true)));
+    }
+
+    @Test
+    public void impliedScopes() {
+        UserSessionOptions options = UserSessionOptions.defaults().withImplications(ScopeImplications.none()
+                .with(Permission.UPDATE, Permission.READ).with(Permission.DELETE, Permission.ARCHIVE, Permission.UPDATE));
+        UserSession session = new UserSession("dummy", authorization(
+                addScopes(addResource("REPORTS:dummy:34"), Permission.DELETE),
+                addScopes(addResource("GROUPS:dummy"), Permission.UPDATE)), options);
+
+        assertThat(session.hasPermissions("GROUPS", Permission.UPDATE, Permission.READ), is(IsEqual.equalTo(true)));
+        assertThat(session.hasPermission("GROUPS", Permission.DELETE), is(IsEqual.equalTo(false)));
+        assertThat(session.hasInstancePermissions("REPORTS", 34L, Permission.DELETE, Permission.ARCHIVE,
+                Permission.UPDATE, Permission.READ), is(IsEqual.equalTo(true)));
+        assertThat(session.hasPermission("REPORTS", Permission.READ), is(IsEqual.equalTo(true)));
+
+        UserSession refreshed = session.refresh(authorization(addScopes(addResource("REPORTS:dummy:34"), Permission.UPDATE)));
+        assertThat(refreshed.hasInstancePermission("REPORTS", "34", Permission.READ), is(IsEqual.equalTo(true)));
+        assertThat(refreshed.hasInstancePermission("REPORTS", "34", Permission.ARCHIVE), is(IsEqual.equalTo(false)));
+        assertThat(new UserSession("dummy", authorization(addScopes(addResource("GROUPS:dummy"), Permission.UPDATE)))
+                .hasPermission("GROUPS", Permission.READ), is(IsEqual.equalTo(false)));
+    }
+
+    @Test
+    public void resourcesAndInstancesByScope() {
+        UserSession session = new UserSession("dummy", authorization(addScopes(addResource("REPORTS:dummy:34"), "r", "x"),
+                addScopes(addResource("REPORTS:dummy:report-38"), "r"), addScopes(addResource("GROUPS:dummy"), "r"),
+                addScopes(addResource("USERS:dummy"), "x")));
+
+        assertThat(session.getResourcesWith("r"), is(IsEqual.equalTo(Set.of("REPORTS", "GROUPS"))));
+        assertThat(session.getResourcesWith("x"), is(IsEqual.equalTo(Set.of("REPORTS", "USERS"))));
+        assertThat(session.getResourcesWith("d"), is(IsEqual.equalTo(Set.of())));
+        assertThat(session.getInstances("REPORTS", "r"), is(IsEqual.equalTo(Set.of("34", "report-38"))));
+        assertThat(session.getInstances("REPORTS", "x"), sameInstance(session.getInstances("REPORTS", "x")));
+        assertThat(session.getInstances("GROUPS", "r"), is(IsEqual.equalTo(Set.of())));
+        Assert.assertThrows(UnsupportedOperationException.class, () -> session.getResourcesWith("r").add("USERS"));
+        Assert.assertThrows(UnsupportedOperationException.class, () -> session.getInstances("REPORTS", "r").clear());
+
+        UserSession refreshed = session.refresh(authorization(addScopes(addResource("USERS:dummy:7"), "r")));
+        assertThat(refreshed.getResourcesWith("r"), is(IsEqual.equalTo(Set.of("USERS"))));
+        assertThat(refreshed.getInstances("REPORTS", "r"), is(IsEqual.equalTo(Set.of())));
+        assertThat(session.withRoles(List.of("User")).getResourcesWith("x"), is(IsEqual.equalTo(Set.of("REPORTS", "USERS"))));
+    }
+
+    public static JsonObject authorization(JsonObjectBuilder... resources) {
+        JsonArrayBuilder permissions = Json.createArrayBuilder();
+        for (JsonObjectBuilder resource : resources) {
+            permissions.add(resource);
+        }
+        return Json.createObjectBuilder().add("permissions", permissions).build();
+    }
+
     public static JsonObjectBuilder addResource(String value) {
         return Json.createObjectBuilder().add("rsname", value);
     }